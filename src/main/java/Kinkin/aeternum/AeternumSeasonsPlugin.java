@@ -40,6 +40,9 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
     private java.util.List<String> disabledWorlds = new java.util.ArrayList<>();
     private BiomeSpoofSpawnGuard biomeSpoofSpawnGuard;
     private FoliaLib foliaLib;
+    private BlockMutationService mutations;
+    private AdaptiveBudgetController budgets;
+    private ChunkSeasonState chunkState;
 
     private void loadWorldExclusionList() {
         // Obtenemos la lista de la nueva sección 'worlds.disabled_season_fx'
@@ -67,6 +70,12 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
         cfg.loadAll();
         loadWorldExclusionList();
         WinterWorldGuardHelper.init(this);
+        this.mutations = new BlockMutationService(this);
+        mutations.register();
+        this.budgets = new AdaptiveBudgetController(this);
+        budgets.register();
+        this.chunkState = new ChunkSeasonState(this);
+        chunkState.register();
 
         // === flags de config ===
         boolean frostEnabled = getConfig().getBoolean("features.portals.frost.enabled", true);
@@ -134,6 +143,7 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
     @Override public void onDisable() {
         if (hud != null) hud.unregister();
         if (seasons != null) seasons.persistNow();
+        if (budgets != null) budgets.unregister();
         if (winterPainter != null) winterPainter.unregister();
         if (biomeSpoof != null) biomeSpoof.unregister();
         if (biomeSpoofSpawnGuard != null) biomeSpoofSpawnGuard.unregister();
@@ -142,6 +152,7 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
         if (autumnSoilPainter  != null) autumnSoilPainter.unregister();
         if (migration != null) migration.unregister();
         if (flora != null) flora.unregister();
+        if (chunkState != null) chunkState.unregister();
 
         if (canopySnowPainter != null) {
             canopySnowPainter.unregister();
@@ -156,6 +167,8 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
         if (villagerTypes != null) {
             org.bukkit.event.HandlerList.unregisterAll(villagerTypes);
         }
+        // al final: los pintores encolan sus reverts de limpieza al desmontarse y se aplican aquí
+        if (mutations != null) mutations.unregister();
         if (foliaLib != null) {
             foliaLib.getScheduler().cancelAllTasks();
         }
@@ -199,6 +212,8 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
         lang.register();
 
         // 3) Reinstanciar servicios con la config nueva
+        if (mutations != null) mutations.reloadFromConfig();
+        if (budgets != null) budgets.reloadFromConfig();
         this.seasons = new SeasonService(this);
         this.hud     = new HudService(this, seasons);
         this.winterPainter = new WinterWorldPainter(this, seasons);
@@ -245,6 +260,22 @@ public final class AeternumSeasonsPlugin extends JavaPlugin {
         return foliaLib;
     }
 
+    public SeasonalFloraController getFlora() {
+        return flora;
+    }
+
+    public ChunkSeasonState getChunkState() {
+        return chunkState;
+    }
+
+    public BlockMutationService getMutations() {
+        return mutations;
+    }
+
+    public AdaptiveBudgetController getBudgets() {
+        return budgets;
+    }
+
     public PlatformScheduler getScheduler() {
         return foliaLib.getScheduler();
     }
@@ -6,6 +6,7 @@ import Kinkin.aeternum.calendar.Season;
 import Kinkin.aeternum.calendar.SeasonService;
 import Kinkin.aeternum.hud.HudService;
 import Kinkin.aeternum.world.BiomeSpoofAdapter;
+import Kinkin.aeternum.world.WinterWorldGuardHelper;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 
@@ -208,7 +209,7 @@ public final class SeasonCommand implements CommandExecutor, TabCompleter {
                     return deny(s);
 
                 if (args.length < 2) {
-                    s.sendMessage("§eUso: /season biomes <on|off|restore>");
+                    s.sendMessage("§eUso: /season biomes <on|off|restore" + (debugCommands() ? "|bench" : "") + ">");
                     return true;
                 }
 
@@ -231,11 +232,68 @@ public final class SeasonCommand implements CommandExecutor, TabCompleter {
                         biomeSpoof.getDiskBackups().startRestoreAll(s, budget);
                         s.sendMessage("§a[Season] Restaurando biomas con budget " + budget + "/tick...");
                     }
-                    default -> s.sendMessage("§eUso: /season biomes <on|off|restore>");
+                    case "bench" -> {
+                        if (!debugCommands()) {
+                            s.sendMessage("§e[Season] Benchmark desactivado (performance.debug_commands: false).");
+                            return true;
+                        }
+                        int chunks = 2048;
+                        if (args.length >= 3) {
+                            try {
+                                chunks = Math.max(1, Math.min(100_000, Integer.parseInt(args[2])));
+                            } catch (NumberFormatException ignored) {
+                            }
+                        }
+                        biomeSpoof.getDiskBackups().startBenchmark(s, chunks);
+                        s.sendMessage("§a[Season] Benchmark de backups con " + chunks + " chunks...");
+                    }
+                    default -> s.sendMessage("§eUso: /season biomes <on|off|restore" + (debugCommands() ? "|bench" : "") + ">");
                 }
                 return true;
             }
 
+            case "flora" -> {
+                if (!s.hasPermission("aeternum.command.perf") && !s.hasPermission("aeternum.command.base"))
+                    return deny(s);
+
+                if (!debugCommands()) {
+                    s.sendMessage("§e[Season] Benchmark desactivado (performance.debug_commands: false).");
+                    return true;
+                }
+                if (args.length < 2 || !args[1].equalsIgnoreCase("bench")) {
+                    s.sendMessage("§eUso: /season flora bench [chunks]");
+                    return true;
+                }
+                int chunks = 4096;
+                if (args.length >= 3) {
+                    try {
+                        chunks = Math.max(1, Math.min(100_000, Integer.parseInt(args[2])));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                plugin.getFlora().startBenchmark(s, chunks);
+                s.sendMessage("§a[Season] Benchmark de reglas de flora con " + chunks + " chunks...");
+                return true;
+            }
+
+            case "perf" -> {
+                if (!s.hasPermission("aeternum.command.perf") && !s.hasPermission("aeternum.command.base"))
+                    return deny(s);
+
+                s.sendMessage("§6[Season] Presupuestos adaptativos:");
+                for (String line : plugin.getBudgets().describe()) s.sendMessage("§7 " + line);
+                s.sendMessage("§6[Season] Escrituras de bloques:");
+                for (String line : plugin.getMutations().describe()) s.sendMessage("§7 " + line);
+                s.sendMessage("§6[Season] WorldGuard: §7" + WinterWorldGuardHelper.describeCache());
+                s.sendMessage("§6[Season] Estado por chunk: §7" + plugin.getChunkState().describe());
+                s.sendMessage("§6[Season] Biome resend: §7" + biomeSpoof.describeResend());
+                s.sendMessage("§6[Season] Biome staging: §7" + biomeSpoof.describeStaging());
+                s.sendMessage("§6[Season] Biome backups: §7" + biomeSpoof.describeBackups());
+                s.sendMessage("§6[Season] Backup writer: §7" + biomeSpoof.describeBackupWriter());
+                s.sendMessage("§6[Season] Cold index: §7" + biomeSpoof.describeColdIndex());
+                return true;
+            }
+
 
             default -> {
                 Map<String, Object> vars = Collections.singletonMap("label", label);
@@ -250,6 +308,11 @@ public final class SeasonCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    /** Los benchmarks escriben datos sintéticos: solo con performance.debug_commands. */
+    private boolean debugCommands() {
+        return plugin.cfg.climate.getBoolean("performance.debug_commands", false);
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender s, Command cmd, String label, String[] args) {
 
@@ -280,6 +343,13 @@ public final class SeasonCommand implements CommandExecutor, TabCompleter {
             if (s.hasPermission("aeternum.command.biomes") || s.hasPermission("aeternum.command.base"))
                 out.add("biomes");
 
+            if (s.hasPermission("aeternum.command.perf") || s.hasPermission("aeternum.command.base"))
+                out.add("perf");
+
+            // "flora" solo tiene "bench", que es de depuración
+            if (debugCommands() && (s.hasPermission("aeternum.command.perf") || s.hasPermission("aeternum.command.base")))
+                out.add("flora");
+
             if (s.hasPermission("aeternum.command.year") || s.hasPermission("aeternum.command.base"))
                 out.add("year");
 
@@ -306,7 +376,16 @@ public final class SeasonCommand implements CommandExecutor, TabCompleter {
             if (!s.hasPermission("aeternum.command.biomes") && !s.hasPermission("aeternum.command.base"))
                 return Collections.emptyList();
 
-            return Arrays.asList("on", "off", "restore");
+            return debugCommands()
+                    ? Arrays.asList("on", "off", "restore", "bench")
+                    : Arrays.asList("on", "off", "restore");
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("flora")) {
+            if (!s.hasPermission("aeternum.command.perf") && !s.hasPermission("aeternum.command.base"))
+                return Collections.emptyList();
+
+            return debugCommands() ? Collections.singletonList("bench") : Collections.emptyList();
         }
 
         return Collections.emptyList();
@@ -15,6 +15,20 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
+/**
+ * Backups en disco de los biomas originales (primera vez que el spoof toca un chunk).
+ *
+ * Formato actual: biome_backups/&lt;world-uuid&gt;/r.&lt;rx&gt;.&lt;rz&gt;.abr, 32x32 chunks
+ * por archivo (ver {@link BiomeRegionFile}); cada entrada es el payload v1 de siempre.
+ * Los .bin sueltos del formato viejo (uno por chunk) se migran solos al arrancar.
+ *
+ * Las escrituras son write-behind: saveFirstTouch solo mira el índice en memoria y
+ * encola; {@link BiomeBackupWriter} las agrupa en un journal y las compacta a las
+ * regiones en segundo plano.
+ *
+ * Al lado vive el índice de chunks fríos de origen ({@link ColdChunkIndex}, r.*.cold),
+ * que escribe el mismo hilo.
+ */
 public final class BiomeBackupStore {
 
     private static final int MAGIC = 0xAEB10B10; // firma simple
@@ -23,9 +37,14 @@ public final class BiomeBackupStore {
     private final AeternumSeasonsPlugin plugin;
     private final Path root;
 
-    // evita doble guardado / guardado concurrente
-    private final Set<Long> saved = ConcurrentHashMap.newKeySet();
-    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // chunks con backup (en disco, en el journal o encolados): el hot path solo mira aquí
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+
+    // archivos de región abiertos (ruta → archivo)
+    private final Map<Path, BiomeRegionFile> regions = new ConcurrentHashMap<>();
+
+    private final ColdChunkIndex coldIndex;
+    private final BiomeBackupWriter writer;
 
     public BiomeBackupStore(AeternumSeasonsPlugin plugin) {
         this.plugin = plugin;
@@ -35,46 +54,79 @@ public final class BiomeBackupStore {
         } catch (IOException e) {
             plugin.getLogger().warning("[BiomeBackup] No se pudo crear carpeta root: " + e.getMessage());
         }
+        // tras un reload el escritor viejo puede seguir volcando: su índice frío se lee después
+        Thread previous = BiomeBackupWriter.lastThread();
+        this.coldIndex = new ColdChunkIndex(root, plugin.getLogger(),
+                load -> plugin.getScheduler().runAsync(task -> {
+                    BiomeBackupWriter.await(previous);
+                    load.run();
+                }));
+        // el escritor migra los .bin viejos, re-aplica el journal y carga el índice antes de nada
+        this.writer = new BiomeBackupWriter(this, plugin.getLogger(), root.resolve("journal.bin"),
+                plugin.cfg.climate.getInt("biome_spoof.backups.queue_capacity", 4096),
+                plugin.cfg.climate.getInt("biome_spoof.backups.batch_max", 256),
+                plugin.cfg.climate.getInt("biome_spoof.backups.compact_interval_seconds", 30),
+                plugin.cfg.climate.getInt("biome_spoof.backups.compact_journal_kb", 4096));
     }
 
     /* =========================== SAVE =========================== */
 
-    public void saveFirstTouch(Chunk ch, Biome[] originalGrid, int stepXZ, int stepY) {
+    /**
+     * Encola el backup del original si es la primera vez. false = no se pudo guardar
+     * (escritor saturado o error): el chunk no debe pintarse todavía.
+     */
+    public boolean saveFirstTouch(Chunk ch, Biome[] originalGrid, int stepXZ, int stepY) {
         World w = ch.getWorld();
         int cx = ch.getX();
         int cz = ch.getZ();
-        long k = key(w, cx, cz);
 
-        Path file = chunkFile(w, cx, cz);
+        // ya tiene backup (o está en camino): el primero es el original de verdad
+        if (!known.add(key(w, cx, cz))) {
+            return true;
+        }
 
-        // si ya existe o ya lo tenemos marcado, no guardamos
-        if (saved.contains(k) || pending.contains(k) || Files.exists(file)) {
-            saved.add(k);
-            return;
+        try {
+            if (writer.submit(w.getUID(), cx, cz, encode(originalGrid, stepXZ, stepY, w.getMinHeight(), w.getMaxHeight()))) {
+                return true;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("[BiomeBackup] Error codificando " + cx + "," + cz + ": " + e.getMessage());
         }
+        known.remove(key(w, cx, cz));
+        return false;
+    }
 
-        pending.add(k);
+    /** Llenado de la cola del escritor (0..1); el spoof frena si se acerca a 1. */
+    public double pressure() {
+        return writer.pressure();
+    }
 
-        // copia defensiva
-        Biome[] copy = Arrays.copyOf(originalGrid, originalGrid.length);
-        int minY = w.getMinHeight();
-        int maxY = w.getMaxHeight();
+    public String describe() {
+        return writer.describe() + " known=" + known.size();
+    }
 
-        plugin.getScheduler().runAsync(task -> {
-            try {
-                writeBackup(file, copy, stepXZ, stepY, minY, maxY);
-                saved.add(k);
-            } catch (Throwable t) {
-                plugin.getLogger().warning("[BiomeBackup] Error guardando " + file + ": " + t.getMessage());
-            } finally {
-                pending.remove(k);
-            }
-        });
+    /** Clasificación fría/templada de los chunks, persistente. */
+    ColdChunkIndex coldIndex() {
+        return coldIndex;
+    }
+
+    public String describeCold() {
+        return coldIndex.describe();
     }
 
-    private void writeBackup(Path file, Biome[] grid, int stepXZ, int stepY, int minY, int maxY) throws IOException {
-        Files.createDirectories(file.getParent());
+    /* =========================== ÍNDICE =========================== */
 
+    void markKnown(UUID worldId, int cx, int cz) {
+        known.add(key(worldId, cx, cz));
+    }
+
+    /** Carga en memoria qué chunks tienen backup (cabeceras de región). Hilo escritor. */
+    void loadKnownIndex() {
+        for (Entry e : listEntries()) known.add(key(e.worldId, e.cx, e.cz));
+    }
+
+    /** Payload v1: cabecera + paleta por nombre + índices (byte o short). */
+    static byte[] encode(Biome[] grid, int stepXZ, int stepY, int minY, int maxY) throws IOException {
         // paleta por nombre
         Map<String, Integer> paletteMap = new LinkedHashMap<>();
         List<String> palette = new ArrayList<>();
@@ -93,8 +145,8 @@ public final class BiomeBackupStore {
 
         boolean useByte = palette.size() <= 255;
 
-        try (DataOutputStream out = new DataOutputStream(
-                new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)))) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + indices.length * (useByte ? 1 : 2));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
 
             out.writeInt(MAGIC);
             out.writeByte(VERSION);
@@ -119,47 +171,218 @@ public final class BiomeBackupStore {
                 for (int v : indices) out.writeShort(v);
             }
         }
+        return bytes.toByteArray();
     }
 
-    /* =========================== RESTORE =========================== */
+    /* =========================== REGIONES =========================== */
+
+    BiomeRegionFile region(UUID worldId, int cx, int cz, boolean create) throws IOException {
+        Path file = root.resolve(worldId.toString()).resolve(BiomeRegionFile.fileName(
+                BiomeRegionFile.regionCoord(cx), BiomeRegionFile.regionCoord(cz)));
+        BiomeRegionFile open = regions.get(file);
+        if (open != null) return open;
+        if (!create && !Files.exists(file)) return null;
+
+        synchronized (regions) {
+            open = regions.get(file);
+            if (open == null) {
+                Files.createDirectories(file.getParent());
+                open = new BiomeRegionFile(file);
+                regions.put(file, open);
+            }
+            return open;
+        }
+    }
 
-    public void startRestoreAll(CommandSender sender, int budgetChunksPerTick) {
-        // escaneo async de todos los backups
+    /** Cierra y borra una región vacía. Hilo escritor. */
+    void dropRegion(BiomeRegionFile region) throws IOException {
+        synchronized (regions) {
+            regions.remove(region.path());
+        }
+        region.close();
+        Files.deleteIfExists(region.path());
+    }
+
+    /** Cierra los archivos abiertos. Hilo escritor, al terminar. */
+    void closeRegions() {
+        synchronized (regions) {
+            for (BiomeRegionFile r : regions.values()) {
+                try {
+                    r.close();
+                } catch (IOException ignored) {
+                }
+            }
+            regions.clear();
+        }
+    }
+
+    /**
+     * Vacía la cola y el journal; el escritor cierra los archivos al terminar.
+     * Al apagar se espera (acotado); en un reload no: el escritor nuevo espera al viejo.
+     */
+    public void close() {
+        writer.shutdown(!plugin.isEnabled());
+    }
+
+    /* =========================== BENCHMARK =========================== */
+
+    /** Compara formato viejo y regiones sobre datos sintéticos (carpeta temporal aparte). Solo con performance.debug_commands. */
+    public void startBenchmark(CommandSender sender, int chunks) {
         plugin.getScheduler().runAsync(task -> {
-            List<Path> files = new ArrayList<>();
+            List<String> lines;
+            try {
+                Path dir = plugin.getDataFolder().toPath().resolve("biome_backups_bench");
+                lines = BiomeBackupBenchmark.run(dir, Math.max(1, chunks), 16 * 96);
+            } catch (Throwable t) {
+                lines = Collections.singletonList("error: " + t.getMessage());
+            }
+            List<String> result = lines;
+            plugin.getScheduler().runNextTick(next -> {
+                for (String line : result) sender.sendMessage("§7[BiomeBackup] " + line);
+            });
+        });
+    }
 
-            if (Files.exists(root)) {
-                try (Stream<Path> st = Files.walk(root)) {
-                    st.filter(p -> p.toString().endsWith(".bin")).forEach(files::add);
-                } catch (IOException e) {
-                    plugin.getLogger().warning("[BiomeBackup] Error leyendo backups: " + e.getMessage());
+    /* =========================== MIGRACIÓN v1 → regiones =========================== */
+
+    /** Pasa los cx_cz.bin sueltos a archivos de región y los borra. Hilo escritor. */
+    int migrateLegacy() {
+        List<Path> legacy = new ArrayList<>();
+        if (Files.exists(root)) {
+            try (Stream<Path> st = Files.walk(root, 2)) {
+                st.filter(p -> p.toString().endsWith(".bin")).forEach(legacy::add);
+            } catch (IOException e) {
+                plugin.getLogger().warning("[BiomeBackup] Error buscando backups viejos: " + e.getMessage());
+            }
+        }
+        if (legacy.isEmpty()) return 0;
+
+        int moved = 0;
+        int failed = 0;
+        for (Path file : legacy) {
+            try {
+                UUID worldId = UUID.fromString(file.getParent().getFileName().toString());
+                int[] c = parseLegacyName(file.getFileName().toString());
+                if (c == null) {
+                    failed++;
+                    continue;
                 }
+
+                byte[] payload = Files.readAllBytes(file);
+                decode(payload); // valida antes de mover
+
+                BiomeRegionFile region = region(worldId, c[0], c[1], true);
+                if (!region.has(c[0], c[1])) region.write(c[0], c[1], payload);
+                Files.delete(file);
+                moved++;
+            } catch (Throwable t) {
+                failed++;
+                plugin.getLogger().warning("[BiomeBackup] No se pudo migrar " + file + ": " + t.getMessage());
             }
+        }
+        plugin.getLogger().info("[BiomeBackup] Migrados " + moved + " backups .bin a archivos de región"
+                + (failed > 0 ? " (" + failed + " con error, se dejan en su sitio)" : "") + ".");
+        return moved;
+    }
+
+    private static int[] parseLegacyName(String name) {
+        // filename: cx_cz.bin
+        int us = name.indexOf('_');
+        int dot = name.lastIndexOf(".bin");
+        if (us <= 0 || dot <= us) return null;
+        try {
+            return new int[]{Integer.parseInt(name.substring(0, us)), Integer.parseInt(name.substring(us + 1, dot))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /* =========================== RESTORE =========================== */
+
+    public void startRestoreAll(CommandSender sender, int budgetChunksPerTick) {
+        // listado async: primero se vuelca el journal, luego la cabecera de cada región
+        plugin.getScheduler().runAsync(task -> {
+            writer.compactAndWait(30_000L);
+            List<Entry> entries = listEntries();
 
             plugin.getScheduler().runNextTick(next -> {
-                if (files.isEmpty()) {
+                if (entries.isEmpty()) {
                     sender.sendMessage("§e[BiomeBackup] No hay backups para restaurar.");
                     return;
                 }
 
-                sender.sendMessage("§a[BiomeBackup] Restaurando " + files.size()
+                sender.sendMessage("§a[BiomeBackup] Restaurando " + entries.size()
                         + " chunks... budget=" + budgetChunksPerTick + "/tick");
 
-                RestoreTask restoreTask = new RestoreTask(files.iterator(), sender, Math.max(1, budgetChunksPerTick));
+                RestoreTask restoreTask = new RestoreTask(entries.iterator(), sender, Math.max(1, budgetChunksPerTick));
                 plugin.getScheduler().runTimer(restoreTask::tick, 1L, 1L);
             });
         });
     }
 
+    /** Un chunk con backup en disco. */
+    private static final class Entry {
+        final UUID worldId;
+        final int cx, cz;
+
+        Entry(UUID worldId, int cx, int cz) {
+            this.worldId = worldId;
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+
+    private List<Entry> listEntries() {
+        List<Entry> out = new ArrayList<>();
+        if (!Files.exists(root)) return out;
+
+        try (DirectoryStream<Path> worlds = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path worldDir : worlds) {
+                UUID worldId;
+                try {
+                    worldId = UUID.fromString(worldDir.getFileName().toString());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(worldDir, "r.*" + BiomeRegionFile.EXTENSION)) {
+                    for (Path file : files) {
+                        int[] rc = parseRegionName(file.getFileName().toString());
+                        if (rc == null) continue;
+                        BiomeRegionFile region = region(worldId, rc[0] << 5, rc[1] << 5, false);
+                        if (region == null) continue;
+                        for (int[] local : region.entries()) {
+                            out.add(new Entry(worldId, (rc[0] << 5) | local[0], (rc[1] << 5) | local[1]));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("[BiomeBackup] Error leyendo backups: " + e.getMessage());
+        }
+        return out;
+    }
+
+    private static int[] parseRegionName(String name) {
+        // r.<rx>.<rz>.abr
+        String[] parts = name.split("\\.");
+        if (parts.length != 4 || !parts[0].equals("r")) return null;
+        try {
+            return new int[]{Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private final class RestoreTask {
-        private final Iterator<Path> it;
+        private final Iterator<Entry> it;
         private final CommandSender sender;
         private final int budget;
 
         private int restored = 0;
         private int failed = 0;
 
-        private RestoreTask(Iterator<Path> it, CommandSender sender, int budget) {
+        private RestoreTask(Iterator<Entry> it, CommandSender sender, int budget) {
             this.it = it;
             this.sender = sender;
             this.budget = budget;
@@ -169,17 +392,13 @@ public final class BiomeBackupStore {
             int doneThisTick = 0;
 
             while (doneThisTick < budget && it.hasNext()) {
-                Path file = it.next();
-                boolean ok = restoreOne(file);
+                Entry e = it.next();
+                boolean ok = restoreOne(e);
                 if (ok) {
                     restored++;
-                    // borrar .bin restaurado
-                    try {
-                        Files.deleteIfExists(file);
-                    } catch (IOException e) {
-                        plugin.getLogger().warning("[BiomeBackup] No se pudo borrar " + file + ": " + e.getMessage());
-                    }
-                    it.remove();
+                    // el borrado de la entrada (y de la región si queda vacía) lo hace el escritor
+                    writer.delete(e.worldId, e.cx, e.cz);
+                    known.remove(key(e.worldId, e.cx, e.cz));
                 } else {
                     failed++;
                 }
@@ -192,40 +411,29 @@ public final class BiomeBackupStore {
             }
         }
 
-        private boolean restoreOne(Path file) {
+        private boolean restoreOne(Entry e) {
             try {
-                // carpeta padre = world uuid
-                Path worldDir = file.getParent();
-                if (worldDir == null) return false;
-                UUID worldId = UUID.fromString(worldDir.getFileName().toString());
-
-                World w = Bukkit.getWorld(worldId);
+                World w = Bukkit.getWorld(e.worldId);
                 if (w == null) {
-                    plugin.getLogger().warning("[BiomeBackup] Mundo no cargado para " + file);
+                    plugin.getLogger().warning("[BiomeBackup] Mundo no cargado para " + e.worldId);
                     return false;
                 }
 
-                // filename: cx_cz.bin
-                String name = file.getFileName().toString();
-                int us = name.indexOf('_');
-                int dot = name.lastIndexOf(".bin");
-                if (us <= 0 || dot <= us) return false;
+                BiomeRegionFile region = region(e.worldId, e.cx, e.cz, false);
+                byte[] payload = region != null ? region.read(e.cx, e.cz) : null;
+                if (payload == null) return false;
 
-                int cx = Integer.parseInt(name.substring(0, us));
-                int cz = Integer.parseInt(name.substring(us + 1, dot));
-
-                BackupData data = readBackup(file);
-                applyBackup(w, cx, cz, data);
+                applyBackup(w, e.cx, e.cz, decode(payload));
                 return true;
 
             } catch (Throwable t) {
-                plugin.getLogger().warning("[BiomeBackup] Restore error " + file + ": " + t.getMessage());
+                plugin.getLogger().warning("[BiomeBackup] Restore error " + e.cx + "," + e.cz + ": " + t.getMessage());
                 return false;
             }
         }
     }
 
-    private static final class BackupData {
+    static final class BackupData {
         final int stepXZ, stepY;
         final int minY, maxY;
         final String[] palette;
@@ -241,8 +449,8 @@ public final class BiomeBackupStore {
         }
     }
 
-    private BackupData readBackup(Path file) throws IOException {
-        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+    static BackupData decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
             int magic = in.readInt();
             if (magic != MAGIC) throw new IOException("Bad magic");
 
@@ -315,18 +523,14 @@ public final class BiomeBackupStore {
         }
     }
 
-    /* =========================== PATHS / KEY =========================== */
-
-    private Path worldDir(World w) {
-        return root.resolve(w.getUID().toString());
-    }
+    /* =========================== KEY =========================== */
 
-    private Path chunkFile(World w, int cx, int cz) {
-        return worldDir(w).resolve(cx + "_" + cz + ".bin");
+    private long key(World w, int cx, int cz) {
+        return key(w.getUID(), cx, cz);
     }
 
-    private long key(World w, int cx, int cz) {
+    private long key(UUID worldId, int cx, int cz) {
         long k = (((long) cx) & 0xffffffffL) << 32 | (((long) cz) & 0xffffffffL);
-        return k ^ (w.getUID().getMostSignificantBits() ^ w.getUID().getLeastSignificantBits());
+        return k ^ (worldId.getMostSignificantBits() ^ worldId.getLeastSignificantBits());
     }
 }
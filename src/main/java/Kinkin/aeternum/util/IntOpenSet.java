@@ -0,0 +1,150 @@
+package Kinkin.aeternum.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set de ints sin boxing (direccionamiento abierto + sondeo lineal).
+ * - Integer.MIN_VALUE está reservado como "hueco vacío", no se puede guardar.
+ * - No es thread-safe: quien lo use debe sincronizar por fuera.
+ */
+public final class IntOpenSet {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] table;
+    private int mask;
+    private int size;
+
+    public IntOpenSet() {
+        this(8);
+    }
+
+    public IntOpenSet(int expected) {
+        int cap = 8;
+        while (cap * 3 < expected * 4) cap <<= 1; // factor de carga 0.75
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        table = new int[cap];
+        Arrays.fill(table, EMPTY);
+        mask = cap - 1;
+    }
+
+    private static int mix(int v) {
+        int h = v * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public boolean add(int v) {
+        if (v == EMPTY) throw new IllegalArgumentException("valor reservado");
+        int i = mix(v) & mask;
+        while (true) {
+            int cur = table[i];
+            if (cur == EMPTY) break;
+            if (cur == v) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = v;
+        if (++size * 4 > table.length * 3) rehash(table.length << 1);
+        return true;
+    }
+
+    public boolean contains(int v) {
+        if (v == EMPTY) return false;
+        int i = mix(v) & mask;
+        while (true) {
+            int cur = table[i];
+            if (cur == EMPTY) return false;
+            if (cur == v) return true;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean remove(int v) {
+        if (v == EMPTY) return false;
+        int i = mix(v) & mask;
+        while (true) {
+            int cur = table[i];
+            if (cur == EMPTY) return false;
+            if (cur == v) break;
+            i = (i + 1) & mask;
+        }
+        shiftBack(i);
+        size--;
+        return true;
+    }
+
+    /** Borrado con desplazamiento hacia atrás (sin tombstones). */
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int cur = table[i];
+            if (cur == EMPTY) break;
+            int home = mix(cur) & mask;
+            // ¿el elemento puede ocupar el hueco sin quedar antes de su casilla "home"?
+            boolean movable = (hole <= i) ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                table[hole] = cur;
+                hole = i;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void rehash(int newCap) {
+        int[] old = table;
+        allocate(newCap);
+        for (int v : old) {
+            if (v == EMPTY) continue;
+            int i = mix(v) & mask;
+            while (table[i] != EMPTY) i = (i + 1) & mask;
+            table[i] = v;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int v : table) {
+            if (v != EMPTY) action.accept(v);
+        }
+    }
+
+    public int[] toArray() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int v : table) {
+            if (v != EMPTY) out[n++] = v;
+        }
+        return out;
+    }
+
+    /**
+     * Saca hasta {@code max} valores del set y los escribe en {@code out}.
+     * Devuelve cuántos se sacaron.
+     */
+    public int poll(int[] out, int max) {
+        int n = 0;
+        int limit = Math.min(max, out.length);
+        for (int i = 0; i < table.length && n < limit; i++) {
+            if (table[i] != EMPTY) out[n++] = table[i];
+        }
+        for (int i = 0; i < n; i++) remove(out[i]);
+        return n;
+    }
+}
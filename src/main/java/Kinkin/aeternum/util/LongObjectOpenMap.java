@@ -0,0 +1,158 @@
+package Kinkin.aeternum.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * Mapa long → objeto sin boxing (direccionamiento abierto + sondeo lineal).
+ * - Cualquier long vale como clave; un hueco se reconoce por valor null.
+ * - No admite valores null.
+ * - No es thread-safe: quien lo use debe sincronizar por fuera.
+ */
+public final class LongObjectOpenMap<V> {
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public LongObjectOpenMap() {
+        this(16);
+    }
+
+    public LongObjectOpenMap(int expected) {
+        int cap = 8;
+        while (cap * 3 < expected * 4) cap <<= 1; // factor de carga 0.75
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new Object[cap];
+        mask = cap - 1;
+    }
+
+    private static int mix(long k) {
+        long h = k * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slot(long k) {
+        int i = mix(k) & mask;
+        while (values[i] != null) {
+            if (keys[i] == k) return i;
+            i = (i + 1) & mask;
+        }
+        return ~i; // hueco libre donde iría
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long k) {
+        int i = slot(k);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    public boolean containsKey(long k) {
+        return slot(k) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long k, V v) {
+        if (v == null) throw new IllegalArgumentException("valor null");
+        int i = slot(k);
+        if (i >= 0) {
+            V old = (V) values[i];
+            values[i] = v;
+            return old;
+        }
+        i = ~i;
+        keys[i] = k;
+        values[i] = v;
+        if (++size * 4 > values.length * 3) rehash(values.length << 1);
+        return null;
+    }
+
+    public V computeIfAbsent(long k, LongFunction<? extends V> factory) {
+        V v = get(k);
+        if (v != null) return v;
+        v = factory.apply(k);
+        put(k, v);
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long k) {
+        int i = slot(k);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        shiftBack(i);
+        size--;
+        return old;
+    }
+
+    /** Borrado con desplazamiento hacia atrás (sin tombstones). */
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            Object cur = values[i];
+            if (cur == null) break;
+            int home = mix(keys[i]) & mask;
+            boolean movable = (hole <= i) ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = keys[i];
+                values[hole] = cur;
+                hole = i;
+            }
+        }
+        values[hole] = null;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCap);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (values[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) action.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    public long[] keys() {
+        long[] out = new long[size];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) out[n++] = keys[i];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,443 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import com.tcoded.folialib.wrapper.task.WrappedTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presupuestos por tick que se ajustan solos según la carga del servidor.
+ *
+ * Cada servicio registra una "perilla" (knob) con su valor de config como base y
+ * un rango [min, max]. Una vez por segundo se lee el MSPT y:
+ *  - MSPT por encima de objetivo + histéresis → bajan (step_down),
+ *  - MSPT por debajo de objetivo − histéresis → suben (step_up),
+ *  - dentro de la banda → se quedan como están.
+ * Cada perilla se recorta a su rango, así que una que ya tocó techo no acumula
+ * escala "fantasma" y reacciona en cuanto el servidor se carga.
+ *
+ * Paper: MSPT medio del servidor, una escala global por perilla.
+ * Folia: no hay un tick global; cada región con jugadores se mide en su propio hilo
+ * (informe de tick de la región si está accesible, si no su TPS) y lleva su propia
+ * escala, que los servicios aplican al reparto por jugador con {@link Knob#forRegion}.
+ * Sin señal (región a 20 TPS sin acceso a su MSPT) no se sube: la escala vuelve
+ * hacia la base y ahí se queda.
+ *
+ * Los servicios leen {@link Knob#get()} cada tick en vez de su número fijo.
+ */
+public final class AdaptiveBudgetController implements Runnable {
+
+    private static final int HISTORY = 8;
+    private static final double MIN_REGION_SCALE = 0.05;
+
+    /** Presupuesto de un servicio. */
+    public static final class Knob {
+        final String id;
+        final AdaptiveBudgetController owner;
+        volatile int base;
+        volatile int min;
+        volatile int max;
+        volatile double scale = 1.0;
+        volatile int current;
+        volatile String lastDecision = "-";
+
+        Knob(String id, AdaptiveBudgetController owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+
+        /** Presupuesto vigente para este tick. */
+        public int get() {
+            return current;
+        }
+
+        /**
+         * Parte {@code share} del reparto de este tick, escalada por la carga de la
+         * región del jugador (Folia). En Paper, o sin datos de la región, no cambia.
+         */
+        public int forRegion(Player p, int share) {
+            double rs = owner.regionScale(p);
+            if (rs == 1.0 || share <= 0 || base <= 0) return share;
+            double lo = (double) min / base;
+            double hi = (double) max / base;
+            int v = (int) Math.round(share * clamp(rs, lo, hi));
+            return Math.max(min > 0 ? 1 : 0, v);
+        }
+
+        public int base() {
+            return base;
+        }
+
+        void apply(boolean adaptive) {
+            int v = adaptive ? (int) Math.round(base * scale) : base;
+            current = Math.max(min, Math.min(max, v));
+        }
+    }
+
+    private final AeternumSeasonsPlugin plugin;
+    private final Map<String, Knob> knobs = new ConcurrentHashMap<>();
+    private final Map<UUID, Region> regions = new ConcurrentHashMap<>();
+    private final Deque<String> history = new ArrayDeque<>();
+
+    private WrappedTask task;
+
+    private boolean enabled;
+    private double targetMspt;
+    private double hysteresis;
+    private double stepUp;
+    private double stepDown;
+    private double smoothing;
+
+    private volatile double lastRaw = Double.NaN;
+    private volatile double smoothed = Double.NaN;
+    private volatile String source = "-";
+
+    // Folia: Server#getRegionTPS(Location) e informe de tick de la región; se buscan una vez
+    private volatile Method regionTps;
+    private volatile FoliaTickReport tickReport;
+    private boolean foliaResolved;
+
+    /** Estado por región en Folia, indexado por el jugador que la ocupa. */
+    private static final class Region {
+        final String name;
+        volatile double mspt = Double.NaN;
+        volatile double smoothed = Double.NaN;
+        volatile double scale = 1.0;
+        volatile String source = "-";
+        String lastWhy = "";
+
+        Region(String name) {
+            this.name = name;
+        }
+    }
+
+    public AdaptiveBudgetController(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+        reloadFromConfig();
+    }
+
+    public void reloadFromConfig() {
+        this.enabled    = plugin.cfg.climate.getBoolean("performance.adaptive_budget.enabled", true);
+        this.targetMspt = clamp(plugin.cfg.climate.getDouble("performance.adaptive_budget.target_mspt", 28.0), 5.0, 200.0);
+        this.hysteresis = clamp(plugin.cfg.climate.getDouble("performance.adaptive_budget.hysteresis_mspt", 3.0), 0.0, 50.0);
+        this.stepUp     = clamp(plugin.cfg.climate.getDouble("performance.adaptive_budget.step_up", 1.10), 1.0, 2.0);
+        this.stepDown   = clamp(plugin.cfg.climate.getDouble("performance.adaptive_budget.step_down", 0.75), 0.1, 1.0);
+        this.smoothing  = clamp(plugin.cfg.climate.getDouble("performance.adaptive_budget.smoothing", 0.5), 0.0, 0.95);
+
+        // los límites por servicio se vuelven a leer cuando cada servicio registra su perilla
+        for (Knob k : knobs.values()) {
+            if (!enabled) k.scale = 1.0;
+            k.apply(enabled);
+        }
+        if (!enabled) regions.clear();
+    }
+
+    public void register() {
+        if (task != null) task.cancel();
+        if (plugin.getFoliaLib().isFolia()) resolveFolia();
+        this.task = plugin.getScheduler().runTimer(this, 20L, 20L);
+    }
+
+    public void unregister() {
+        if (task != null) task.cancel();
+        task = null;
+        regions.clear();
+    }
+
+    /**
+     * Registra (o actualiza tras un reload) la perilla de un servicio.
+     * {@code base} es el valor de config; {@code defMin}/{@code defMax} se pueden
+     * sobreescribir en performance.adaptive_budget.services.&lt;id&gt;.
+     * La escala actual se conserva entre reloads.
+     */
+    public Knob knob(String id, int base, int defMin, int defMax) {
+        Knob k = knobs.computeIfAbsent(id, i -> new Knob(i, this));
+        ConfigurationSection sec = plugin.cfg.climate.getConfigurationSection("performance.adaptive_budget.services." + id);
+        int min = Math.max(0, sec != null ? sec.getInt("min", defMin) : defMin);
+        int max = Math.max(min, sec != null ? sec.getInt("max", defMax) : defMax);
+        k.min = min;
+        k.max = max;
+        k.base = Math.max(min, Math.min(max, base));
+        k.apply(enabled);
+        return k;
+    }
+
+    /* ===================== control ===================== */
+
+    @Override
+    public void run() {
+        if (plugin.getFoliaLib().isFolia()) {
+            sampleRegions();
+            return;
+        }
+
+        source = "paper avg";
+        double mspt = Bukkit.getServer().getAverageTickTime();
+        if (Double.isNaN(mspt)) return;
+
+        lastRaw = mspt;
+        double s = smoothed;
+        smoothed = Double.isNaN(s) ? mspt : s * smoothing + mspt * (1.0 - smoothing);
+
+        if (!enabled) return;
+
+        double step;
+        String why;
+        if (smoothed > targetMspt + hysteresis) {
+            step = stepDown;
+            why = "down";
+        } else if (smoothed < targetMspt - hysteresis) {
+            step = stepUp;
+            why = "up";
+        } else {
+            return; // dentro de la banda: no tocamos nada
+        }
+
+        StringBuilder changed = new StringBuilder();
+        for (Knob k : knobs.values()) {
+            int before = k.current;
+            double lo = k.base <= 0 ? 1.0 : (double) k.min / k.base;
+            double hi = k.base <= 0 ? 1.0 : (double) k.max / k.base;
+            k.scale = clamp(k.scale * step, lo, hi);
+            k.apply(true);
+            if (k.current != before) {
+                k.lastDecision = why + " " + before + "→" + k.current + " @" + fmt(smoothed) + "ms";
+                if (changed.length() > 0) changed.append(", ");
+                changed.append(k.id).append(' ').append(before).append("→").append(k.current);
+            }
+        }
+        if (changed.length() > 0) {
+            remember(String.format(Locale.ROOT, "%tT %s mspt=%s: %s",
+                    System.currentTimeMillis(), why, fmt(smoothed), changed));
+        }
+    }
+
+    /* ===================== Folia: por región ===================== */
+
+    /** Escala de la región del jugador; 1.0 fuera de Folia o sin muestra todavía. */
+    double regionScale(Player p) {
+        if (regions.isEmpty()) return 1.0;
+        Region r = regions.get(p.getUniqueId());
+        return r == null ? 1.0 : r.scale;
+    }
+
+    /** Hilo global: una medición por jugador, cada una en el hilo de su región. */
+    private void sampleRegions() {
+        regions.keySet().removeIf(id -> Bukkit.getPlayer(id) == null);
+
+        double worst = Double.NaN;
+        for (Region r : regions.values()) {
+            double m = r.smoothed;
+            if (!Double.isNaN(m) && (Double.isNaN(worst) || m > worst)) worst = m;
+        }
+        lastRaw = worst;
+        smoothed = worst;
+        source = "folia per-region (" + regions.size() + ")";
+
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            plugin.getScheduler().runAtEntity(p, t -> probeRegion(p));
+        }
+    }
+
+    /** Hilo de la región del jugador. */
+    private void probeRegion(Player p) {
+        if (!p.isOnline()) return;
+        Region r = regions.computeIfAbsent(p.getUniqueId(), id -> new Region(p.getName()));
+        double mspt = regionMspt(r, p.getLocation());
+
+        if (Double.isNaN(mspt)) {
+            // sin señal no hay holgura que aprovechar: de vuelta a la base, nunca por encima
+            r.mspt = Double.NaN;
+            r.smoothed = Double.NaN;
+            if (enabled) r.scale = r.scale < 1.0 ? Math.min(1.0, r.scale * stepUp) : 1.0;
+            return;
+        }
+
+        r.mspt = mspt;
+        double s = r.smoothed;
+        double sm = Double.isNaN(s) ? mspt : s * smoothing + mspt * (1.0 - smoothing);
+        r.smoothed = sm;
+        if (!enabled) return;
+
+        String why;
+        double before = r.scale;
+        if (sm > targetMspt + hysteresis) {
+            r.scale = Math.max(MIN_REGION_SCALE, before * stepDown);
+            why = "down";
+        } else if (sm < targetMspt - hysteresis) {
+            r.scale = Math.min(maxRegionScale(), before * stepUp);
+            why = "up";
+        } else {
+            return;
+        }
+        if (!why.equals(r.lastWhy) && r.scale != before) {
+            r.lastWhy = why;
+            remember(String.format(Locale.ROOT, "%tT %s region@%s mspt=%s: x%.2f",
+                    System.currentTimeMillis(), why, r.name, fmt(sm), r.scale));
+        }
+    }
+
+    /** La escala de región no pasa del techo más alto de las perillas (sin escala "fantasma"). */
+    private double maxRegionScale() {
+        double hi = 1.0;
+        for (Knob k : knobs.values()) {
+            if (k.base > 0) hi = Math.max(hi, (double) k.max / k.base);
+        }
+        return hi;
+    }
+
+    /** MSPT de la región actual (se llama desde su hilo); NaN si no se puede saber. */
+    private double regionMspt(Region r, Location at) {
+        FoliaTickReport tr = tickReport;
+        if (tr != null) {
+            try {
+                double mspt = tr.mspt();
+                if (!Double.isNaN(mspt)) {
+                    r.source = "mspt";
+                    return mspt;
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                tickReport = null;
+                plugin.getLogger().warning("[AeternumSeasons] Informe de tick de Folia no disponible (" + e
+                        + "): se usa el TPS de región.");
+            }
+        }
+
+        Method m = regionTps;
+        if (m == null) {
+            r.source = "-";
+            return Double.NaN;
+        }
+        try {
+            double[] tps = (double[]) m.invoke(Bukkit.getServer(), at);
+            if (tps == null || tps.length == 0) return Double.NaN;
+            r.source = "tps " + fmt(tps[0]);
+            // bajo 20 TPS cada tick dura ~1000/tps ms; a 20 TPS el MSPT real es desconocido
+            return tps[0] >= 19.9 ? Double.NaN : 1000.0 / Math.max(0.1, tps[0]);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private synchronized void resolveFolia() {
+        if (foliaResolved) return;
+        foliaResolved = true;
+        try {
+            regionTps = Bukkit.getServer().getClass().getMethod("getRegionTPS", Location.class);
+        } catch (NoSuchMethodException e) {
+            regionTps = null;
+        }
+        tickReport = FoliaTickReport.resolve(Bukkit.getServer().getClass().getClassLoader());
+        if (tickReport == null && regionTps == null) {
+            plugin.getLogger().warning("[AeternumSeasons] Folia sin MSPT ni TPS de región: los presupuestos se quedan en su base.");
+        }
+    }
+
+    /**
+     * Interno de Folia (el mismo dato que muestra /tps): MSPT medio de 5 s de la región
+     * del hilo actual. Por reflexión; si cambia de forma, se cae al TPS de región.
+     */
+    private static final class FoliaTickReport {
+        private static final String PKG = "io.papermc.paper.threadedregions.";
+
+        final Method currentRegion;
+        final Method getData;
+        final Method scheduleHandle;
+        final Method report5s;
+        final Method timePerTick;
+        final Method segmentAll;
+        final Method average;
+
+        private FoliaTickReport(ClassLoader cl) throws ReflectiveOperationException {
+            currentRegion  = method(cl, "TickRegionScheduler", "getCurrentRegion");
+            getData        = method(cl, "ThreadedRegionizer$ThreadedRegion", "getData");
+            scheduleHandle = method(cl, "TickRegions$TickRegionData", "getRegionSchedulingHandle");
+            report5s       = method(cl, "TickRegionScheduler$RegionScheduleHandle", "getTickReport5s", long.class);
+            timePerTick    = method(cl, "TickData$TickReportData", "timePerTickData");
+            segmentAll     = method(cl, "TickData$SegmentedAverage", "segmentAll");
+            average        = method(cl, "TickData$SegmentData", "average");
+        }
+
+        static FoliaTickReport resolve(ClassLoader cl) {
+            try {
+                return new FoliaTickReport(cl);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                return null;
+            }
+        }
+
+        double mspt() throws ReflectiveOperationException {
+            Object region = currentRegion.invoke(null);
+            if (region == null) return Double.NaN;
+            Object handle = scheduleHandle.invoke(getData.invoke(region));
+            Object report = report5s.invoke(handle, System.nanoTime());
+            if (report == null) return Double.NaN;
+            Object avg = average.invoke(segmentAll.invoke(timePerTick.invoke(report)));
+            return ((Number) avg).doubleValue() / 1.0E6;
+        }
+
+        private static Method method(ClassLoader cl, String cls, String name, Class<?>... params)
+                throws ReflectiveOperationException {
+            Method m = Class.forName(PKG + cls, false, cl).getDeclaredMethod(name, params);
+            m.setAccessible(true);
+            return m;
+        }
+    }
+
+    private void remember(String line) {
+        synchronized (history) {
+            history.addFirst(line);
+            while (history.size() > HISTORY) history.removeLast();
+        }
+    }
+
+    /* ===================== stats ===================== */
+
+    public List<String> describe() {
+        List<String> out = new ArrayList<>();
+        out.add("adaptive=" + enabled
+                + " target=" + fmt(targetMspt) + "±" + fmt(hysteresis) + "ms"
+                + " mspt=" + fmt(lastRaw) + " (smoothed " + fmt(smoothed) + ")"
+                + " source=" + source);
+        List<Knob> sorted = new ArrayList<>(knobs.values());
+        sorted.sort((a, b) -> a.id.compareTo(b.id));
+        for (Knob k : sorted) {
+            out.add(k.id + ": " + k.current
+                    + " (base " + k.base + ", " + k.min + ".." + k.max
+                    + ", x" + String.format(Locale.ROOT, "%.2f", k.scale) + ") last=" + k.lastDecision);
+        }
+        if (!regions.isEmpty()) {
+            List<Region> worst = new ArrayList<>(regions.values());
+            worst.sort((a, b) -> Double.compare(a.scale, b.scale));
+            for (int i = 0; i < Math.min(5, worst.size()); i++) {
+                Region r = worst.get(i);
+                out.add("region@" + r.name + ": mspt=" + fmt(r.mspt) + " (smoothed " + fmt(r.smoothed) + ")"
+                        + " x" + String.format(Locale.ROOT, "%.2f", r.scale) + " source=" + r.source);
+            }
+        }
+        synchronized (history) {
+            out.addAll(history);
+        }
+        return out;
+    }
+
+    private static String fmt(double v) {
+        return Double.isNaN(v) ? "?" : String.format(Locale.ROOT, "%.1f", v);
+    }
+
+    private static double clamp(double v, double lo, double hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
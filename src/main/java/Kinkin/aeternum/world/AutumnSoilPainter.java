@@ -4,8 +4,11 @@ import Kinkin.aeternum.AeternumSeasonsPlugin;
 import Kinkin.aeternum.calendar.CalendarState;
 import Kinkin.aeternum.calendar.Season;
 import Kinkin.aeternum.calendar.SeasonService;
+import Kinkin.aeternum.util.IntOpenSet;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
@@ -18,12 +21,13 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.ItemSpawnEvent;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
 import com.tcoded.folialib.wrapper.task.WrappedTask;
 import org.bukkit.util.Vector;
 import org.bukkit.Location;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public final class AutumnSoilPainter implements Runnable, Listener {
 
@@ -34,7 +38,7 @@ public final class AutumnSoilPainter implements Runnable, Listener {
     private final Random random = new Random();
 
     // cuántos CHUNKS intentamos procesar por tick (global)
-    private int chunksPerTick;
+    private AdaptiveBudgetController.Knob chunksPerTick;
 
     // radio en chunks alrededor del jugador
     private int radiusChunks;
@@ -49,9 +53,54 @@ public final class AutumnSoilPainter implements Runnable, Listener {
             Material.CHERRY_LEAVES
     );
 
-    // hojas pintadas -> para revertir luego
-    // key = worldUUID:x:y:z, value = tipo original
-    private final Map<String, Material> paintedLeaves = new ConcurrentHashMap<>();
+    // hojas pintadas -> para revertir luego; por chunk en ChunkSeasonState (slot "autumn_leaves"),
+    // tipo original → posiciones empaquetadas; al descargar van al PDC del chunk
+    private static final String LEAVES_PDC_PREFIX = "autumn_leaves_";
+
+    static final class LeafSlice {
+        Material[] palette = new Material[0];
+        IntOpenSet[] sets = new IntOpenSet[0];
+
+        IntOpenSet set(Material original, boolean create) {
+            for (int i = 0; i < palette.length; i++) {
+                if (palette[i] == original) return sets[i];
+            }
+            if (!create) return null;
+            int n = palette.length;
+            palette = Arrays.copyOf(palette, n + 1);
+            sets = Arrays.copyOf(sets, n + 1);
+            palette[n] = original;
+            sets[n] = new IntOpenSet();
+            return sets[n];
+        }
+
+        Material original(int packed) {
+            for (int i = 0; i < palette.length; i++) {
+                if (sets[i].contains(packed)) return palette[i];
+            }
+            return null;
+        }
+
+        boolean isEmpty() {
+            for (IntOpenSet set : sets) if (!set.isEmpty()) return false;
+            return true;
+        }
+    }
+
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<LeafSlice> leafSlot;
+    private volatile boolean lazyLoad;
+    private final ChunkSeasonState.Lifecycle<LeafSlice> leafLifecycle = new ChunkSeasonState.Lifecycle<>() {
+        @Override
+        public LeafSlice load(Chunk ch) {
+            return readLeaves(ch);
+        }
+
+        @Override
+        public void unload(Chunk ch, LeafSlice s) {
+            spillLeaves(ch, s);
+        }
+    };
 
     // para ordenar offsets como BiomeSpoofAdapter
     private static final class Offset {
@@ -77,16 +126,19 @@ public final class AutumnSoilPainter implements Runnable, Listener {
     public AutumnSoilPainter(AeternumSeasonsPlugin plugin, SeasonService seasons) {
         this.plugin = plugin;
         this.seasons = seasons;
+        this.state = plugin.getChunkState();
+        this.leafSlot = state.slot("autumn_leaves", null); // el ciclo de vida se engancha en register()
         reloadFromConfig();
     }
 
     public void reloadFromConfig() {
         var y = plugin.cfg.climate;
 
-        this.chunksPerTick = Math.max(
+        int chunksCfg = Math.max(
                 2,
                 y.getInt("autumn_soil.attempts_per_tick", 4)
         );
+        this.chunksPerTick = plugin.getBudgets().knob("autumn_chunks", chunksCfg, 1, chunksCfg * 4);
 
         this.radiusChunks = Math.max(
                 2,
@@ -103,6 +155,11 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         if (!plugin.cfg.climate.getBoolean("autumn_soil.enabled", false)) return;
         this.task = plugin.getScheduler().runTimer(this, 60L, 5L);
 
+        state.slot("autumn_leaves", leafLifecycle);
+        // en Folia los chunks ya cargados no se leen de golpe: su PDC se lee al primer acceso
+        lazyLoad = plugin.getFoliaLib().isFolia();
+        state.loadLoadedChunks(leafSlot);
+
         // registrar como listener
         Bukkit.getPluginManager().registerEvents(this, plugin);
     }
@@ -110,6 +167,22 @@ public final class AutumnSoilPainter implements Runnable, Listener {
     public void unregister() {
         if (task != null) task.cancel();
         task = null;
+
+        // lo pintado en chunks cargados va a su PDC para poder revertirlo tras el reload
+        // (en Folia el PDC solo se toca desde la región del chunk: cada volcado va a la suya)
+        boolean folia = plugin.getFoliaLib().isFolia();
+        state.forEach(leafSlot, (w, cx, cz, s) -> {
+            if (!w.isChunkLoaded(cx, cz)) return;
+            if (!folia) {
+                spillLeaves(w.getChunkAt(cx, cz), s);
+                return;
+            }
+            Location chunkLoc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+            plugin.getScheduler().runAtLocation(chunkLoc, task -> {
+                if (w.isChunkLoaded(cx, cz)) spillLeaves(w.getChunkAt(cx, cz), s);
+            });
+        });
+        state.detach(leafSlot);
     }
 
     @Override
@@ -118,7 +191,7 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         gridFlip = !gridFlip; // alternamos patrón cada tick
         boolean localGridFlip = gridFlip;
 
-        int totalBudget = Math.max(1, chunksPerTick);
+        int totalBudget = Math.max(1, chunksPerTick.get());
         int online = Bukkit.getOnlinePlayers().size();
         if (online <= 0) return;
 
@@ -126,7 +199,7 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         int extra = totalBudget - (baseBudget * online);
 
         for (Player p : Bukkit.getOnlinePlayers()) {
-            int budget = baseBudget + (extra-- > 0 ? 1 : 0);
+            int budget = chunksPerTick.forRegion(p, baseBudget + (extra-- > 0 ? 1 : 0));
             plugin.getScheduler().runAtEntity(p, task -> tickForPlayer(p, st, localGridFlip, budget));
         }
     }
@@ -283,7 +356,7 @@ public final class AutumnSoilPainter implements Runnable, Listener {
                     Leaves backLeaves = (Leaves) guessed.createBlockData();
                     backLeaves.setDistance(distance);
                     backLeaves.setPersistent(false); // comportamiento vanilla
-                    b.setBlockData(backLeaves, false);
+                    plugin.getMutations().revert(BlockMutationService.Source.AUTUMN_LEAVES, b, backLeaves, Material.ACACIA_LEAVES);
                 }
             }
         }
@@ -408,8 +481,11 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         if (b.getType() == Material.ACACIA_LEAVES) {
             return;
         }
-        String k = key(b.getWorld(), b.getX(), b.getY(), b.getZ());
-        paintedLeaves.putIfAbsent(k, originalType);
+        LeafSlice slice = leaves(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, true);
+        int packed = PaintedBlockRegistry.pack(b.getX(), b.getY(), b.getZ());
+        synchronized (slice) {
+            if (slice.original(packed) == null) slice.set(originalType, true).add(packed);
+        }
 
         BlockData oldData = b.getBlockData();
         int distance = 1;
@@ -420,7 +496,7 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         Leaves newLeaves = (Leaves) Material.ACACIA_LEAVES.createBlockData();
         newLeaves.setDistance(distance);
         newLeaves.setPersistent(false); // decay vanilla
-        b.setBlockData(newLeaves, false);
+        plugin.getMutations().set(BlockMutationService.Source.AUTUMN_LEAVES, b, newLeaves, originalType);
     }
 
     /**
@@ -457,13 +533,11 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         Material original = null;
 
         // primero el bloque donde está el ítem
-        String k0 = key(w, bx, by, bz);
-        original = paintedLeaves.get(k0);
+        original = paintedOriginal(w, bx, by, bz);
 
         // si no, probamos un bloque más arriba (por si el ítem aparece ligeramente alto)
         if (original == null) {
-            String k1 = key(w, bx, by + 1, bz);
-            original = paintedLeaves.get(k1);
+            original = paintedOriginal(w, bx, by + 1, bz);
         }
 
         if (original == null) {
@@ -492,76 +566,126 @@ public final class AutumnSoilPainter implements Runnable, Listener {
     private void revertSomeLeavesInChunk(World w, int cx, int cz, int maxBlocks) {
         if (maxBlocks <= 0) return;
 
-        Iterator<Map.Entry<String, Material>> it = paintedLeaves.entrySet().iterator();
-        while (it.hasNext() && maxBlocks > 0) {
-            Map.Entry<String, Material> entry = it.next();
-            String key = entry.getKey();
-            Material original = entry.getValue();
-
-            String[] parts = key.split(":");
-            if (parts.length != 4) {
-                it.remove();
-                continue;
-            }
-
-            UUID worldId;
-            try {
-                worldId = UUID.fromString(parts[0]);
-            } catch (IllegalArgumentException ex) {
-                it.remove();
-                continue;
-            }
-
-            World entryWorld = Bukkit.getWorld(worldId);
-            if (entryWorld == null) {
-                it.remove();
-                continue;
+        LeafSlice slice = leaves(w, cx, cz, false);
+        if (slice == null) return;
+
+        // sacamos las posiciones bajo el lock y revertimos fuera
+        Material[] mats;
+        int[][] polled;
+        int[] sizes;
+        synchronized (slice) {
+            mats = slice.palette.clone();
+            polled = new int[mats.length][];
+            sizes = new int[mats.length];
+            int left = maxBlocks;
+            for (int i = 0; i < mats.length && left > 0; i++) {
+                int[] buf = new int[Math.min(left, slice.sets[i].size())];
+                sizes[i] = slice.sets[i].poll(buf, buf.length);
+                polled[i] = buf;
+                left -= sizes[i];
             }
-
-            int x, y, z;
-            try {
-                x = Integer.parseInt(parts[1]);
-                y = Integer.parseInt(parts[2]);
-                z = Integer.parseInt(parts[3]);
-            } catch (NumberFormatException ex) {
-                it.remove();
-                continue;
+        }
+        LeafSlice gone = state.removeIf(w, cx, cz, leafSlot, s -> {
+            synchronized (s) {
+                return s.isEmpty();
             }
+        });
+        // sin slice se borra también el último volcado: si no, resucitaría al recargar el chunk
+        if (gone != null && w.isChunkLoaded(cx, cz)) clearLeaves(w.getChunkAt(cx, cz).getPersistentDataContainer());
+
+        int bx = cx << 4;
+        int bz = cz << 4;
+        for (int i = 0; i < mats.length; i++) {
+            Material original = mats[i];
+            for (int j = 0; j < sizes[i]; j++) {
+                int p = polled[i][j];
+                Block b = w.getBlockAt(bx + PaintedBlockRegistry.unpackLocalX(p),
+                        PaintedBlockRegistry.unpackY(p),
+                        bz + PaintedBlockRegistry.unpackLocalZ(p));
+
+                BlockData currentData = b.getBlockData();
+                int distance = 1;
+                if (currentData instanceof Leaves leavesCurrent) {
+                    distance = leavesCurrent.getDistance();
+                }
 
-            if (entryWorld != w) {
-                continue;
+                BlockData backData = original.createBlockData();
+                if (backData instanceof Leaves backLeaves) {
+                    backLeaves.setDistance(distance);
+                    backLeaves.setPersistent(false);
+                }
+                plugin.getMutations().revert(BlockMutationService.Source.AUTUMN_LEAVES, b, backData, Material.ACACIA_LEAVES);
             }
+        }
+    }
 
-            if ((x >> 4) != cx || (z >> 4) != cz) {
-                continue;
-            }
+    private Material paintedOriginal(World w, int x, int y, int z) {
+        LeafSlice slice = leaves(w, x >> 4, z >> 4, false);
+        if (slice == null) return null;
+        synchronized (slice) {
+            return slice.original(PaintedBlockRegistry.pack(x, y, z));
+        }
+    }
 
-            if (!w.isChunkLoaded(cx, cz)) {
-                continue;
-            }
+    /* ====================== PDC (hojas por chunk) ====================== */
 
-            Block b = w.getBlockAt(x, y, z);
+    /**
+     * Slice del chunk; sin ella se lee antes el PDC (chunk cargado) en vez de empezar
+     * vacía, para no pisar lo volcado en un reload. Con lazyLoad también al consultar.
+     */
+    private LeafSlice leaves(World w, int cx, int cz, boolean create) {
+        LeafSlice s = state.get(w, cx, cz, leafSlot);
+        if (s != null || !(create || lazyLoad)) return s;
+        if (!w.isChunkLoaded(cx, cz)) {
+            return create ? state.getOrCreate(w, cx, cz, leafSlot, LeafSlice::new) : null;
+        }
+        LeafSlice read = readLeaves(w.getChunkAt(cx, cz));
+        LeafSlice fresh = read != null ? read : new LeafSlice();
+        return state.getOrCreate(w, cx, cz, leafSlot, () -> fresh);
+    }
 
-            BlockData currentData = b.getBlockData();
-            int distance = 1;
-            if (currentData instanceof Leaves leavesCurrent) {
-                distance = leavesCurrent.getDistance();
-            }
+    private LeafSlice readLeaves(Chunk ch) {
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        if (pdc.isEmpty()) return null;
+
+        LeafSlice s = null;
+        for (NamespacedKey key : pdc.getKeys()) {
+            if (!isLeafKey(key)) continue;
+            Material original = Material.matchMaterial(key.getKey().substring(LEAVES_PDC_PREFIX.length()));
+            if (original == null) continue;
+            int[] arr = pdc.get(key, PersistentDataType.INTEGER_ARRAY);
+            if (arr == null || arr.length == 0) continue;
+            if (s == null) s = new LeafSlice();
+            IntOpenSet set = s.set(original, true);
+            for (int p : arr) set.add(p);
+        }
+        return s;
+    }
 
-            BlockData backData = original.createBlockData();
-            if (backData instanceof Leaves backLeaves) {
-                backLeaves.setDistance(distance);
-                backLeaves.setPersistent(false);
-                b.setBlockData(backLeaves, false);
-            } else {
-                b.setType(original, false);
+    private void spillLeaves(Chunk ch, LeafSlice s) {
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        clearLeaves(pdc);
+        synchronized (s) {
+            for (int i = 0; i < s.palette.length; i++) {
+                if (s.sets[i].isEmpty()) continue;
+                NamespacedKey key = new NamespacedKey(plugin, LEAVES_PDC_PREFIX + s.palette[i].name().toLowerCase(Locale.ROOT));
+                pdc.set(key, PersistentDataType.INTEGER_ARRAY, s.sets[i].toArray());
             }
+        }
+    }
 
-            it.remove();
-            maxBlocks--;
+    private void clearLeaves(PersistentDataContainer pdc) {
+        if (pdc.isEmpty()) return;
+        for (NamespacedKey key : new ArrayList<>(pdc.getKeys())) {
+            if (isLeafKey(key)) pdc.remove(key);
         }
     }
 
+    private boolean isLeafKey(NamespacedKey key) {
+        return key.getNamespace().equals(plugin.getName().toLowerCase(Locale.ROOT))
+                && key.getKey().startsWith(LEAVES_PDC_PREFIX);
+    }
+
     /**
      * Devuelve el sapling que corresponde a un tipo de hoja original.
      */
@@ -578,10 +702,6 @@ public final class AutumnSoilPainter implements Runnable, Listener {
         };
     }
 
-    private String key(World w, int x, int y, int z) {
-        return w.getUID() + ":" + x + ":" + y + ":" + z;
-    }
-
     /* ====================== HELPERS CALENDARIO ====================== */
 
     private int computeDayInSeason(CalendarState st) {
@@ -0,0 +1,143 @@
+package Kinkin.aeternum.world;
+
+import org.bukkit.block.Biome;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Comparativa rápida entre el formato viejo (un cx_cz.bin por chunk) y los
+ * archivos de región: escritura, búsqueda "¿existe backup?" y lectura de todo
+ * (lo que hace un restore sin tocar el mundo). Se lanza con /season biomes bench
+ * sobre datos sintéticos en una carpeta temporal que se borra al acabar.
+ */
+final class BiomeBackupBenchmark {
+
+    private static final Biome[] SAMPLE = {Biome.PLAINS, Biome.FOREST, Biome.RIVER, Biome.BIRCH_FOREST};
+
+    private BiomeBackupBenchmark() {}
+
+    static List<String> run(Path dir, int chunks, int cellsPerChunk) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(chunks));
+        byte[][] payloads = new byte[chunks][];
+        SplittableRandom rnd = new SplittableRandom(chunks);
+        for (int i = 0; i < chunks; i++) {
+            Biome[] grid = new Biome[cellsPerChunk];
+            int distinct = 1 + rnd.nextInt(2);
+            for (int c = 0; c < grid.length; c++) grid[c] = SAMPLE[rnd.nextInt(distinct)];
+            payloads[i] = BiomeBackupStore.encode(grid, 4, 4, -64, 320);
+        }
+
+        List<String> out = new ArrayList<>();
+        out.add("chunks=" + chunks + " payload~" + payloads[0].length + "B");
+        try {
+            Path legacyDir = Files.createDirectories(dir.resolve("legacy"));
+            Path regionDir = Files.createDirectories(dir.resolve("region"));
+
+            /* ---------- formato viejo ---------- */
+            long t0 = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                Files.write(legacyDir.resolve((i % side) + "_" + (i / side) + ".bin"), payloads[i],
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            long legacyWrite = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < chunks; i++) {
+                if (Files.exists(legacyDir.resolve((i % side) + "_" + (i / side) + ".bin"))) found++;
+            }
+            long legacyLookup = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            int read = 0;
+            try (Stream<Path> st = Files.walk(legacyDir)) {
+                for (Path p : (Iterable<Path>) st.filter(p -> p.toString().endsWith(".bin"))::iterator) {
+                    BiomeBackupStore.decode(Files.readAllBytes(p));
+                    read++;
+                }
+            }
+            long legacyRestore = System.nanoTime() - t0;
+            out.add(line("v1 .bin", legacyWrite, legacyLookup, legacyRestore, found, read));
+
+            /* ---------- regiones ---------- */
+            Map<String, BiomeRegionFile> open = new HashMap<>();
+            t0 = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                int cx = i % side;
+                int cz = i / side;
+                regionFor(open, regionDir, cx, cz).write(cx, cz, payloads[i]);
+            }
+            long regionWrite = System.nanoTime() - t0;
+            closeAll(open);
+
+            t0 = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < chunks; i++) {
+                int cx = i % side;
+                int cz = i / side;
+                if (regionFor(open, regionDir, cx, cz).has(cx, cz)) found++;
+            }
+            long regionLookup = System.nanoTime() - t0;
+            closeAll(open);
+
+            t0 = System.nanoTime();
+            read = 0;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(regionDir, "r.*" + BiomeRegionFile.EXTENSION)) {
+                for (Path p : files) {
+                    try (BiomeRegionFile r = new BiomeRegionFile(p)) {
+                        for (int[] local : r.entries()) {
+                            BiomeBackupStore.decode(r.read(local[0], local[1]));
+                            read++;
+                        }
+                    }
+                }
+            }
+            long regionRestore = System.nanoTime() - t0;
+            out.add(line("region", regionWrite, regionLookup, regionRestore, found, read));
+        } finally {
+            deleteTree(dir);
+        }
+        return out;
+    }
+
+    private static BiomeRegionFile regionFor(Map<String, BiomeRegionFile> open, Path dir, int cx, int cz) throws IOException {
+        String name = BiomeRegionFile.fileName(BiomeRegionFile.regionCoord(cx), BiomeRegionFile.regionCoord(cz));
+        BiomeRegionFile r = open.get(name);
+        if (r == null) {
+            r = new BiomeRegionFile(dir.resolve(name));
+            open.put(name, r);
+        }
+        return r;
+    }
+
+    private static void closeAll(Map<String, BiomeRegionFile> open) throws IOException {
+        for (BiomeRegionFile r : open.values()) r.close();
+        open.clear();
+    }
+
+    private static String line(String label, long write, long lookup, long restore, int found, int read) {
+        return String.format(Locale.ROOT, "%s: write=%.1fms lookup=%.1fms restore-all=%.1fms (found=%d read=%d)",
+                label, write / 1e6, lookup / 1e6, restore / 1e6, found, read);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> st = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) st.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
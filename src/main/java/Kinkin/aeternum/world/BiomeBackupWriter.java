@@ -0,0 +1,429 @@
+package Kinkin.aeternum.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Escritor único (write-behind) de los backups de biomas.
+ *
+ * saveFirstTouch solo encola; este hilo:
+ *  - junta lo encolado en lotes y los añade a un journal (append-only) con UN
+ *    force por lote (group commit),
+ *  - cada cierto tiempo / tamaño compacta el journal en los archivos de región
+ *    (un force por región tocada) y lo trunca,
+ *  - al arrancar migra los .bin viejos, re-aplica el journal que haya quedado
+ *    de un cierre brusco y carga el índice de chunks con backup,
+ *  - escribe de vez en cuando el índice de chunks fríos ({@link ColdChunkIndex}),
+ *  - borra las entradas ya restauradas y cierra las regiones: es el único hilo
+ *    que escribe, cierra o borra archivos de región.
+ *
+ * La cola es acotada: si se llena, el trabajo va a una cola de desborde del mismo
+ * tamaño y {@link #pressure()} marca 1 para que el spoof frene. Con las dos llenas
+ * (2 × queue_capacity backups en memoria como mucho) {@link #submit} rechaza y el
+ * spoof deja el chunk sin pintar: nunca se pinta sin original guardado.
+ *
+ * Al recargar, el escritor viejo termina en su hilo (sin bloquear el hilo principal)
+ * y el nuevo lo espera antes de tocar el journal o las regiones.
+ */
+final class BiomeBackupWriter implements Runnable {
+
+    private static final int REC_MAGIC = 0xAEB1A001;
+    private static final int REC_HEADER = 4 + 8 + 8 + 4 + 4 + 4 + 4;
+
+    /**
+     * Un backup pendiente, un borrado tras restaurar ({@code delete}) o una petición
+     * de compactar ya ({@code payload == null} y sin borrado).
+     */
+    static final class Job {
+        final UUID world;
+        final int cx, cz;
+        final byte[] payload;
+        final boolean delete;
+        final CountDownLatch done;
+
+        Job(UUID world, int cx, int cz, byte[] payload) {
+            this(world, cx, cz, payload, false);
+        }
+
+        Job(UUID world, int cx, int cz, byte[] payload, boolean delete) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+            this.payload = payload;
+            this.delete = delete;
+            this.done = null;
+        }
+
+        Job(CountDownLatch done) {
+            this.world = null;
+            this.cx = 0;
+            this.cz = 0;
+            this.payload = null;
+            this.delete = false;
+            this.done = done;
+        }
+    }
+
+    private final BiomeBackupStore store;
+    private final Logger log;
+    private final Path journalPath;
+
+    private final int capacity;
+    private final int batchMax;
+    private final long compactIntervalNanos;
+    private final long compactBytes;
+
+    private final BlockingQueue<Job> queue;
+    private final Queue<Job> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private final Thread thread;
+    private final Thread predecessor;
+    private volatile boolean running = true;
+
+    // último escritor arrancado: el siguiente (tras un reload) lo espera en su propio hilo
+    private static volatile Thread last;
+
+    // solo hilo escritor
+    private final List<Job> uncompacted = new ArrayList<>();
+    private FileChannel journal;
+    private long journalBytes;
+    private long nextCompact;
+    private long nextColdFlush;
+
+    // métricas
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private volatile int highWater;
+    private volatile long lastCompactMs;
+
+    BiomeBackupWriter(BiomeBackupStore store, Logger log, Path journalPath,
+                      int capacity, int batchMax, int compactIntervalSeconds, int compactJournalKb) {
+        this.store = store;
+        this.log = log;
+        this.journalPath = journalPath;
+        this.capacity = Math.max(64, capacity);
+        this.batchMax = Math.max(1, batchMax);
+        this.compactIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, compactIntervalSeconds));
+        this.compactBytes = Math.max(64, compactJournalKb) * 1024L;
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+
+        this.thread = new Thread(this, "AeternumSeasons-BiomeBackup");
+        thread.setDaemon(true);
+        synchronized (BiomeBackupWriter.class) {
+            this.predecessor = last;
+            last = thread;
+        }
+        thread.start();
+    }
+
+    /** Hilo del último escritor arrancado (null si ninguno); capturar ANTES de crear el siguiente. */
+    static Thread lastThread() {
+        return last;
+    }
+
+    /** Espera a que {@code t} termine. No en el hilo principal. */
+    static void await(Thread t) {
+        if (t == null) return;
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ===================== productores ===================== */
+
+    /** false = cola y desborde llenos: el backup NO se guardó y el chunk no debe pintarse. */
+    boolean submit(UUID world, int cx, int cz, byte[] payload) {
+        Job job = new Job(world, cx, cz, payload);
+        if (!queue.offer(job)) {
+            if (overflowSize.incrementAndGet() > capacity) {
+                overflowSize.decrementAndGet();
+                refused.increment();
+                return false;
+            }
+            overflow.add(job);
+            overflowed.increment();
+        }
+        enqueued.increment();
+        int depth = queue.size() + overflowSize.get();
+        if (depth > highWater) highWater = depth;
+        return true;
+    }
+
+    /** Borra la entrada de un chunk ya restaurado (y la región si queda vacía). */
+    void delete(UUID world, int cx, int cz) {
+        Job job = new Job(world, cx, cz, null, true);
+        if (!queue.offer(job)) overflow.add(job);
+    }
+
+    /** Compacta el journal en las regiones y espera (restore, cierre). No llamar desde el hilo escritor. */
+    void compactAndWait(long timeoutMs) {
+        CountDownLatch latch = new CountDownLatch(1);
+        Job job = new Job(latch);
+        if (!queue.offer(job)) overflow.add(job);
+        try {
+            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 0 = cola vacía, 1 = llena (o desbordando). */
+    double pressure() {
+        return Math.min(1.0, (queue.size() + overflowSize.get()) / (double) capacity);
+    }
+
+    /**
+     * Vacía lo pendiente, compacta y para el hilo. Con {@code wait} (apagado) espera
+     * hasta 15 s; sin él (reload) vuelve ya y el escritor siguiente espera a este.
+     */
+    void shutdown(boolean wait) {
+        running = false;
+        if (!wait) return;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(15));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) log.warning("[BiomeBackup] El escritor no terminó a tiempo; el journal se re-aplica al arrancar.");
+    }
+
+    /* ===================== hilo escritor ===================== */
+
+    @Override
+    public void run() {
+        await(predecessor);
+        try {
+            store.migrateLegacy();
+            journal = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+            store.loadKnownIndex();
+        } catch (Throwable t) {
+            log.warning("[BiomeBackup] Error preparando el journal: " + t.getMessage());
+        }
+        nextCompact = System.nanoTime() + compactIntervalNanos;
+        nextColdFlush = nextCompact;
+
+        List<Job> batch = new ArrayList<>(batchMax);
+        List<CountDownLatch> waiting = new ArrayList<>();
+        while (running || !queue.isEmpty() || !overflow.isEmpty()) {
+            batch.clear();
+            waiting.clear();
+            try {
+                Job first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first != null) batch.add(first);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            queue.drainTo(batch, batchMax - batch.size());
+            while (batch.size() < batchMax) {
+                Job j = overflow.poll();
+                if (j == null) break;
+                if (j.payload != null) overflowSize.decrementAndGet();
+                batch.add(j);
+            }
+
+            boolean compactNow = false;
+            List<Job> data = new ArrayList<>(batch.size());
+            List<Job> deletes = null;
+            for (Job j : batch) {
+                if (j.delete) {
+                    if (deletes == null) deletes = new ArrayList<>();
+                    deletes.add(j);
+                } else if (j.payload == null) {
+                    compactNow = true;
+                    waiting.add(j.done);
+                } else {
+                    data.add(j);
+                }
+            }
+
+            try {
+                // los borrados se encolan antes que un backup nuevo del mismo chunk: van primero
+                if (deletes != null) deleteRestored(deletes);
+                if (!data.isEmpty()) append(data);
+                long now = System.nanoTime();
+                if (compactNow || journalBytes >= compactBytes
+                        || (!uncompacted.isEmpty() && now - nextCompact >= 0)) {
+                    compact();
+                    nextCompact = now + compactIntervalNanos;
+                }
+                if (compactNow || now - nextColdFlush >= 0) {
+                    store.coldIndex().flush();
+                    nextColdFlush = now + compactIntervalNanos;
+                }
+            } catch (Throwable t) {
+                log.warning("[BiomeBackup] Error en el escritor: " + t.getMessage());
+            }
+            for (CountDownLatch l : waiting) l.countDown();
+        }
+
+        try {
+            compact();
+            store.coldIndex().flush();
+            if (journal != null) journal.close();
+        } catch (Throwable t) {
+            log.warning("[BiomeBackup] Error cerrando el journal: " + t.getMessage());
+        }
+        store.closeRegions();
+    }
+
+    /** Quita de las regiones lo ya restaurado; una región vacía se cierra y se borra. */
+    private void deleteRestored(List<Job> deletes) {
+        for (Job j : deletes) {
+            try {
+                BiomeRegionFile region = store.region(j.world, j.cx, j.cz, false);
+                if (region == null) continue;
+                region.delete(j.cx, j.cz);
+                if (region.isEmpty()) store.dropRegion(region);
+            } catch (IOException e) {
+                log.warning("[BiomeBackup] No se pudo borrar " + j.cx + "," + j.cz + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** Añade el lote al journal y hace UN force. */
+    private void append(List<Job> data) throws IOException {
+        int size = 0;
+        for (Job j : data) size += REC_HEADER + j.payload.length;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (Job j : data) {
+            crc.reset();
+            crc.update(j.payload);
+            buf.putInt(REC_MAGIC);
+            buf.putLong(j.world.getMostSignificantBits());
+            buf.putLong(j.world.getLeastSignificantBits());
+            buf.putInt(j.cx);
+            buf.putInt(j.cz);
+            buf.putInt(j.payload.length);
+            buf.putInt((int) crc.getValue());
+            buf.put(j.payload);
+        }
+        buf.flip();
+
+        long at = journalBytes;
+        while (buf.hasRemaining()) at += journal.write(buf, at);
+        journal.force(false);
+
+        journalBytes = at;
+        uncompacted.addAll(data);
+        batches.increment();
+        records.add(data.size());
+        fsyncs.increment();
+    }
+
+    /** Pasa lo del journal a las regiones (primero gana) y trunca el journal. */
+    private void compact() throws IOException {
+        if (uncompacted.isEmpty()) {
+            if (journal != null && journalBytes > 0) truncateJournal();
+            return;
+        }
+        long t0 = System.nanoTime();
+
+        Set<BiomeRegionFile> touched = new HashSet<>();
+        for (Job j : uncompacted) {
+            BiomeRegionFile region = store.region(j.world, j.cx, j.cz, true);
+            if (region.has(j.cx, j.cz)) continue; // ya había original en disco
+            region.write(j.cx, j.cz, j.payload, false);
+            touched.add(region);
+        }
+        for (BiomeRegionFile r : touched) {
+            r.sync();
+            fsyncs.increment();
+        }
+
+        uncompacted.clear();
+        truncateJournal();
+        compactions.increment();
+        lastCompactMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+    }
+
+    private void truncateJournal() throws IOException {
+        journal.truncate(0);
+        journal.force(true);
+        fsyncs.increment();
+        journalBytes = 0;
+    }
+
+    /** Re-aplica el journal de un cierre brusco; la cola rota (escritura a medias) se descarta. */
+    private void replay() throws IOException {
+        long size = journal.size();
+        if (size == 0) return;
+
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        while (buf.hasRemaining()) {
+            if (journal.read(buf, buf.position()) < 0) break;
+        }
+        buf.flip();
+
+        CRC32 crc = new CRC32();
+        int ok = 0;
+        while (buf.remaining() >= REC_HEADER) {
+            int start = buf.position();
+            if (buf.getInt() != REC_MAGIC) break;
+            UUID world = new UUID(buf.getLong(), buf.getLong());
+            int cx = buf.getInt();
+            int cz = buf.getInt();
+            int len = buf.getInt();
+            int sum = buf.getInt();
+            if (len < 0 || len > buf.remaining()) {
+                buf.position(start);
+                break;
+            }
+            byte[] payload = new byte[len];
+            buf.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != sum) break;
+
+            uncompacted.add(new Job(world, cx, cz, payload));
+            store.markKnown(world, cx, cz);
+            ok++;
+        }
+        journalBytes = size;
+        if (ok > 0) log.info("[BiomeBackup] Journal: " + ok + " backups recuperados de un cierre brusco.");
+        compact();
+    }
+
+    /* ===================== métricas ===================== */
+
+    String describe() {
+        long b = batches.sum();
+        return "queue=" + (queue.size() + overflowSize.get()) + "/" + capacity
+                + " (max " + highWater + ", overflow " + overflowed.sum() + ", refused " + refused.sum() + ")"
+                + " enqueued=" + enqueued.sum()
+                + " batches=" + b
+                + " avg=" + (b == 0 ? "0" : String.format(Locale.ROOT, "%.1f", records.sum() / (double) b))
+                + " fsyncs=" + fsyncs.sum()
+                + " journal=" + (journalBytes / 1024) + "KB"
+                + " compactions=" + compactions.sum() + " (last " + lastCompactMs + "ms)";
+    }
+}
@@ -0,0 +1,126 @@
+package Kinkin.aeternum.world;
+
+import org.bukkit.block.Biome;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Rejilla de biomas originales de un chunk (4x4 columnas x altura/4), compacta.
+ *
+ * La mayoría de chunks tienen 1 o 2 biomas distintos, así que en vez de un
+ * Biome[] de ~1.5k referencias guardamos:
+ *  - una paleta mínima con los biomas del chunk,
+ *  - un índice de 1, 2, 4 u 8 bits por celda (0 bits si hay un solo bioma).
+ * Rejillas idénticas (el mismo bosque repetido chunk tras chunk) se comparten
+ * vía {@link #of}; la tabla de interning es débil y se vacía sola.
+ *
+ * El índice de celda es el mismo que usaba el array plano:
+ * ((lx * 4) + lz) * yCount + ly.
+ */
+final class BiomeGrid {
+
+    private static final Map<BiomeGrid, WeakReference<BiomeGrid>> INTERN =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Biome[] palette;
+    private final int bits;        // 0 = bioma único
+    private final long[] data;     // null si bits == 0
+    private final int size;
+    private final int hash;
+
+    private BiomeGrid(Biome[] palette, int bits, long[] data, int size) {
+        this.palette = palette;
+        this.bits = bits;
+        this.data = data;
+        this.size = size;
+        this.hash = (Arrays.hashCode(palette) * 31 + Arrays.hashCode(data)) * 31 + size;
+    }
+
+    /** Construye la rejilla comprimida de {@code cells} y devuelve la copia compartida si ya existe. */
+    static BiomeGrid of(Biome[] cells) {
+        Biome[] pal = new Biome[4];
+        int palSize = 0;
+        int[] idx = new int[cells.length];
+
+        for (int i = 0; i < cells.length; i++) {
+            Biome b = cells[i];
+            int p = 0;
+            while (p < palSize && pal[p] != b) p++;
+            if (p == palSize) {
+                if (palSize == pal.length) pal = Arrays.copyOf(pal, palSize * 2);
+                pal[palSize++] = b;
+            }
+            idx[i] = p;
+        }
+        pal = Arrays.copyOf(pal, palSize);
+
+        int bits = palSize <= 1 ? 0 : palSize <= 2 ? 1 : palSize <= 4 ? 2 : palSize <= 16 ? 4 : 8;
+        long[] data = null;
+        if (bits > 0) {
+            int perLong = 64 / bits;
+            data = new long[(cells.length + perLong - 1) / perLong];
+            for (int i = 0; i < cells.length; i++) {
+                data[i / perLong] |= ((long) idx[i]) << ((i % perLong) * bits);
+            }
+        }
+
+        BiomeGrid g = new BiomeGrid(pal, bits, data, cells.length);
+        synchronized (INTERN) {
+            WeakReference<BiomeGrid> ref = INTERN.get(g);
+            BiomeGrid shared = ref != null ? ref.get() : null;
+            if (shared != null) return shared;
+            INTERN.put(g, new WeakReference<>(g));
+        }
+        return g;
+    }
+
+    /** Bioma de la celda {@code i} (índice plano), O(1). */
+    Biome get(int i) {
+        if (i < 0 || i >= size) i = 0;
+        if (bits == 0) return palette.length == 0 ? null : palette[0];
+        int perLong = 64 / bits;
+        int p = (int) ((data[i / perLong] >>> ((i % perLong) * bits)) & ((1L << bits) - 1));
+        return palette[p];
+    }
+
+    Biome first() {
+        return get(0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Biomas distintos del chunk (para clasificar sin recorrer todas las celdas). */
+    Biome[] palette() {
+        return palette;
+    }
+
+    /** Bytes aproximados en heap (cabeceras incluidas). */
+    long approxBytes() {
+        long b = 32 + 16 + 4L * palette.length;
+        if (data != null) b += 16 + 8L * data.length;
+        return b;
+    }
+
+    static int internedCount() {
+        return INTERN.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BiomeGrid g)) return false;
+        return hash == g.hash && size == g.size && bits == g.bits
+                && Arrays.equals(palette, g.palette) && Arrays.equals(data, g.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,223 @@
+package Kinkin.aeternum.world;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Contenedor estilo Anvil para backups de biomas: 32x32 chunks por archivo.
+ *
+ * Formato:
+ *  - cabecera fija de 1024 entradas x 8 bytes (sector inicial, nº de sectores),
+ *    índice = (lcz << 5) | lcx; sector 0 = entrada vacía,
+ *  - datos en sectores de 512 bytes: [int longitud][int crc32][payload].
+ *
+ * Escritura siempre al final (append) y en dos pasos: primero los datos y force,
+ * después la entrada de cabecera y force. Si el proceso muere entre medias, la
+ * cabecera sigue apuntando a lo anterior y la cola huérfana se reutiliza al abrir.
+ * Las entradas que apuntan fuera del archivo se ignoran; el crc descarta datos rotos.
+ *
+ * Lecturas por un MappedByteBuffer de solo lectura que se rehace si el archivo creció
+ * (los primeros 2 GiB; lo que quede más allá se lee con el canal).
+ */
+final class BiomeRegionFile implements Closeable {
+
+    static final int SIDE = 32;
+    static final String EXTENSION = ".abr";
+
+    private static final int ENTRIES = SIDE * SIDE;
+    private static final int SECTOR = 512;
+    private static final int HEADER_BYTES = ENTRIES * 8;
+    private static final int HEADER_SECTORS = HEADER_BYTES / SECTOR;
+    private static final int PREFIX = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int[] offsets = new int[ENTRIES];
+    private final int[] sectors = new int[ENTRIES];
+    private long endSector;
+    private int count;
+
+    private MappedByteBuffer map;
+    private long mappedSize;
+
+    BiomeRegionFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_BYTES) {
+            writeFully(ByteBuffer.allocate(HEADER_BYTES), 0L);
+            channel.force(true);
+        }
+
+        ByteBuffer hdr = ByteBuffer.allocate(HEADER_BYTES);
+        while (hdr.hasRemaining()) {
+            if (channel.read(hdr, hdr.position()) < 0) break;
+        }
+        hdr.flip();
+
+        long fileSectors = channel.size() / SECTOR;
+        endSector = HEADER_SECTORS;
+        for (int i = 0; i < ENTRIES; i++) {
+            int off = hdr.getInt();
+            int cnt = hdr.getInt();
+            if (off < HEADER_SECTORS || cnt <= 0 || off + (long) cnt > fileSectors) continue;
+            offsets[i] = off;
+            sectors[i] = cnt;
+            endSector = Math.max(endSector, off + (long) cnt);
+            count++;
+        }
+    }
+
+    static int regionCoord(int chunkCoord) {
+        return chunkCoord >> 5;
+    }
+
+    static String fileName(int rx, int rz) {
+        return "r." + rx + "." + rz + EXTENSION;
+    }
+
+    private static int index(int cx, int cz) {
+        return ((cz & (SIDE - 1)) << 5) | (cx & (SIDE - 1));
+    }
+
+    synchronized boolean has(int cx, int cz) {
+        return offsets[index(cx, cz)] != 0;
+    }
+
+    /** Escribe (o reemplaza) el payload del chunk. Datos primero, cabecera después. */
+    synchronized void write(int cx, int cz, byte[] payload) throws IOException {
+        write(cx, cz, payload, true);
+    }
+
+    /**
+     * Igual que {@link #write(int, int, byte[])}; con {@code sync=false} no hace force
+     * (quien llame debe llamar a {@link #sync()} antes de dar el lote por bueno).
+     */
+    synchronized void write(int cx, int cz, byte[] payload, boolean sync) throws IOException {
+        int idx = index(cx, cz);
+        int need = (PREFIX + payload.length + SECTOR - 1) / SECTOR;
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buf = ByteBuffer.allocate(need * SECTOR);
+        buf.putInt(payload.length);
+        buf.putInt((int) crc.getValue());
+        buf.put(payload);
+        buf.clear();
+
+        long at = endSector;
+        writeFully(buf, at * SECTOR);
+        if (sync) channel.force(false);
+
+        ByteBuffer entry = ByteBuffer.allocate(8);
+        entry.putInt((int) at);
+        entry.putInt(need);
+        entry.flip();
+        writeFully(entry, idx * 8L);
+        if (sync) channel.force(false);
+
+        if (offsets[idx] == 0) count++;
+        offsets[idx] = (int) at;
+        sectors[idx] = need;
+        endSector = at + need;
+    }
+
+    synchronized void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /** Payload del chunk o null si no hay. */
+    synchronized byte[] read(int cx, int cz) throws IOException {
+        int idx = index(cx, cz);
+        int off = offsets[idx];
+        if (off == 0) return null;
+
+        long pos = (long) off * SECTOR;
+        int span = sectors[idx] * SECTOR;
+        ByteBuffer src;
+        int at;
+        if (pos + span <= Integer.MAX_VALUE) {
+            src = mapped();
+            at = (int) pos;
+        } else {
+            // un mapeo no pasa de 2 GiB: lo que queda más allá se lee directo del canal
+            src = ByteBuffer.allocate(span);
+            while (src.hasRemaining()) {
+                if (channel.read(src, pos + src.position()) < 0) break;
+            }
+            at = 0;
+        }
+        int len = src.getInt(at);
+        int sum = src.getInt(at + 4);
+        if (len < 0 || len > span - PREFIX) {
+            throw new IOException("Bad length " + len + " in " + path.getFileName());
+        }
+
+        byte[] out = new byte[len];
+        src.get(at + PREFIX, out);
+
+        CRC32 crc = new CRC32();
+        crc.update(out);
+        if ((int) crc.getValue() != sum) throw new IOException("Bad crc in " + path.getFileName());
+        return out;
+    }
+
+    /** Borra la entrada (los sectores quedan como hueco). */
+    synchronized void delete(int cx, int cz) throws IOException {
+        int idx = index(cx, cz);
+        if (offsets[idx] == 0) return;
+        writeFully(ByteBuffer.allocate(8), idx * 8L);
+        channel.force(false);
+        offsets[idx] = 0;
+        sectors[idx] = 0;
+        count--;
+    }
+
+    /** Coordenadas locales presentes, como {lcx, lcz}. */
+    synchronized List<int[]> entries() {
+        List<int[]> out = new ArrayList<>(count);
+        for (int i = 0; i < ENTRIES; i++) {
+            if (offsets[i] != 0) out.add(new int[]{i & (SIDE - 1), i >> 5});
+        }
+        return out;
+    }
+
+    synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    private MappedByteBuffer mapped() throws IOException {
+        long size = Math.min(channel.size(), Integer.MAX_VALUE);
+        if (map == null || mappedSize != size) {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedSize = size;
+        }
+        return map;
+    }
+
+    private void writeFully(ByteBuffer buf, long at) throws IOException {
+        while (buf.hasRemaining()) {
+            at += channel.write(buf, at);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        map = null;
+        channel.close();
+    }
+}
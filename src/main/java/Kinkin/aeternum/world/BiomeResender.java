@@ -0,0 +1,163 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reenvío al cliente SOLO de los biomas de los chunks que el spoof tocó.
+ *
+ * refreshChunk manda el chunk entero (bloques, block entities, luz) a cada
+ * viewer solo para cambiar el tinte. El servidor ya sabe mandar únicamente los
+ * biomas (lo usa /fillbiome): ChunkMap#resendBiomesForChunks agrupa los chunks
+ * por jugador que los ve y manda un ClientboundChunksBiomesPacket por jugador.
+ *
+ * - Paper: los chunks marcados se juntan y se mandan en un lote por mundo en {@link #flush()}.
+ * - Folia: cada región es dueña de sus chunks → se manda al momento, chunk a chunk,
+ *   desde el hilo de la región (sigue siendo solo el paquete de biomas).
+ * - Si el servidor no expone esos métodos (Spigot, mappings distintos...) se
+ *   vuelve a refreshChunk.
+ *
+ * Todo por reflexión: no dependemos del jar del servidor para compilar.
+ */
+final class BiomeResender {
+
+    private final AeternumSeasonsPlugin plugin;
+
+    // mundo → chunks pendientes (PaintedBlockRegistry.chunkKey)
+    private final Map<UUID, Set<Long>> dirty = new ConcurrentHashMap<>();
+
+    private final LongAdder biomeChunks = new LongAdder();
+    private final LongAdder biomeBatches = new LongAdder();
+    private final LongAdder fullRefreshes = new LongAdder();
+
+    // reflexión (resuelta una vez)
+    private volatile boolean resolved;
+    private volatile boolean available;
+    private Method worldGetHandle;     // CraftWorld#getHandle → ServerLevel
+    private Method levelGetChunkSource;// ServerLevel#getChunkSource → ServerChunkCache
+    private Field chunkMapField;       // ServerChunkCache#chunkMap
+    private Method levelGetChunk;      // Level#getChunk(int, int) → LevelChunk
+    private Method resendBiomes;       // ChunkMap#resendBiomesForChunks(List<ChunkAccess>)
+
+    BiomeResender(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** true si tenemos el camino "solo biomas" (sin refreshChunk ni nudges). */
+    boolean isBiomeOnly() {
+        resolve(Bukkit.getWorlds().isEmpty() ? null : Bukkit.getWorlds().get(0));
+        return available;
+    }
+
+    /** Llamar en el hilo dueño del chunk, justo después de cambiar sus biomas. */
+    void mark(World w, int cx, int cz) {
+        resolve(w);
+        if (!available) {
+            fullRefresh(w, cx, cz);
+            return;
+        }
+        if (plugin.getFoliaLib().isFolia()) {
+            send(w, Collections.singletonList(new long[]{cx, cz}));
+            return;
+        }
+        dirty.computeIfAbsent(w.getUID(), id -> ConcurrentHashMap.newKeySet())
+                .add(PaintedBlockRegistry.chunkKey(cx, cz));
+    }
+
+    /** Paper: un lote por mundo con todo lo marcado desde el último flush. */
+    void flush() {
+        if (dirty.isEmpty()) return;
+        for (Map.Entry<UUID, Set<Long>> e : dirty.entrySet()) {
+            World w = Bukkit.getWorld(e.getKey());
+            Set<Long> keys = e.getValue();
+            if (w == null) {
+                keys.clear();
+                continue;
+            }
+
+            List<long[]> batch = new ArrayList<>(keys.size());
+            for (Iterator<Long> it = keys.iterator(); it.hasNext(); ) {
+                long k = it.next();
+                it.remove();
+                batch.add(new long[]{PaintedBlockRegistry.chunkX(k), PaintedBlockRegistry.chunkZ(k)});
+            }
+            if (!batch.isEmpty()) send(w, batch);
+        }
+    }
+
+    /** Olvida lo pendiente sin mandarlo (el chunk se descarga, el cliente ya no lo tiene). */
+    void forget(World w, int cx, int cz) {
+        Set<Long> keys = dirty.get(w.getUID());
+        if (keys != null) keys.remove(PaintedBlockRegistry.chunkKey(cx, cz));
+    }
+
+    private void send(World w, List<long[]> coords) {
+        List<Object> handles = new ArrayList<>(coords.size());
+        try {
+            Object level = worldGetHandle.invoke(w);
+            for (long[] c : coords) {
+                int cx = (int) c[0];
+                int cz = (int) c[1];
+                if (!w.isChunkLoaded(cx, cz)) continue;
+                handles.add(levelGetChunk.invoke(level, cx, cz));
+            }
+            if (handles.isEmpty()) return;
+
+            Object chunkMap = chunkMapField.get(levelGetChunkSource.invoke(level));
+            resendBiomes.invoke(chunkMap, handles);
+            biomeChunks.add(handles.size());
+            biomeBatches.increment();
+        } catch (Throwable t) {
+            available = false;
+            plugin.getLogger().warning("[BiomeSpoof] Biome-only resend failed (" + t
+                    + "), falling back to refreshChunk.");
+            for (long[] c : coords) fullRefresh(w, (int) c[0], (int) c[1]);
+        }
+    }
+
+    private void fullRefresh(World w, int cx, int cz) {
+        if (!w.isChunkLoaded(cx, cz)) return;
+        w.refreshChunk(cx, cz);
+        fullRefreshes.increment();
+    }
+
+    private void resolve(World sample) {
+        if (resolved || sample == null) return;
+        synchronized (this) {
+            if (resolved) return;
+            try {
+                worldGetHandle = sample.getClass().getMethod("getHandle");
+                Class<?> levelClass = worldGetHandle.getReturnType();
+                levelGetChunkSource = levelClass.getMethod("getChunkSource");
+                chunkMapField = levelGetChunkSource.getReturnType().getField("chunkMap");
+                levelGetChunk = levelClass.getMethod("getChunk", int.class, int.class);
+                resendBiomes = chunkMapField.getType().getMethod("resendBiomesForChunks", List.class);
+                available = true;
+            } catch (Throwable t) {
+                available = false;
+                plugin.getLogger().info("[BiomeSpoof] Biome-only resend not available on this server, using refreshChunk.");
+            }
+            resolved = true;
+        }
+    }
+
+    String describe() {
+        return "biome-only=" + available
+                + " chunks=" + biomeChunks.sum()
+                + " batches=" + biomeBatches.sum()
+                + " full-refreshes=" + fullRefreshes.sum();
+    }
+}
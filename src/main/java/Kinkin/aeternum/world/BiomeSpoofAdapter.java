@@ -7,19 +7,20 @@ import Kinkin.aeternum.calendar.SeasonService;
 import Kinkin.aeternum.calendar.SeasonUpdateEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
-import org.bukkit.event.world.ChunkUnloadEvent;
 import com.tcoded.folialib.wrapper.task.WrappedTask;
-import org.bukkit.util.Vector;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -29,11 +30,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Tiñe biomas alrededor del jugador según la estación.
  * - Evita barridos: no hace revert global en cambio de estación.
  * - Pinta primero el chunk del jugador y los chunks delante de su vista.
- * - Tras pintar, hace refreshChunk del chunk para que el cliente vea el cambio
- *   sin necesidad de reconectar.
+ * - Tras pintar, reenvía SOLO los biomas del chunk (BiomeResender) para que el
+ *   cliente vea el cambio sin reconectar; refreshChunk queda como fallback.
  *
  * + NUEVO:
  * - Soporte para océanos (y opcional ríos), progresivo y con el mismo budget.
+ * - En los días de pre-transición cada plan deja preparado el objetivo de la
+ *   estación siguiente (buffer sombra); en la frontera los chunks ya al objetivo
+ *   se dan por buenos sin snapshot y el resto se escribe sin volver a planificar.
  */
 public final class BiomeSpoofAdapter implements Listener, Runnable {
 
@@ -47,7 +51,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
 
     private Mode mode;
     private int radiusChunksCfg;
-    private int budgetPerTick;
+    private AdaptiveBudgetController.Knob budgetPerTick;
 
     // config legacy (solo para logging, ya no hacemos revert global en cambio de estación)
     private boolean revertOnSeasonChange;
@@ -69,18 +73,46 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     private WrappedTask task;
 
     /**
-     * backups: por cada chunk spoofeado guardamos una copia "original"
-     * (muestra de biomas antes de empezar con el sistema de estaciones).
-     * Así podemos revertir TODO al desregistrar el adaptador
-     * o cuando se descarga el chunk.
+     * Estado del spoof en cada chunk cargado (slot "biome_spoof" de {@link ChunkSeasonState}).
+     * Sale del registro con el chunk: al descargar se revierte si estaba spoofeado.
      */
-    private final Map<Long, Biome[]> backups = new ConcurrentHashMap<>();
+    static final class SpoofSlice {
+        /**
+         * Copia "original" (muestra de biomas antes de empezar con el sistema de
+         * estaciones). Así podemos revertir al desregistrar o al descargar el chunk.
+         */
+        volatile BiomeGrid original;
+        /** Tiñendo biomas por estación ahora mismo. */
+        volatile boolean spoofed;
+        /** Frío/nival de origen: no se pinta nunca. */
+        volatile boolean cold;
+        /** Época de objetivos en la que se vio al objetivo. */
+        volatile int atEpoch = Integer.MIN_VALUE;
+        /** Sube con cada escritura nuestra de biomas (solo hilo de la región, con el plan tomado). */
+        volatile int paintVersion;
+        /** Buffer sombra: lo que hará falta en el cambio de estación, calculado de antemano. */
+        volatile Staged staged;
+        // plan en vuelo (snapshot → async → escritura)
+        private boolean inFlight;
+
+        synchronized boolean beginPlan() {
+            if (inFlight) return false;
+            inFlight = true;
+            return true;
+        }
 
-    /**
-     * chunks que actualmente están "spoofeados" (tiñendo biomas por estación).
-     */
-    private final Set<Long> spoofed = ConcurrentHashMap.newKeySet();
-    private static final Set<Long> COLD_CHUNKS = ConcurrentHashMap.newKeySet();
+        synchronized void endPlan() {
+            inFlight = false;
+        }
+    }
+
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<SpoofSlice> slot;
+
+    // para la consulta estática isChunkNaturallySnowy (pintores de nieve)
+    private static volatile ChunkSeasonState coldState;
+    private static volatile ChunkSeasonState.Slot<SpoofSlice> coldSlot;
+    private static volatile ColdChunkIndex coldIndex;
 
     /* ================== anti-flicker: nudges por jugador ================== */
     private static final int NUDGES_PER_TICK = 8;
@@ -89,14 +121,16 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     private static final int STEP_XZ = 4;
     private static final int STEP_Y  = 4;
 
-    private final Map<UUID, java.util.concurrent.ConcurrentLinkedDeque<Long>> nudgeQueue = new ConcurrentHashMap<>();
-    private final Map<String, Long> nudgeLast = new ConcurrentHashMap<>();
+    private final Map<UUID, NudgeQueue> nudges = new ConcurrentHashMap<>();
     /* ===================================================================== */
 
     /* ===== Modo transición de estación (boost temporal de presupuesto) ==== */
     private static final long TRANSITION_WINDOW_MS = 5000L;
     private static final int TRANSITION_BUDGET_MULTIPLIER = 3;
     private volatile long seasonTransitionUntil = 0L;
+
+    // a partir de este llenado de la cola de backups el presupuesto baja linealmente hasta 1
+    private static final double BACKUP_PRESSURE_SOFT = 0.75;
     /* ===================================================================== */
 
     /* ===== Transición suave a final de estación (26, 27, 28) ============= */
@@ -104,23 +138,91 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     /* ===================================================================== */
 
     private final Kinkin.aeternum.world.BiomeBackupStore diskBackups;
+    private final BiomeResender resender;
 
 
 
     /**
-     * Offset de chunk relativo al jugador, usado para ordenar
-     * por distancia y dirección de mirada.
+     * Frente de chunks pendientes por jugador y, por chunk, la "época" de objetivos
+     * en la que se comprobó que ya estaba al bioma objetivo. La época sube cuando
+     * cambia lo que se pinta (estación, factor de pre-transición, on/off).
      */
-    private static final class Offset {
-        final int dx, dz;
-        final int dist;            // distancia Chebyshev
-        final double forwardScore; // qué tanto está "adelante" del jugador
-
-        Offset(int dx, int dz, int dist, double forwardScore) {
-            this.dx = dx;
-            this.dz = dz;
-            this.dist = dist;
-            this.forwardScore = forwardScore;
+    private final Map<UUID, SpoofFrontier> frontiers = new ConcurrentHashMap<>();
+    private volatile int targetEpoch;
+    private long targetSignature = Long.MIN_VALUE;
+
+    // buffer sombra: staged = calculados, free = resueltos sin snapshot, commits = escritos sin planificar
+    private final java.util.concurrent.atomic.LongAdder stagedPlanned = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder stagedFree = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder stagedCommits = new java.util.concurrent.atomic.LongAdder();
+
+    /**
+     * Objetivo de la estación siguiente para un chunk, calculado en los días de
+     * pre-transición. Vale mientras la firma de objetivos sea {@code sig} y nadie
+     * haya vuelto a pintar el chunk ({@code version}). {@code target == null}: en
+     * la frontera no hay nada que escribir (ya está al objetivo, o es frío).
+     */
+    static final class Staged {
+        final long sig;
+        final int version;
+        final Biome target;
+
+        Staged(long sig, int version, Biome target) {
+            this.sig = sig;
+            this.version = version;
+            this.target = target;
+        }
+    }
+
+    /** Objetivos de la estación siguiente (día 1, sin pre-transición) para el buffer sombra. */
+    private static final class Stage {
+        final long sig;
+        final Season season;
+        final Biome land;
+        final Biome ocean;
+
+        Stage(long sig, Season season, Biome land, Biome ocean) {
+            this.sig = sig;
+            this.season = season;
+            this.land = land;
+            this.ocean = ocean;
+        }
+    }
+
+    /** Biomas de un chunk copiados en el hilo de la región, legibles desde cualquier hilo. */
+    private static final class SnapView {
+        final ChunkSnapshot snap;
+        final UUID world;
+        final long key;
+        final SpoofSlice slice;
+        final int minY, maxY;
+
+        SnapView(ChunkSnapshot snap, UUID world, long key, SpoofSlice slice, int minY, int maxY) {
+            this.snap = snap;
+            this.world = world;
+            this.key = key;
+            this.slice = slice;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+    }
+
+    /** Celdas (índice plano de la rejilla 4x4x4) que hay que poner a {@code target}. */
+    private static final class SpoofPlan {
+        final Biome target;
+        final int[] changes;
+        final int yCount;
+        final Biome[] original;    // null si el chunk ya tenía backup
+        final BiomeGrid grid;
+        final boolean cold;
+
+        SpoofPlan(Biome target, int[] changes, int yCount, Biome[] original, BiomeGrid grid, boolean cold) {
+            this.target = target;
+            this.changes = changes;
+            this.yCount = yCount;
+            this.original = original;
+            this.grid = grid;
+            this.cold = cold;
         }
     }
 
@@ -134,6 +236,22 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         this.plugin = plugin;
         this.seasons = seasons;
         this.diskBackups = new Kinkin.aeternum.world.BiomeBackupStore(plugin);
+        this.state = plugin.getChunkState();
+        this.slot = state.slot("biome_spoof", new ChunkSeasonState.Lifecycle<>() {
+            @Override
+            public SpoofSlice load(Chunk ch) {
+                return null; // nada persistido: el chunk carga con sus biomas originales
+            }
+
+            @Override
+            public void unload(Chunk ch, SpoofSlice s) {
+                onChunkUnload(ch, s);
+            }
+        });
+        coldState = state;
+        coldSlot = slot;
+        coldIndex = diskBackups.coldIndex();
+        this.resender = new BiomeResender(plugin);
         reloadFromConfig();
     }
 
@@ -146,7 +264,8 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         }
 
         this.radiusChunksCfg = Math.max(1, plugin.cfg.climate.getInt("biome_spoof.radius_chunks", 8));
-        this.budgetPerTick   = Math.max(2, plugin.cfg.climate.getInt("biome_spoof.budget_chunks_per_tick", 16));
+        int budgetCfg        = Math.max(2, plugin.cfg.climate.getInt("biome_spoof.budget_chunks_per_tick", 16));
+        this.budgetPerTick   = plugin.getBudgets().knob("biome_spoof_chunks", budgetCfg, 2, budgetCfg * 4);
         this.revertOnSeasonChange = plugin.cfg.climate.getBoolean("biome_spoof.revert_on_non_winter", true);
 
         seasonTarget.put(Season.SPRING,  readBiome("biome_spoof.seasons.SPRING",  Biome.FLOWER_FOREST));
@@ -198,32 +317,29 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         HandlerList.unregisterAll(this);
         // al desregistrar, devolvemos el mundo a sus biomas originales
         revertAll();
-        nudgeQueue.clear();
-        nudgeLast.clear();
-        COLD_CHUNKS.clear();
+        state.detach(slot);
+        diskBackups.close();
+        nudges.clear();
     }
 
     @EventHandler
     public void onChunkLoad(ChunkLoadEvent e) {
-        long k = key(e.getChunk());
-        // al cargar un chunk nuevo no queremos residuos marcados como spoofed
-        spoofed.remove(k);
-        // backups se mantienen si el chunk fue modificado; se limpia en onChunkUnload
-    }
-
-    @EventHandler
-    public void onChunkUnload(ChunkUnloadEvent e) {
+        // el estado del chunk se fue con el unload: vuelve a la cola de los jugadores que lo tienen en rango
         Chunk ch = e.getChunk();
-        long k = key(ch);
-        // antes de soltar el chunk, lo devolvemos a su bioma original, si lo teníamos spoofeado
-        if (spoofed.remove(k)) {
-            revertChunk(ch);
+        long local = PaintedBlockRegistry.chunkKey(ch.getX(), ch.getZ());
+        for (SpoofFrontier f : frontiers.values()) {
+            if (f.inRange(ch.getWorld(), ch.getX(), ch.getZ())) f.pending.add(local);
         }
-        backups.remove(k);
+    }
 
-        for (java.util.concurrent.ConcurrentLinkedDeque<Long> q : nudgeQueue.values()) {
-            q.remove(k);
+    /** Desde ChunkSeasonState: el chunk ya salió del registro. */
+    private void onChunkUnload(Chunk ch, SpoofSlice s) {
+        // antes de soltar el chunk, lo devolvemos a su bioma original, si lo teníamos spoofeado
+        if (s.spoofed) {
+            revertChunk(ch, s.original);
         }
+        resender.forget(ch.getWorld(), ch.getX(), ch.getZ());
+        // los nudges pendientes de este chunk se descartan al vaciarlos (ya no está cargado)
     }
 
     @EventHandler
@@ -232,6 +348,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
 
         // activamos "modo transición" durante unos segundos: más presupuesto de pintado
         seasonTransitionUntil = System.currentTimeMillis() + TRANSITION_WINDOW_MS;
+        targetEpoch++;
 
         // IMPORTANTE: ya NO hacemos revertAll aquí para evitar el barrido global.
         if (revertOnSeasonChange) {
@@ -243,6 +360,9 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     public void run() {
         if (mode == Mode.OFF) return;
 
+        // Paper: los chunks pintados en la pasada anterior salen en un solo lote por mundo
+        resender.flush();
+
         CalendarState st = seasons.getStateCopy();
         Season season = st.season;
 
@@ -259,14 +379,35 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         final Biome currentOceanTarget = oceanTarget.getOrDefault(season, Biome.OCEAN);
         final Biome nextOceanTarget    = oceanTarget.getOrDefault(nextSeason, currentOceanTarget);
 
+        // si cambió lo que se pinta, todos los chunks vuelven a estar "por comprobar"
+        long signature = signature(season, preTransitionFactor);
+        if (signature != targetSignature) {
+            targetSignature = signature;
+            targetEpoch++;
+        }
+
+        // en pre-transición, cada plan deja preparado (buffer sombra) el objetivo del día 1 de la siguiente
+        final Stage stage = preTransitionFactor > 0.0
+                ? new Stage(signature(nextSeason, 0.0), nextSeason,
+                        seasonTarget.getOrDefault(nextSeason, Biome.PLAINS),
+                        oceanTarget.getOrDefault(nextSeason, Biome.OCEAN))
+                : null;
+
         long now = System.currentTimeMillis();
-        int effectiveBudget = budgetPerTick;
+        int effectiveBudget = budgetPerTick.get();
 
         // Durante la ventana de transición, el presupuesto se escala de forma suave
         if (now < seasonTransitionUntil) {
             double extra = 1.0 + (preTransitionFactor * (TRANSITION_BUDGET_MULTIPLIER - 1));
             if (extra < 1.0) extra = 1.0;
-            effectiveBudget = (int) Math.max(1, Math.round(budgetPerTick * extra));
+            effectiveBudget = (int) Math.max(1, Math.round(effectiveBudget * extra));
+        }
+
+        // backpressure: si el escritor de backups no da abasto, pintamos menos chunks nuevos
+        double pressure = diskBackups.pressure();
+        if (pressure > BACKUP_PRESSURE_SOFT) {
+            double keep = (1.0 - pressure) / (1.0 - BACKUP_PRESSURE_SOFT);
+            effectiveBudget = (int) Math.max(1, Math.floor(effectiveBudget * keep));
         }
 
         int budget = effectiveBudget;
@@ -279,9 +420,11 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
             if (remaining.get() <= 0) break;
             plugin.getScheduler().runAtEntity(p, task -> tickForPlayer(
                     p,
+                    season,
                     currentTarget, nextTarget,
                     currentOceanTarget, nextOceanTarget,
                     preTransitionFactor,
+                    signature, stage,
                     remaining,
                     processedThisTick
             ));
@@ -290,10 +433,18 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         }
     }
 
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        frontiers.remove(e.getPlayer().getUniqueId());
+        nudges.remove(e.getPlayer().getUniqueId());
+    }
+
     private void tickForPlayer(Player p,
+                               Season season,
                                Biome currentTarget, Biome nextTarget,
                                Biome currentOceanTarget, Biome nextOceanTarget,
                                double preTransitionFactor,
+                               long signature, Stage stage,
                                java.util.concurrent.atomic.AtomicInteger remaining,
                                Set<Long> processedThisTick) {
         if (!p.isOnline()) return;
@@ -309,124 +460,207 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         int pcx = loc.getBlockX() >> 4;
         int pcz = loc.getBlockZ() >> 4;
 
-        // dirección de mirada (solo plano XZ)
-        Vector look = loc.getDirection().clone();
-        look.setY(0);
-        if (look.lengthSquared() < 1e-4) {
-            look = new Vector(0, 0, 1);
-        } else {
-            look.normalize();
-        }
-
-        // 1) procesar SIEMPRE el chunk donde está el jugador primero
-        scheduleChunkSpoof(p, w, pcx, pcz,
-                currentTarget, nextTarget,
-                currentOceanTarget, nextOceanTarget,
-                preTransitionFactor,
-                remaining, processedThisTick);
-
-        if (remaining.get() <= 0) return;
-
-        // 2) generar offsets ordenados por:
-        //    - distancia Chebyshev (más cerca primero)
-        //    - adelante de la vista del jugador (más "forward" primero)
-        List<Offset> offsets = new ArrayList<>();
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dz = -radius; dz <= radius; dz++) {
-                if (dx == 0 && dz == 0) continue; // ya procesamos el centro
-
-                int dist = Math.max(Math.abs(dx), Math.abs(dz));
-
-                Vector dir = new Vector(dx, 0, dz);
-                double forwardScore;
-                if (dir.lengthSquared() < 1e-4) {
-                    forwardScore = 0.0;
-                } else {
-                    dir.normalize();
-                    forwardScore = look.dot(dir); // >0 = delante, <0 = detrás
-                }
-
-                offsets.add(new Offset(dx, dz, dist, forwardScore));
+        // dirección de mirada (solo plano XZ); solo importa al (re)llenar el frente
+        double yaw = Math.toRadians(loc.getYaw());
+        double lookX = -Math.sin(yaw);
+        double lookZ = Math.cos(yaw);
+
+        // el frente solo encola lo que entra en rango (o todo si cambió la época de objetivos)
+        SpoofFrontier f = frontiers.computeIfAbsent(p.getUniqueId(), id -> new SpoofFrontier());
+        int epoch = targetEpoch;
+        f.update(w, pcx, pcz, radius, epoch, lookX, lookZ);
+        if (f.pending.isEmpty()) return; // jugador quieto y todo al día
+
+        // Folia: una región cargada toma menos del reparto común
+        int localCap = budgetPerTick.forRegion(p, remaining.get());
+        int taken = 0;
+        List<Long> retry = null;
+        while (remaining.get() > 0 && taken < localCap) {
+            Long k = f.pending.poll();
+            if (k == null) break;
+
+            int cx = PaintedBlockRegistry.chunkX(k);
+            int cz = PaintedBlockRegistry.chunkZ(k);
+            if (!f.inRange(w, cx, cz)) continue;
+
+            SpoofSlice at = state.get(w, cx, cz, slot);
+            if (at != null && at.atEpoch == epoch) continue;
+
+            // preparado en la pre-transición y sin nada que escribir: ni snapshot ni presupuesto
+            Staged sg = at != null ? at.staged : null;
+            if (sg != null && sg.target == null && sg.sig == signature && sg.version == at.paintVersion) {
+                at.atEpoch = epoch;
+                at.staged = null;
+                stagedFree.increment();
+                continue;
             }
-        }
-
-        offsets.sort(Comparator
-                .comparingInt((Offset o) -> o.dist)
-                .thenComparingDouble(o -> -o.forwardScore));
 
-        // 3) aplicar spoof según presupuesto
-        for (Offset off : offsets) {
-            if (remaining.get() <= 0) break;
-
-            int cx = pcx + off.dx;
-            int cz = pcz + off.dz;
-            scheduleChunkSpoof(p, w, cx, cz,
+            // reservamos presupuesto ya: las tareas de región corren más tarde
+            if (remaining.getAndDecrement() <= 0) {
+                remaining.incrementAndGet();
+                f.pending.addFirst(k);
+                break;
+            }
+            taken++;
+            if (!scheduleChunkSpoof(p, w, cx, cz,
+                    season,
                     currentTarget, nextTarget,
                     currentOceanTarget, nextOceanTarget,
-                    preTransitionFactor,
-                    remaining, processedThisTick);
+                    preTransitionFactor, epoch,
+                    signature, stage,
+                    remaining, processedThisTick)) {
+                // otro jugador lo tiene este tick; lo miramos la próxima pasada
+                remaining.incrementAndGet();
+                if (retry == null) retry = new ArrayList<>();
+                retry.add(k);
+            }
         }
+        if (retry != null) f.pending.addAll(retry);
     }
 
-    private void scheduleChunkSpoof(Player p, World w, int cx, int cz,
-                                    Biome currentTarget, Biome nextTarget,
-                                    Biome currentOceanTarget, Biome nextOceanTarget,
-                                    double preTransitionFactor,
-                                    java.util.concurrent.atomic.AtomicInteger remaining,
-                                    Set<Long> processedThisTick) {
+    /**
+     * Programa el spoof de un chunk con una unidad de presupuesto ya reservada:
+     * se devuelve si al final no se pinta nada. Devuelve false si otro jugador
+     * ya lo programó en esta pasada.
+     */
+    private boolean scheduleChunkSpoof(Player p, World w, int cx, int cz,
+                                       Season season,
+                                       Biome currentTarget, Biome nextTarget,
+                                       Biome currentOceanTarget, Biome nextOceanTarget,
+                                       double preTransitionFactor, int epoch,
+                                       long signature, Stage stage,
+                                       java.util.concurrent.atomic.AtomicInteger remaining,
+                                       Set<Long> processedThisTick) {
         long ck = key(w, cx, cz);
-        if (!processedThisTick.add(ck)) return;
+        if (!processedThisTick.add(ck)) return false;
 
         Location chunkLoc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
         plugin.getScheduler().runAtLocation(chunkLoc, task -> {
-            if (remaining.get() <= 0) return;
-            if (!w.isChunkLoaded(cx, cz)) return;
-
-            Chunk ch = w.getChunkAt(cx, cz);
-            Family fam = classifyOriginalFamily(ch);
-
-            Biome chunkTarget = chooseTargetBiomeForChunk(
-                    ck, fam,
-                    currentTarget, nextTarget,
-                    currentOceanTarget, nextOceanTarget,
-                    preTransitionFactor,
-                    ch
-            );
-
-            // Fuera de invierno, no tocamos chunks fríos de origen
-            if (shouldSkipSpoofForChunk(ch)) {
+            if (!w.isChunkLoaded(cx, cz)) {
+                // se vuelve a encolar desde onChunkLoad cuando cargue
+                remaining.incrementAndGet();
                 return;
             }
 
-            if (isChunkAtTarget(ch, chunkTarget)) {
-                return; // ya está al bioma objetivo, no tocamos
+            SpoofSlice sl = state.getOrCreate(w, cx, cz, slot, SpoofSlice::new);
+            if (!sl.beginPlan()) {
+                // el plan anterior de este chunk aún no volvió: vuelve a la cola del jugador
+                remaining.incrementAndGet();
+                SpoofFrontier f = frontiers.get(p.getUniqueId());
+                if (f != null) f.pending.addLast(PaintedBlockRegistry.chunkKey(cx, cz));
+                return;
             }
 
-            Biome[] old = captureAndApply(ch, chunkTarget);
-            // solo guardamos backup la PRIMERA vez que tocamos este chunk
-            if (old != null && !backups.containsKey(ck)) {
-                backups.put(ck, old);
+            // frontera de estación con el objetivo ya preparado: se escribe sin snapshot ni plan
+            Staged sg = sl.staged;
+            if (sg != null && sg.target != null && sg.sig == signature && sg.version == sl.paintVersion
+                    && sl.original != null) {
+                applyPlan(w.getChunkAt(cx, cz), fullPlan(sg.target, w), sl);
+                sl.staged = null;
+                sl.atEpoch = epoch;
+                sl.endPlan();
+                stagedCommits.increment();
+                enqueueNudge(p, w, cx, cz);
+                return;
             }
 
-            spoofed.add(ck);
-            enqueueNudge(p, w, cx, cz);
-            remaining.decrementAndGet();
+            // copia solo-biomas; todo lo demás se decide fuera del hilo de la región
+            SnapView view = new SnapView(w.getChunkAt(cx, cz).getChunkSnapshot(false, true, false),
+                    w.getUID(), ck, sl, w.getMinHeight(), w.getMaxHeight());
+
+            plugin.getScheduler().runAsync(planTask -> {
+                SpoofPlan plan = null;
+                Biome shadow = null;
+                boolean staged = false;
+                boolean failed = false;
+                try {
+                    Family fam = classifyOriginalFamily(view);
+                    Biome target = chooseTargetBiomeForChunk(
+                            view.key, fam, season,
+                            currentTarget, nextTarget,
+                            currentOceanTarget, nextOceanTarget,
+                            preTransitionFactor,
+                            view
+                    );
+                    plan = planChunk(view, target);
+                    if (stage != null) {
+                        // tras este plan el chunk queda entero a "target" (o intacto si es frío)
+                        Biome next = view.slice.cold ? null : chooseTargetBiomeForChunk(
+                                view.key, fam, stage.season,
+                                stage.land, stage.land,
+                                stage.ocean, stage.ocean,
+                                0.0,
+                                view
+                        );
+                        shadow = next == target ? null : next;
+                        staged = true;
+                    }
+                } catch (Throwable t) {
+                    plugin.getLogger().warning("[BiomeSpoof] plan error " + cx + "," + cz + ": " + t.getMessage());
+                    failed = true;
+                }
+
+                if (failed) {
+                    // sin atEpoch: el chunk sigue pendiente y se reintenta
+                    sl.endPlan();
+                    remaining.incrementAndGet();
+                    return;
+                }
+
+                if (plan == null) {
+                    // frío de origen o ya al objetivo: nada que escribir
+                    if (staged) {
+                        sl.staged = new Staged(stage.sig, sl.paintVersion, shadow);
+                        stagedPlanned.increment();
+                    }
+                    sl.atEpoch = epoch;
+                    sl.endPlan();
+                    remaining.incrementAndGet();
+                    return;
+                }
+
+                SpoofPlan ready = plan;
+                Biome readyShadow = shadow;
+                boolean readyStaged = staged;
+                plugin.getScheduler().runAtLocation(chunkLoc, applyTask -> {
+                    // descargado (y quizá recargado) mientras tanto: ese estado ya no vale
+                    if (!w.isChunkLoaded(cx, cz) || state.get(w, cx, cz, slot) != sl) {
+                        sl.endPlan();
+                        remaining.incrementAndGet();
+                        return;
+                    }
+                    if (!applyPlan(w.getChunkAt(cx, cz), ready, sl)) {
+                        // backups saturados: sin original guardado no se pinta; vuelve a la cola del jugador
+                        sl.endPlan();
+                        SpoofFrontier f = frontiers.get(p.getUniqueId());
+                        if (f != null) f.pending.addLast(PaintedBlockRegistry.chunkKey(cx, cz));
+                        return;
+                    }
+                    if (readyStaged) {
+                        sl.staged = new Staged(stage.sig, sl.paintVersion, readyShadow);
+                        stagedPlanned.increment();
+                    }
+                    sl.atEpoch = epoch;
+                    sl.endPlan();
+                    enqueueNudge(p, w, cx, cz);
+                });
+            });
         });
+        return true;
     }
 
     /* ===== helpers ===== */
 
-    private Biome getRepresentativeOriginalOceanBiome(Chunk ch) {
-        long k = key(ch);
-        Biome[] old = backups.get(k);
-        if (old != null && old.length > 0) {
-            for (Biome b : old) {
+    private Biome getRepresentativeOriginalOceanBiome(SnapView v) {
+        BiomeGrid old = v.slice.original;
+        if (old != null && old.size() > 0) {
+            for (Biome b : old.palette()) {
                 if (isOceanBiome(b)) return b;
             }
             // si no hay ocean en backup, devolvemos el primero
-            return old[0];
+            return old.first();
         }
-        return getRepresentativeOriginalBiome(ch);
+        return getRepresentativeOriginalBiome(v);
     }
 
 
@@ -439,29 +673,6 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         return global;       // aplica el bioma de estación a cualquier LAND
     }
 
-    /**
-     * Comprueba rápidamente si el chunk ya está completamente teñido
-     * al bioma objetivo (muestreo grueso).
-     */
-    private boolean isChunkAtTarget(Chunk ch, Biome target) {
-        World w = ch.getWorld();
-        int bx = ch.getX() << 4;
-        int bz = ch.getZ() << 4;
-        int minY = w.getMinHeight();
-        int maxY = w.getMaxHeight();
-
-        for (int x = 0; x < 16; x += 8) {
-            for (int z = 0; z < 16; z += 8) {
-                for (int y = minY; y < maxY; y += 32) {
-                    if (w.getBiome(bx + x, y, bz + z) != target) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
-    }
-
     /** Consideramos "frío" cualquier bioma con nieve/hielo en el nombre, montañas, etc. */
     private boolean isColdBiome(Biome biome) {
         // Cherry Grove NO es un bioma frío real, no lo tratamos como nival
@@ -506,12 +717,11 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
      *  - RIVER: biomas RIVER (si rivers.enabled)
      *  - LAND: resto
      */
-    private Family classifyOriginalFamily(Chunk ch) {
-        long k = key(ch);
-
-        Biome[] old = backups.get(k);
-        if (old != null && old.length > 0) {
-            for (Biome b : old) {
+    private Family classifyOriginalFamily(SnapView v) {
+        BiomeGrid old = v.slice.original;
+        if (old != null && old.size() > 0) {
+            // la paleta conserva el orden de aparición: mismo resultado que recorrer todas las celdas
+            for (Biome b : old.palette()) {
                 if (oceansEnabled) {
                     if (isOceanBiome(b)) return Family.OCEAN;
                     if (oceansAffectShores && isShoreBiome(b)) return Family.OCEAN;
@@ -521,16 +731,10 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
             return Family.LAND;
         }
 
-        World w = ch.getWorld();
-        int bx = ch.getX() << 4;
-        int bz = ch.getZ() << 4;
-        int minY = w.getMinHeight();
-        int maxY = w.getMaxHeight();
-
         for (int x = 0; x < 16; x += 8) {
             for (int z = 0; z < 16; z += 8) {
-                for (int y = minY; y < maxY; y += 32) {
-                    Biome b = w.getBiome(bx + x, y, bz + z);
+                for (int y = v.minY; y < v.maxY; y += 32) {
+                    Biome b = v.snap.getBiome(x, y, z);
 
                     if (oceansEnabled) {
                         if (isOceanBiome(b)) return Family.OCEAN;
@@ -549,27 +753,13 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
      * Intenta obtener un bioma original representativo del chunk
      * (backup si existe, si no muestreo).
      */
-    private Biome getRepresentativeOriginalBiome(Chunk ch) {
-        long k = key(ch);
-        Biome[] old = backups.get(k);
-        if (old != null && old.length > 0) {
-            return old[0];
+    private Biome getRepresentativeOriginalBiome(SnapView v) {
+        BiomeGrid old = v.slice.original;
+        if (old != null && old.size() > 0) {
+            return old.first();
         }
-
-        World w = ch.getWorld();
-        int bx = ch.getX() << 4;
-        int bz = ch.getZ() << 4;
-        int minY = w.getMinHeight();
-        int maxY = w.getMaxHeight();
-
-        for (int x = 0; x < 16; x += 8) {
-            for (int z = 0; z < 16; z += 8) {
-                for (int y = minY; y < maxY; y += 32) {
-                    return w.getBiome(bx + x, y, bz + z);
-                }
-            }
-        }
-        return Biome.OCEAN;
+        if (v.maxY <= v.minY) return Biome.OCEAN;
+        return v.snap.getBiome(0, v.minY, 0);
     }
 
     /**
@@ -616,17 +806,18 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     private Biome chooseTargetBiomeForChunk(
             long chunkKey,
             Family family,
+            Season season,
             Biome currentLandTarget,
             Biome nextLandTarget,
             Biome currentOceanTarget,
             Biome nextOceanTarget,
             double preTransitionFactor,
-            Chunk ch
+            SnapView v
     ) {
         // RÍOS con target propio
         if (family == Family.RIVER && riversEnabled) {
-            Biome curR = riverTarget.getOrDefault(seasons.getStateCopy().season, Biome.RIVER);
-            Biome nextR = riverTarget.getOrDefault(nextSeason(seasons.getStateCopy().season), curR);
+            Biome curR = riverTarget.getOrDefault(season, Biome.RIVER);
+            Biome nextR = riverTarget.getOrDefault(nextSeason(season), curR);
             return chooseTargetBiomeForChunk(chunkKey, curR, nextR, preTransitionFactor);
         }
 
@@ -635,7 +826,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
             Biome base = chooseTargetBiomeForChunk(chunkKey, currentOceanTarget, nextOceanTarget, preTransitionFactor);
 
             // conservar deep/shallow solo si el original era océano
-            Biome origOcean = getRepresentativeOriginalOceanBiome(ch);
+            Biome origOcean = getRepresentativeOriginalOceanBiome(v);
             if (isOceanBiome(origOcean)) {
                 return applyOceanVariant(base, origOcean);
             }
@@ -643,8 +834,8 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         }
 
         // LAND → tu comportamiento normal
-        Biome orig = getRepresentativeOriginalBiome(ch);
-        Season sNow = seasons.getStateCopy().season;
+        Biome orig = getRepresentativeOriginalBiome(v);
+        Season sNow = season;
         Season sNext = nextSeason(sNow);
 
         Biome landCur = chooseTargetFor(sNow, orig);
@@ -657,88 +848,97 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     }
 
     /**
-     * Aplica el bioma objetivo en una rejilla 4x4x4 dentro del chunk.
-     * - Si es la primera vez que tocamos este chunk: captura los biomas previos y los devuelve.
-     * - Siempre que se aplica, hace un refreshChunk para que el cliente reciba el chunk
-     *   y vea el nuevo color sin reconectar.
+     * Planifica (fuera del hilo de la región) qué celdas 4x4x4 hay que escribir.
+     * Devuelve null si el chunk es frío de origen o ya está entero al objetivo.
+     * Si es la primera vez que lo tocamos, el plan lleva también la rejilla original.
      */
-    private Biome[] captureAndApply(Chunk ch, Biome target) {
-        try {
-            World w = ch.getWorld();
-            int bx = ch.getX() << 4;
-            int bz = ch.getZ() << 4;
-            int minY = w.getMinHeight();
-            int maxY = w.getMaxHeight();
-
-            long k = key(ch);
-            Biome[] existing = backups.get(k);
-            List<Biome> prevs = (existing == null) ? new ArrayList<>() : null;
-
-            boolean anyChange = false;
-
-            for (int x = 0; x < 16; x += STEP_XZ) {
-                for (int z = 0; z < 16; z += STEP_XZ) {
-                    for (int y = minY; y < maxY; y += STEP_Y) {
-                        int wx = bx + x;
-                        int wz = bz + z;
-                        int wy = y;
-
-                        Biome current = w.getBiome(wx, wy, wz);
-
-                        if (prevs != null) {
-                            prevs.add(current);
-                        }
-
-                        if (current != target) {
-                            anyChange = true;
-                            w.setBiome(wx, wy, wz, target);
-                        }
-                    }
+    private SpoofPlan planChunk(SnapView v, Biome target) {
+        // Fuera de invierno, no tocamos chunks fríos de origen
+        if (shouldSkipSpoofForChunk(v)) return null;
+
+        int yCount = (v.maxY - v.minY) / STEP_Y;
+        int cells = (16 / STEP_XZ) * (16 / STEP_XZ) * yCount;
+        Biome[] prevs = v.slice.original != null ? null : new Biome[cells];
+        int[] changes = new int[cells];
+        int n = 0;
+
+        int i = 0;
+        for (int x = 0; x < 16; x += STEP_XZ) {
+            for (int z = 0; z < 16; z += STEP_XZ) {
+                for (int y = v.minY; y < v.maxY; y += STEP_Y) {
+                    Biome current = v.snap.getBiome(x, y, z);
+                    if (prevs != null) prevs[i] = current;
+                    if (current != target) changes[n++] = i;
+                    i++;
                 }
             }
-
-            if (!anyChange) {
-                // Nada que pintar; no refrescamos ni guardamos backup.
-                return null;
-            }
-
-            if (prevs != null) {
-                boolean cold = false;
-                for (Biome b : prevs) {
-                    if (isColdBiome(b)) {
-                        cold = true;
-                        break;
-                    }
-                }
-                if (cold) {
-                    COLD_CHUNKS.add(k);
+        }
+        if (n == 0) return null;
+
+        boolean cold = false;
+        if (prevs != null) {
+            for (Biome b : prevs) {
+                if (isColdBiome(b)) {
+                    cold = true;
+                    break;
                 }
             }
+        }
+        return new SpoofPlan(target, Arrays.copyOf(changes, n), yCount,
+                prevs, prevs != null ? BiomeGrid.of(prevs) : null, cold);
+    }
 
-            // solo refrescamos si hubo cambios
-            w.refreshChunk(ch.getX(), ch.getZ());
+    /** Plan de todas las celdas a {@code target} (commit del buffer sombra; el chunk ya tiene backup). */
+    private SpoofPlan fullPlan(Biome target, World w) {
+        int yCount = (w.getMaxHeight() - w.getMinHeight()) / STEP_Y;
+        int[] all = new int[(16 / STEP_XZ) * (16 / STEP_XZ) * yCount];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        return new SpoofPlan(target, all, yCount, null, null, false);
+    }
 
-            if (prevs != null) {
-                Biome[] arr = prevs.toArray(new Biome[0]);
+    /**
+     * Hilo de la región: guarda el backup la primera vez, escribe las celdas del plan
+     * y marca el chunk para reenviar sus biomas al cliente. false = el escritor de
+     * backups no admitió el original: no se pinta nada y el chunk queda para otra pasada.
+     */
+    private boolean applyPlan(Chunk ch, SpoofPlan plan, SpoofSlice sl) {
+        try {
+            World w = ch.getWorld();
 
-                // ✅ NUEVO: guardar en disco la PRIMERA vez que tocamos este chunk
-                diskBackups.saveFirstTouch(ch, arr, STEP_XZ, STEP_Y);
+            // solo guardamos backup la PRIMERA vez que tocamos este chunk, y antes de pintar
+            if (plan.original != null && sl.original == null) {
+                if (!diskBackups.saveFirstTouch(ch, plan.original, STEP_XZ, STEP_Y)) return false;
+                if (plan.cold) sl.cold = true;
+                diskBackups.coldIndex().record(w.getUID(), ch.getX(), ch.getZ(), plan.cold);
+                sl.original = plan.grid;
+            }
 
-                return arr;
-            } else {
-                return null;
+            int bx = ch.getX() << 4;
+            int bz = ch.getZ() << 4;
+            int minY = w.getMinHeight();
+            int zCount = 16 / STEP_XZ;
+
+            for (int c : plan.changes) {
+                int ly = c % plan.yCount;
+                int col = c / plan.yCount;
+                int lz = col % zCount;
+                int lx = col / zCount;
+                w.setBiome(bx + lx * STEP_XZ, minY + ly * STEP_Y, bz + lz * STEP_XZ, plan.target);
             }
+            sl.spoofed = true;
+            sl.paintVersion++;
+
+            resender.mark(w, ch.getX(), ch.getZ());
         } catch (Throwable t) {
             plugin.getLogger().warning("[BiomeSpoof] spoof error " + ch.getX() + "," + ch.getZ() + ": " + t.getMessage());
-            return null;
         }
+        return true;
     }
 
     /**
      * Revierte un chunk a sus biomas originales usando el backup.
      */
-    private void revertChunk(Chunk ch) {
-        Biome[] old = backups.get(key(ch));
+    private void revertChunk(Chunk ch, BiomeGrid old) {
         if (old == null) return;
 
         try {
@@ -752,26 +952,22 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
             for (int x = 0; x < 16; x += 4) {
                 for (int z = 0; z < 16; z += 4) {
                     for (int y = minY; y < maxY; y += 4) {
-                        if (i >= old.length) break;
-                        w.setBiome(bx + x, y, bz + z, old[i++]);
+                        if (i >= old.size()) break;
+                        w.setBiome(bx + x, y, bz + z, old.get(i++));
                     }
                 }
             }
 
-            // refrescamos para que el cliente vuelva a ver el bioma original
-            w.refreshChunk(ch.getX(), ch.getZ());
+            // reenviamos para que el cliente vuelva a ver el bioma original
+            resender.mark(w, ch.getX(), ch.getZ());
 
-            // pequeño nudge adicional (no es estrictamente necesario, pero ayuda en algunos casos)
-            nudgeViewers(w, ch.getX(), ch.getZ());
+            // con refreshChunk, un nudge adicional ayuda en algunos casos; con biomas solos no hace falta
+            if (!resender.isBiomeOnly()) nudgeViewers(w, ch.getX(), ch.getZ());
         } catch (Throwable t) {
             plugin.getLogger().warning("[BiomeSpoof] revert error " + ch.getX() + "," + ch.getZ() + ": " + t.getMessage());
         }
     }
 
-    private long key(Chunk ch) {
-        return key(ch.getWorld(), ch.getX(), ch.getZ());
-    }
-
     private long key(World w, int cx, int cz) {
         long k = (((long) cx) & 0xffffffffL) << 32 | (((long) cz) & 0xffffffffL);
         // incluimos el UUID del mundo para evitar colisiones entre mundos
@@ -780,59 +976,80 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
 
     /** Consulta global: ¿este chunk era originalmente frío/nival? */
     public static boolean isChunkNaturallySnowy(World w, int cx, int cz) {
-        long k = (((long) cx) & 0xffffffffL) << 32 | (((long) cz) & 0xffffffffL);
-        k = k ^ (w.getUID().getMostSignificantBits() ^ w.getUID().getLeastSignificantBits());
-        return COLD_CHUNKS.contains(k);
+        ColdChunkIndex idx = coldIndex;
+        if (idx != null) {
+            int known = idx.query(w.getUID(), cx, cz);
+            if (known != ColdChunkIndex.UNKNOWN) return known == ColdChunkIndex.COLD;
+        }
+        // región aún cargando o chunk sin clasificar: lo que sepamos en memoria
+        ChunkSeasonState st = coldState;
+        ChunkSeasonState.Slot<SpoofSlice> sl = coldSlot;
+        if (st == null || sl == null) return false;
+        SpoofSlice s = st.get(w, cx, cz, sl);
+        return s != null && s.cold;
+    }
+
+    private BiomeGrid originalOf(World w, int cx, int cz) {
+        SpoofSlice s = state.get(w, cx, cz, slot);
+        return s != null ? s.original : null;
     }
 
     private void revertAll() {
         for (World w : Bukkit.getWorlds()) {
             for (Chunk ch : w.getLoadedChunks()) {
-                long k = key(ch);
-                if (spoofed.contains(k)) {
-                    revertChunk(ch);
+                SpoofSlice s = state.get(w, ch.getX(), ch.getZ(), slot);
+                if (s != null && s.spoofed) {
+                    revertChunk(ch, s.original);
                 }
             }
         }
-        spoofed.clear();
-        backups.clear();
-        nudgeQueue.clear();
-        nudgeLast.clear();
+        resender.flush();
+        state.clear(slot);
+        frontiers.clear();
+        nudges.clear();
     }
 
     /**
      * Devuelve true si este chunk es naturalmente frío/nival.
-     * Marca el chunk en COLD_CHUNKS la primera vez.
+     * Lo marca como frío en su SpoofSlice la primera vez.
+     * La clasificación persiste en el índice de fríos: se hace una vez en la vida del mundo.
      */
-    private boolean shouldSkipSpoofForChunk(Chunk ch) {
-        long k = key(ch);
+    private boolean shouldSkipSpoofForChunk(SnapView v) {
+        SpoofSlice s = v.slice;
 
         // Ya clasificado como frío de origen
-        if (COLD_CHUNKS.contains(k)) {
+        if (s.cold) {
             return true;
         }
 
-        // Ya hemos hecho captureAndApply al menos una vez → si fuera frío de origen
-        // lo habríamos marcado en COLD_CHUNKS dentro de captureAndApply.
+        ColdChunkIndex idx = diskBackups.coldIndex();
+        int cx = v.snap.getX();
+        int cz = v.snap.getZ();
+        int known = idx.query(v.world, cx, cz);
+        if (known == ColdChunkIndex.COLD) {
+            s.cold = true;
+            return true;
+        }
+        if (known == ColdChunkIndex.WARM) {
+            return false;
+        }
+
+        // Ya hemos aplicado un plan al menos una vez → si fuera frío de origen
+        // lo habríamos marcado como frío dentro de applyPlan.
         // No volvemos a muestrear para no confundir bioma original con bioma pintado.
-        if (backups.containsKey(k)) {
+        if (s.original != null) {
             return false;
         }
 
         // Chunk "nuevo": todavía tiene sus biomas originales,
         // así que podemos decidir si es frío de origen.
-        World w = ch.getWorld();
-        int bx = ch.getX() << 4;
-        int bz = ch.getZ() << 4;
-        int minY = w.getMinHeight();
-        int maxY = w.getMaxHeight();
-
         for (int x = 0; x < 16; x += 4) {
             for (int z = 0; z < 16; z += 4) {
-                for (int y = minY; y < maxY; y += 32) {
-                    Biome b = w.getBiome(bx + x, y, bz + z);
+                for (int y = v.minY; y < v.maxY; y += 32) {
+                    Biome b = v.snap.getBiome(x, y, z);
                     if (isColdBiome(b)) {
-                        COLD_CHUNKS.add(k); // frío de origen
+                        s.cold = true; // frío de origen
+                        idx.record(v.world, cx, cz, true);
                         return true;        // NO lo pintamos nunca
                     }
                 }
@@ -840,6 +1057,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         }
 
         // No es frío de origen → se puede spoofear normal
+        // (templado se apunta en applyPlan, con la rejilla original completa)
         return false;
     }
 
@@ -857,60 +1075,52 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     }
 
     private void enqueueNudge(Player p, World w, int cx, int cz) {
-        if (plugin.getFoliaLib().isFolia()) {
+        if (plugin.getFoliaLib().isFolia() || resender.isBiomeOnly()) {
             return;
         }
-        long ck = key(w, cx, cz);
-        String cooldownKey = p.getUniqueId() + ":" + ck;
-        long now = System.currentTimeMillis();
-        Long last = nudgeLast.get(cooldownKey);
-        if (last != null && (now - last) < NUDGE_COOLDOWN_MS) return;
-        nudgeLast.put(cooldownKey, now);
-
-        nudgeQueue.computeIfAbsent(p.getUniqueId(), id -> new java.util.concurrent.ConcurrentLinkedDeque<>()).add(ck);
+        nudges.computeIfAbsent(p.getUniqueId(), id -> new NudgeQueue(NUDGE_COOLDOWN_MS))
+                .offer(w, cx, cz, System.currentTimeMillis());
     }
 
+    /**
+     * Los nudges del tick van en UN sendBlockChanges (barreras) y, al tick
+     * siguiente, otro con los bloques reales.
+     */
     private void flushNudgesForPlayer(Player p) {
-        java.util.concurrent.ConcurrentLinkedDeque<Long> q = nudgeQueue.get(p.getUniqueId());
-        if (q == null || q.isEmpty()) return;
-
-        int sent = 0;
-        while (sent < NUDGES_PER_TICK && !q.isEmpty()) {
-            long ck = q.poll();
-            sent++;
-
-            World w = p.getWorld();
-            int baseX = p.getLocation().getBlockX() >> 4;
-            int baseZ = p.getLocation().getBlockZ() >> 4;
-            int view = Bukkit.getViewDistance() + 2;
-
-            boolean done = false;
-            for (int dx = -view; dx <= view && !done; dx++) {
-                for (int dz = -view; dz <= view && !done; dz++) {
-                    int cx = baseX + dx;
-                    int cz = baseZ + dz;
-                    if (!w.isChunkLoaded(cx, cz)) continue;
-                    if (key(w, cx, cz) != ck) continue;
-
-                    int minY = w.getMinHeight();
-                    int bx = (cx << 4);
-                    int bz = (cz << 4);
-                    Location loc = new Location(w, bx, minY, bz);
-
-                    BlockData fake = NUDGE_FAKE.createBlockData();
-                    BlockData real = w.getBlockAt(loc).getBlockData();
-
-                    p.sendBlockChange(loc, fake);
-                    plugin.getScheduler().runNextTick(task -> p.sendBlockChange(loc, real));
-
-                    done = true;
-                }
-            }
-        }
+        NudgeQueue q = nudges.get(p.getUniqueId());
+        if (q == null) return;
+
+        World w = p.getWorld();
+        long[] keys = new long[NUDGES_PER_TICK];
+        int n = q.poll(w, keys, NUDGES_PER_TICK, System.currentTimeMillis());
+        if (n == 0) return;
 
-        if (q.isEmpty()) {
-            nudgeQueue.remove(p.getUniqueId());
+        int baseX = p.getLocation().getBlockX() >> 4;
+        int baseZ = p.getLocation().getBlockZ() >> 4;
+        int view = Bukkit.getViewDistance() + 2;
+        int minY = w.getMinHeight();
+        BlockData fake = NUDGE_FAKE.createBlockData();
+
+        List<BlockState> fakes = new ArrayList<>(n);
+        List<BlockState> reals = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int cx = PaintedBlockRegistry.chunkX(keys[i]);
+            int cz = PaintedBlockRegistry.chunkZ(keys[i]);
+            if (Math.abs(cx - baseX) > view || Math.abs(cz - baseZ) > view) continue;
+            if (!w.isChunkLoaded(cx, cz)) continue;
+
+            BlockState real = w.getBlockAt(cx << 4, minY, cz << 4).getState();
+            BlockState flipped = real.copy();
+            flipped.setBlockData(fake);
+            fakes.add(flipped);
+            reals.add(real);
         }
+        if (fakes.isEmpty()) return;
+
+        p.sendBlockChanges(fakes);
+        plugin.getScheduler().runNextTick(task -> {
+            if (p.isOnline() && p.getWorld() == w) p.sendBlockChanges(reals);
+        });
     }
 
     /* ===================== NUEVOS HELPERS DE TRANSICIÓN ===================== */
@@ -953,6 +1163,11 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     }
 
 
+    /** Lo que se pinta: cambia con la estación y con el factor de pre-transición. */
+    private static long signature(Season season, double preTransitionFactor) {
+        return season.ordinal() * 31L + Double.doubleToLongBits(preTransitionFactor);
+    }
+
     private Season nextSeason(Season s) {
         return switch (s) {
             case SPRING -> Season.SUMMER;
@@ -963,10 +1178,9 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     }
 
     public Biome getOriginalBiomeApprox(World w, int x, int y, int z) {
-        Chunk ch = w.getChunkAt(x >> 4, z >> 4);
-        Biome[] old = backups.get(key(ch));
+        BiomeGrid old = originalOf(w, x >> 4, z >> 4);
 
-        if (old == null || old.length == 0) {
+        if (old == null || old.size() == 0) {
             return w.getBiome(x, y, z);
         }
 
@@ -983,14 +1197,12 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         int ly = (yy - minY) / STEP_Y;
 
         int idx = ((lx * zCount) + lz) * yCount + ly;
-        if (idx < 0 || idx >= old.length) return old[0];
-        return old[idx];
+        return old.get(idx);
     }
 
     public Biome getOriginalBiomeApproxOrNull(World w, int x, int y, int z) {
-        Chunk ch = w.getChunkAt(x >> 4, z >> 4);
-        Biome[] old = backups.get(key(ch));
-        if (old == null || old.length == 0) return null; // <- clave
+        BiomeGrid old = originalOf(w, x >> 4, z >> 4);
+        if (old == null || old.size() == 0) return null; // <- clave
 
         int minY = w.getMinHeight();
         int maxY = w.getMaxHeight();
@@ -1005,8 +1217,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         int ly = (yy - minY) / STEP_Y;
 
         int idx = ((lx * zCount) + lz) * yCount + ly;
-        if (idx < 0 || idx >= old.length) return old[0];
-        return old[idx];
+        return old.get(idx);
     }
 
 
@@ -1038,6 +1249,7 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
     public synchronized void setEnabled(boolean enabled) {
         if (enabled) {
             mode = Mode.GLOBAL_RING;
+            targetEpoch++; // un restore pudo cambiar biomas por debajo
             if (task == null || task.isCancelled()) {
                 task = plugin.getScheduler().runTimer(this, 40L, 10L);
             }
@@ -1058,4 +1270,43 @@ public final class BiomeSpoofAdapter implements Listener, Runnable {
         return diskBackups;
     }
 
+    public String describeResend() {
+        return resender.describe();
+    }
+
+    public String describeBackupWriter() {
+        return diskBackups.describe();
+    }
+
+    public String describeColdIndex() {
+        return diskBackups.describeCold();
+    }
+
+    public String describeStaging() {
+        return "staged=" + stagedPlanned.sum()
+                + " free=" + stagedFree.sum()
+                + " commits=" + stagedCommits.sum();
+    }
+
+    /** Memoria de las rejillas originales frente al Biome[] plano de antes. */
+    public String describeBackups() {
+        java.util.Set<BiomeGrid> distinct = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+        long[] acc = new long[3]; // celdas, bytes, chunks
+        state.forEach(slot, (w, cx, cz, sl) -> {
+            BiomeGrid g = sl.original;
+            if (g == null) return;
+            acc[0] += g.size();
+            acc[2]++;
+            if (distinct.add(g)) acc[1] += g.approxBytes();
+        });
+        long cells = acc[0];
+        long bytes = acc[1];
+        long flat = cells * 4 + acc[2] * 16L; // referencias comprimidas + cabecera de array
+        return "chunks=" + acc[2]
+                + " distinct=" + distinct.size()
+                + " interned=" + BiomeGrid.internedCount()
+                + " bytes~" + bytes
+                + " (flat~" + flat + ")";
+    }
+
 }
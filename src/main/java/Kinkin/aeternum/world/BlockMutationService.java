@@ -0,0 +1,345 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import com.tcoded.folialib.wrapper.task.WrappedTask;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Snowable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Escrituras de bloques compartidas por todos los pintores del mundo.
+ *
+ * Los pintores ENCOLAN cambios (set / revert / snowy) en vez de llamar a
+ * setType/setBlockData uno por uno dentro de mil lambdas de runAtLocation:
+ *  - se agrupan por chunk; el último cambio de una posición gana (coalesce),
+ *  - cada chunk se vacía una vez por tick, en su región, con un presupuesto
+ *    global de tiempo por tick (lo que no entra se queda para el siguiente),
+ *  - al aplicar se descartan los no-op (el bloque ya está así) y los que ya no
+ *    cumplen su precondición (p.ej. el jugador puso algo encima mientras tanto).
+ *
+ * Contadores por servicio de origen en {@link #describe()}. Quien lleve cuentas de
+ * lo que hay en el mundo se entera por {@link AppliedListener}, cuando el cambio
+ * se escribe de verdad (no al encolarlo).
+ */
+public final class BlockMutationService implements Runnable {
+
+    /** Servicio que pidió el cambio (solo para contadores). */
+    public enum Source {
+        WINTER_SNOW,
+        CANOPY_SNOW,
+        AUTUMN_LEAVES,
+        FLORA
+    }
+
+    /** Un set/revert que se escribió (ni no-op ni descartado). Hilo dueño del bloque. */
+    public interface AppliedListener {
+        void applied(Block b, Material before, Material after);
+    }
+
+    private enum Op { SET, REVERT, SNOWY }
+
+    private static final class Mutation {
+        final Op op;
+        final Source source;
+        final BlockData data;       // SET / REVERT
+        final boolean snowy;        // SNOWY
+        final Material expect;      // null = sin precondición
+
+        Mutation(Op op, Source source, BlockData data, boolean snowy, Material expect) {
+            this.op = op;
+            this.source = source;
+            this.data = data;
+            this.snowy = snowy;
+            this.expect = expect;
+        }
+    }
+
+    /** Cambios pendientes de un chunk, en orden de llegada (posición empaquetada → cambio). */
+    private static final class ChunkBatch {
+        final World world;
+        final int cx, cz;
+        final LinkedHashMap<Integer, Mutation> muts = new LinkedHashMap<>();
+        boolean scheduled;
+        boolean dead;       // ya salió del mapa: quien lo tenga debe pedir uno nuevo
+
+        ChunkBatch(World world, int cx, int cz) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder queued = new LongAdder();
+        final LongAdder applied = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder noop = new LongAdder();
+        final LongAdder stale = new LongAdder();
+    }
+
+    private final AeternumSeasonsPlugin plugin;
+    private final Map<UUID, Map<Long, ChunkBatch>> batches = new ConcurrentHashMap<>();
+    private final Counters[] counters = new Counters[Source.values().length];
+    private final LongAdder flushedChunks = new LongAdder();
+    private final LongAdder deferredChunks = new LongAdder();
+    private final List<AppliedListener> listeners = new CopyOnWriteArrayList<>();
+
+    private WrappedTask task;
+    /** Tras unregister: lo que llegue se aplica al momento (o se avisa), ya no hay timer que lo vacíe. */
+    private volatile boolean closed;
+    private final LongAdder droppedAfterClose = new LongAdder();
+    private long budgetNanos;
+    // presupuesto restante del tick actual (compartido por las regiones en Folia)
+    private final AtomicLong remainingNanos = new AtomicLong();
+
+    public BlockMutationService(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < counters.length; i++) counters[i] = new Counters();
+        reloadFromConfig();
+    }
+
+    public void reloadFromConfig() {
+        double ms = plugin.cfg.climate.getDouble("world_mutations.max_ms_per_tick", 2.0);
+        this.budgetNanos = (long) (Math.max(0.1, ms) * 1_000_000L);
+    }
+
+    public void register() {
+        if (task != null) task.cancel();
+        closed = false;
+        this.task = plugin.getScheduler().runTimer(this, 1L, 1L);
+    }
+
+    /**
+     * Para el timer y aplica lo pendiente de golpe (en Folia lo pendiente se pierde).
+     * Va DESPUÉS de que los pintores se desmonten: sus reverts de limpieza tienen que llegar aquí.
+     */
+    public void unregister() {
+        closed = true;
+        if (task != null) task.cancel();
+        task = null;
+        if (!plugin.getFoliaLib().isFolia()) {
+            for (Map<Long, ChunkBatch> m : batches.values()) {
+                for (ChunkBatch b : m.values()) {
+                    synchronized (b) {
+                        if (b.world.isChunkLoaded(b.cx, b.cz)) applyAll(b);
+                        b.muts.clear();
+                    }
+                }
+            }
+        }
+        batches.clear();
+    }
+
+    /* ===================== API de pintores ===================== */
+
+    public void addListener(AppliedListener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(AppliedListener l) {
+        listeners.remove(l);
+    }
+
+    public void set(Source source, Block b, BlockData data, Material expect) {
+        enqueue(b.getWorld(), b.getX(), b.getY(), b.getZ(), new Mutation(Op.SET, source, data, false, expect));
+    }
+
+    public void set(Source source, Block b, Material type, Material expect) {
+        set(source, b, type.createBlockData(), expect);
+    }
+
+    /** Volver al bloque original (misma mecánica que set, contado aparte en los logs). */
+    public void revert(Source source, Block b, BlockData original, Material expect) {
+        enqueue(b.getWorld(), b.getX(), b.getY(), b.getZ(), new Mutation(Op.REVERT, source, original, false, expect));
+    }
+
+    /** Cambia solo el flag snowy (pasto/podzol/micelio), conservando el resto del estado. */
+    public void setSnowy(Source source, Block b, boolean snowy) {
+        enqueue(b.getWorld(), b.getX(), b.getY(), b.getZ(), new Mutation(Op.SNOWY, source, null, snowy, null));
+    }
+
+    private void enqueue(World w, int x, int y, int z, Mutation m) {
+        int cx = x >> 4;
+        int cz = z >> 4;
+        if (closed) {
+            applyAfterClose(w, x, y, z, cx, cz, m);
+            return;
+        }
+        int packed = PaintedBlockRegistry.pack(x, y, z);
+        Map<Long, ChunkBatch> perWorld = batches.computeIfAbsent(w.getUID(), id -> new ConcurrentHashMap<>());
+        counters[m.source.ordinal()].queued.increment();
+        while (true) {
+            ChunkBatch batch = perWorld.computeIfAbsent(PaintedBlockRegistry.chunkKey(cx, cz), k -> new ChunkBatch(w, cx, cz));
+            synchronized (batch) {
+                if (batch.dead) continue;
+                // el último gana; lo reinsertamos al final para respetar el orden de llegada
+                Mutation prev = batch.muts.remove(packed);
+                if (prev != null) counters[prev.source.ordinal()].coalesced.increment();
+                batch.muts.put(packed, m);
+                return;
+            }
+        }
+    }
+
+    /** Servicio ya parado: fuera de Folia se escribe directo; en Folia no hay hilo seguro y se avisa. */
+    private void applyAfterClose(World w, int x, int y, int z, int cx, int cz, Mutation m) {
+        counters[m.source.ordinal()].queued.increment();
+        if (!plugin.getFoliaLib().isFolia() && w.isChunkLoaded(cx, cz)) {
+            apply(w.getBlockAt(x, y, z), m);
+            return;
+        }
+        droppedAfterClose.increment();
+        if (droppedAfterClose.sum() == 1) {
+            plugin.getLogger().warning("[SeasonsCore] Block change after the mutation service stopped ("
+                    + m.source + " at " + w.getName() + " " + x + "," + y + "," + z + "); it was not applied.");
+        }
+    }
+
+    /** Saca el lote del mapa (llamar con el lote sincronizado y ya vacío). */
+    private void retire(ChunkBatch b) {
+        b.dead = true;
+        Map<Long, ChunkBatch> m = batches.get(b.world.getUID());
+        if (m != null) m.remove(PaintedBlockRegistry.chunkKey(b.cx, b.cz), b);
+    }
+
+    /* ===================== flush ===================== */
+
+    @Override
+    public void run() {
+        remainingNanos.set(budgetNanos);
+        boolean folia = plugin.getFoliaLib().isFolia();
+        long start = System.nanoTime();
+
+        for (Map<Long, ChunkBatch> m : batches.values()) {
+            for (ChunkBatch b : m.values()) {
+                if (folia) {
+                    synchronized (b) {
+                        if (b.scheduled || b.muts.isEmpty()) continue;
+                        b.scheduled = true;
+                    }
+                    Location loc = new Location(b.world, (b.cx << 4) + 8, b.world.getMinHeight(), (b.cz << 4) + 8);
+                    plugin.getScheduler().runAtLocation(loc, task -> flushRegion(b));
+                    continue;
+                }
+
+                if (System.nanoTime() - start >= budgetNanos) {
+                    deferredChunks.increment();
+                    return;
+                }
+                synchronized (b) {
+                    if (b.world.isChunkLoaded(b.cx, b.cz)) {
+                        applyAll(b);
+                        flushedChunks.increment();
+                    }
+                    b.muts.clear();
+                    retire(b);
+                }
+            }
+        }
+    }
+
+    /** Folia: el chunk se aplica en su región si queda presupuesto global en este tick. */
+    private void flushRegion(ChunkBatch b) {
+        long t0 = System.nanoTime();
+        synchronized (b) {
+            b.scheduled = false;
+            if (remainingNanos.get() <= 0) {
+                deferredChunks.increment();
+                return;
+            }
+            if (b.world.isChunkLoaded(b.cx, b.cz)) {
+                applyAll(b);
+                flushedChunks.increment();
+            }
+            b.muts.clear();
+            retire(b);
+        }
+        remainingNanos.addAndGet(-(System.nanoTime() - t0));
+    }
+
+    private void applyAll(ChunkBatch batch) {
+        int bx = batch.cx << 4;
+        int bz = batch.cz << 4;
+        for (Map.Entry<Integer, Mutation> e : batch.muts.entrySet()) {
+            int packed = e.getKey();
+            Block b = batch.world.getBlockAt(
+                    bx + PaintedBlockRegistry.unpackLocalX(packed),
+                    PaintedBlockRegistry.unpackY(packed),
+                    bz + PaintedBlockRegistry.unpackLocalZ(packed));
+            apply(b, e.getValue());
+        }
+    }
+
+    private void apply(Block b, Mutation m) {
+        Counters c = counters[m.source.ordinal()];
+        if (m.expect != null && b.getType() != m.expect) {
+            c.stale.increment();
+            return;
+        }
+
+        if (m.op == Op.SNOWY) {
+            BlockData cur = b.getBlockData();
+            if (!(cur instanceof Snowable sn)) {
+                c.stale.increment();
+                return;
+            }
+            if (sn.isSnowy() == m.snowy) {
+                c.noop.increment();
+                return;
+            }
+            sn.setSnowy(m.snowy);
+            b.setBlockData(sn, false);
+            c.applied.increment();
+            return;
+        }
+
+        BlockData cur = b.getBlockData();
+        if (cur.equals(m.data)) {
+            c.noop.increment();
+            return;
+        }
+        b.setBlockData(m.data, false);
+        c.applied.increment();
+        for (AppliedListener l : listeners) l.applied(b, cur.getMaterial(), m.data.getMaterial());
+    }
+
+    /* ===================== stats ===================== */
+
+    public int pendingChunks() {
+        int n = 0;
+        for (Map<Long, ChunkBatch> m : batches.values()) n += m.size();
+        return n;
+    }
+
+    public List<String> describe() {
+        List<String> out = new ArrayList<>();
+        for (Source s : Source.values()) {
+            Counters c = counters[s.ordinal()];
+            out.add(s.name().toLowerCase(Locale.ROOT)
+                    + ": queued=" + c.queued.sum()
+                    + " applied=" + c.applied.sum()
+                    + " coalesced=" + c.coalesced.sum()
+                    + " noop=" + c.noop.sum()
+                    + " stale=" + c.stale.sum());
+        }
+        out.add("chunks: flushed=" + flushedChunks.sum()
+                + " deferred=" + deferredChunks.sum()
+                + " pending=" + pendingChunks()
+                + (closed ? " closed dropped=" + droppedAfterClose.sum() : ""));
+        return out;
+    }
+}
@@ -24,6 +24,10 @@ public final class CanopySnowPainter implements Runnable {
     private final SeasonService seasons;
 
     private WrappedTask task;
+
+    // barrido determinista de columnas alrededor de cada jugador
+    private final CoverageSweep sweep;
+    private boolean wasWinter;
     private final Random random = new Random();
 
     private boolean enabled;
@@ -47,6 +51,7 @@ public final class CanopySnowPainter implements Runnable {
     public CanopySnowPainter(AeternumSeasonsPlugin plugin, SeasonService seasons) {
         this.plugin = plugin;
         this.seasons = seasons;
+        this.sweep = new CoverageSweep(plugin.getChunkState(), "canopy_sweep");
         reloadFromConfig();
     }
 
@@ -81,15 +86,20 @@ public final class CanopySnowPainter implements Runnable {
 
         CalendarState st = seasons.getStateCopy();
         if (st.season != Season.WINTER) {
+            wasWinter = false;
             return; // sólo trabajamos en invierno
         }
+        if (!wasWinter) {
+            // invierno nuevo → todas las columnas vuelven a estar pendientes
+            wasWinter = true;
+            sweep.reset();
+        }
 
         if (plugin.getFoliaLib().isFolia()) {
             runFoliaTick();
             return;
         }
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
         if (attemptsPerTick <= 0 || radiusBlocks <= 0) return;
 
         for (Player p : Bukkit.getOnlinePlayers()) {
@@ -104,67 +114,10 @@ public final class CanopySnowPainter implements Runnable {
             int minY = w.getMinHeight();
             int maxY = w.getMaxHeight();
 
-            for (int i = 0; i < attemptsPerTick; i++) {
-                int x = px + rnd.nextInt(-radiusBlocks, radiusBlocks + 1);
-                int z = pz + rnd.nextInt(-radiusBlocks, radiusBlocks + 1);
-
-                // sólo en biomas/chunks fríos si así se configuró
-                if (onlyInColdBiomes) {
-                    int cx = x >> 4;
-                    int cz = z >> 4;
-
-                    boolean markedCold = BiomeSpoofAdapter.isChunkNaturallySnowy(w, cx, cz);
-                    boolean biomeCold  = isNaturallySnowyBiome(w, x, z);
-
-                    if (!markedCold && !biomeCold) {
-                        continue;
-                    }
-                }
-
-                int highest = w.getHighestBlockYAt(x, z) - 1; // bloque no aire más alto
-                if (highest < minY) continue;
-
-                // buscamos suelo cerca de la superficie (16 bloques hacia abajo máx)
-                int scanMinY = Math.max(minY, highest - 16);
-
-                Block ground = null;
-                for (int y = highest; y >= scanMinY; y--) {
-                    Block candidate = w.getBlockAt(x, y, z);
-                    Material t = candidate.getType();
-
-                    // si ya es nieve arriba de todo, no hace falta rellenar
-                    if (t == Material.SNOW || t == Material.SNOW_BLOCK) {
-                        ground = null;
-                        break;
-                    }
-
-                    if (groundTypes.contains(t)) {
-                        Block above = candidate.getRelative(0, 1, 0);
-                        Material aboveType = above.getType();
-                        if (aboveType.isAir() || above.isPassable()) {
-                            ground = candidate;
-                        }
-                        break;
-                    }
-                }
-
-                if (ground == null) continue;
-
-                int groundY = ground.getY();
-                Block aboveGround = ground.getRelative(0, 1, 0);
-                Material aboveType = aboveGround.getType();
-                if (!aboveType.isAir() && !aboveGround.isPassable()) {
-                    continue; // ya ocupado
-                }
-
-                // tiene que haber hojas haciendo "techo"
-                if (!hasLeavesAbove(w, x, groundY + 2, z, maxY)) {
-                    continue;
-                }
-
-                // colocamos nieve SOLO debajo de árboles y SOLO cuando está nevando
-                aboveGround.setType(Material.SNOW, false);
-            }
+            sweep.sweep(p.getUniqueId(), w, px, pz, radiusBlocks, attemptsPerTick, (x, z) -> {
+                paintColumn(w, x, z, minY, maxY);
+                return true;
+            });
         }
     }
 
@@ -191,24 +144,24 @@ public final class CanopySnowPainter implements Runnable {
         if (w.getEnvironment() != World.Environment.NORMAL) return;
         if (!w.hasStorm()) return;
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
         int px = p.getLocation().getBlockX();
         int pz = p.getLocation().getBlockZ();
         int minY = w.getMinHeight();
         int maxY = w.getMaxHeight();
 
-        for (int i = 0; i < attempts; i++) {
-            int x = px + rnd.nextInt(-radiusBlocks, radiusBlocks + 1);
-            int z = pz + rnd.nextInt(-radiusBlocks, radiusBlocks + 1);
-
+        sweep.sweep(p.getUniqueId(), w, px, pz, radiusBlocks, attempts, (x, z) -> {
             Location columnLoc = new Location(w, x, minY, z);
             plugin.getScheduler().runAtLocation(columnLoc, task -> paintColumn(w, x, z, minY, maxY));
-        }
+            return true;
+        });
     }
 
     private void paintColumn(World w, int x, int z, int minY, int maxY) {
         if (!w.isChunkLoaded(x >> 4, z >> 4)) return;
 
+        // con o sin nieve puesta, la columna ya quedó resuelta para este invierno
+        sweep.markFinished(w, x, z);
+
         if (onlyInColdBiomes) {
             int cx = x >> 4;
             int cz = z >> 4;
@@ -259,7 +212,7 @@ public final class CanopySnowPainter implements Runnable {
             return;
         }
 
-        aboveGround.setType(Material.SNOW, false);
+        plugin.getMutations().set(BlockMutationService.Source.CANOPY_SNOW, aboveGround, Material.SNOW, aboveType);
     }
 
 
@@ -0,0 +1,402 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import Kinkin.aeternum.util.LongObjectOpenMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Estado de temporada por chunk, compartido por todos los servicios.
+ *
+ * Cada mundo tiene un mapa long → entrada, con la clave de chunk sin mezclar con
+ * el mundo ({@link PaintedBlockRegistry#chunkKey}), así que no hay colisiones. Cada
+ * servicio pide un {@link Slot} y cuelga de la entrada su parte (backup de biomas,
+ * bloques pintados, hojas de otoño, flora...).
+ *
+ * Ciclo de vida: en ChunkLoadEvent cada slot puede recuperar su parte (PDC, disco);
+ * en ChunkUnloadEvent la entrada entera sale del mapa de una vez y cada slot
+ * recibe su parte para volcarla. La memoria va con los chunks cargados.
+ *
+ * El mapa de cada mundo va en franjas (por región de 32x32 chunks, así en Folia
+ * cada hilo de región toca casi siempre la suya) y cada entrada tiene su monitor
+ * para las partes; los servicios sincronizan el contenido de su parte como ya hacían.
+ * Una entrada que sale del mapa queda marcada {@code dead}: quien la tuviera en
+ * la mano pide otra en vez de escribir en una huérfana.
+ *
+ * Otras cachés también van por chunk sin vivir aquí: los bloques falsos de la
+ * nieve de cliente ({@link ClientSnowRenderer}) y las regiones de WorldGuard
+ * ({@link WinterWorldGuardHelper}). Se vacían de golpe por mundo (cambio de modo,
+ * huella de regiones distinta) y salen en el ChunkUnloadEvent del pintor
+ * ({@code forgetChunk}), así que también van con los chunks cargados.
+ */
+public final class ChunkSeasonState implements Listener {
+
+    /** Cómo entra y sale del registro la parte de un servicio. Hilo dueño del chunk. */
+    public interface Lifecycle<T> {
+        /** Chunk recién cargado: la parte recuperada o null si no hay nada. */
+        T load(Chunk ch);
+
+        /** Chunk descargándose: la parte ya no está en el registro, solo queda volcarla. */
+        void unload(Chunk ch, T part);
+    }
+
+    /** Identifica la parte de un servicio dentro de cada entrada. */
+    public static final class Slot<T> {
+        final int index;
+        final String name;
+        volatile Lifecycle<T> lifecycle;
+
+        private Slot(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    @FunctionalInterface
+    public interface PartVisitor<T> {
+        void visit(World w, int cx, int cz, T part);
+    }
+
+    private static final class Entry {
+        Object[] parts;
+        boolean dead;       // ya salió del mapa (bajo el monitor de la entrada)
+
+        Entry(int slots) {
+            parts = new Object[slots];
+        }
+
+        boolean isEmpty() {
+            for (Object o : parts) if (o != null) return false;
+            return true;
+        }
+    }
+
+    private static final int STRIPES = 64; // potencia de 2
+
+    /** Franjas del mapa de un mundo; cada una se sincroniza sobre sí misma. */
+    private static final class WorldChunks {
+        @SuppressWarnings("unchecked")
+        final LongObjectOpenMap<Entry>[] stripes = new LongObjectOpenMap[STRIPES];
+
+        WorldChunks() {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new LongObjectOpenMap<>(64);
+        }
+
+        LongObjectOpenMap<Entry> stripe(long ck) {
+            int rx = PaintedBlockRegistry.chunkX(ck) >> 5;
+            int rz = PaintedBlockRegistry.chunkZ(ck) >> 5;
+            int h = rx * 0x9E3779B1 ^ rz * 0x85EBCA6B;
+            return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        }
+    }
+
+    private final AeternumSeasonsPlugin plugin;
+    private final Map<UUID, WorldChunks> worlds = new ConcurrentHashMap<>();
+    private final List<Slot<?>> slots = new ArrayList<>();
+    private volatile Slot<?>[] slotArray = new Slot<?>[0];
+
+    public ChunkSeasonState(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void register() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void unregister() {
+        HandlerList.unregisterAll(this);
+        worlds.clear();
+    }
+
+    /* ===================== slots ===================== */
+
+    /**
+     * Slot con ese nombre (el mismo tras un reload) con el ciclo de vida nuevo.
+     * {@code lifecycle} puede ser null si la parte solo vive en memoria.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Slot<T> slot(String name, Lifecycle<T> lifecycle) {
+        for (Slot<?> s : slots) {
+            if (s.name.equals(name)) {
+                ((Slot<T>) s).lifecycle = lifecycle;
+                return (Slot<T>) s;
+            }
+        }
+        Slot<T> s = new Slot<>(slots.size(), name);
+        s.lifecycle = lifecycle;
+        slots.add(s);
+        slotArray = slots.toArray(new Slot<?>[0]);
+        return s;
+    }
+
+    /** El servicio se va: su parte sale de todas las entradas sin volcarse. */
+    public void detach(Slot<?> slot) {
+        slot.lifecycle = null;
+        clear(slot);
+    }
+
+    /* ===================== acceso ===================== */
+
+    private WorldChunks chunks(World w, boolean create) {
+        return create ? worlds.computeIfAbsent(w.getUID(), id -> new WorldChunks()) : worlds.get(w.getUID());
+    }
+
+    private Entry entry(World w, long ck, boolean create) {
+        WorldChunks wc = chunks(w, create);
+        if (wc == null) return null;
+        LongObjectOpenMap<Entry> m = wc.stripe(ck);
+        synchronized (m) {
+            Entry e = m.get(ck);
+            if (e == null && create) {
+                e = new Entry(slotArray.length);
+                m.put(ck, e);
+            }
+            return e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T part(Entry e, Slot<T> slot) {
+        Object[] p = e.parts;
+        return slot.index < p.length ? (T) p[slot.index] : null;
+    }
+
+    public <T> T get(World w, int cx, int cz, Slot<T> slot) {
+        Entry e = entry(w, PaintedBlockRegistry.chunkKey(cx, cz), false);
+        if (e == null) return null;
+        synchronized (e) {
+            return part(e, slot);
+        }
+    }
+
+    public <T> T getOrCreate(World w, int cx, int cz, Slot<T> slot, Supplier<T> factory) {
+        long ck = PaintedBlockRegistry.chunkKey(cx, cz);
+        while (true) {
+            Entry e = entry(w, ck, true);
+            synchronized (e) {
+                if (e.dead) continue; // la quitaron entre medias: otra entrada
+                T cur = part(e, slot);
+                if (cur != null) return cur;
+                T created = factory.get();
+                set(e, slot, created);
+                return created;
+            }
+        }
+    }
+
+    public <T> void put(World w, int cx, int cz, Slot<T> slot, T part) {
+        long ck = PaintedBlockRegistry.chunkKey(cx, cz);
+        while (true) {
+            Entry e = entry(w, ck, true);
+            synchronized (e) {
+                if (e.dead) continue;
+                set(e, slot, part);
+                return;
+            }
+        }
+    }
+
+    private static void set(Entry e, Slot<?> slot, Object value) {
+        if (slot.index >= e.parts.length) e.parts = Arrays.copyOf(e.parts, slot.index + 1);
+        e.parts[slot.index] = value;
+    }
+
+    /** Quita la parte del slot (y la entrada si queda vacía). Devuelve lo que había. */
+    public <T> T remove(World w, int cx, int cz, Slot<T> slot) {
+        return removeIf(w, cx, cz, slot, p -> true);
+    }
+
+    /** Como {@link #remove} pero solo si {@code test} acepta la parte actual. */
+    public <T> T removeIf(World w, int cx, int cz, Slot<T> slot, Predicate<T> test) {
+        WorldChunks wc = chunks(w, false);
+        if (wc == null) return null;
+        long ck = PaintedBlockRegistry.chunkKey(cx, cz);
+        LongObjectOpenMap<Entry> m = wc.stripe(ck);
+        synchronized (m) {
+            Entry e = m.get(ck);
+            if (e == null) return null;
+            synchronized (e) {
+                T cur = part(e, slot);
+                if (cur == null || !test.test(cur)) return null;
+                e.parts[slot.index] = null;
+                if (e.isEmpty()) {
+                    e.dead = true;
+                    m.remove(ck);
+                }
+                return cur;
+            }
+        }
+    }
+
+    /** Chunks (clave empaquetada) de este mundo que tienen parte en el slot. */
+    public long[] chunksWith(World w, Slot<?> slot) {
+        WorldChunks wc = chunks(w, false);
+        if (wc == null) return new long[0];
+        long[][] out = {new long[64]};
+        int[] n = {0};
+        for (LongObjectOpenMap<Entry> m : wc.stripes) {
+            synchronized (m) {
+                m.forEach((k, e) -> {
+                    synchronized (e) {
+                        if (part(e, slot) == null) return;
+                    }
+                    if (n[0] == out[0].length) out[0] = Arrays.copyOf(out[0], n[0] << 1);
+                    out[0][n[0]++] = k;
+                });
+            }
+        }
+        return Arrays.copyOf(out[0], n[0]);
+    }
+
+    /** Recorre las partes de un slot en todos los mundos (copia previa: el visitor puede tocar el registro). */
+    public <T> void forEach(Slot<T> slot, PartVisitor<T> visitor) {
+        for (World w : Bukkit.getWorlds()) {
+            for (long ck : chunksWith(w, slot)) {
+                int cx = PaintedBlockRegistry.chunkX(ck);
+                int cz = PaintedBlockRegistry.chunkZ(ck);
+                T part = get(w, cx, cz, slot);
+                if (part != null) visitor.visit(w, cx, cz, part);
+            }
+        }
+    }
+
+    /** Vacía un slot en todas las entradas. */
+    public void clear(Slot<?> slot) {
+        for (WorldChunks wc : worlds.values()) {
+            for (LongObjectOpenMap<Entry> m : wc.stripes) {
+                synchronized (m) {
+                    for (long ck : m.keys()) {
+                        Entry e = m.get(ck);
+                        synchronized (e) {
+                            if (slot.index < e.parts.length) e.parts[slot.index] = null;
+                            if (e.isEmpty()) {
+                                e.dead = true;
+                                m.remove(ck);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Los chunks ya cargados (enable/reload) no disparan ChunkLoadEvent: recuperamos
+     * la parte del slot a mano. Solo fuera de Folia (el PDC se lee en el hilo del chunk).
+     */
+    public <T> void loadLoadedChunks(Slot<T> slot) {
+        Lifecycle<T> lc = slot.lifecycle;
+        if (lc == null || plugin.getFoliaLib().isFolia()) return;
+        for (World w : Bukkit.getWorlds()) {
+            for (Chunk ch : w.getLoadedChunks()) {
+                T part = lc.load(ch);
+                if (part != null) put(w, ch.getX(), ch.getZ(), slot, part);
+            }
+        }
+    }
+
+    /* ===================== ciclo de vida ===================== */
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        Chunk ch = e.getChunk();
+        for (Slot<?> s : slotArray) load(ch, s);
+    }
+
+    private <T> void load(Chunk ch, Slot<T> slot) {
+        Lifecycle<T> lc = slot.lifecycle;
+        if (lc == null) return;
+        try {
+            T part = lc.load(ch);
+            if (part != null) put(ch.getWorld(), ch.getX(), ch.getZ(), slot, part);
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[ChunkState] load " + slot.name + " " + ch.getX() + "," + ch.getZ() + ": " + t.getMessage());
+        }
+    }
+
+    /** Una sola baja en el mapa; después cada servicio vuelca lo suyo. */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        Chunk ch = e.getChunk();
+        WorldChunks wc = chunks(ch.getWorld(), false);
+        if (wc == null) return;
+        long ck = PaintedBlockRegistry.chunkKey(ch.getX(), ch.getZ());
+        LongObjectOpenMap<Entry> m = wc.stripe(ck);
+        Object[] parts;
+        synchronized (m) {
+            Entry entry = m.remove(ck);
+            if (entry == null) return;
+            synchronized (entry) {
+                // lo escrito hasta aquí va en parts; después, quien llegue tarde pide otra entrada
+                entry.dead = true;
+                parts = entry.parts;
+            }
+        }
+        Slot<?>[] all = slotArray;
+        for (int i = 0; i < parts.length && i < all.length; i++) {
+            if (parts[i] != null) unload(ch, all[i], parts[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void unload(Chunk ch, Slot<T> slot, Object part) {
+        Lifecycle<T> lc = slot.lifecycle;
+        if (lc == null) return;
+        try {
+            lc.unload(ch, (T) part);
+        } catch (Throwable t) {
+            plugin.getLogger().warning("[ChunkState] unload " + slot.name + " " + ch.getX() + "," + ch.getZ() + ": " + t.getMessage());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent e) {
+        worlds.remove(e.getWorld().getUID());
+    }
+
+    /* ===================== stats ===================== */
+
+    public String describe() {
+        Slot<?>[] all = slotArray;
+        int[] perSlot = new int[all.length];
+        int[] total = {0};
+        for (WorldChunks wc : worlds.values()) {
+            for (LongObjectOpenMap<Entry> m : wc.stripes) {
+                synchronized (m) {
+                    total[0] += m.size();
+                    m.forEach((k, e) -> {
+                        synchronized (e) {
+                            for (int i = 0; i < e.parts.length && i < perSlot.length; i++) {
+                                if (e.parts[i] != null) perSlot[i]++;
+                            }
+                        }
+                    });
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder("chunks=").append(total[0]).append(" worlds=").append(worlds.size());
+        for (int i = 0; i < all.length; i++) sb.append(' ').append(all[i].name).append('=').append(perSlot[i]);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,339 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.type.Snow;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Modo "solo cliente" de la nieve: el mundo del servidor NO se toca.
+ *
+ * Por chunk guardamos, por columna, un bloque falso (capas de nieve o hielo) y
+ * su Y. Se manda a cada jugador cercano con Player#sendBlockChanges (un paquete
+ * multi-bloque por sección) y se lleva la cuenta por jugador de qué versión de
+ * cada chunk ya recibió. Si el servidor le reenvía el chunk (PlayerChunkLoadEvent),
+ * se vuelve a mandar.
+ *
+ * Quitar la nieve (fin del invierno, reload, cambio de modo) = mandar los
+ * bloques reales de esas mismas posiciones; no hay que reescribir el mundo.
+ * Si el falso de una columna sube o baja de Y, la posición vieja se apunta como
+ * "obsoleta" y va con los envíos como bloque real hasta que el chunk se descarga.
+ * Al apagar en Folia ya no se pueden programar tareas de región: se manda lo
+ * real que se guardó al poner cada falso, sin leer el mundo.
+ */
+final class ClientSnowRenderer {
+
+    /** Bloques falsos de un chunk, indexados por columna (z << 4 | x). */
+    private static final class ChunkFake {
+        final BlockData[] data = new BlockData[256];
+        final BlockData[] real = new BlockData[256]; // lo que había al poner el falso
+        final int[] ys = new int[256];
+        int count;
+        int version;
+
+        // posiciones que tuvieron falso y ya no: (y << 8) | columna
+        int staleCount;
+        int[] stalePos = new int[8];
+        BlockData[] staleReal = new BlockData[8];
+
+        void addStale(int col, int y, BlockData realData) {
+            int pos = (y << 8) | col;
+            for (int i = 0; i < staleCount; i++) {
+                if (stalePos[i] == pos) return;
+            }
+            if (staleCount == MAX_STALE) {
+                // la más vieja se pierde: el cliente la corrige al reenviarse el chunk
+                System.arraycopy(stalePos, 1, stalePos, 0, staleCount - 1);
+                System.arraycopy(staleReal, 1, staleReal, 0, staleCount - 1);
+                staleCount--;
+            } else if (staleCount == stalePos.length) {
+                stalePos = Arrays.copyOf(stalePos, staleCount << 1);
+                staleReal = Arrays.copyOf(staleReal, staleCount << 1);
+            }
+            stalePos[staleCount] = pos;
+            staleReal[staleCount] = realData;
+            staleCount++;
+        }
+
+        void removeStale(int col, int y) {
+            int pos = (y << 8) | col;
+            for (int i = 0; i < staleCount; i++) {
+                if (stalePos[i] != pos) continue;
+                staleCount--;
+                stalePos[i] = stalePos[staleCount];
+                staleReal[i] = staleReal[staleCount];
+                staleReal[staleCount] = null;
+                return;
+            }
+        }
+    }
+
+    private static final int MAX_STALE = 256;
+
+    private static final BlockData[] SNOW_LAYERS = new BlockData[9];
+    private static BlockData ICE;
+
+    private final AeternumSeasonsPlugin plugin;
+
+    private final Map<UUID, Map<Long, ChunkFake>> chunks = new ConcurrentHashMap<>();
+    // jugador → (chunk → versión recibida); se vacía al cambiar de mundo
+    private final Map<UUID, Map<Long, Integer>> sent = new ConcurrentHashMap<>();
+    private final Map<UUID, UUID> viewerWorld = new ConcurrentHashMap<>();
+
+    private int radiusChunks = 2;
+    private int chunksPerPlayerPerTick = 4;
+
+    ClientSnowRenderer(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    void reloadFromConfig(int paintRadiusBlocks) {
+        radiusChunks = Math.max(1, (paintRadiusBlocks + 15) >> 4);
+        chunksPerPlayerPerTick = Math.max(1, plugin.cfg.climate.getInt("real_snow.client_side.chunks_per_player_per_tick", 4));
+    }
+
+    private static BlockData snow(int layers) {
+        BlockData bd = SNOW_LAYERS[layers];
+        if (bd == null) {
+            Snow s = (Snow) Material.SNOW.createBlockData();
+            s.setLayers(Math.max(s.getMinimumLayers(), Math.min(layers, s.getMaximumLayers())));
+            SNOW_LAYERS[layers] = bd = s;
+        }
+        return bd;
+    }
+
+    private static BlockData ice() {
+        if (ICE == null) ICE = Material.ICE.createBlockData();
+        return ICE;
+    }
+
+    /* ===================== registro (hilo dueño del chunk) ===================== */
+
+    void putSnow(World w, int x, int y, int z, int layers) {
+        put(w, x, y, z, snow(Math.max(1, Math.min(8, layers))));
+    }
+
+    void putIce(World w, int x, int y, int z) {
+        put(w, x, y, z, ice());
+    }
+
+    private void put(World w, int x, int y, int z, BlockData data) {
+        ChunkFake f = chunks.computeIfAbsent(w.getUID(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(PaintedBlockRegistry.chunkKey(x >> 4, z >> 4), k -> new ChunkFake());
+        int col = ((z & 15) << 4) | (x & 15);
+        synchronized (f) {
+            if (f.data[col] == data && f.ys[col] == y) return;
+            if (f.data[col] == null) {
+                f.count++;
+            } else if (f.ys[col] != y) {
+                // el falso cambia de altura: quien vio el viejo tiene que recibir lo real ahí
+                f.addStale(col, f.ys[col], f.real[col]);
+            }
+            if (f.data[col] == null || f.ys[col] != y) {
+                f.removeStale(col, y);
+                f.real[col] = w.getBlockAt(x, y, z).getBlockData();
+            }
+            f.data[col] = data;
+            f.ys[col] = y;
+            f.version++;
+        }
+    }
+
+    /** El jugador tocó la columna: el bloque real manda; no volvemos a taparlo. */
+    void forgetColumn(World w, int x, int z) {
+        Map<Long, ChunkFake> m = chunks.get(w.getUID());
+        if (m == null) return;
+        ChunkFake f = m.get(PaintedBlockRegistry.chunkKey(x >> 4, z >> 4));
+        if (f == null) return;
+        int col = ((z & 15) << 4) | (x & 15);
+        synchronized (f) {
+            if (f.data[col] != null) {
+                f.data[col] = null;
+                f.real[col] = null;
+                f.count--;
+            }
+        }
+    }
+
+    /** Chunk descargado: sus bloques falsos se recalculan si vuelve. */
+    void forgetChunk(World w, int cx, int cz) {
+        Map<Long, ChunkFake> m = chunks.get(w.getUID());
+        if (m != null) m.remove(PaintedBlockRegistry.chunkKey(cx, cz));
+    }
+
+    /* ===================== envío ===================== */
+
+    /** Manda a cada jugador los chunks cercanos que aún no tiene al día. */
+    void flush() {
+        boolean folia = plugin.getFoliaLib().isFolia();
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            if (folia) {
+                plugin.getScheduler().runAtEntity(p, task -> flushFor(p, true));
+            } else {
+                flushFor(p, false);
+            }
+        }
+    }
+
+    private void flushFor(Player p, boolean folia) {
+        if (!p.isOnline()) return;
+        World w = p.getWorld();
+        Map<Long, Integer> mine = viewerMap(p, w);
+
+        Map<Long, ChunkFake> m = chunks.get(w.getUID());
+        if (m == null || m.isEmpty()) return;
+
+        int pcx = p.getLocation().getBlockX() >> 4;
+        int pcz = p.getLocation().getBlockZ() >> 4;
+        int budget = chunksPerPlayerPerTick;
+
+        for (int dx = -radiusChunks; dx <= radiusChunks && budget > 0; dx++) {
+            for (int dz = -radiusChunks; dz <= radiusChunks && budget > 0; dz++) {
+                int cx = pcx + dx;
+                int cz = pcz + dz;
+                long key = PaintedBlockRegistry.chunkKey(cx, cz);
+                ChunkFake f = m.get(key);
+                if (f == null) continue;
+
+                int version;
+                synchronized (f) {
+                    if (f.count == 0 && f.staleCount == 0) continue;
+                    version = f.version;
+                }
+                Integer have = mine.get(key);
+                if (have != null && have == version) continue;
+
+                mine.put(key, version);
+                budget--;
+                if (folia) {
+                    Location loc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+                    plugin.getScheduler().runAtLocation(loc, task -> sendChunk(p, w, cx, cz, f, false));
+                } else {
+                    sendChunk(p, w, cx, cz, f, false);
+                }
+            }
+        }
+    }
+
+    private Map<Long, Integer> viewerMap(Player p, World w) {
+        UUID id = p.getUniqueId();
+        UUID prev = viewerWorld.put(id, w.getUID());
+        Map<Long, Integer> mine = sent.computeIfAbsent(id, k -> new ConcurrentHashMap<>());
+        if (prev != null && !prev.equals(w.getUID())) mine.clear();
+        return mine;
+    }
+
+    /**
+     * Un sendBlockChanges por chunk (el servidor lo parte en un paquete por sección).
+     * {@code real=true} manda los bloques verdaderos para deshacer la nieve falsa.
+     */
+    private void sendChunk(Player p, World w, int cx, int cz, ChunkFake f, boolean real) {
+        if (!p.isOnline() || p.getWorld() != w) return;
+        if (!w.isChunkLoaded(cx, cz)) return;
+
+        List<BlockState> states = new ArrayList<>();
+        synchronized (f) {
+            for (int col = 0; col < 256; col++) {
+                BlockData bd = f.data[col];
+                if (bd == null) continue;
+                int x = (cx << 4) | (col & 15);
+                int z = (cz << 4) | (col >> 4);
+                BlockState s = w.getBlockAt(x, f.ys[col], z).getState();
+                if (!real) s.setBlockData(bd);
+                states.add(s);
+            }
+            for (int i = 0; i < f.staleCount; i++) {
+                int pos = f.stalePos[i];
+                int x = (cx << 4) | (pos & 15);
+                int z = (cz << 4) | ((pos & 255) >> 4);
+                states.add(w.getBlockAt(x, pos >> 8, z).getState());
+            }
+        }
+        if (!states.isEmpty()) p.sendBlockChanges(states);
+    }
+
+    /** Como sendChunk(real=true) pero con lo guardado al poner cada falso: no lee el mundo (cualquier hilo). */
+    private void sendCachedReal(Player p, World w, int cx, int cz, ChunkFake f) {
+        if (!p.isOnline() || p.getWorld() != w) return;
+        synchronized (f) {
+            for (int col = 0; col < 256; col++) {
+                if (f.data[col] == null || f.real[col] == null) continue;
+                int x = (cx << 4) | (col & 15);
+                int z = (cz << 4) | (col >> 4);
+                p.sendBlockChange(new Location(w, x, f.ys[col], z), f.real[col]);
+            }
+            for (int i = 0; i < f.staleCount; i++) {
+                int pos = f.stalePos[i];
+                if (f.staleReal[i] == null) continue;
+                int x = (cx << 4) | (pos & 15);
+                int z = (cz << 4) | ((pos & 255) >> 4);
+                p.sendBlockChange(new Location(w, x, pos >> 8, z), f.staleReal[i]);
+            }
+        }
+    }
+
+    /* ===================== eventos de visibilidad ===================== */
+
+    /** El servidor (re)envió el chunk: el cliente perdió la nieve falsa. */
+    void onChunkSent(Player p, int cx, int cz) {
+        Map<Long, Integer> mine = sent.get(p.getUniqueId());
+        if (mine != null) mine.remove(PaintedBlockRegistry.chunkKey(cx, cz));
+    }
+
+    void forgetViewer(UUID player) {
+        sent.remove(player);
+        viewerWorld.remove(player);
+    }
+
+    /* ===================== retirar ===================== */
+
+    /** Manda los bloques reales a quien haya visto nieve falsa y olvida todo. */
+    void revertAll() {
+        if (chunks.isEmpty() && sent.isEmpty()) return;
+        boolean folia = plugin.getFoliaLib().isFolia();
+        // apagando: las tareas de región se cancelarían antes de correr
+        boolean now = folia && !plugin.isEnabled();
+
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            Map<Long, Integer> mine = sent.remove(p.getUniqueId());
+            if (mine == null || mine.isEmpty()) continue;
+            World w = p.getWorld();
+            Map<Long, ChunkFake> m = chunks.get(w.getUID());
+            if (m == null) continue;
+
+            for (long key : mine.keySet()) {
+                ChunkFake f = m.get(key);
+                if (f == null) continue;
+                int cx = PaintedBlockRegistry.chunkX(key);
+                int cz = PaintedBlockRegistry.chunkZ(key);
+                if (now) {
+                    sendCachedReal(p, w, cx, cz, f);
+                } else if (folia) {
+                    Location loc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+                    plugin.getScheduler().runAtLocation(loc, task -> sendChunk(p, w, cx, cz, f, true));
+                } else {
+                    sendChunk(p, w, cx, cz, f, true);
+                }
+            }
+        }
+        chunks.clear();
+        sent.clear();
+        viewerWorld.clear();
+    }
+
+    boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+}
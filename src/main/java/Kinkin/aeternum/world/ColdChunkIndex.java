@@ -0,0 +1,200 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.util.LongObjectOpenMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Clasificación persistente "frío de origen" por chunk, junto a los backups de biomas:
+ * biome_backups/&lt;world-uuid&gt;/r.&lt;rx&gt;.&lt;rz&gt;.cold, 32x32 chunks por archivo.
+ *
+ * Formato: [int magic][byte versión][16 long "clasificado"][16 long "frío"], bit = (lcz << 5) | lcx.
+ *
+ * - Cada chunk se clasifica UNA vez en la vida del mundo (el primero gana).
+ * - Las regiones se cargan al primer uso, fuera del hilo que pregunta; hasta que
+ *   llegan la respuesta es {@link #UNKNOWN} y se usa lo que haya en memoria.
+ * - Lo nuevo se escribe desde el hilo de {@link BiomeBackupWriter} (temporal + move).
+ */
+final class ColdChunkIndex {
+
+    static final int UNKNOWN = 0;
+    static final int WARM = 1;
+    static final int COLD = 2;
+
+    static final String EXTENSION = ".cold";
+
+    private static final int MAGIC = 0xAEC01D00;
+    private static final byte VERSION = 1;
+    private static final int WORDS = BiomeRegionFile.SIDE * BiomeRegionFile.SIDE / 64;
+    private static final int BYTES = 4 + 1 + WORDS * 8 * 2;
+
+    /** Una región de 32x32 chunks; todo sincronizado sobre ella. */
+    private static final class Region {
+        final long[] known = new long[WORDS];
+        final long[] cold = new long[WORDS];
+        boolean loaded;
+        boolean dirty;
+    }
+
+    private final Path root;
+    private final Logger log;
+    private final Consumer<Runnable> async;
+
+    private final Map<UUID, LongObjectOpenMap<Region>> worlds = new ConcurrentHashMap<>();
+
+    ColdChunkIndex(Path root, Logger log, Consumer<Runnable> async) {
+        this.root = root;
+        this.log = log;
+        this.async = async;
+    }
+
+    /** {@link #COLD}, {@link #WARM} o {@link #UNKNOWN}. Cualquier hilo, sin I/O. */
+    int query(UUID world, int cx, int cz) {
+        Region r = region(world, cx, cz);
+        int bit = bit(cx, cz);
+        synchronized (r) {
+            long mask = 1L << bit;
+            if ((r.known[bit >>> 6] & mask) == 0) return UNKNOWN;
+            return (r.cold[bit >>> 6] & mask) != 0 ? COLD : WARM;
+        }
+    }
+
+    /** Apunta la clasificación si el chunk no la tenía ya. */
+    void record(UUID world, int cx, int cz, boolean isCold) {
+        Region r = region(world, cx, cz);
+        int bit = bit(cx, cz);
+        synchronized (r) {
+            long mask = 1L << bit;
+            if ((r.known[bit >>> 6] & mask) != 0) return;
+            r.known[bit >>> 6] |= mask;
+            if (isCold) r.cold[bit >>> 6] |= mask;
+            r.dirty = true;
+        }
+    }
+
+    private Region region(UUID world, int cx, int cz) {
+        LongObjectOpenMap<Region> m = worlds.computeIfAbsent(world, id -> new LongObjectOpenMap<>());
+        int rx = BiomeRegionFile.regionCoord(cx);
+        int rz = BiomeRegionFile.regionCoord(cz);
+        long rk = PaintedBlockRegistry.chunkKey(rx, rz);
+        Region r;
+        synchronized (m) {
+            r = m.get(rk);
+            if (r != null) return r;
+            r = new Region();
+            m.put(rk, r);
+        }
+        Region created = r;
+        async.accept(() -> load(world, rx, rz, created));
+        return r;
+    }
+
+    private static int bit(int cx, int cz) {
+        return ((cz & 31) << 5) | (cx & 31);
+    }
+
+    private Path file(UUID world, int rx, int rz) {
+        return root.resolve(world.toString()).resolve("r." + rx + "." + rz + EXTENSION);
+    }
+
+    /** Lo del disco gana (se clasificó antes); lo apuntado mientras cargaba se conserva si es nuevo. */
+    private void load(UUID world, int rx, int rz, Region r) {
+        long[] known = null;
+        long[] cold = null;
+        Path f = file(world, rx, rz);
+        try {
+            if (Files.exists(f)) {
+                ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(f));
+                if (buf.remaining() >= BYTES && buf.getInt() == MAGIC && buf.get() == VERSION) {
+                    known = new long[WORDS];
+                    cold = new long[WORDS];
+                    for (int i = 0; i < WORDS; i++) known[i] = buf.getLong();
+                    for (int i = 0; i < WORDS; i++) cold[i] = buf.getLong();
+                } else {
+                    log.warning("[BiomeBackup] Índice de frío ilegible, se reclasifica: " + f);
+                }
+            }
+        } catch (IOException e) {
+            log.warning("[BiomeBackup] Error leyendo " + f + ": " + e.getMessage());
+        }
+
+        synchronized (r) {
+            if (known != null) {
+                for (int i = 0; i < WORDS; i++) {
+                    long mine = r.known[i] & ~known[i];
+                    r.cold[i] = (cold[i] & known[i]) | (r.cold[i] & mine);
+                    r.known[i] |= known[i];
+                    if (mine != 0) r.dirty = true;
+                }
+            }
+            r.loaded = true;
+        }
+    }
+
+    /** Escribe las regiones con clasificaciones nuevas (ya cargadas). Hilo escritor. */
+    void flush() {
+        for (Map.Entry<UUID, LongObjectOpenMap<Region>> we : worlds.entrySet()) {
+            LongObjectOpenMap<Region> m = we.getValue();
+            long[] keys;
+            Region[] regions;
+            synchronized (m) {
+                keys = m.keys();
+                regions = new Region[keys.length];
+                for (int i = 0; i < keys.length; i++) regions[i] = m.get(keys[i]);
+            }
+            for (int i = 0; i < regions.length; i++) {
+                Region r = regions[i];
+                ByteBuffer buf;
+                synchronized (r) {
+                    if (!r.dirty || !r.loaded) continue;
+                    buf = ByteBuffer.allocate(BYTES);
+                    buf.putInt(MAGIC);
+                    buf.put(VERSION);
+                    for (long v : r.known) buf.putLong(v);
+                    for (long v : r.cold) buf.putLong(v);
+                    r.dirty = false;
+                }
+                long rk = keys[i];
+                Path f = file(we.getKey(), PaintedBlockRegistry.chunkX(rk), PaintedBlockRegistry.chunkZ(rk));
+                try {
+                    Files.createDirectories(f.getParent());
+                    Path tmp = f.resolveSibling(f.getFileName() + ".tmp");
+                    Files.write(tmp, buf.array());
+                    Files.move(tmp, f, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    synchronized (r) {
+                        r.dirty = true;
+                    }
+                    log.warning("[BiomeBackup] Error escribiendo " + f + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    String describe() {
+        int[] acc = new int[3]; // regiones, clasificados, fríos
+        for (LongObjectOpenMap<Region> m : worlds.values()) {
+            synchronized (m) {
+                m.forEach((rk, r) -> {
+                    acc[0]++;
+                    synchronized (r) {
+                        for (int i = 0; i < WORDS; i++) {
+                            acc[1] += Long.bitCount(r.known[i]);
+                            acc[2] += Long.bitCount(r.cold[i]);
+                        }
+                    }
+                });
+            }
+        }
+        return "regions=" + acc[0] + " classified=" + acc[1] + " cold=" + acc[2];
+    }
+}
@@ -0,0 +1,188 @@
+package Kinkin.aeternum.world;
+
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Barrido determinista de columnas alrededor de un jugador.
+ *
+ * En vez de sortear columnas con rnd.nextInt (que repite columnas y nunca
+ * garantiza terminar un área), cada jugador tiene un cursor sobre una
+ * permutación fija del cuadrado (2r+1)²: índice i → (i * stride) mod n, con
+ * stride coprimo con n (≈ n/φ, así columnas consecutivas quedan repartidas).
+ * Un jugador quieto recorre TODO el radio en ⌈n / presupuesto⌉ ticks.
+ *
+ * Además, un bitmap por chunk (256 bits) marca columnas "terminadas" en esta
+ * estación; esas se saltan sin gastar presupuesto. {@link #reset()} al cambiar
+ * de estación. Los bitmaps viven en {@link ChunkSeasonState} (slot propio, solo
+ * en memoria): salen con el chunk al descargarlo, así que no crecen sin límite.
+ */
+public final class CoverageSweep {
+
+    /** Recibe una columna; devuelve false para parar (la columna NO se consume). */
+    @FunctionalInterface
+    public interface ColumnVisitor {
+        boolean visit(int x, int z);
+    }
+
+    private static final class Cursor {
+        int radius = -1;
+        int side, n, stride;
+        long index;
+
+        // inactivo: todo el cuadrado está terminado y el jugador no se movió de chunk
+        boolean idle;
+        int idleChunkX, idleChunkZ;
+        int skippedInRow;
+    }
+
+    /** Cuántas columnas terminadas como máximo se saltan por cada columna útil. */
+    private static final int MAX_SKIPS_PER_VISIT = 8;
+
+    private final Map<UUID, Cursor> cursors = new ConcurrentHashMap<>();
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<AtomicLongArray> finished;
+
+    public CoverageSweep(ChunkSeasonState state, String slotName) {
+        this.state = state;
+        this.finished = state.slot(slotName, null);
+        state.clear(finished); // lo de una instancia anterior (reload) no vale
+    }
+
+    /**
+     * Entrega hasta {@code budget} columnas no terminadas alrededor de (centerX, centerZ).
+     * Devuelve cuántas columnas se entregaron (y aceptó el visitor).
+     */
+    public int sweep(UUID owner, World w, int centerX, int centerZ, int radius, int budget, ColumnVisitor visitor) {
+        if (budget <= 0 || radius < 0) return 0;
+
+        Cursor c = cursors.computeIfAbsent(owner, id -> new Cursor());
+        synchronized (c) {
+            if (c.radius != radius) {
+                c.radius = radius;
+                c.side = radius * 2 + 1;
+                c.n = c.side * c.side;
+                c.stride = coprimeStride(c.n);
+                c.index = c.index % c.n;
+                c.idle = false;
+                c.skippedInRow = 0;
+            }
+
+            int pcx = centerX >> 4;
+            int pcz = centerZ >> 4;
+            if (c.idle) {
+                if (c.idleChunkX == pcx && c.idleChunkZ == pcz) return 0;
+                c.idle = false;
+                c.skippedInRow = 0;
+            }
+
+            int delivered = 0;
+            int maxSteps = Math.min(c.n, budget * (MAX_SKIPS_PER_VISIT + 1));
+            for (int step = 0; step < maxSteps && delivered < budget; step++) {
+                int cell = (int) ((c.index * c.stride) % c.n);
+                int x = centerX + (cell % c.side) - radius;
+                int z = centerZ + (cell / c.side) - radius;
+
+                if (isFinished(w, x, z)) {
+                    c.index = (c.index + 1) % c.n;
+                    if (++c.skippedInRow >= c.n) {
+                        // vuelta completa sin nada pendiente → dormimos hasta que cambie de chunk
+                        c.idle = true;
+                        c.idleChunkX = pcx;
+                        c.idleChunkZ = pcz;
+                        break;
+                    }
+                    continue;
+                }
+
+                if (!visitor.visit(x, z)) break;
+                c.index = (c.index + 1) % c.n;
+                c.skippedInRow = 0;
+                delivered++;
+            }
+            return delivered;
+        }
+    }
+
+    /** stride ≈ n/φ y coprimo con n → la permutación cubre todas las columnas. */
+    private static int coprimeStride(int n) {
+        if (n <= 2) return 1;
+        int s = (int) Math.round(n * 0.6180339887498949);
+        if (s <= 0) s = 1;
+        while (gcd(s, n) != 1) s++;
+        return s % n == 0 ? 1 : s;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /* ===================== bitmap de columnas terminadas ===================== */
+
+    private AtomicLongArray bits(World w, int x, int z, boolean create) {
+        int cx = x >> 4;
+        int cz = z >> 4;
+        // solo chunks cargados: la entrada sale del estado en su ChunkUnloadEvent
+        if (create && w.isChunkLoaded(cx, cz)) {
+            return state.getOrCreate(w, cx, cz, finished, () -> new AtomicLongArray(4));
+        }
+        return state.get(w, cx, cz, finished);
+    }
+
+    public boolean isFinished(World w, int x, int z) {
+        AtomicLongArray b = bits(w, x, z, false);
+        if (b == null) return false;
+        int bit = ((z & 15) << 4) | (x & 15);
+        return (b.get(bit >> 6) & (1L << (bit & 63))) != 0;
+    }
+
+    public void markFinished(World w, int x, int z) {
+        AtomicLongArray b = bits(w, x, z, true);
+        if (b == null) return;
+        int bit = ((z & 15) << 4) | (x & 15);
+        long mask = 1L << (bit & 63);
+        int word = bit >> 6;
+        long cur;
+        do {
+            cur = b.get(word);
+            if ((cur & mask) != 0) return;
+        } while (!b.compareAndSet(word, cur, cur | mask));
+    }
+
+    /** Olvida el progreso de la columna (p.ej. porque un jugador la modificó). */
+    public void clearFinished(World w, int x, int z) {
+        AtomicLongArray b = bits(w, x, z, false);
+        if (b == null) return;
+        int bit = ((z & 15) << 4) | (x & 15);
+        long mask = ~(1L << (bit & 63));
+        int word = bit >> 6;
+        long cur;
+        do {
+            cur = b.get(word);
+        } while (!b.compareAndSet(word, cur, cur & mask));
+    }
+
+    /** Nueva estación: todas las columnas vuelven a estar pendientes. */
+    public void reset() {
+        state.clear(finished);
+        for (Cursor c : cursors.values()) {
+            synchronized (c) {
+                c.idle = false;
+                c.skippedInRow = 0;
+            }
+        }
+    }
+
+    public void forget(UUID owner) {
+        cursors.remove(owner);
+    }
+}
@@ -0,0 +1,120 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.calendar.Season;
+import org.bukkit.Material;
+import org.bukkit.block.Biome;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reglas de flora compiladas en tablas planas al recargar la config, para que el
+ * muestreo no recorra listas ni sets por cada bloque:
+ * - purga: [estación][material] → reemplazo para lo natural / lo del plugin (null = no se purga),
+ * - restauración: [estación] → reglas candidatas, en orden de config,
+ * - biomas: [regla][bioma] → permitido (el bioma se conoce al elegir la columna, por intento),
+ * - modo seeded: [estación] → reglas que purgan lo del plugin (barrido de columnas sembradas).
+ *
+ * Inmutable una vez compilada: se publica entera (campo volatile) y se lee desde cualquier hilo.
+ */
+final class FloraDecisionTables {
+
+    private static final Season[] SEASONS = Season.values();
+    private static final int MATERIALS = Material.values().length;
+    private static final int BIOMES = Biome.values().length;
+    private static final SeasonalFloraController.FloraRule[] NONE = new SeasonalFloraController.FloraRule[0];
+
+    static final FloraDecisionTables EMPTY = compile(NONE);
+
+    private final boolean[] flora;
+    private final Material[][] purgeNatural;
+    private final Material[][] purgePlugin;
+    private final SeasonalFloraController.FloraRule[][] restore;
+    private final boolean[][] biomeAllowed;
+    private final SeasonalFloraController.FloraRule[][] purgeSeeded;
+
+    private FloraDecisionTables(boolean[] flora, Material[][] purgeNatural, Material[][] purgePlugin,
+                                SeasonalFloraController.FloraRule[][] restore,
+                                boolean[][] biomeAllowed,
+                                SeasonalFloraController.FloraRule[][] purgeSeeded) {
+        this.flora = flora;
+        this.purgeNatural = purgeNatural;
+        this.purgePlugin = purgePlugin;
+        this.restore = restore;
+        this.biomeAllowed = biomeAllowed;
+        this.purgeSeeded = purgeSeeded;
+    }
+
+    /** {@code rules[i].index == i}. Respeta el orden de config: gana la primera regla que aplica. */
+    static FloraDecisionTables compile(SeasonalFloraController.FloraRule[] rules) {
+        boolean[] flora = new boolean[MATERIALS];
+        Material[][] purgeNatural = new Material[SEASONS.length][];
+        Material[][] purgePlugin = new Material[SEASONS.length][];
+        SeasonalFloraController.FloraRule[][] restore = new SeasonalFloraController.FloraRule[SEASONS.length][];
+        boolean[][] biomeAllowed = new boolean[rules.length][BIOMES];
+        SeasonalFloraController.FloraRule[][] purgeSeeded = new SeasonalFloraController.FloraRule[SEASONS.length][];
+
+        for (SeasonalFloraController.FloraRule r : rules) {
+            for (Biome b : Biome.values()) biomeAllowed[r.index][b.ordinal()] = r.isBiomeAllowed(b);
+            for (Material m : r.blocks) flora[m.ordinal()] = true;
+        }
+
+        for (Season s : SEASONS) {
+            int si = s.ordinal();
+            Material[] natural = purgeNatural[si] = new Material[MATERIALS];
+            Material[] placed = purgePlugin[si] = new Material[MATERIALS];
+            List<SeasonalFloraController.FloraRule> candidates = new ArrayList<>();
+            List<SeasonalFloraController.FloraRule> sweep = new ArrayList<>();
+
+            for (SeasonalFloraController.FloraRule r : rules) {
+                boolean purgeSeason = r.enabled && r.removeSeasons.contains(s);
+                boolean purgeDisabled = !r.enabled && r.purgeWhenDisabled;
+                if (purgeSeason || purgeDisabled) {
+                    Material replace = (r.replaceWith != null) ? r.replaceWith : Material.AIR;
+                    for (Material m : r.blocks) {
+                        int mi = m.ordinal();
+                        if (r.purgeNatural && natural[mi] == null) natural[mi] = replace;
+                        if (r.purgePluginPlaced && placed[mi] == null) placed[mi] = replace;
+                    }
+                    if (r.purgePluginPlaced && !r.restoreSeasons.isEmpty()) sweep.add(r);
+                }
+                if (r.enabled && r.restoreSeasons.contains(s)) candidates.add(r);
+            }
+
+            restore[si] = candidates.toArray(NONE);
+            purgeSeeded[si] = sweep.toArray(NONE);
+        }
+
+        return new FloraDecisionTables(flora, purgeNatural, purgePlugin, restore, biomeAllowed, purgeSeeded);
+    }
+
+    /** ¿Alguna regla cubre este material? */
+    boolean isFlora(Material m) {
+        return flora[m.ordinal()];
+    }
+
+    /** ¿Puede purgarse este material en esta estación (natural o del plugin)? Sin mirar el bloque. */
+    boolean purges(Season s, Material m) {
+        int mi = m.ordinal();
+        return purgeNatural[s.ordinal()][mi] != null || purgePlugin[s.ordinal()][mi] != null;
+    }
+
+    /** Reemplazo a poner si se purga, o null si ninguna regla lo purga. */
+    Material purgeReplacement(Season s, Material m, boolean pluginPlaced) {
+        return (pluginPlaced ? purgePlugin : purgeNatural)[s.ordinal()][m.ordinal()];
+    }
+
+    /** Reglas enabled que restauran en esta estación (no copiar ni modificar). */
+    SeasonalFloraController.FloraRule[] restoreCandidates(Season s) {
+        return restore[s.ordinal()];
+    }
+
+    /** Reglas que ahora purgan lo que pusieron (modo seeded; no copiar ni modificar). */
+    SeasonalFloraController.FloraRule[] seededPurge(Season s) {
+        return purgeSeeded[s.ordinal()];
+    }
+
+    boolean allows(SeasonalFloraController.FloraRule r, Biome b) {
+        return biomeAllowed[r.index][b.ordinal()];
+    }
+}
@@ -0,0 +1,204 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.calendar.Season;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.Biome;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Planificación de flora sobre un ChunkSnapshot (bloques, alturas, biomas, luz),
+ * fuera del hilo dueño del chunk: el mismo muestreo que hacía processChunk, contra
+ * {@link FloraDecisionTables}. Devuelve una lista corta de candidatas que el hilo
+ * dueño revalida barato (tipo, aire, suelo, luz real, protección, cap, distancia)
+ * antes de aplicar.
+ *
+ * - Purga: posición + tipo esperado; "seeded" = viene del barrido de columnas sembradas.
+ * - Colocación: por regla, sus candidatas en orden; al aplicar basta la primera que cuaje.
+ * - La luz del snapshot es la cruda (sin oscurecer por la hora): solo descarta por mínimo.
+ */
+final class FloraPlanner {
+
+    static final class Plan {
+        final FloraDecisionTables tables;
+        final Season season;
+
+        int purgeCount;
+        int[] purgePos = new int[8];               // PaintedBlockRegistry.pack, coords locales
+        Material[] purgeType = new Material[8];
+        boolean[] purgeSeeded = new boolean[8];
+
+        int placeCount;
+        int[] placePos = new int[8];
+        SeasonalFloraController.FloraRule[] placeRule = new SeasonalFloraController.FloraRule[8];
+        Material[] placeGround = new Material[8];
+
+        Plan(FloraDecisionTables tables, Season season) {
+            this.tables = tables;
+            this.season = season;
+        }
+
+        boolean isEmpty() {
+            return purgeCount == 0 && placeCount == 0;
+        }
+
+        private void purge(int pos, Material type, boolean seeded) {
+            if (purgeCount == purgePos.length) {
+                int n = purgeCount << 1;
+                purgePos = Arrays.copyOf(purgePos, n);
+                purgeType = Arrays.copyOf(purgeType, n);
+                purgeSeeded = Arrays.copyOf(purgeSeeded, n);
+            }
+            purgePos[purgeCount] = pos;
+            purgeType[purgeCount] = type;
+            purgeSeeded[purgeCount] = seeded;
+            purgeCount++;
+        }
+
+        private void place(SeasonalFloraController.FloraRule r, int pos, Material ground) {
+            if (placeCount == placePos.length) {
+                int n = placeCount << 1;
+                placePos = Arrays.copyOf(placePos, n);
+                placeRule = Arrays.copyOf(placeRule, n);
+                placeGround = Arrays.copyOf(placeGround, n);
+            }
+            placePos[placeCount] = pos;
+            placeRule[placeCount] = r;
+            placeGround[placeCount] = ground;
+            placeCount++;
+        }
+    }
+
+    /** Entrada del planificador; todo capturado en el hilo dueño junto al snapshot. */
+    static final class Input {
+        ChunkSnapshot snap;
+        FloraDecisionTables tables;
+        Season season;
+        int year;
+        int minH;
+        int maxH;
+        int scanDepth;
+        int samples;
+        boolean seeded;
+        long seed;
+        int lookbackYears;
+    }
+
+    private FloraPlanner() {}
+
+    static Plan plan(Input in) {
+        ChunkSnapshot snap = in.snap;
+        FloraDecisionTables t = in.tables;
+        Season season = in.season;
+        Plan plan = new Plan(t, season);
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int cx = snap.getX();
+        int cz = snap.getZ();
+
+        // 1) purga por muestreo
+        for (int i = 0; i < in.samples; i++) {
+            int lx = rnd.nextInt(16);
+            int lz = rnd.nextInt(16);
+            int y = findPurgeCandidate(snap, t, lx, lz, in);
+            if (y == Integer.MIN_VALUE) continue;
+            Material type = snap.getBlockType(lx, y, lz);
+            if (!t.purges(season, type)) continue;
+            plan.purge(PaintedBlockRegistry.pack(lx, y, lz), type, false);
+        }
+
+        // 1b) modo seeded: columnas sembradas de las estaciones de restauración recientes
+        if (in.seeded) {
+            for (SeasonalFloraController.FloraRule r : t.seededPurge(season)) {
+                for (Season placedIn : r.restoreSeasons) {
+                    int last = SeededFloraSlots.lastYearOf(placedIn, season, in.year);
+                    for (int back = 0; back < in.lookbackYears; back++) {
+                        for (int k = 0; k < r.restoreTriesPerChunk; k++) {
+                            int col = SeededFloraSlots.column(in.seed, r.seedSalt, cx, cz, placedIn, last - back, k);
+                            int lx = SeededFloraSlots.localX(col);
+                            int lz = SeededFloraSlots.localZ(col);
+                            int y = findPurgeCandidate(snap, t, lx, lz, in);
+                            if (y == Integer.MIN_VALUE) continue;
+                            Material type = snap.getBlockType(lx, y, lz);
+                            if (!r.blocks.contains(type)) continue;
+                            plan.purge(PaintedBlockRegistry.pack(lx, y, lz), type, true);
+                        }
+                    }
+                }
+            }
+        }
+
+        // 2) restauración: candidatas por regla (cap y distancia mínima se miran al aplicar)
+        for (SeasonalFloraController.FloraRule r : t.restoreCandidates(season)) {
+            if (rnd.nextDouble() > r.restoreChance) continue;
+
+            for (int tries = 0; tries < r.restoreTriesPerChunk; tries++) {
+                int lx, lz;
+                if (in.seeded) {
+                    int col = SeededFloraSlots.column(in.seed, r.seedSalt, cx, cz, season, in.year, tries);
+                    lx = SeededFloraSlots.localX(col);
+                    lz = SeededFloraSlots.localZ(col);
+                } else {
+                    lx = rnd.nextInt(16);
+                    lz = rnd.nextInt(16);
+                }
+                int y = snap.getHighestBlockYAt(lx, lz);
+                if (y < in.minH || y >= in.maxH) continue;
+
+                Material top = snap.getBlockType(lx, y, lz);
+                if (isLiquid(top)) continue;
+
+                int py = top.isAir() ? y : y + 1;
+                if (py >= in.maxH || py - 1 < in.minH) continue;
+                if (!snap.getBlockType(lx, py, lz).isAir()) continue;
+
+                Biome biome = snap.getBiome(lx, py, lz);
+                if (!t.allows(r, biome)) continue;
+
+                int rawLight = Math.max(snap.getBlockSkyLight(lx, py, lz), snap.getBlockEmittedLight(lx, py, lz));
+                if (rawLight < r.minLight) continue;
+
+                Material ground = snap.getBlockType(lx, py - 1, lz);
+                if (r.requireSolidGround) {
+                    if (!ground.isSolid()) continue;
+                    if (!r.groundBlocks.isEmpty() && !r.groundBlocks.contains(ground)) continue;
+                }
+
+                if (r.forbidCanopy && !isOpenSky(snap, lx, py, lz, r.canopyCheckHeight, in.maxH)) continue;
+
+                plan.place(r, PaintedBlockRegistry.pack(lx, py, lz), ground);
+            }
+        }
+
+        return plan;
+    }
+
+    /** Igual que SeasonalFloraController#findPurgeCandidate, sobre el snapshot. MIN_VALUE = nada. */
+    private static int findPurgeCandidate(ChunkSnapshot snap, FloraDecisionTables t, int lx, int lz, Input in) {
+        int surfaceY = snap.getHighestBlockYAt(lx, lz);
+        int maxY = Math.min(in.maxH - 1, surfaceY + 2);
+        int minY = Math.max(in.minH, surfaceY - Math.max(1, in.scanDepth));
+
+        for (int y = maxY; y >= minY; y--) {
+            Material m = snap.getBlockType(lx, y, lz);
+            if (m == Material.SNOW || m == Material.SNOW_BLOCK) continue;
+            if (t.isFlora(m)) return y;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private static boolean isOpenSky(ChunkSnapshot snap, int lx, int y, int lz, int height, int maxH) {
+        for (int i = 1; i <= height; i++) {
+            int yy = y + i;
+            if (yy >= maxH) return true;
+            Material m = snap.getBlockType(lx, yy, lz);
+            if (!m.isAir() && !m.isTransparent()) return false;
+        }
+        return true;
+    }
+
+    private static boolean isLiquid(Material m) {
+        return m == Material.WATER || m == Material.LAVA || m == Material.BUBBLE_COLUMN;
+    }
+}
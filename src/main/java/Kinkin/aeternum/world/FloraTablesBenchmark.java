@@ -0,0 +1,173 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import Kinkin.aeternum.calendar.Season;
+import org.bukkit.Material;
+import org.bukkit.block.Biome;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Comparativa del coste de DECIDIR por chunk (sin tocar el mundo) entre el
+ * recorrido viejo de reglas (lista por material + EnumSet/HashSet) y las tablas
+ * de {@link FloraDecisionTables}: 28 muestras de purga y la pasada de
+ * restauración con sus intentos. Se lanza con /season flora bench sobre
+ * 40 reglas sintéticas; los bloques, biomas y "¿es del plugin?" vienen de
+ * arrays precalculados para medir solo la decisión.
+ */
+final class FloraTablesBenchmark {
+
+    private static final int RULES = 40;
+    private static final int SAMPLES = 28;
+    private static final int ROUNDS = 5;
+
+    private static final Material[] FLORA = {
+            Material.DANDELION, Material.POPPY, Material.BLUE_ORCHID, Material.ALLIUM, Material.AZURE_BLUET,
+            Material.RED_TULIP, Material.ORANGE_TULIP, Material.WHITE_TULIP, Material.PINK_TULIP, Material.OXEYE_DAISY,
+            Material.CORNFLOWER, Material.LILY_OF_THE_VALLEY, Material.SUNFLOWER, Material.LILAC, Material.ROSE_BUSH,
+            Material.PEONY, Material.SHORT_GRASS, Material.TALL_GRASS, Material.FERN, Material.LARGE_FERN,
+            Material.DEAD_BUSH, Material.SWEET_BERRY_BUSH, Material.BROWN_MUSHROOM, Material.RED_MUSHROOM, Material.PINK_PETALS
+    };
+    private static final Material[] GROUND = {Material.GRASS_BLOCK, Material.DIRT, Material.STONE, Material.SAND, Material.PODZOL};
+    private static final Biome[] BIOMES = {
+            Biome.PLAINS, Biome.FOREST, Biome.BIRCH_FOREST, Biome.FLOWER_FOREST, Biome.TAIGA, Biome.SAVANNA,
+            Biome.MEADOW, Biome.SWAMP, Biome.DARK_FOREST, Biome.SUNFLOWER_PLAINS, Biome.RIVER, Biome.DESERT
+    };
+
+    private FloraTablesBenchmark() {}
+
+    static List<String> run(AeternumSeasonsPlugin plugin, int chunks) {
+        SplittableRandom rnd = new SplittableRandom(chunks);
+
+        // reglas sintéticas, como las de config
+        YamlConfiguration yml = new YamlConfiguration();
+        Season[] seasons = Season.values();
+        List<SeasonalFloraController.FloraRule> list = new ArrayList<>();
+        for (int i = 0; i < RULES; i++) {
+            ConfigurationSection sec = yml.createSection("r" + i);
+            sec.set("enabled", i % 8 != 7);
+            sec.set("purge_when_disabled", true);
+            List<String> blocks = new ArrayList<>();
+            for (int k = 0, n = 1 + rnd.nextInt(3); k < n; k++) blocks.add(FLORA[rnd.nextInt(FLORA.length)].name());
+            sec.set("blocks", blocks);
+            sec.set("remove_seasons", List.of(seasons[i % seasons.length].name()));
+            sec.set("restore_seasons", List.of(seasons[(i + 1) % seasons.length].name(), seasons[(i + 2) % seasons.length].name()));
+            sec.set("purge_natural", i % 3 == 0);
+            sec.set("restore_chance", 0.35);
+            sec.set("restore_tries_per_chunk", 6);
+            List<String> biomes = new ArrayList<>();
+            for (int k = 0, n = 2 + rnd.nextInt(4); k < n; k++) biomes.add(BIOMES[rnd.nextInt(BIOMES.length)].name().toLowerCase(Locale.ROOT));
+            sec.set("biomes", biomes);
+            SeasonalFloraController.FloraRule r = SeasonalFloraController.FloraRule.fromConfig("r" + i, sec, plugin);
+            r.index = list.size();
+            list.add(r);
+        }
+        SeasonalFloraController.FloraRule[] rules = list.toArray(new SeasonalFloraController.FloraRule[0]);
+
+        Map<Material, List<SeasonalFloraController.FloraRule>> byMaterial = new EnumMap<>(Material.class);
+        for (SeasonalFloraController.FloraRule r : rules) {
+            for (Material m : r.blocks) byMaterial.computeIfAbsent(m, k -> new ArrayList<>()).add(r);
+        }
+        FloraDecisionTables tables = FloraDecisionTables.compile(rules);
+
+        // entrada: la mitad de las muestras son flora, un 30% puesta por el plugin
+        int perChunk = SAMPLES + RULES * 6;
+        Material[] types = new Material[chunks * SAMPLES];
+        boolean[] placed = new boolean[types.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = rnd.nextBoolean() ? FLORA[rnd.nextInt(FLORA.length)] : GROUND[rnd.nextInt(GROUND.length)];
+            placed[i] = rnd.nextInt(10) < 3;
+        }
+        Biome[] biomes = new Biome[chunks * perChunk];
+        for (int i = 0; i < biomes.length; i++) biomes[i] = BIOMES[rnd.nextInt(BIOMES.length)];
+        double[] rolls = new double[chunks * RULES];
+        for (int i = 0; i < rolls.length; i++) rolls[i] = rnd.nextDouble();
+
+        long oldNs = Long.MAX_VALUE;
+        long newNs = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (Season s : seasons) {
+                long t0 = System.nanoTime();
+                sink += legacy(s, byMaterial, rules, types, placed, biomes, rolls, chunks);
+                long t1 = System.nanoTime();
+                sink += compiled(s, tables, types, placed, biomes, rolls, chunks);
+                long t2 = System.nanoTime();
+                if (round > 0) { // la primera vuelta es calentamiento
+                    oldNs = Math.min(oldNs, t1 - t0);
+                    newNs = Math.min(newNs, t2 - t1);
+                }
+            }
+        }
+
+        List<String> out = new ArrayList<>();
+        out.add("rules=" + RULES + " chunks=" + chunks + " samples/chunk=" + SAMPLES + " (check=" + (sink & 0xFF) + ")");
+        out.add(String.format(Locale.ROOT, "rule loop: %.0f ns/chunk", oldNs / (double) chunks));
+        out.add(String.format(Locale.ROOT, "tables:    %.0f ns/chunk (x%.1f)", newNs / (double) chunks,
+                oldNs / (double) Math.max(1, newNs)));
+        return out;
+    }
+
+    /** Réplica de la decisión de processChunk antes de compilar las reglas. */
+    private static long legacy(Season season, Map<Material, List<SeasonalFloraController.FloraRule>> byMaterial,
+                               SeasonalFloraController.FloraRule[] rules, Material[] types, boolean[] placed,
+                               Biome[] biomes, double[] rolls, int chunks) {
+        long acc = 0;
+        int perChunk = SAMPLES + RULES * 6;
+        for (int c = 0; c < chunks; c++) {
+            for (int i = c * SAMPLES, end = i + SAMPLES; i < end; i++) {
+                List<SeasonalFloraController.FloraRule> list = byMaterial.get(types[i]);
+                if (list == null) continue;
+                for (SeasonalFloraController.FloraRule r : list) {
+                    boolean purgeSeason = r.enabled && r.removeSeasons.contains(season);
+                    boolean purgeDisabled = (!r.enabled && r.purgeWhenDisabled);
+                    if (!purgeSeason && !purgeDisabled) continue;
+                    boolean isPlugin = placed[i];
+                    boolean canPurge = (r.purgePluginPlaced && isPlugin) || (r.purgeNatural && !isPlugin);
+                    if (!canPurge) continue;
+                    Material replace = (r.replaceWith != null) ? r.replaceWith : Material.AIR;
+                    acc += replace.ordinal();
+                    break;
+                }
+            }
+            int bi = c * perChunk + SAMPLES;
+            for (SeasonalFloraController.FloraRule r : rules) {
+                if (!r.enabled) continue;
+                if (!r.restoreSeasons.contains(season)) continue;
+                if (rolls[c * RULES + r.index] > r.restoreChance) continue;
+                for (int tries = 0; tries < r.restoreTriesPerChunk; tries++) {
+                    if (r.isBiomeAllowed(biomes[bi + r.index * 6 + tries])) acc++;
+                }
+            }
+        }
+        return acc;
+    }
+
+    private static long compiled(Season season, FloraDecisionTables t, Material[] types, boolean[] placed,
+                                 Biome[] biomes, double[] rolls, int chunks) {
+        long acc = 0;
+        int perChunk = SAMPLES + RULES * 6;
+        for (int c = 0; c < chunks; c++) {
+            for (int i = c * SAMPLES, end = i + SAMPLES; i < end; i++) {
+                if (!t.purges(season, types[i])) continue;
+                Material replace = t.purgeReplacement(season, types[i], placed[i]);
+                if (replace != null) acc += replace.ordinal();
+            }
+            int bi = c * perChunk + SAMPLES;
+            for (SeasonalFloraController.FloraRule r : t.restoreCandidates(season)) {
+                if (rolls[c * RULES + r.index] > r.restoreChance) continue;
+                for (int tries = 0; tries < r.restoreTriesPerChunk; tries++) {
+                    if (t.allows(r, biomes[bi + r.index * 6 + tries])) acc++;
+                }
+            }
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,118 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.util.LongObjectOpenMap;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Nudges anti-flicker pendientes de UN jugador.
+ *
+ * - La cola guarda claves de PaintedBlockRegistry.chunkKey (decodificables):
+ *   sacar un nudge es O(1), sin buscar el chunk en el cuadrado de vista.
+ * - El cooldown por chunk es una rueda de tiempo: cada chunk encolado cae en
+ *   la ranura de "ahora"; al girar, la ranura que cumple el cooldown se vacía
+ *   entera. Nada crece sin límite ni hace falta barrer.
+ * - El mundo es el de la cola: si el jugador cambia de mundo se vacía.
+ *
+ * Todo sincronizado sobre la propia cola (encolan hilos de región, vacía el del jugador).
+ */
+final class NudgeQueue {
+
+    private static final long SLOT_MS = 250L;
+    private static final Object COOLING = Boolean.TRUE;
+
+    private UUID world;
+
+    // cola circular de claves
+    private long[] ring = new long[16];
+    private int head, size;
+
+    // rueda de cooldowns
+    private final long[][] wheel;
+    private final int[] wheelSize;
+    private final LongObjectOpenMap<Object> cooling = new LongObjectOpenMap<>();
+    private long wheelSlot = Long.MIN_VALUE;
+
+    NudgeQueue(long cooldownMs) {
+        int slots = (int) Math.max(1, (cooldownMs + SLOT_MS - 1) / SLOT_MS) + 1;
+        this.wheel = new long[slots][];
+        this.wheelSize = new int[slots];
+    }
+
+    /** Encola si el chunk no está en cooldown. false = descartado. */
+    synchronized boolean offer(World w, int cx, int cz, long nowMs) {
+        UUID wid = w.getUID();
+        if (!wid.equals(world)) {
+            clearLocked();
+            world = wid;
+        }
+        advance(nowMs);
+
+        long k = PaintedBlockRegistry.chunkKey(cx, cz);
+        if (cooling.containsKey(k)) return false;
+        cooling.put(k, COOLING);
+        int b = (int) Math.floorMod(wheelSlot, (long) wheel.length);
+        long[] bucket = wheel[b];
+        if (bucket == null) bucket = wheel[b] = new long[8];
+        else if (wheelSize[b] == bucket.length) bucket = wheel[b] = Arrays.copyOf(bucket, bucket.length << 1);
+        bucket[wheelSize[b]++] = k;
+
+        if (size == ring.length) grow();
+        ring[(head + size) & (ring.length - 1)] = k;
+        size++;
+        return true;
+    }
+
+    /** Saca hasta {@code max} claves a {@code out}; devuelve cuántas. Vacía si el mundo no es el del jugador. */
+    synchronized int poll(World w, long[] out, int max, long nowMs) {
+        advance(nowMs);
+        if (world == null || !world.equals(w.getUID())) {
+            size = 0;
+            return 0;
+        }
+        int n = Math.min(max, size);
+        for (int i = 0; i < n; i++) {
+            out[i] = ring[head];
+            head = (head + 1) & (ring.length - 1);
+        }
+        size -= n;
+        return n;
+    }
+
+    /** Gira la rueda hasta {@code nowMs}: las ranuras que cumplen el cooldown se liberan. */
+    private void advance(long nowMs) {
+        long target = nowMs / SLOT_MS;
+        if (wheelSlot == Long.MIN_VALUE || target - wheelSlot >= wheel.length) {
+            // primera vez o parado más de una vuelta: todo caducó
+            if (!cooling.isEmpty()) {
+                cooling.clear();
+                Arrays.fill(wheelSize, 0);
+            }
+            wheelSlot = target;
+            return;
+        }
+        while (wheelSlot < target) {
+            wheelSlot++;
+            int b = (int) Math.floorMod(wheelSlot, (long) wheel.length);
+            long[] bucket = wheel[b];
+            for (int i = 0; i < wheelSize[b]; i++) cooling.remove(bucket[i]);
+            wheelSize[b] = 0;
+        }
+    }
+
+    private void grow() {
+        long[] bigger = new long[ring.length << 1];
+        for (int i = 0; i < size; i++) bigger[i] = ring[(head + i) & (ring.length - 1)];
+        ring = bigger;
+        head = 0;
+    }
+
+    private void clearLocked() {
+        size = 0;
+        head = 0;
+        cooling.clear();
+        Arrays.fill(wheelSize, 0);
+    }
+}
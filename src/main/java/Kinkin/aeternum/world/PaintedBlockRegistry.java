@@ -0,0 +1,505 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import Kinkin.aeternum.util.IntOpenSet;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro de bloques pintados/protegidos por el WinterWorldPainter,
+ * indexado por mundo → chunk → coordenada empaquetada (int).
+ *
+ * - Sin Strings: cada bloque es un int = (y << 8) | (z & 15) << 4 | (x & 15).
+ * - Un monitor por chunk (en Folia, un chunk pertenece a una sola región,
+ *   así que prácticamente no hay contención entre hilos).
+ * - Las slices viven en {@link ChunkSeasonState} (slot "winter_painted"): al
+ *   descargar un chunk sus entradas salen de memoria y se guardan en el
+ *   PersistentDataContainer del chunk; al volver a cargarlo se recuperan.
+ */
+public final class PaintedBlockRegistry {
+
+    public enum Kind {
+        SNOW("winter_snow"),
+        ICE("winter_ice"),
+        PROTECTED_SNOW("winter_protected_snow"),
+        PROTECTED_ICE("winter_protected_ice");
+
+        final String pdcName;
+
+        Kind(String pdcName) {
+            this.pdcName = pdcName;
+        }
+    }
+
+    private static final String LEAVES_PDC_PREFIX = "winter_leaves_";
+
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<ChunkSlice> slot;
+
+    private final EnumMap<Kind, NamespacedKey> pdcKeys = new EnumMap<>(Kind.class);
+    private final AeternumSeasonsPlugin plugin;
+
+    private final AtomicInteger[] counts = new AtomicInteger[Kind.values().length];
+    private final AtomicInteger leafCount = new AtomicInteger();
+
+    // Folia: los chunks ya cargados al registrar no se leen de golpe; su PDC se lee al primer acceso
+    private volatile boolean lazyLoad;
+
+    public PaintedBlockRegistry(AeternumSeasonsPlugin plugin) {
+        this.plugin = plugin;
+        for (Kind k : Kind.values()) {
+            pdcKeys.put(k, new NamespacedKey(plugin, k.pdcName));
+            counts[k.ordinal()] = new AtomicInteger();
+        }
+        this.state = plugin.getChunkState();
+        this.slot = state.slot("winter_painted", new ChunkSeasonState.Lifecycle<>() {
+            @Override
+            public ChunkSlice load(Chunk ch) {
+                return readPdc(ch);
+            }
+
+            @Override
+            public void unload(Chunk ch, ChunkSlice s) {
+                uncount(s);
+                spill(ch, s);
+            }
+        });
+    }
+
+    /* ===================== claves / empaquetado ===================== */
+
+    static long chunkKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xffffffffL);
+    }
+
+    static int chunkX(long chunkKey) {
+        return (int) (chunkKey >> 32);
+    }
+
+    static int chunkZ(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    static int pack(int x, int y, int z) {
+        return (y << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    static int unpackY(int packed) {
+        return packed >> 8;
+    }
+
+    static int unpackLocalX(int packed) {
+        return packed & 15;
+    }
+
+    static int unpackLocalZ(int packed) {
+        return (packed >> 4) & 15;
+    }
+
+    /* ===================== slice por chunk ===================== */
+
+    /** Estado de un chunk. Todos los accesos van sincronizados sobre la propia slice. */
+    static final class ChunkSlice {
+        final IntOpenSet[] sets = new IntOpenSet[Kind.values().length];
+
+        // paleta de hojas: material original → posiciones
+        Material[] leafPalette = new Material[0];
+        IntOpenSet[] leafSets = new IntOpenSet[0];
+
+        IntOpenSet set(Kind k, boolean create) {
+            IntOpenSet s = sets[k.ordinal()];
+            if (s == null && create) {
+                s = new IntOpenSet();
+                sets[k.ordinal()] = s;
+            }
+            return s;
+        }
+
+        IntOpenSet leafSet(Material original, boolean create) {
+            for (int i = 0; i < leafPalette.length; i++) {
+                if (leafPalette[i] == original) return leafSets[i];
+            }
+            if (!create) return null;
+            int n = leafPalette.length;
+            leafPalette = Arrays.copyOf(leafPalette, n + 1);
+            leafSets = Arrays.copyOf(leafSets, n + 1);
+            leafPalette[n] = original;
+            leafSets[n] = new IntOpenSet();
+            return leafSets[n];
+        }
+
+        Material leafOriginal(int packed) {
+            for (int i = 0; i < leafPalette.length; i++) {
+                if (leafSets[i].contains(packed)) return leafPalette[i];
+            }
+            return null;
+        }
+
+        int leafSize() {
+            int n = 0;
+            for (IntOpenSet s : leafSets) n += s.size();
+            return n;
+        }
+
+        boolean isEmpty() {
+            for (IntOpenSet s : sets) {
+                if (s != null && !s.isEmpty()) return false;
+            }
+            return leafSize() == 0;
+        }
+    }
+
+    /**
+     * Slice del chunk. Antes de empezar una vacía se lee el PDC del chunk (si está cargado),
+     * igual que {@code SeasonalFloraController.slice()}: así una marca nueva no pisa lo volcado
+     * en un reload. Con {@link #lazyLoad} también al consultar; la slice vacía que queda hace
+     * de marca de "ya leído".
+     */
+    private ChunkSlice slice(World w, int cx, int cz, boolean create) {
+        ChunkSlice s = state.get(w, cx, cz, slot);
+        if (s != null || !(create || lazyLoad)) return s;
+        if (!w.isChunkLoaded(cx, cz)) {
+            return create ? state.getOrCreate(w, cx, cz, slot, ChunkSlice::new) : null;
+        }
+        ChunkSlice read = readPdc(w.getChunkAt(cx, cz));
+        ChunkSlice fresh = read != null ? read : new ChunkSlice();
+        s = state.getOrCreate(w, cx, cz, slot, () -> fresh);
+        if (s != fresh && read != null) uncount(read); // otro hilo la cargó antes
+        return s;
+    }
+
+    /* ===================== API por bloque ===================== */
+
+    public boolean add(Kind kind, Block b) {
+        ChunkSlice s = slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, true);
+        boolean added;
+        synchronized (s) {
+            added = s.set(kind, true).add(pack(b.getX(), b.getY(), b.getZ()));
+        }
+        if (added) counts[kind.ordinal()].incrementAndGet();
+        return added;
+    }
+
+    public boolean contains(Kind kind, Block b) {
+        if (!lazyLoad && counts[kind.ordinal()].get() == 0) return false;
+        ChunkSlice s = slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, false);
+        if (s == null) return false;
+        synchronized (s) {
+            IntOpenSet set = s.set(kind, false);
+            return set != null && set.contains(pack(b.getX(), b.getY(), b.getZ()));
+        }
+    }
+
+    public boolean remove(Kind kind, Block b) {
+        if (!lazyLoad && counts[kind.ordinal()].get() == 0) return false;
+        ChunkSlice s = slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, false);
+        if (s == null) return false;
+        boolean removed;
+        synchronized (s) {
+            IntOpenSet set = s.set(kind, false);
+            removed = set != null && set.remove(pack(b.getX(), b.getY(), b.getZ()));
+        }
+        if (removed) counts[kind.ordinal()].decrementAndGet();
+        return removed;
+    }
+
+    public int size(Kind kind) {
+        return counts[kind.ordinal()].get();
+    }
+
+    /* ===================== hojas ===================== */
+
+    public boolean hasLeaf(Block b) {
+        return getLeafOriginal(b) != null;
+    }
+
+    public Material getLeafOriginal(Block b) {
+        if (!lazyLoad && leafCount.get() == 0) return null;
+        ChunkSlice s = slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, false);
+        if (s == null) return null;
+        synchronized (s) {
+            return s.leafOriginal(pack(b.getX(), b.getY(), b.getZ()));
+        }
+    }
+
+    public void putLeaf(Block b, Material original) {
+        ChunkSlice s = slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, true);
+        boolean added;
+        synchronized (s) {
+            int p = pack(b.getX(), b.getY(), b.getZ());
+            if (s.leafOriginal(p) != null) return;
+            added = s.leafSet(original, true).add(p);
+        }
+        if (added) leafCount.incrementAndGet();
+    }
+
+    public int leafSize() {
+        return leafCount.get();
+    }
+
+    /* ===================== recorrido por chunk ===================== */
+
+    @FunctionalInterface
+    public interface BlockVisitor {
+        void visit(World w, int x, int y, int z);
+    }
+
+    @FunctionalInterface
+    public interface LeafVisitor {
+        void visit(World w, int x, int y, int z, Material original);
+    }
+
+    /** Chunks (clave empaquetada) con alguna entrada en este mundo. */
+    public long[] chunksOf(World w) {
+        return state.chunksWith(w, slot);
+    }
+
+    /**
+     * Saca TODAS las entradas de un tipo en un chunk y las pasa al visitor
+     * (fuera del lock). Coste O(entradas del chunk).
+     */
+    public int drain(Kind kind, World w, int cx, int cz, BlockVisitor visitor) {
+        ChunkSlice s = state.get(w, cx, cz, slot);
+        if (s == null) return 0;
+        int[] packed;
+        synchronized (s) {
+            IntOpenSet set = s.set(kind, false);
+            if (set == null || set.isEmpty()) return 0;
+            packed = set.toArray();
+            set.clear();
+        }
+        counts[kind.ordinal()].addAndGet(-packed.length);
+        visitAll(w, cx, cz, packed, visitor);
+        return packed.length;
+    }
+
+    /** Saca hasta {@code max} hojas pintadas del chunk (fuera del lock). */
+    public int drainLeaves(World w, int cx, int cz, int max, LeafVisitor visitor) {
+        ChunkSlice s = state.get(w, cx, cz, slot);
+        if (s == null || max <= 0) return 0;
+
+        Material[] mats;
+        int[][] polled;
+        int[] sizes;
+        int total = 0;
+        synchronized (s) {
+            mats = s.leafPalette.clone();
+            polled = new int[mats.length][];
+            sizes = new int[mats.length];
+            for (int i = 0; i < mats.length && total < max; i++) {
+                int[] buf = new int[Math.min(max - total, s.leafSets[i].size())];
+                sizes[i] = s.leafSets[i].poll(buf, buf.length);
+                polled[i] = buf;
+                total += sizes[i];
+            }
+        }
+        leafCount.addAndGet(-total);
+
+        int bx = cx << 4;
+        int bz = cz << 4;
+        for (int i = 0; i < mats.length; i++) {
+            for (int j = 0; j < sizes[i]; j++) {
+                int p = polled[i][j];
+                visitor.visit(w, bx + unpackLocalX(p), unpackY(p), bz + unpackLocalZ(p), mats[i]);
+            }
+        }
+        return total;
+    }
+
+    /** Recorre (sin sacar) las entradas de un tipo en un chunk. */
+    public void forEach(Kind kind, World w, int cx, int cz, BlockVisitor visitor) {
+        ChunkSlice s = state.get(w, cx, cz, slot);
+        if (s == null) return;
+        int[] packed;
+        synchronized (s) {
+            IntOpenSet set = s.set(kind, false);
+            if (set == null || set.isEmpty()) return;
+            packed = set.toArray();
+        }
+        visitAll(w, cx, cz, packed, visitor);
+    }
+
+    /**
+     * Copia ordenada (para binarySearch) de las entradas de un tipo en un chunk.
+     * Útil para consultar desde hilos async sin tocar el registro.
+     */
+    public int[] snapshotSorted(Kind kind, World w, int cx, int cz) {
+        ChunkSlice s = state.get(w, cx, cz, slot);
+        if (s == null) return new int[0];
+        int[] packed;
+        synchronized (s) {
+            IntOpenSet set = s.set(kind, false);
+            if (set == null || set.isEmpty()) return new int[0];
+            packed = set.toArray();
+        }
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    private static void visitAll(World w, int cx, int cz, int[] packed, BlockVisitor visitor) {
+        int bx = cx << 4;
+        int bz = cz << 4;
+        for (int p : packed) {
+            visitor.visit(w, bx + unpackLocalX(p), unpackY(p), bz + unpackLocalZ(p));
+        }
+    }
+
+    /** Olvida el chunk si ya no tiene entradas (hilo dueño: borra también el último volcado al PDC). */
+    public void compact(World w, int cx, int cz) {
+        ChunkSlice gone = state.removeIf(w, cx, cz, slot, s -> {
+            synchronized (s) {
+                return s.isEmpty();
+            }
+        });
+        if (gone != null && w.isChunkLoaded(cx, cz)) clearPdc(w.getChunkAt(cx, cz).getPersistentDataContainer());
+    }
+
+    public void clear() {
+        state.clear(slot);
+        for (AtomicInteger c : counts) c.set(0);
+        leafCount.set(0);
+    }
+
+    /** El pintor se desregistra: suelta el slot (sin volcar; eso lo hace quien llame antes). */
+    public void detach() {
+        state.detach(slot);
+        for (AtomicInteger c : counts) c.set(0);
+        leafCount.set(0);
+    }
+
+    /* ===================== ciclo de vida de chunks ===================== */
+
+    /**
+     * Al descargar: quitamos el chunk de memoria y volcamos sus entradas al PDC
+     * del chunk, para que vuelvan a estar disponibles cuando se cargue otra vez.
+     * Sin slice (todo revertido y compactado) se borra lo que quedara del último
+     * volcado: si no, al volver a cargar resucitarían entradas ya revertidas.
+     */
+    public void onChunkUnload(Chunk ch) {
+        ChunkSlice s = state.remove(ch.getWorld(), ch.getX(), ch.getZ(), slot);
+        if (s != null) {
+            uncount(s);
+            spill(ch, s);
+        } else {
+            clearPdc(ch.getPersistentDataContainer());
+        }
+    }
+
+    /**
+     * Folia: el PDC solo se toca desde la región del chunk. Sacamos ya la slice (antes
+     * del detach) y el volcado se programa en su región.
+     */
+    public void spillOnRegion(World w, int cx, int cz) {
+        ChunkSlice s = state.remove(w, cx, cz, slot);
+        if (s == null) return;
+        uncount(s);
+        Location loc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+        plugin.getScheduler().runAtLocation(loc, task -> {
+            if (w.isChunkLoaded(cx, cz)) spill(w.getChunkAt(cx, cz), s);
+        });
+    }
+
+    private void clearPdc(PersistentDataContainer pdc) {
+        if (pdc.isEmpty()) return;
+        for (Kind k : Kind.values()) pdc.remove(pdcKeys.get(k));
+        for (NamespacedKey key : new ArrayList<>(pdc.getKeys())) {
+            if (isLeafKey(key)) pdc.remove(key);
+        }
+    }
+
+    private void spill(Chunk ch, ChunkSlice s) {
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        synchronized (s) {
+            for (Kind k : Kind.values()) {
+                IntOpenSet set = s.set(k, false);
+                NamespacedKey key = pdcKeys.get(k);
+                if (set == null || set.isEmpty()) {
+                    pdc.remove(key);
+                    continue;
+                }
+                pdc.set(key, PersistentDataType.INTEGER_ARRAY, set.toArray());
+            }
+            for (NamespacedKey key : new ArrayList<>(pdc.getKeys())) {
+                if (isLeafKey(key)) pdc.remove(key);
+            }
+            for (int i = 0; i < s.leafPalette.length; i++) {
+                IntOpenSet set = s.leafSets[i];
+                if (set.isEmpty()) continue;
+                pdc.set(leafKey(s.leafPalette[i]), PersistentDataType.INTEGER_ARRAY, set.toArray());
+            }
+        }
+    }
+
+    /** Las entradas de una slice que sale de memoria dejan de contar. */
+    private void uncount(ChunkSlice s) {
+        synchronized (s) {
+            for (Kind k : Kind.values()) {
+                IntOpenSet set = s.set(k, false);
+                if (set != null) counts[k.ordinal()].addAndGet(-set.size());
+            }
+            leafCount.addAndGet(-s.leafSize());
+        }
+    }
+
+    /**
+     * Chunks ya cargados al registrar el pintor (reload): su PDC a mano. En Folia
+     * no se puede leer desde aquí; se lee al primer acceso a cada chunk.
+     */
+    public void loadLoadedChunks() {
+        if (plugin.getFoliaLib().isFolia()) lazyLoad = true;
+        else state.loadLoadedChunks(slot);
+    }
+
+    /** Al cargar: recuperamos lo que se volcó al PDC en el último unload. */
+    private ChunkSlice readPdc(Chunk ch) {
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        if (pdc.isEmpty()) return null;
+
+        ChunkSlice s = null;
+        for (Kind k : Kind.values()) {
+            int[] arr = pdc.get(pdcKeys.get(k), PersistentDataType.INTEGER_ARRAY);
+            if (arr == null || arr.length == 0) continue;
+            if (s == null) s = new ChunkSlice();
+            int added = 0;
+            synchronized (s) {
+                IntOpenSet set = s.set(k, true);
+                for (int p : arr) if (set.add(p)) added++;
+            }
+            counts[k.ordinal()].addAndGet(added);
+        }
+
+        for (NamespacedKey key : pdc.getKeys()) {
+            if (!isLeafKey(key)) continue;
+            Material original = Material.matchMaterial(key.getKey().substring(LEAVES_PDC_PREFIX.length()));
+            if (original == null) continue;
+            int[] arr = pdc.get(key, PersistentDataType.INTEGER_ARRAY);
+            if (arr == null || arr.length == 0) continue;
+            if (s == null) s = new ChunkSlice();
+            int added = 0;
+            synchronized (s) {
+                IntOpenSet set = s.leafSet(original, true);
+                for (int p : arr) if (set.add(p)) added++;
+            }
+            leafCount.addAndGet(added);
+        }
+        return s;
+    }
+
+    private NamespacedKey leafKey(Material original) {
+        return new NamespacedKey(plugin, LEAVES_PDC_PREFIX + original.name().toLowerCase(Locale.ROOT));
+    }
+
+    private boolean isLeafKey(NamespacedKey key) {
+        return key.getNamespace().equals(plugin.getName().toLowerCase(Locale.ROOT))
+                && key.getKey().startsWith(LEAVES_PDC_PREFIX);
+    }
+}
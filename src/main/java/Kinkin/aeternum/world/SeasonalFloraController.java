@@ -4,6 +4,8 @@ import Kinkin.aeternum.AeternumSeasonsPlugin;
 import Kinkin.aeternum.calendar.CalendarState;
 import Kinkin.aeternum.calendar.Season;
 import Kinkin.aeternum.calendar.SeasonService;
+import Kinkin.aeternum.util.IntOpenSet;
+import Kinkin.aeternum.util.LongObjectOpenMap;
 import org.bukkit.*;
 import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
@@ -14,13 +16,18 @@ import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.type.Cocoa;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 import com.tcoded.folialib.wrapper.task.WrappedTask;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
@@ -52,7 +59,9 @@ public final class SeasonalFloraController implements Listener, Runnable {
     private int tickPeriod;
     private int innerRadiusChunksCfg;
     private int outerRadiusChunksCfg;
-    private int budgetPerTick;
+    private AdaptiveBudgetController.Knob budgetPerTick;
+    // contadores / índice espacial: se actualizan cuando el servicio de mutaciones escribe de verdad
+    private final BlockMutationService.AppliedListener appliedListener = this::onMutationApplied;
     private int maxChunksPerTick;
     private boolean protectPlayerPlaced;
 
@@ -60,13 +69,27 @@ public final class SeasonalFloraController implements Listener, Runnable {
     private boolean allowInView;
     private int surfaceScanDepth;
 
-    // persistence
+    // persistence: en el PDC de cada chunk; el YAML viejo solo se importa
     private boolean persistPlacements;
     private int persistAutosaveMinutes;
     private File placementsFile;
     private boolean placementsLoaded;
     private volatile boolean placementsDirty;
+    private volatile boolean legacyDirty;
     private long nextAutosaveAtMs;
+    private final NamespacedKey pdcPlayer;
+    private final NamespacedKey pdcPlugin;
+
+    // placement_mode: seeded -> lo del plugin se recalcula (SeededFloraSlots), no se guarda
+    private boolean seededPlacement;
+    private int seededLookbackYears;
+    private volatile Season calendarSeason = Season.SPRING;
+    private volatile int calendarYear = 1;
+
+    // async_planning: snapshot -> plan async -> aplicar revalidando en el hilo dueño
+    private boolean asyncPlanning;
+    /** Chunks con un plan en vuelo (clave de {@link #chunkKey(World, int, int)}): no se replanifican. */
+    private final Set<Long> planning = ConcurrentHashMap.newKeySet();
 
     private WrappedTask task;
 
@@ -74,18 +97,102 @@ public final class SeasonalFloraController implements Listener, Runnable {
     private final Map<String, FloraRule> rules = new LinkedHashMap<>();
     /** Lookup rápido por Material -> reglas que lo afectan */
     private final Map<Material, List<FloraRule>> rulesByMaterial = new EnumMap<>(Material.class);
+    /** Reglas por índice; {@code rulesVersion} sube en cada recarga (invalida los contadores). */
+    private volatile FloraRule[] ruleArray = new FloraRule[0];
+    private volatile int rulesVersion;
+    /** Las mismas reglas compiladas en tablas (purga / restauración); se publica junto a {@code ruleArray}. */
+    private volatile FloraDecisionTables tables = FloraDecisionTables.EMPTY;
 
     /**
-     * Set de bloques colocados por jugadores para NO tocarlos jamás.
-     * Guardado por chunkKey -> set de blockKey.
+     * Por chunk cargado (slot "flora_placements" de {@link ChunkSeasonState}),
+     * posiciones empaquetadas como en {@link PaintedBlockRegistry#pack}:
+     * - player: bloques colocados por jugadores para NO tocarlos jamás,
+     * - plugin: bloques colocados por el plugin (para poder purgarlos sin tocar
+     *   lo natural ni lo del jugador).
+     * Se lee del PDC del chunk en el primer acceso y vuelve a él (solo si cambió)
+     * al descargar o en el autosave. Todos los accesos van sincronizados sobre la propia slice.
      */
-    private final Map<Long, Set<Long>> playerPlaced = new ConcurrentHashMap<>();
+    static final class FloraSlice {
+        final IntOpenSet player = new IntOpenSet();
+        final IntOpenSet plugin = new IntOpenSet();
+        boolean dirty;
+
+        /**
+         * Flora por regla (como mucho una por columna), índice = FloraRule.index.
+         * Se construye una vez desde un snapshot y luego sigue al índice espacial:
+         * sube cuando una columna gana su primera posición de la regla y baja cuando
+         * pierde la última. null = sin construir (o de otras reglas).
+         */
+        int[] counts;
+        int countsVersion;
+        boolean counting;
+
+        /**
+         * Índice espacial (mismo ciclo de vida que counts): por regla, posiciones
+         * empaquetadas ({@link PaintedBlockRegistry#pack}) de la flora conocida cerca
+         * de la superficie; spots[r][0..spotCount[r]).
+         */
+        int[][] spots;
+        int[] spotCount;
+
+        void addSpot(int rule, int pos) {
+            int[] arr = spots[rule];
+            int n = spotCount[rule];
+            for (int i = 0; i < n; i++) if (arr[i] == pos) return;
+            boolean newColumn = !hasColumn(rule, pos);
+            if (n == arr.length) arr = spots[rule] = Arrays.copyOf(arr, Math.max(4, n << 1));
+            arr[n] = pos;
+            spotCount[rule] = n + 1;
+            if (newColumn) counts[rule]++;
+        }
+
+        void removeSpot(int rule, int pos) {
+            int[] arr = spots[rule];
+            int n = spotCount[rule];
+            for (int i = 0; i < n; i++) {
+                if (arr[i] != pos) continue;
+                arr[i] = arr[n - 1];
+                spotCount[rule] = n - 1;
+                if (!hasColumn(rule, pos)) counts[rule] = Math.max(0, counts[rule] - 1);
+                return;
+            }
+        }
+
+        /** ¿Queda alguna posición de la regla en la columna de {@code pos}? */
+        private boolean hasColumn(int rule, int pos) {
+            int col = pos & 0xFF;
+            int[] arr = spots[rule];
+            for (int i = 0, n = spotCount[rule]; i < n; i++) {
+                if ((arr[i] & 0xFF) == col) return true;
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return player.isEmpty() && plugin.isEmpty();
+        }
+    }
+
+    /** Lo importado del YAML viejo para un chunk, hasta que cargue y pase a su PDC. */
+    private static final class Parked {
+        final int[] player;
+        final int[] plugin;
+
+        Parked(int[] player, int[] plugin) {
+            this.player = player;
+            this.plugin = plugin;
+        }
+    }
 
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<FloraSlice> slot;
+    private final Map<UUID, LongObjectOpenMap<Parked>> parked = new ConcurrentHashMap<>();
     /**
-     * Set de bloques colocados por el plugin (para poder purgarlos sin tocar lo natural ni lo del jugador).
-     * Guardado por chunkKey -> set de blockKey.
+     * Entradas v1 que ningún mundo cargado supo decodificar (mundos que cargan más
+     * tarde: Multiverse...). Se guardan tal cual en el YAML y se reintentan en cada
+     * WorldLoadEvent; nunca se tiran. Sincronizado sobre {@code v1Pending}.
      */
-    private final Map<Long, Set<Long>> pluginPlaced = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, List<String>>> v1Pending = new HashMap<>();
 
     private static final int OFFSETS_STEP = 1;        // chunks
     private static final int SAMPLES_PER_CHUNK = 28;  // muestreo por chunk para limpieza
@@ -94,12 +201,27 @@ public final class SeasonalFloraController implements Listener, Runnable {
         this.plugin = plugin;
         this.seasons = seasons;
         this.placementsFile = new File(plugin.getDataFolder(), "seasonal_flora_placements.yml");
+        this.pdcPlayer = new NamespacedKey(plugin, "flora_player");
+        this.pdcPlugin = new NamespacedKey(plugin, "flora_plugin");
+        this.state = plugin.getChunkState();
+        this.slot = state.slot("flora_placements", new ChunkSeasonState.Lifecycle<>() {
+            @Override
+            public FloraSlice load(Chunk ch) {
+                return null; // perezoso: el PDC se lee en el primer acceso (slice)
+            }
+
+            @Override
+            public void unload(Chunk ch, FloraSlice s) {
+                if (persistPlacements) writeFlora(ch, s);
+            }
+        });
         reloadFromConfig();
         loadPlacementsIfNeeded();
     }
 
     public void register() {
         Bukkit.getPluginManager().registerEvents(this, plugin);
+        plugin.getMutations().addListener(appliedListener);
         if (task != null) task.cancel();
         if (!enabled) return;
         this.task = plugin.getScheduler().runTimer(this, 40L, tickPeriod);
@@ -110,13 +232,42 @@ public final class SeasonalFloraController implements Listener, Runnable {
         task = null;
 
         // Guarda placements antes de limpiar (para no perder protección / purga tras reinicios)
-        savePlacementsIfNeeded(true);
+        if (persistPlacements) {
+            if (!plugin.getFoliaLib().isFolia()) {
+                // main thread: todos los chunks son nuestros; en Folia queda lo del último autosave
+                state.forEach(slot, (w, cx, cz, fs) -> {
+                    if (w.isChunkLoaded(cx, cz)) writeFlora(w.getChunkAt(cx, cz), fs);
+                });
+            }
+            if (legacyDirty) saveLegacyRemainder(false);
+        }
 
         HandlerList.unregisterAll(this);
+        plugin.getMutations().removeListener(appliedListener);
         rules.clear();
         rulesByMaterial.clear();
-        playerPlaced.clear();
-        pluginPlaced.clear();
+        tables = FloraDecisionTables.EMPTY;
+        state.detach(slot);
+        parked.clear();
+        synchronized (v1Pending) {
+            v1Pending.clear();
+        }
+    }
+
+    /** /season flora bench (solo con performance.debug_commands): coste de decisión por chunk, bucle de reglas vs tablas (async). */
+    public void startBenchmark(org.bukkit.command.CommandSender sender, int chunks) {
+        plugin.getScheduler().runAsync(task -> {
+            List<String> lines;
+            try {
+                lines = FloraTablesBenchmark.run(plugin, Math.max(1, chunks));
+            } catch (Throwable t) {
+                lines = Collections.singletonList("error: " + t.getMessage());
+            }
+            List<String> result = lines;
+            plugin.getScheduler().runNextTick(next -> {
+                for (String line : result) sender.sendMessage("§7[SeasonalFlora] " + line);
+            });
+        });
     }
 
     public void reloadFromConfig() {
@@ -124,7 +275,8 @@ public final class SeasonalFloraController implements Listener, Runnable {
         this.tickPeriod = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.tick_period_ticks", 10));
         this.innerRadiusChunksCfg = Math.max(0, plugin.cfg.climate.getInt("seasonal_flora.inner_radius_chunks", 0));
         this.outerRadiusChunksCfg = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.outer_radius_chunks", 8));
-        this.budgetPerTick = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.budget_blocks_per_tick", 120));
+        int budgetCfg = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.budget_blocks_per_tick", 120));
+        this.budgetPerTick = plugin.getBudgets().knob("flora_blocks", budgetCfg, 8, budgetCfg * 4);
         this.maxChunksPerTick = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.max_chunks_per_tick", 8));
         this.protectPlayerPlaced = plugin.cfg.climate.getBoolean("seasonal_flora.protect_player_placed", true);
 
@@ -133,12 +285,19 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
         this.persistPlacements = plugin.cfg.climate.getBoolean("seasonal_flora.persist_placements", true);
         this.persistAutosaveMinutes = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.persist_autosave_minutes", 5));
+        this.seededPlacement = "seeded".equalsIgnoreCase(plugin.cfg.climate.getString("seasonal_flora.placement_mode", "tracked"));
+        this.seededLookbackYears = Math.max(1, plugin.cfg.climate.getInt("seasonal_flora.seeded_lookback_years", 2));
+        this.asyncPlanning = plugin.cfg.climate.getBoolean("seasonal_flora.async_planning", true);
         if (!persistPlacements) {
             // si lo apagas, por seguridad limpiamos el tracking para no crecer RAM sin necesidad
-            playerPlaced.clear();
-            pluginPlaced.clear();
+            state.clear(slot);
+            parked.clear();
+            synchronized (v1Pending) {
+                v1Pending.clear();
+            }
             placementsLoaded = false;
             placementsDirty = false;
+            legacyDirty = false;
         } else {
             loadPlacementsIfNeeded();
             long now = System.currentTimeMillis();
@@ -147,6 +306,9 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
         rules.clear();
         rulesByMaterial.clear();
+        ruleArray = new FloraRule[0];
+        tables = FloraDecisionTables.EMPTY;
+        rulesVersion++;
 
         var sec = plugin.cfg.climate.getConfigurationSection("seasonal_flora.rules");
         if (sec == null) {
@@ -171,6 +333,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
                 continue;
             }
 
+            rule.index = rules.size();
             rules.put(id, rule);
             loaded++;
             if (!rule.enabled && rule.purgeWhenDisabled) purgeOnly++;
@@ -180,6 +343,11 @@ public final class SeasonalFloraController implements Listener, Runnable {
             }
         }
 
+        FloraRule[] arr = rules.values().toArray(new FloraRule[0]);
+        tables = FloraDecisionTables.compile(arr);
+        ruleArray = arr;
+        rulesVersion++;
+
         plugin.getLogger().info("[SeasonalFlora] Loaded " + loaded + " flora rules (" + purgeOnly + " purge-only).");
     }
 
@@ -240,6 +408,39 @@ public final class SeasonalFloraController implements Listener, Runnable {
         }
     }
 
+    /* ---- contadores e índice espacial por chunk: solo lo que de verdad pasó (MONITOR) ---- */
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaceCount(BlockPlaceEvent e) {
+        if (!enabled) return;
+        Block b = e.getBlockPlaced();
+        Material replaced = e.getBlockReplacedState().getType();
+        trackSpot(b, replaced, false);
+        trackSpot(b, b.getType(), true);
+        if (isDoublePlant(b.getType())) trackSpot(b.getRelative(BlockFace.UP), b.getType(), true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreakCount(BlockBreakEvent e) {
+        if (!enabled) return;
+        Block b = e.getBlock();
+        Material type = b.getType();
+        trackSpot(b, type, false);
+        if (isDoublePlant(type)) {
+            // la otra mitad cae con esta
+            trackSpot(b.getRelative(BlockFace.UP), type, false);
+            trackSpot(b.getRelative(BlockFace.DOWN), type, false);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockSpreadCount(BlockSpreadEvent e) {
+        if (!enabled) return;
+        Block b = e.getBlock();
+        trackSpot(b, b.getType(), false);
+        trackSpot(b, e.getNewState().getType(), true);
+    }
+
     @EventHandler(ignoreCancelled = true)
     public void onBlockFertilize(BlockFertilizeEvent e) {
         if (!enabled) return;
@@ -325,6 +526,25 @@ public final class SeasonalFloraController implements Listener, Runnable {
         }
     }
 
+    /** Un mundo que carga tarde puede decodificar entradas v1 pendientes. */
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent e) {
+        if (!persistPlacements) return;
+        Map<UUID, Map<Long, List<Integer>>> player = new HashMap<>();
+        Map<UUID, Map<Long, List<Integer>>> placed = new HashMap<>();
+        List<World> only = List.of(e.getWorld());
+        synchronized (v1Pending) {
+            if (v1Pending.isEmpty()) return;
+            decodeV1(v1Pending.remove("player"), only, player, v1Pending, "player");
+            decodeV1(v1Pending.remove("plugin"), only, placed, v1Pending, "plugin");
+        }
+        int n = parkV1(player, placed);
+        if (n > 0) {
+            legacyDirty = true;
+            plugin.getLogger().info("[SeasonalFlora] Importando placements v1 de " + e.getWorld().getName() + ": " + n + " chunks.");
+        }
+    }
+
     /* ============================= RUNNER ============================= */
 
     @Override
@@ -333,9 +553,12 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
         CalendarState st = seasons.getStateCopy();
         Season season = st.season;
+        calendarSeason = season;
+        calendarYear = st.year;
 
-        int maxChunks = Math.max(1, Math.min(maxChunksPerTick, Math.max(1, budgetPerTick)));
-        int perChunkBudget = Math.max(1, budgetPerTick / maxChunks);
+        int budgetNow = budgetPerTick.get();
+        int maxChunks = Math.max(1, Math.min(maxChunksPerTick, Math.max(1, budgetNow)));
+        int perChunkBudget = Math.max(1, budgetNow / maxChunks);
 
         // evita procesar el mismo chunk 2 veces este tick (por donuts solapados)
         Set<Long> processedThisTick = java.util.concurrent.ConcurrentHashMap.newKeySet();
@@ -344,7 +567,8 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
         for (Player p : Bukkit.getOnlinePlayers()) {
             if (remainingChunks.get() <= 0) break;
-            plugin.getScheduler().runAtEntity(p, task -> tickForPlayer(p, season, perChunkBudget, remainingChunks, processedThisTick));
+            int localBudget = budgetPerTick.forRegion(p, perChunkBudget);
+            plugin.getScheduler().runAtEntity(p, task -> tickForPlayer(p, season, localBudget, remainingChunks, processedThisTick));
         }
 
         autosaveMaybe();
@@ -397,6 +621,10 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
     private void scheduleChunkProcess(World w, int cx, int cz, Season season, int budget) {
         Location chunkLoc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+        if (asyncPlanning) {
+            schedulePlannedChunk(w, cx, cz, chunkLoc, season, budget);
+            return;
+        }
         plugin.getScheduler().runAtLocation(chunkLoc, task -> {
             if (!w.isChunkLoaded(cx, cz)) return;
             Chunk ch = w.getChunkAt(cx, cz);
@@ -404,6 +632,128 @@ public final class SeasonalFloraController implements Listener, Runnable {
         });
     }
 
+    /**
+     * Etapa 1 (hilo dueño): un snapshot del chunk. Etapa 2 (async): {@link FloraPlanner}.
+     * Etapa 3 (hilo dueño): {@link #applyPlan}. En el hilo del chunk solo queda la
+     * copia del snapshot y las pocas mutaciones del plan.
+     */
+    private void schedulePlannedChunk(World w, int cx, int cz, Location chunkLoc, Season season, int budget) {
+        long key = chunkKey(w, cx, cz);
+        if (!planning.add(key)) return; // ya hay un plan en vuelo para este chunk
+
+        plugin.getScheduler().runAtLocation(chunkLoc, task -> {
+            try {
+                if (!w.isChunkLoaded(cx, cz)) {
+                    planning.remove(key);
+                    return;
+                }
+                FloraPlanner.Input in = new FloraPlanner.Input();
+                in.snap = w.getChunkAt(cx, cz).getChunkSnapshot(true, true, false);
+                in.tables = tables;
+                in.season = season;
+                in.year = calendarYear;
+                in.minH = w.getMinHeight();
+                in.maxH = w.getMaxHeight();
+                in.scanDepth = surfaceScanDepth;
+                in.samples = SAMPLES_PER_CHUNK;
+                in.seeded = seededPlacement;
+                in.seed = seededPlacement ? w.getSeed() : 0L;
+                in.lookbackYears = seededLookbackYears;
+
+                plugin.getScheduler().runAsync(async -> {
+                    FloraPlanner.Plan plan = null;
+                    try {
+                        plan = FloraPlanner.plan(in);
+                    } catch (Throwable t) {
+                        plugin.getLogger().warning("[SeasonalFlora] plan error " + cx + "," + cz + ": " + t.getMessage());
+                    }
+                    if (plan == null || plan.isEmpty()) {
+                        planning.remove(key);
+                        return;
+                    }
+                    FloraPlanner.Plan ready = plan;
+                    plugin.getScheduler().runAtLocation(chunkLoc, apply -> {
+                        try {
+                            if (w.isChunkLoaded(cx, cz)) applyPlan(w.getChunkAt(cx, cz), ready, budget);
+                        } finally {
+                            planning.remove(key);
+                        }
+                    });
+                });
+            } catch (Throwable t) {
+                planning.remove(key);
+                plugin.getLogger().warning("[SeasonalFlora] capture error " + cx + "," + cz + ": " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Aplica un plan en el hilo dueño. Cada mutación se revalida contra el mundo
+     * real con comprobaciones baratas (tipo, aire, suelo, luz, protección, cap,
+     * distancia mínima): lo que cambió desde el snapshot se descarta sin más.
+     */
+    private int applyPlan(Chunk ch, FloraPlanner.Plan plan, int budget) {
+        FloraDecisionTables t = plan.tables;
+        if (t != tables) return budget; // recarga de reglas entre medias: los índices ya no valen
+
+        World w = ch.getWorld();
+        int bx = ch.getX() << 4;
+        int bz = ch.getZ() << 4;
+        Season season = plan.season;
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        // 1) purga
+        for (int i = 0; i < plan.purgeCount && budget > 0; i++) {
+            int pos = plan.purgePos[i];
+            Block b = w.getBlockAt(bx + PaintedBlockRegistry.unpackLocalX(pos), PaintedBlockRegistry.unpackY(pos),
+                    bz + PaintedBlockRegistry.unpackLocalZ(pos));
+            Material type = plan.purgeType[i];
+            if (b.getType() != type) continue;
+            if (isProtectedByPlayer(b)) continue;
+
+            Material replace = t.purgeReplacement(season, type, plan.purgeSeeded[i] || isPlacedByPlugin(b));
+            if (replace == null) continue;
+            budget -= purgeBlockRespectingShape(b, replace);
+        }
+
+        if (budget <= 0) return budget;
+
+        // 2) restauración: como mucho una por regla, la primera candidata que siga valiendo
+        int[] counts = null;
+        FloraRule done = null;
+        for (int i = 0; i < plan.placeCount && budget > 0; i++) {
+            FloraRule r = plan.placeRule[i];
+            if (r == done) continue;
+
+            if (r.maxPerChunk > 0) {
+                if (counts == null) counts = countsFor(ch);
+                if (counts == null || counts[r.index] >= r.maxPerChunk) {
+                    done = r;
+                    continue;
+                }
+            }
+
+            int pos = plan.placePos[i];
+            Block placeAt = w.getBlockAt(bx + PaintedBlockRegistry.unpackLocalX(pos), PaintedBlockRegistry.unpackY(pos),
+                    bz + PaintedBlockRegistry.unpackLocalZ(pos));
+            if (!placeAt.getType().isAir()) continue;
+            if (placeAt.getRelative(BlockFace.DOWN).getType() != plan.placeGround[i]) continue;
+            if (isProtectedByPlayer(placeAt)) continue;
+
+            int light = placeAt.getLightLevel();
+            if (light < r.minLight || light > r.maxLight) continue;
+
+            if (r.minDistanceBlocks > 0 && hasNearbyRuleBlock(placeAt, r, r.minDistanceBlocks)) continue;
+
+            if (placeRuleBlock(r, placeAt, rnd)) {
+                budget--;
+                done = r;
+            }
+        }
+
+        return budget;
+    }
+
     private int processChunk(Chunk ch, Season season, int budget) {
         if (budget <= 0) return 0;
 
@@ -412,6 +762,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
         int bz = ch.getZ() << 4;
 
         ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        FloraDecisionTables t = tables;
 
         // 1) Limpieza/reemplazo natural progresivo
         for (int i = 0; i < SAMPLES_PER_CHUNK && budget > 0; i++) {
@@ -424,52 +775,57 @@ public final class SeasonalFloraController implements Listener, Runnable {
             Block b = findPurgeCandidate(w, x, y, z);
             if (b == null) continue;
 
+            // tabla [estación][material]: ninguna regla lo purga ahora -> fuera sin más
             Material type = b.getType();
-            List<FloraRule> list = rulesByMaterial.get(type);
-            if (list == null) continue;
-
-            for (FloraRule r : list) {
-
-                boolean purgeSeason = r.enabled && r.removeSeasons.contains(season);
-                boolean purgeDisabled = (!r.enabled && r.purgeWhenDisabled);
-                if (!purgeSeason && !purgeDisabled) continue;
+            if (!t.purges(season, type)) continue;
 
-                // Nunca tocar lo del jugador
-                if (isProtectedByPlayer(b)) continue;
+            // Nunca tocar lo del jugador
+            if (isProtectedByPlayer(b)) continue;
 
-                // Purga SOLO lo que puso el plugin (y opcionalmente lo natural si purge_natural=true)
-                boolean isPlugin = isPlacedByPlugin(b);
-                boolean canPurge = (r.purgePluginPlaced && isPlugin) || (r.purgeNatural && !isPlugin);
-                if (!canPurge) continue;
+            // Purga SOLO lo que puso el plugin (y opcionalmente lo natural si purge_natural=true)
+            Material replace = t.purgeReplacement(season, type, isPlacedByPlugin(b));
+            if (replace == null) continue;
 
-                Material replace = (r.replaceWith != null) ? r.replaceWith : Material.AIR;
-                int removed = purgeBlockRespectingShape(b, replace);
-                if (removed > 0) {
-                    budget -= removed;
-                }
-                break;
+            int removed = purgeBlockRespectingShape(b, replace);
+            if (removed > 0) {
+                budget -= removed;
             }
         }
 
         if (budget <= 0) return budget;
 
+        // 1b) modo seeded: las columnas donde se pudo colocar se recalculan y se miran todas
+        if (seededPlacement) {
+            budget = purgeSeededColumns(ch, season, t, budget);
+            if (budget <= 0) return budget;
+        }
+
         // 2) Restauración / spawn probabilístico (solo reglas enabled)
-        for (FloraRule r : rules.values()) {
+        long seed = seededPlacement ? w.getSeed() : 0L;
+        int year = calendarYear;
+        int[] counts = null;
+        for (FloraRule r : t.restoreCandidates(season)) {
             if (budget <= 0) break;
-            if (!r.enabled) continue;
-            if (!r.restoreSeasons.contains(season)) continue;
 
             if (rnd.nextDouble() > r.restoreChance) continue;
 
-            // cap por chunk (si aplica)
+            // cap por chunk (si aplica); mientras se construyen los contadores, no se arriesga
             if (r.maxPerChunk > 0) {
-                int existing = countRuleBlocksInChunk(ch, r.blocks, r.maxPerChunk);
-                if (existing >= r.maxPerChunk) continue;
+                if (counts == null) counts = countsFor(ch);
+                if (counts == null || counts[r.index] >= r.maxPerChunk) continue;
             }
 
             for (int tries = 0; tries < r.restoreTriesPerChunk && budget > 0; tries++) {
-                int x = bx + rnd.nextInt(16);
-                int z = bz + rnd.nextInt(16);
+                int x, z;
+                if (seededPlacement) {
+                    // solo en las columnas de esta regla / chunk / estación / año
+                    int col = SeededFloraSlots.column(seed, r.seedSalt, ch.getX(), ch.getZ(), season, year, tries);
+                    x = bx + SeededFloraSlots.localX(col);
+                    z = bz + SeededFloraSlots.localZ(col);
+                } else {
+                    x = bx + rnd.nextInt(16);
+                    z = bz + rnd.nextInt(16);
+                }
                 int y = w.getHighestBlockYAt(x, z);
 
                 Block top = w.getBlockAt(x, y, z);
@@ -480,7 +836,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
                 if (isProtectedByPlayer(placeAt)) continue;
 
                 Biome biome = w.getBiome(x, placeAt.getY(), z);
-                if (!r.isBiomeAllowed(biome)) continue;
+                if (!t.allows(r, biome)) continue;
 
                 int light = placeAt.getLightLevel();
                 if (light < r.minLight || light > r.maxLight) continue;
@@ -496,7 +852,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
                 }
 
                 // evita clusters (si aplica)
-                if (r.minDistanceBlocks > 0 && hasNearbyRuleBlock(placeAt, r.blocks, r.minDistanceBlocks)) {
+                if (r.minDistanceBlocks > 0 && hasNearbyRuleBlock(placeAt, r, r.minDistanceBlocks)) {
                     continue;
                 }
 
@@ -511,51 +867,230 @@ public final class SeasonalFloraController implements Listener, Runnable {
         return budget;
     }
 
-    /** Cuenta flora de la regla en chunk, parando cuando llega al cap. */
-    private int countRuleBlocksInChunk(Chunk ch, List<Material> mats, int cap) {
+    /**
+     * Contadores por regla del chunk, o null si aún no están (se lanzan a construir).
+     * Hilo de la región. Lo que devuelve es una copia leída bajo el lock: basta para el cap.
+     */
+    private int[] countsFor(Chunk ch) {
         World w = ch.getWorld();
-        int bx = ch.getX() << 4;
-        int bz = ch.getZ() << 4;
+        FloraSlice s = slice(w, ch.getX(), ch.getZ());
+        if (s == null) return null;
+        int version = rulesVersion;
+        synchronized (s) {
+            if (s.counts != null && s.countsVersion == version) return s.counts.clone();
+            if (s.counting) return null;
+            s.counting = true;
+        }
 
-        int count = 0;
+        FloraRule[] arr = ruleArray;
+        Map<Material, List<FloraRule>> byMaterial = new EnumMap<>(Material.class);
+        byMaterial.putAll(rulesByMaterial);
+        ChunkSnapshot snap = ch.getChunkSnapshot(true, false, false);
+        int minH = w.getMinHeight();
+        int maxH = w.getMaxHeight();
         int scan = Math.max(1, surfaceScanDepth);
 
+        plugin.getScheduler().runAsync(task -> {
+            FloraCensus census = null;
+            try {
+                census = census(snap, arr.length, byMaterial, minH, maxH, scan);
+            } catch (Throwable t) {
+                plugin.getLogger().warning("[SeasonalFlora] count error " + snap.getX() + "," + snap.getZ() + ": " + t.getMessage());
+            }
+            synchronized (s) {
+                s.counting = false;
+                if (census != null && version == rulesVersion) {
+                    s.counts = census.counts;
+                    s.spots = census.spots;
+                    s.spotCount = census.spotCount;
+                    s.countsVersion = version;
+                }
+            }
+        });
+        return null;
+    }
+
+    /** Resultado de {@link #census}: contadores e índice espacial de un chunk. */
+    private static final class FloraCensus {
+        final int[] counts;
+        final int[][] spots;
+        final int[] spotCount;
+
+        FloraCensus(int ruleCount) {
+            this.counts = new int[ruleCount];
+            this.spots = new int[ruleCount][];
+            this.spotCount = new int[ruleCount];
+            for (int i = 0; i < ruleCount; i++) spots[i] = new int[4];
+        }
+    }
+
+    /**
+     * Una pasada por columna para todas las reglas: cada regla cuenta como mucho
+     * una vez por columna y apunta todas sus posiciones en el rango de superficie.
+     */
+    private static FloraCensus census(ChunkSnapshot snap, int ruleCount, Map<Material, List<FloraRule>> byMaterial,
+                                      int minH, int maxH, int scan) {
+        FloraCensus c = new FloraCensus(ruleCount);
+        int[] counts = c.counts;
+        boolean[] seen = new boolean[ruleCount];
+
         for (int dx = 0; dx < 16; dx++) {
             for (int dz = 0; dz < 16; dz++) {
-                int x = bx + dx;
-                int z = bz + dz;
-
-                int surfaceY = w.getHighestBlockYAt(x, z);
-                int maxY = Math.min(w.getMaxHeight() - 1, surfaceY + 2);
-                int minY = Math.max(w.getMinHeight(), surfaceY - scan);
+                int surfaceY = snap.getHighestBlockYAt(dx, dz);
+                int maxY = Math.min(maxH - 1, surfaceY + 2);
+                int minY = Math.max(minH, surfaceY - scan);
 
+                Arrays.fill(seen, false);
                 for (int y = maxY; y >= minY; y--) {
-                    Material t = w.getBlockAt(x, y, z).getType();
-                    if (mats.contains(t)) {
-                        count++;
-                        if (count >= cap) return count;
-                        break; // solo 1 conteo por columna para ser barato
+                    List<FloraRule> list = byMaterial.get(snap.getBlockType(dx, y, dz));
+                    if (list == null) continue;
+                    int pos = PaintedBlockRegistry.pack(dx, y, dz);
+                    for (FloraRule r : list) {
+                        if (r.index >= ruleCount) continue;
+                        int n = c.spotCount[r.index];
+                        if (n == c.spots[r.index].length) c.spots[r.index] = Arrays.copyOf(c.spots[r.index], n << 1);
+                        c.spots[r.index][n] = pos;
+                        c.spotCount[r.index] = n + 1;
+                        if (!seen[r.index]) {
+                            seen[r.index] = true;
+                            counts[r.index]++;
+                        }
                     }
-                    if (t == Material.SNOW || t == Material.SNOW_BLOCK) continue;
                 }
             }
         }
-        return count;
+        return c;
     }
 
-    /** Checa cerca para no apilar flores igualitas. */
-    private boolean hasNearbyRuleBlock(Block center, List<Material> mats, int radius) {
+    /**
+     * Alta / baja de {@code b} en el índice espacial (y los contadores) de las reglas
+     * de {@code type}, si el chunk lo tiene.
+     */
+    private void trackSpot(Block b, Material type, boolean add) {
+        List<FloraRule> list = rulesByMaterial.get(type);
+        if (list == null) return;
+        FloraSlice s = state.get(b.getWorld(), b.getX() >> 4, b.getZ() >> 4, slot);
+        if (s == null) return;
+        int pos = PaintedBlockRegistry.pack(b.getX(), b.getY(), b.getZ());
+        synchronized (s) {
+            if (s.spots == null || s.countsVersion != rulesVersion) return;
+            for (FloraRule r : list) {
+                if (r.index >= s.spots.length) continue;
+                if (add) s.addSpot(r.index, pos);
+                else s.removeSpot(r.index, pos);
+            }
+        }
+    }
+
+    /** BlockMutationService escribió un bloque (de cualquier servicio): solo entonces cambia el índice. */
+    private void onMutationApplied(Block b, Material before, Material after) {
+        if (before == after) return;
+        trackSpot(b, before, false);
+        trackSpot(b, after, true);
+    }
+
+    /**
+     * Checa cerca para no apilar flores igualitas: consulta el índice espacial de
+     * la regla en el chunk del candidato y sus vecinos (O(k) posiciones conocidas).
+     * Un vecino cargado sin índice todavía cuenta como "hay algo" y se manda a construir.
+     */
+    private boolean hasNearbyRuleBlock(Block center, FloraRule rule, int radius) {
         World w = center.getWorld();
-        int cx = center.getX(), cy = center.getY(), cz = center.getZ();
+        int x = center.getX(), y = center.getY(), z = center.getZ();
 
         int r = Math.min(radius, 8); // safety hardcap
-        for (int dx = -r; dx <= r; dx++) {
-            for (int dz = -r; dz <= r; dz++) {
-                // circular-ish
-                if (dx*dx + dz*dz > r*r) continue;
-                for (int dy = -1; dy <= 1; dy++) {
-                    Block b = w.getBlockAt(cx + dx, cy + dy, cz + dz);
-                    if (mats.contains(b.getType())) return true;
+        int r2 = r * r;
+        int version = rulesVersion;
+        for (int ccx = (x - r) >> 4; ccx <= (x + r) >> 4; ccx++) {
+            for (int ccz = (z - r) >> 4; ccz <= (z + r) >> 4; ccz++) {
+                if (!w.isChunkLoaded(ccx, ccz)) continue;
+                FloraSlice s = slice(w, ccx, ccz);
+                if (s == null) continue;
+
+                boolean indexed;
+                synchronized (s) {
+                    indexed = s.spots != null && s.countsVersion == version && rule.index < s.spots.length;
+                    if (indexed) {
+                        int[] arr = s.spots[rule.index];
+                        int n = s.spotCount[rule.index];
+                        for (int i = 0; i < n; i++) {
+                            int p = arr[i];
+                            int dy = PaintedBlockRegistry.unpackY(p) - y;
+                            if (dy < -1 || dy > 1) continue;
+                            int dx = ((ccx << 4) | PaintedBlockRegistry.unpackLocalX(p)) - x;
+                            int dz = ((ccz << 4) | PaintedBlockRegistry.unpackLocalZ(p)) - z;
+                            // circular-ish
+                            if (dx * dx + dz * dz <= r2) return true;
+                        }
+                    }
+                }
+                if (!indexed) {
+                    countsFor(w.getChunkAt(ccx, ccz));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Modo seeded: recorre las columnas sembradas de las últimas estaciones de
+     * restauración (hasta seeded_lookback_years) de las reglas que ahora purgan
+     * lo suyo. Un chunk que vuelve tras varias estaciones se pone al día aquí,
+     * sin muestreo al azar. Devuelve el budget restante.
+     */
+    private int purgeSeededColumns(Chunk ch, Season season, FloraDecisionTables t, int budget) {
+        FloraRule[] sweep = t.seededPurge(season);
+        if (sweep.length == 0) return budget;
+
+        World w = ch.getWorld();
+        long seed = w.getSeed();
+        int cx = ch.getX();
+        int cz = ch.getZ();
+        int year = calendarYear;
+
+        for (FloraRule r : sweep) {
+            for (Season placedIn : r.restoreSeasons) {
+                int last = SeededFloraSlots.lastYearOf(placedIn, season, year);
+                for (int back = 0; back < seededLookbackYears; back++) {
+                    for (int k = 0; k < r.restoreTriesPerChunk; k++) {
+                        if (budget <= 0) return budget;
+                        int col = SeededFloraSlots.column(seed, r.seedSalt, cx, cz, placedIn, last - back, k);
+                        int x = (cx << 4) + SeededFloraSlots.localX(col);
+                        int z = (cz << 4) + SeededFloraSlots.localZ(col);
+
+                        Block b = findPurgeCandidate(w, x, w.getHighestBlockYAt(x, z), z);
+                        if (b == null || !r.blocks.contains(b.getType())) continue;
+                        if (isProtectedByPlayer(b)) continue;
+
+                        Material replace = t.purgeReplacement(season, b.getType(), true);
+                        if (replace == null) continue;
+                        budget -= purgeBlockRespectingShape(b, replace);
+                    }
+                }
+            }
+        }
+        return budget;
+    }
+
+    /** ¿Cae el bloque en una columna sembrada de alguna regla de su material (estaciones recientes)? */
+    private boolean isSeededPlacement(Block b) {
+        List<FloraRule> list = rulesByMaterial.get(b.getType());
+        if (list == null) return false;
+
+        long seed = b.getWorld().getSeed();
+        int cx = b.getX() >> 4;
+        int cz = b.getZ() >> 4;
+        int col = ((b.getZ() & 15) << 4) | (b.getX() & 15);
+        Season now = calendarSeason;
+        int year = calendarYear;
+
+        for (FloraRule r : list) {
+            for (Season placedIn : r.restoreSeasons) {
+                int last = SeededFloraSlots.lastYearOf(placedIn, now, year);
+                for (int back = 0; back < seededLookbackYears; back++) {
+                    if (SeededFloraSlots.contains(seed, r.seedSalt, cx, cz, placedIn, last - back,
+                            r.restoreTriesPerChunk, col)) return true;
                 }
             }
         }
@@ -568,6 +1103,11 @@ public final class SeasonalFloraController implements Listener, Runnable {
                 ? r.blocks.get(0)
                 : r.blocks.get(rnd.nextInt(r.blocks.size()));
 
+        // contadores e índice se actualizan al aplicarse (onMutationApplied), no al encolar
+        return placeRuleMaterial(r, placeAt, toPlace, rnd);
+    }
+
+    private boolean placeRuleMaterial(FloraRule r, Block placeAt, Material toPlace, ThreadLocalRandom rnd) {
         if (r.requiresAttachment && toPlace == Material.COCOA) {
             boolean ok = placeCocoa(r, placeAt, rnd);
             if (ok) markPluginPlaced(placeAt);
@@ -583,7 +1123,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
             return true;
         }
 
-        placeAt.setType(toPlace, false);
+        plugin.getMutations().set(BlockMutationService.Source.FLORA, placeAt, toPlace, placeAt.getType());
         markPluginPlaced(placeAt);
         return true;
     }
@@ -597,13 +1137,12 @@ public final class SeasonalFloraController implements Listener, Runnable {
         for (BlockFace face : faces) {
             Block attached = placeAt.getRelative(face);
             if (r.attachBlocks.isEmpty() || r.attachBlocks.contains(attached.getType())) {
-                placeAt.setType(Material.COCOA, false);
-                BlockData bd = placeAt.getBlockData();
+                BlockData bd = Material.COCOA.createBlockData();
                 if (bd instanceof Cocoa cocoa) {
                     cocoa.setFacing(face.getOppositeFace());
                     cocoa.setAge(0);
-                    placeAt.setBlockData(cocoa, false);
                 }
+                plugin.getMutations().set(BlockMutationService.Source.FLORA, placeAt, bd, placeAt.getType());
                 return true;
             }
         }
@@ -611,18 +1150,17 @@ public final class SeasonalFloraController implements Listener, Runnable {
     }
 
     private void placeDoublePlant(Block lower, Material mat) {
-        lower.setType(mat, false);
         Block upper = lower.getRelative(BlockFace.UP);
-        upper.setType(mat, false);
 
-        BlockData lowerData = lower.getBlockData();
-        BlockData upperData = upper.getBlockData();
+        // mismo chunk → las dos mitades se aplican en el mismo lote
+        BlockData lowerData = mat.createBlockData();
+        BlockData upperData = mat.createBlockData();
         if (lowerData instanceof Bisected bl && upperData instanceof Bisected bu) {
             bl.setHalf(Bisected.Half.BOTTOM);
             bu.setHalf(Bisected.Half.TOP);
-            lower.setBlockData(bl, false);
-            upper.setBlockData(bu, false);
         }
+        plugin.getMutations().set(BlockMutationService.Source.FLORA, lower, lowerData, lower.getType());
+        plugin.getMutations().set(BlockMutationService.Source.FLORA, upper, upperData, upper.getType());
     }
 
     private boolean isOpenSky(Block placeAt, int height) {
@@ -657,7 +1195,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
             // ignora nieve (para que no "tape" la detección de flora)
             if (t == Material.SNOW || t == Material.SNOW_BLOCK) continue;
 
-            if (rulesByMaterial.containsKey(t)) return b;
+            if (tables.isFlora(t)) return b;
         }
 
         return null;
@@ -665,38 +1203,30 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
     private boolean isProtectedByPlayer(Block b) {
         if (!protectPlayerPlaced) return false;
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        Set<Long> set = playerPlaced.get(ck);
-        if (set == null || set.isEmpty()) return false;
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
-        return set.contains(bk);
+        FloraSlice s = slice(b);
+        if (s == null) return false;
+        synchronized (s) {
+            return s.player.contains(PaintedBlockRegistry.pack(b.getX(), b.getY(), b.getZ()));
+        }
     }
 
     private boolean isPlacedByPlugin(Block b) {
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        Set<Long> set = pluginPlaced.get(ck);
-        if (set == null || set.isEmpty()) return false;
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
-        return set.contains(bk);
+        if (seededPlacement && isSeededPlacement(b)) return true;
+        // lo registrado antes de pasar a seeded se sigue respetando hasta purgarse
+        FloraSlice s = slice(b);
+        if (s == null) return false;
+        synchronized (s) {
+            return s.plugin.contains(PaintedBlockRegistry.pack(b.getX(), b.getY(), b.getZ()));
+        }
     }
 
     private void markPluginPlaced(Block b) {
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
-        boolean changed = pluginPlaced.computeIfAbsent(ck, k -> ConcurrentHashMap.newKeySet()).add(bk);
-        if (changed) placementsDirty = true;
+        if (seededPlacement) return; // se recalcula, no se guarda
+        mark(b, false, true);
     }
 
     private void unmarkPluginPlaced(Block b) {
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
-
-        Set<Long> set = pluginPlaced.get(ck);
-        if (set != null) {
-            boolean changed = set.remove(bk);
-            if (changed) placementsDirty = true;
-            if (set.isEmpty()) pluginPlaced.remove(ck);
-        }
+        mark(b, false, false);
     }
 
     /**
@@ -712,61 +1242,131 @@ public final class SeasonalFloraController implements Listener, Runnable {
             Block down = b.getRelative(BlockFace.DOWN);
 
             if (up.getType() == type) {
-                up.setType(replaceWith, false);
+                plugin.getMutations().set(BlockMutationService.Source.FLORA, up, replaceWith, type);
                 unmarkPluginPlaced(up);
                 changed++;
             }
             if (down.getType() == type) {
-                down.setType(replaceWith, false);
+                plugin.getMutations().set(BlockMutationService.Source.FLORA, down, replaceWith, type);
                 unmarkPluginPlaced(down);
                 changed++;
             }
 
             // y el actual
-            b.setType(replaceWith, false);
+            plugin.getMutations().set(BlockMutationService.Source.FLORA, b, replaceWith, type);
             unmarkPluginPlaced(b);
             changed++;
             return changed;
         }
 
         // Normal
-        b.setType(replaceWith, false);
+        plugin.getMutations().set(BlockMutationService.Source.FLORA, b, replaceWith, type);
         unmarkPluginPlaced(b);
         return 1;
     }
 
     private void markPlayerPlaced(Block b) {
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
-        boolean changed = playerPlaced.computeIfAbsent(ck, k -> ConcurrentHashMap.newKeySet()).add(bk);
-        if (changed) placementsDirty = true;
+        mark(b, true, true);
     }
 
     private void unmarkPlayerPlaced(Block b) {
-        long ck = chunkKey(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
-        long bk = blockKey(b.getWorld(), b.getX(), b.getY(), b.getZ());
+        mark(b, true, false);
+    }
 
-        Set<Long> set = playerPlaced.get(ck);
-        if (set != null) {
-            boolean changed = set.remove(bk);
-            if (changed) placementsDirty = true;
-            if (set.isEmpty()) playerPlaced.remove(ck);
+    private void mark(Block b, boolean byPlayer, boolean add) {
+        FloraSlice s = slice(b);
+        if (s == null) return;
+        int pos = PaintedBlockRegistry.pack(b.getX(), b.getY(), b.getZ());
+        synchronized (s) {
+            IntOpenSet set = byPlayer ? s.player : s.plugin;
+            if (!(add ? set.add(pos) : set.remove(pos))) return;
+            s.dirty = true;
         }
+        placementsDirty = true;
     }
 
+    /** Solo para deduplicar chunks dentro de un tick (una colisión, como mucho, salta un chunk un tick). */
     private long chunkKey(World w, int cx, int cz) {
         long k = (((long) cx) & 0xffffffffL) << 32 | (((long) cz) & 0xffffffffL);
         long wh = (w.getUID().getMostSignificantBits() ^ w.getUID().getLeastSignificantBits());
         return k ^ wh;
     }
 
-    private long blockKey(World w, int x, int y, int z) {
-        long wx = x & 0x3FFFFFFL;
-        long wz = z & 0x3FFFFFFL;
-        long wy = (y + 2048L) & 0xFFFL;
-        long k = (wx << 38) | (wz << 12) | wy;
-        long wh = (w.getUID().getMostSignificantBits() ^ w.getUID().getLeastSignificantBits());
-        return k ^ wh;
+    /* ============================= SLICES ============================= */
+
+    /**
+     * Slice del chunk del bloque (hilo dueño del chunk). La primera vez se lee del
+     * PDC y se le suma lo que quedara por importar del YAML viejo; un chunk sin
+     * nada se queda con una slice vacía para no releer el PDC en cada consulta.
+     */
+    private FloraSlice slice(Block b) {
+        return slice(b.getWorld(), b.getX() >> 4, b.getZ() >> 4);
+    }
+
+    private FloraSlice slice(World w, int cx, int cz) {
+        FloraSlice s = state.get(w, cx, cz, slot);
+        if (s != null) return s;
+        if (!w.isChunkLoaded(cx, cz)) return null;
+
+        FloraSlice fresh = readFlora(w.getChunkAt(cx, cz));
+        s = state.getOrCreate(w, cx, cz, slot, () -> fresh);
+        if (s != fresh && fresh.dirty) {
+            // otro hilo la creó a la vez: no perdemos lo importado
+            synchronized (s) {
+                for (int v : fresh.player.toArray()) s.player.add(v);
+                for (int v : fresh.plugin.toArray()) s.plugin.add(v);
+                s.dirty = true;
+            }
+        }
+        return s;
+    }
+
+    private FloraSlice readFlora(Chunk ch) {
+        FloraSlice s = new FloraSlice();
+        if (!persistPlacements) return s;
+
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        if (!pdc.isEmpty()) {
+            int[] player = pdc.get(pdcPlayer, PersistentDataType.INTEGER_ARRAY);
+            int[] placed = pdc.get(pdcPlugin, PersistentDataType.INTEGER_ARRAY);
+            if (player != null) for (int v : player) s.player.add(v);
+            if (placed != null) for (int v : placed) s.plugin.add(v);
+        }
+
+        Parked p = unpark(ch.getWorld(), ch.getX(), ch.getZ());
+        if (p != null) {
+            for (int v : p.player) s.player.add(v);
+            for (int v : p.plugin) s.plugin.add(v);
+            s.dirty = true;
+            placementsDirty = true;
+            legacyDirty = true;
+        }
+        return s;
+    }
+
+    /** Vuelca la slice al PDC si cambió (hilo dueño del chunk). */
+    private void writeFlora(Chunk ch, FloraSlice s) {
+        int[] player;
+        int[] placed;
+        synchronized (s) {
+            if (!s.dirty) return;
+            player = s.player.toArray();
+            placed = s.plugin.toArray();
+            s.dirty = false;
+        }
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        if (player.length > 0) pdc.set(pdcPlayer, PersistentDataType.INTEGER_ARRAY, player);
+        else pdc.remove(pdcPlayer);
+        if (placed.length > 0) pdc.set(pdcPlugin, PersistentDataType.INTEGER_ARRAY, placed);
+        else pdc.remove(pdcPlugin);
+    }
+
+    private Parked unpark(World w, int cx, int cz) {
+        LongObjectOpenMap<Parked> m = parked.get(w.getUID());
+        if (m == null) return null;
+        synchronized (m) {
+            return m.isEmpty() ? null : m.remove(PaintedBlockRegistry.chunkKey(cx, cz));
+        }
     }
 
     /* ============================= RULE ============================= */
@@ -774,16 +1374,34 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
 
     // ---------------------------------------------------------------------
-    // Persistence (playerPlaced / pluginPlaced)
+    // Persistence (player / plugin): PDC por chunk + importación del YAML viejo
     // ---------------------------------------------------------------------
 
+    /**
+     * Solo los chunks que cambiaron: cada uno vuelca su slice al PDC en su propio
+     * hilo de región (barato, en memoria); el guardado a disco es el del servidor.
+     */
     private void autosaveMaybe() {
         if (!persistPlacements) return;
-        if (!placementsDirty) return;
         long now = System.currentTimeMillis();
         if (now < nextAutosaveAtMs) return;
-        savePlacementsIfNeeded(false);
         nextAutosaveAtMs = now + (persistAutosaveMinutes * 60_000L);
+
+        if (placementsDirty) {
+            placementsDirty = false;
+            state.forEach(slot, (w, cx, cz, fs) -> {
+                synchronized (fs) {
+                    if (!fs.dirty) return;
+                }
+                Location at = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+                plugin.getScheduler().runAtLocation(at, task -> {
+                    if (w.isChunkLoaded(cx, cz) && state.get(w, cx, cz, slot) == fs) {
+                        writeFlora(w.getChunkAt(cx, cz), fs);
+                    }
+                });
+            });
+        }
+        if (legacyDirty) saveLegacyRemainder(true);
     }
 
     private void loadPlacementsIfNeeded() {
@@ -797,98 +1415,255 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
             YamlConfiguration yml = YamlConfiguration.loadConfiguration(placementsFile);
 
-            var psec = yml.getConfigurationSection("player");
-            if (psec != null) {
-                for (String ckStr : psec.getKeys(false)) {
-                    long ck;
-                    try { ck = Long.parseLong(ckStr); } catch (NumberFormatException ex) { continue; }
-
-                    List<String> list = psec.getStringList(ckStr);
-                    if (list == null || list.isEmpty()) continue;
-
-                    Set<Long> set = ConcurrentHashMap.newKeySet();
-                    for (String s : list) {
-                        try { set.add(Long.parseLong(s)); } catch (NumberFormatException ignored) {}
-                    }
-                    if (!set.isEmpty()) playerPlaced.put(ck, set);
-                }
+            boolean legacy = yml.getInt("version", 1) < 2;
+            if (legacy) backupV1(placementsFile);
+            int loaded = legacy ? loadPlacementsV1(yml) : loadPlacementsV2(yml) + loadPendingV1(yml);
+            if (loaded > 0) {
+                plugin.getLogger().info("[SeasonalFlora] Importando placements del YAML: " + loaded
+                        + " chunks (pasan al PDC de cada chunk cuando carga).");
             }
 
-            var gsec = yml.getConfigurationSection("plugin");
-            if (gsec != null) {
-                for (String ckStr : gsec.getKeys(false)) {
-                    long ck;
-                    try { ck = Long.parseLong(ckStr); } catch (NumberFormatException ex) { continue; }
+            // un v1 se reescribe en v2 (solo lo pendiente) en el próximo autosave
+            legacyDirty = legacy || loaded == 0;
 
-                    List<String> list = gsec.getStringList(ckStr);
-                    if (list == null || list.isEmpty()) continue;
+        } catch (Exception ex) {
+            plugin.getLogger().warning("[SeasonalFlora] Failed to load placements: " + ex.getMessage());
+        }
+    }
 
-                    Set<Long> set = ConcurrentHashMap.newKeySet();
-                    for (String s : list) {
-                        try { set.add(Long.parseLong(s)); } catch (NumberFormatException ignored) {}
-                    }
-                    if (!set.isEmpty()) pluginPlaced.put(ck, set);
+    /** v2: worlds.<uuid>."cx,cz".player|plugin = [pack(x,y,z)...] */
+    private int loadPlacementsV2(YamlConfiguration yml) {
+        var wsec = yml.getConfigurationSection("worlds");
+        if (wsec == null) return 0;
+        int n = 0;
+        for (String wid : wsec.getKeys(false)) {
+            UUID uid;
+            try { uid = UUID.fromString(wid); } catch (IllegalArgumentException ex) { continue; }
+            var csec = wsec.getConfigurationSection(wid);
+            if (csec == null) continue;
+
+            LongObjectOpenMap<Parked> m = parked.computeIfAbsent(uid, id -> new LongObjectOpenMap<>());
+            for (String ckStr : csec.getKeys(false)) {
+                int comma = ckStr.indexOf(',');
+                if (comma <= 0) continue;
+                int cx, cz;
+                try {
+                    cx = Integer.parseInt(ckStr.substring(0, comma));
+                    cz = Integer.parseInt(ckStr.substring(comma + 1));
+                } catch (NumberFormatException ex) { continue; }
+
+                int[] player = toInts(csec.getIntegerList(ckStr + ".player"));
+                int[] placed = toInts(csec.getIntegerList(ckStr + ".plugin"));
+                if (player.length == 0 && placed.length == 0) continue;
+                synchronized (m) {
+                    m.put(PaintedBlockRegistry.chunkKey(cx, cz), new Parked(player, placed));
                 }
+                n++;
             }
+        }
+        return n;
+    }
 
-            placementsDirty = false;
+    /** Copia intacta del YAML v1 antes de reescribirlo (una vez). */
+    private void backupV1(File file) {
+        File bak = new File(file.getParentFile(), "seasonal_flora_placements.v1.bak");
+        if (bak.exists()) return;
+        try {
+            java.nio.file.Files.copy(file.toPath(), bak.toPath());
+        } catch (IOException ex) {
+            plugin.getLogger().warning("[SeasonalFlora] Could not back up v1 placements: " + ex.getMessage());
+        }
+    }
 
-        } catch (Exception ex) {
-            plugin.getLogger().warning("[SeasonalFlora] Failed to load placements: " + ex.getMessage());
+    /**
+     * v1: claves long mezcladas (xor) con el UUID del mundo. Se deshacen probando
+     * los mundos cargados: vale el mundo cuyo bloque decodificado cae en su chunk.
+     * Lo que no encaja en ninguno queda en {@link #v1Pending}.
+     */
+    private int loadPlacementsV1(YamlConfiguration yml) {
+        return decodeAndParkV1(yml.getConfigurationSection("player"), yml.getConfigurationSection("plugin"));
+    }
+
+    /** v2 con restos v1 sin decodificar: v1_pending.player|plugin (mismo formato que el v1). */
+    private int loadPendingV1(YamlConfiguration yml) {
+        return decodeAndParkV1(yml.getConfigurationSection("v1_pending.player"),
+                yml.getConfigurationSection("v1_pending.plugin"));
+    }
+
+    private int decodeAndParkV1(ConfigurationSection playerSec, ConfigurationSection pluginSec) {
+        Map<UUID, Map<Long, List<Integer>>> player = new HashMap<>();
+        Map<UUID, Map<Long, List<Integer>>> placed = new HashMap<>();
+        List<World> worlds = Bukkit.getWorlds();
+        synchronized (v1Pending) {
+            decodeV1(rawV1(playerSec), worlds, player, v1Pending, "player");
+            decodeV1(rawV1(pluginSec), worlds, placed, v1Pending, "plugin");
         }
+        return parkV1(player, placed);
     }
 
-    private void savePlacementsIfNeeded(boolean force) {
-        if (!persistPlacements) return;
-        if (!force && !placementsDirty) return;
+    private static Map<String, List<String>> rawV1(ConfigurationSection sec) {
+        Map<String, List<String>> raw = new HashMap<>();
+        if (sec == null) return raw;
+        for (String ckStr : sec.getKeys(false)) raw.put(ckStr, new ArrayList<>(sec.getStringList(ckStr)));
+        return raw;
+    }
 
-        try {
-            File dir = plugin.getDataFolder();
-            if (!dir.exists() && !dir.mkdirs()) {
-                plugin.getLogger().warning("[SeasonalFlora] Could not create plugin data folder to save placements.");
-                return;
+    private int parkV1(Map<UUID, Map<Long, List<Integer>>> player, Map<UUID, Map<Long, List<Integer>>> placed) {
+        Set<UUID> worlds = new HashSet<>(player.keySet());
+        worlds.addAll(placed.keySet());
+        int n = 0;
+        for (UUID uid : worlds) {
+            Map<Long, List<Integer>> pm = player.getOrDefault(uid, Map.of());
+            Map<Long, List<Integer>> gm = placed.getOrDefault(uid, Map.of());
+            Set<Long> chunks = new HashSet<>(pm.keySet());
+            chunks.addAll(gm.keySet());
+
+            LongObjectOpenMap<Parked> m = parked.computeIfAbsent(uid, id -> new LongObjectOpenMap<>());
+            synchronized (m) {
+                for (long ck : chunks) {
+                    int[] pp = toInts(pm.getOrDefault(ck, List.of()));
+                    int[] gg = toInts(gm.getOrDefault(ck, List.of()));
+                    Parked prev = m.get(ck);
+                    if (prev != null) {
+                        pp = concat(prev.player, pp);
+                        gg = concat(prev.plugin, gg);
+                    } else {
+                        n++;
+                    }
+                    m.put(ck, new Parked(pp, gg));
+                }
             }
-            if (placementsFile == null) placementsFile = new File(dir, "seasonal_flora_placements.yml");
+        }
+        return n;
+    }
 
-            // snapshot para que el I/O no pelee con escrituras concurrentes
-            Map<Long, Set<Long>> playerSnap = new HashMap<>();
-            for (var e : playerPlaced.entrySet()) {
-                if (e.getValue() == null || e.getValue().isEmpty()) continue;
-                playerSnap.put(e.getKey(), new HashSet<>(e.getValue()));
+    /** Lo que no decodifica ningún mundo de {@code worlds} va a {@code pending.get(kind)}. */
+    private static void decodeV1(Map<String, List<String>> raw, List<World> worlds, Map<UUID, Map<Long, List<Integer>>> out,
+                                 Map<String, Map<String, List<String>>> pending, String kind) {
+        if (raw == null) return;
+        for (Map.Entry<String, List<String>> re : raw.entrySet()) {
+            String ckStr = re.getKey();
+            long ck;
+            try { ck = Long.parseLong(ckStr); } catch (NumberFormatException ex) { continue; }
+
+            for (String s : re.getValue()) {
+                long bk;
+                try { bk = Long.parseLong(s); } catch (NumberFormatException ex) { continue; }
+
+                boolean decoded = false;
+                for (World w : worlds) {
+                    long wh = w.getUID().getMostSignificantBits() ^ w.getUID().getLeastSignificantBits();
+                    long c = ck ^ wh;
+                    int cx = (int) (c >> 32);
+                    int cz = (int) c;
+                    long b = bk ^ wh;
+                    int x = (int) (((b >>> 38) & 0x3FFFFFFL) << 38 >> 38);
+                    int z = (int) (((b >>> 12) & 0x3FFFFFFL) << 38 >> 38);
+                    int y = (int) (b & 0xFFFL) - 2048;
+                    if (x >> 4 != cx || z >> 4 != cz) continue;
+
+                    out.computeIfAbsent(w.getUID(), id -> new HashMap<>())
+                            .computeIfAbsent(PaintedBlockRegistry.chunkKey(cx, cz), k -> new ArrayList<>())
+                            .add(PaintedBlockRegistry.pack(x, y, z));
+                    decoded = true;
+                    break;
+                }
+                if (!decoded) {
+                    pending.computeIfAbsent(kind, k -> new HashMap<>())
+                            .computeIfAbsent(ckStr, k -> new ArrayList<>())
+                            .add(s);
+                }
             }
+        }
+    }
 
-            Map<Long, Set<Long>> pluginSnap = new HashMap<>();
-            for (var e : pluginPlaced.entrySet()) {
-                if (e.getValue() == null || e.getValue().isEmpty()) continue;
-                pluginSnap.put(e.getKey(), new HashSet<>(e.getValue()));
-            }
+    private static int[] concat(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        int[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
 
-            YamlConfiguration yml = new YamlConfiguration();
-            yml.set("version", 1);
-            yml.set("saved_at", System.currentTimeMillis());
+    private static int[] toInts(List<Integer> list) {
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) out[i] = list.get(i);
+        return out;
+    }
 
-            var psec = yml.createSection("player");
-            for (var e : playerSnap.entrySet()) {
-                List<String> list = new ArrayList<>(e.getValue().size());
-                for (Long v : e.getValue()) list.add(Long.toString(v));
-                psec.set(Long.toString(e.getKey()), list);
-            }
+    private static List<Integer> toList(int[] values) {
+        List<Integer> out = new ArrayList<>(values.length);
+        for (int v : values) out.add(v);
+        return out;
+    }
 
-            var gsec = yml.createSection("plugin");
-            for (var e : pluginSnap.entrySet()) {
-                List<String> list = new ArrayList<>(e.getValue().size());
-                for (Long v : e.getValue()) list.add(Long.toString(v));
-                gsec.set(Long.toString(e.getKey()), list);
+    /**
+     * Reescribe el YAML viejo con lo que queda por importar (o lo borra si ya no
+     * queda nada, tampoco v1 sin decodificar). La copia se hace aquí; el I/O,
+     * fuera del hilo si {@code async}.
+     */
+    private void saveLegacyRemainder(boolean async) {
+        legacyDirty = false;
+        if (placementsFile == null) return;
+
+        Map<UUID, Map<Long, Parked>> snap = new HashMap<>();
+        for (var e : parked.entrySet()) {
+            LongObjectOpenMap<Parked> m = e.getValue();
+            synchronized (m) {
+                if (m.isEmpty()) continue;
+                Map<Long, Parked> out = snap.computeIfAbsent(e.getKey(), id -> new HashMap<>());
+                m.forEach(out::put);
+            }
+        }
+        Map<String, Map<String, List<String>>> pending = new HashMap<>();
+        synchronized (v1Pending) {
+            for (var e : v1Pending.entrySet()) {
+                Map<String, List<String>> copy = new HashMap<>();
+                e.getValue().forEach((k, v) -> copy.put(k, new ArrayList<>(v)));
+                if (!copy.isEmpty()) pending.put(e.getKey(), copy);
             }
+        }
 
-            yml.save(placementsFile);
-            placementsDirty = false;
+        File file = placementsFile;
+        Runnable io = () -> {
+            try {
+                if (snap.isEmpty() && pending.isEmpty()) {
+                    if (file.exists() && file.delete()) {
+                        plugin.getLogger().info("[SeasonalFlora] Importación de placements terminada; YAML borrado.");
+                    }
+                    return;
+                }
 
-        } catch (IOException ex) {
-            plugin.getLogger().warning("[SeasonalFlora] Failed to save placements: " + ex.getMessage());
-        }
+                YamlConfiguration yml = new YamlConfiguration();
+                yml.set("version", 2);
+                yml.set("saved_at", System.currentTimeMillis());
+
+                var wsec = yml.createSection("worlds");
+                for (var we : snap.entrySet()) {
+                    var csec = wsec.createSection(we.getKey().toString());
+                    for (var ce : we.getValue().entrySet()) {
+                        long ck = ce.getKey();
+                        String id = PaintedBlockRegistry.chunkX(ck) + "," + PaintedBlockRegistry.chunkZ(ck);
+                        Parked p = ce.getValue();
+                        if (p.player.length > 0) csec.set(id + ".player", toList(p.player));
+                        if (p.plugin.length > 0) csec.set(id + ".plugin", toList(p.plugin));
+                    }
+                }
+                // v1 de mundos aún sin cargar: tal cual, para reintentar
+                for (var pe : pending.entrySet()) {
+                    var psec = yml.createSection("v1_pending." + pe.getKey());
+                    for (var ce : pe.getValue().entrySet()) psec.set(ce.getKey(), ce.getValue());
+                }
+                yml.save(file);
+            } catch (IOException ex) {
+                plugin.getLogger().warning("[SeasonalFlora] Failed to save placements: " + ex.getMessage());
+            }
+        };
+        if (async) plugin.getScheduler().runAsync(task -> io.run());
+        else io.run();
     }
-    private static final class FloraRule {
+
+    static final class FloraRule {
         final String id;
         final boolean enabled;
         final boolean purgeWhenDisabled;
@@ -920,6 +1695,12 @@ public final class SeasonalFloraController implements Listener, Runnable {
         final int maxPerChunk;         // 0 = sin cap
         final int minDistanceBlocks;   // 0 = sin distancia mínima
 
+        /** Sal de {@link SeededFloraSlots}: hash del id, estable aunque se reordene la config. */
+        final int seedSalt;
+
+        /** Posición en {@link #ruleArray} (contadores por chunk); se asigna al cargar las reglas. */
+        int index;
+
         FloraRule(
                 String id,
                 boolean enabled,
@@ -975,6 +1756,7 @@ public final class SeasonalFloraController implements Listener, Runnable {
 
             this.maxPerChunk = maxPerChunk;
             this.minDistanceBlocks = minDistanceBlocks;
+            this.seedSalt = id.hashCode();
         }
 
         boolean isBiomeAllowed(Biome b) {
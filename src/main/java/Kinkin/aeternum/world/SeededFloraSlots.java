@@ -0,0 +1,55 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.calendar.Season;
+
+/**
+ * Columnas donde una regla de flora puede colocar en un chunk, derivadas de un
+ * hash de (semilla del mundo, regla, chunk, estación, año, k): modo
+ * {@code placement_mode: seeded}.
+ *
+ * - Lo mismo en cualquier hilo y tras cualquier reinicio: saber si un bloque lo
+ *   puso el plugin se RECALCULA, no se guarda.
+ * - Columna = (lz << 4) | lx dentro del chunk; k = 0..slots-1 (puede repetir).
+ * - La sal de la regla es el hash de su id: sobrevive a reordenar la config.
+ */
+final class SeededFloraSlots {
+
+    private SeededFloraSlots() {}
+
+    static int column(long worldSeed, int ruleSalt, int cx, int cz, Season s, int year, int k) {
+        long h = worldSeed;
+        h = mix(h ^ ruleSalt);
+        h = mix(h ^ (((long) cx << 32) | (cz & 0xffffffffL)));
+        h = mix(h ^ (((long) year << 8) | s.ordinal()));
+        h = mix(h ^ k); // k entero: con más de 32 intentos no se repite la secuencia
+        return (int) (h & 0xFF);
+    }
+
+    static boolean contains(long worldSeed, int ruleSalt, int cx, int cz, Season s, int year, int slots, int column) {
+        for (int k = 0; k < slots; k++) {
+            if (column(worldSeed, ruleSalt, cx, cz, s, year, k) == column) return true;
+        }
+        return false;
+    }
+
+    static int localX(int column) {
+        return column & 15;
+    }
+
+    static int localZ(int column) {
+        return column >>> 4;
+    }
+
+    /** Año de la última vez que fue (o es) la estación {@code s}, visto desde {@code now}/{@code year}. */
+    static int lastYearOf(Season s, Season now, int year) {
+        return s.ordinal() <= now.ordinal() ? year : year - 1;
+    }
+
+    /** SplitMix64. */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,323 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Snowable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deshielo global (arranque / cambio de estación) en tres etapas:
+ *
+ *  1) CAPTURA  (hilo dueño del chunk): ChunkSnapshot + bloques protegidos del jugador.
+ *  2) PLAN     (async): busca nieve/hielo/snowy que haya que quitar, sin tocar el mundo.
+ *  3) APLICAR  (hilo dueño del chunk): lista compacta de cambios por chunk, revalidando
+ *              cada bloque antes de escribir, con presupuesto de bloques por tick.
+ *
+ * Funciona igual en Paper y en Folia (todo pasa por runAtLocation / runAsync).
+ */
+final class SnowMeltPipeline {
+
+    static final byte OP_MELT_SNOW = 0;
+    static final byte OP_MELT_ICE  = 1;
+    static final byte OP_UNSNOW    = 2;
+
+    /** Chunk pendiente de capturar. */
+    static final class ChunkPos {
+        final World world;
+        final int cx, cz;
+
+        ChunkPos(World world, int cx, int cz) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+
+    /** Resultado del plan: cambios de UN chunk (posiciones empaquetadas + operación). */
+    private static final class MeltPlan {
+        final World world;
+        final int cx, cz;
+        final int[] positions;
+        final byte[] ops;
+        final int generation;
+
+        MeltPlan(World world, int cx, int cz, int[] positions, byte[] ops, int generation) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+            this.positions = positions;
+            this.ops = ops;
+            this.generation = generation;
+        }
+    }
+
+    private final AeternumSeasonsPlugin plugin;
+    private final PaintedBlockRegistry painted;
+    private final BlockMutationService mutations;
+    private final SnowMeltScanner scanner;
+
+    private final Queue<ChunkPos> pending = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, Set<Long>> queued = new ConcurrentHashMap<>();
+    private final Queue<MeltPlan> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // cada start() invalida el trabajo en vuelo del arranque anterior
+    private volatile int generation = 0;
+    private volatile boolean meltIce = true;
+    private volatile boolean announced = true;
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder planned = new LongAdder();
+    private final LongAdder appliedBlocks = new LongAdder();
+
+    SnowMeltPipeline(AeternumSeasonsPlugin plugin, PaintedBlockRegistry painted, SnowMeltScanner scanner) {
+        this.plugin = plugin;
+        this.painted = painted;
+        this.mutations = plugin.getMutations();
+        this.scanner = scanner;
+        SnowMeltScanner.preloadCandidates();
+    }
+
+    /* ===================== control ===================== */
+
+    void start(boolean meltIce) {
+        this.meltIce = meltIce;
+        this.generation++;
+        pending.clear();
+        queued.clear();
+        ready.clear();
+        announced = false;
+    }
+
+    void enqueue(World w, int cx, int cz) {
+        Set<Long> seen = queued.computeIfAbsent(w.getUID(), id -> ConcurrentHashMap.newKeySet());
+        if (seen.add(PaintedBlockRegistry.chunkKey(cx, cz))) {
+            pending.add(new ChunkPos(w, cx, cz));
+        }
+    }
+
+    int pendingSize() {
+        return pending.size();
+    }
+
+    boolean isRunning() {
+        return !pending.isEmpty() || inFlight.get() > 0 || !ready.isEmpty();
+    }
+
+    void stop() {
+        generation++;
+        pending.clear();
+        queued.clear();
+        ready.clear();
+        announced = true;
+    }
+
+    /**
+     * Un paso del pipeline: lanza hasta {@code captureChunks} capturas nuevas y
+     * despacha planes listos hasta consumir {@code applyBlocks} cambios.
+     */
+    void tick(int captureChunks, int applyBlocks) {
+        int gen = generation;
+
+        // etapa 1: capturas (acotamos lo que hay en vuelo para no acumular snapshots)
+        int maxInFlight = Math.max(4, captureChunks * 4);
+        while (captureChunks-- > 0 && inFlight.get() < maxInFlight) {
+            ChunkPos pos = pending.poll();
+            if (pos == null) break;
+            inFlight.incrementAndGet();
+            capture(pos, gen);
+        }
+
+        // etapa 3: aplicar en el hilo dueño de cada chunk
+        int budget = applyBlocks;
+        while (budget > 0) {
+            MeltPlan plan = ready.poll();
+            if (plan == null) break;
+            if (plan.generation != gen) continue;
+            budget -= plan.positions.length;
+
+            Location loc = new Location(plan.world, (plan.cx << 4) + 8, plan.world.getMinHeight(), (plan.cz << 4) + 8);
+            plugin.getScheduler().runAtLocation(loc, task -> apply(plan));
+        }
+
+        if (!announced && !isRunning()) {
+            announced = true;
+            plugin.getLogger().info("[AeternumSeasons] StartupMelt finished. chunks=" + captured.sum()
+                    + " withChanges=" + planned.sum()
+                    + " blocks=" + appliedBlocks.sum()
+                    + " | Melt scan: " + scanner.describe()
+                    + " | WG cache: " + WinterWorldGuardHelper.describeCache());
+        }
+    }
+
+    /* ===================== etapa 1: captura ===================== */
+
+    private void capture(ChunkPos pos, int gen) {
+        World w = pos.world;
+        Location loc = new Location(w, (pos.cx << 4) + 8, w.getMinHeight(), (pos.cz << 4) + 8);
+        plugin.getScheduler().runAtLocation(loc, task -> {
+            try {
+                if (gen != generation || !w.isChunkLoaded(pos.cx, pos.cz)) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+                // nunca tocar nieve natural
+                if (BiomeSpoofAdapter.isChunkNaturallySnowy(w, pos.cx, pos.cz)) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+
+                Chunk ch = w.getChunkAt(pos.cx, pos.cz);
+                ChunkSnapshot snap = ch.getChunkSnapshot(true, false, false);
+                int[] protSnow = painted.snapshotSorted(PaintedBlockRegistry.Kind.PROTECTED_SNOW, w, pos.cx, pos.cz);
+                int[] protIce = painted.snapshotSorted(PaintedBlockRegistry.Kind.PROTECTED_ICE, w, pos.cx, pos.cz);
+                int minY = w.getMinHeight();
+                int maxY = w.getMaxHeight();
+                captured.increment();
+
+                // etapa 2: plan en un hilo async
+                plugin.getScheduler().runAsync(async -> {
+                    try {
+                        MeltPlan plan = plan(w, pos.cx, pos.cz, snap, minY, maxY, protSnow, protIce, gen);
+                        if (plan != null && gen == generation) {
+                            planned.increment();
+                            ready.add(plan);
+                        }
+                    } catch (Throwable t) {
+                        plugin.getLogger().warning("[AeternumSeasons] StartupMelt plan error "
+                                + pos.cx + "," + pos.cz + ": " + t.getMessage());
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (Throwable t) {
+                inFlight.decrementAndGet();
+                plugin.getLogger().warning("[AeternumSeasons] StartupMelt capture error "
+                        + pos.cx + "," + pos.cz + ": " + t.getMessage());
+            }
+        });
+    }
+
+    /* ===================== etapa 2: plan (async) ===================== */
+
+    private MeltPlan plan(World w, int cx, int cz, ChunkSnapshot snap, int minY, int maxY,
+                          int[] protSnow, int[] protIce, int gen) {
+        int height = maxY - minY;
+        boolean ice = meltIce;
+
+        // paleta: sin ningún estado derretible → nada que hacer
+        if (!scanner.chunkMayNeedMelt(snap, height, ice)) return null;
+
+        int[] positions = new int[32];
+        byte[] ops = new byte[32];
+        int n = 0;
+
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int top = Math.min(maxY - 1, snap.getHighestBlockYAt(x, z));
+                int scanned = 0;
+
+                for (int y = top; y >= minY; y--) {
+                    scanned++;
+                    Material t = snap.getBlockType(x, y, z);
+                    byte op = -1;
+                    boolean stop = false;
+
+                    if (t == Material.SNOW || t == Material.SNOW_BLOCK) {
+                        if (Arrays.binarySearch(protSnow, PaintedBlockRegistry.pack(x, y, z)) < 0) op = OP_MELT_SNOW;
+                    } else if (t == Material.ICE || t == Material.FROSTED_ICE) {
+                        if (ice && Arrays.binarySearch(protIce, PaintedBlockRegistry.pack(x, y, z)) < 0) op = OP_MELT_ICE;
+                        stop = true; // debajo del hielo solo hay agua
+                    } else if (t == Material.GRASS_BLOCK || t == Material.PODZOL || t == Material.MYCELIUM) {
+                        BlockData data = snap.getBlockData(x, y, z);
+                        if (data instanceof Snowable sn && sn.isSnowy()) op = OP_UNSNOW;
+                        stop = true; // llegamos al suelo
+                    } else if (!t.isAir() && !Tag.LEAVES.isTagged(t) && (t.isOccluding() || t == Material.WATER || t == Material.LAVA)) {
+                        stop = true; // suelo / techo / agua: abajo ya no hay nieve pintada
+                    }
+
+                    if (op >= 0) {
+                        if (n == positions.length) {
+                            positions = Arrays.copyOf(positions, n * 2);
+                            ops = Arrays.copyOf(ops, n * 2);
+                        }
+                        positions[n] = PaintedBlockRegistry.pack(x, y, z);
+                        ops[n] = op;
+                        n++;
+                    }
+                    if (stop) break;
+                }
+                scanner.recordColumn(height, scanned);
+            }
+        }
+
+        if (n == 0) return null;
+        return new MeltPlan(w, cx, cz, Arrays.copyOf(positions, n), Arrays.copyOf(ops, n), gen);
+    }
+
+    /* ===================== etapa 3: aplicar ===================== */
+
+    private void apply(MeltPlan plan) {
+        World w = plan.world;
+        if (plan.generation != generation || !w.isChunkLoaded(plan.cx, plan.cz)) return;
+
+        int bx = plan.cx << 4;
+        int bz = plan.cz << 4;
+        int done = 0;
+
+        for (int i = 0; i < plan.positions.length; i++) {
+            int p = plan.positions[i];
+            Block b = w.getBlockAt(bx + PaintedBlockRegistry.unpackLocalX(p),
+                    PaintedBlockRegistry.unpackY(p),
+                    bz + PaintedBlockRegistry.unpackLocalZ(p));
+            Material t = b.getType();
+
+            // revalidar: el mundo pudo cambiar entre la captura y ahora
+            switch (plan.ops[i]) {
+                case OP_MELT_SNOW -> {
+                    if (t != Material.SNOW && t != Material.SNOW_BLOCK) continue;
+                    if (painted.contains(PaintedBlockRegistry.Kind.PROTECTED_SNOW, b)) continue;
+                    if (!WinterWorldGuardHelper.canModify(b)) continue;
+                    mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.AIR.createBlockData(), t);
+                    done++;
+                }
+                case OP_MELT_ICE -> {
+                    if (t != Material.ICE && t != Material.FROSTED_ICE) continue;
+                    if (painted.contains(PaintedBlockRegistry.Kind.PROTECTED_ICE, b)) continue;
+                    if (!WinterWorldGuardHelper.canModify(b)) continue;
+                    mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.WATER.createBlockData(), t);
+                    done++;
+                }
+                case OP_UNSNOW -> {
+                    BlockData data = b.getBlockData();
+                    if (!(data instanceof Snowable sn) || !sn.isSnowy()) continue;
+                    Material above = b.getRelative(BlockFace.UP).getType();
+                    if (above == Material.SNOW || above == Material.SNOW_BLOCK) continue;
+                    if (!WinterWorldGuardHelper.canModify(b)) continue;
+                    mutations.setSnowy(BlockMutationService.Source.WINTER_SNOW, b, false);
+                    done++;
+                }
+                default -> {
+                }
+            }
+        }
+        appliedBlocks.add(done);
+    }
+}
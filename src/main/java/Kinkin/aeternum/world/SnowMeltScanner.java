@@ -0,0 +1,152 @@
+package Kinkin.aeternum.world;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.HeightMap;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Snowable;
+import org.bukkit.block.data.type.Snow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Escáner de deshielo: en vez de bajar por toda la columna (hasta 384 lecturas),
+ * salta directo a la superficie con los heightmaps y solo mira la "ventana"
+ * donde puede haber nieve/hielo:
+ *
+ *   WORLD_SURFACE (incluye capas de nieve y hojas)
+ *     ... hojas / copa ...
+ *   MOTION_BLOCKING_NO_LEAVES (suelo, hielo, bloque de nieve)
+ *
+ * Para escaneos de chunk completo, mira primero la paleta del ChunkSnapshot:
+ * si el chunk no tiene ningún estado de nieve/hielo/snowy, se salta entero.
+ *
+ * Lleva la cuenta de lecturas hechas vs. lecturas ahorradas.
+ */
+public final class SnowMeltScanner {
+
+    private static volatile BlockData[] candidatesWithIce;
+    private static volatile BlockData[] candidatesNoIce;
+
+    private final LongAdder columns = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder savedReads = new LongAdder();
+    private final LongAdder chunksSkipped = new LongAdder();
+
+    /* ===================== columnas (mundo vivo) ===================== */
+
+    /** Y más alto de la ventana de la columna (incluye capas de nieve/hojas). */
+    public int windowTop(World w, int x, int z) {
+        return w.getHighestBlockYAt(x, z, HeightMap.WORLD_SURFACE);
+    }
+
+    /** Y más bajo de la ventana: el suelo "real" (sin hojas), nunca por encima de top. */
+    public int windowBottom(World w, int x, int z, int top) {
+        int ground = w.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+        return Math.max(w.getMinHeight(), Math.min(ground, top));
+    }
+
+    /** Registra una columna escaneada: {@code scanned} lecturas frente a la altura completa. */
+    public void recordColumn(World w, int scanned) {
+        recordColumn(w.getMaxHeight() - w.getMinHeight(), scanned);
+    }
+
+    /** Igual que {@link #recordColumn(World, int)}, sin tocar el World (apto para hilos async). */
+    public void recordColumn(int worldHeight, int scanned) {
+        columns.increment();
+        reads.add(scanned);
+        savedReads.add(Math.max(0, worldHeight - scanned));
+    }
+
+    /* ===================== chunks (snapshot) ===================== */
+
+    /**
+     * ¿La paleta del chunk contiene algún estado derretible? Si no, el chunk
+     * entero se salta sin leer un solo bloque.
+     */
+    public boolean chunkMayNeedMelt(ChunkSnapshot snap, int worldHeight, boolean includeIce) {
+        for (BlockData bd : candidates(includeIce)) {
+            if (snap.contains(bd)) return true;
+        }
+        chunksSkipped.increment();
+        savedReads.add(256L * worldHeight);
+        return false;
+    }
+
+    /** Construye las paletas candidatas en el hilo actual (llamar desde el hilo principal). */
+    public static void preloadCandidates() {
+        candidates(true);
+        candidates(false);
+    }
+
+    private static BlockData[] candidates(boolean includeIce) {
+        BlockData[] arr = includeIce ? candidatesWithIce : candidatesNoIce;
+        if (arr != null) return arr;
+
+        List<BlockData> out = new ArrayList<>();
+        Snow snow = (Snow) Material.SNOW.createBlockData();
+        for (int l = snow.getMinimumLayers(); l <= snow.getMaximumLayers(); l++) {
+            Snow s = (Snow) snow.clone();
+            s.setLayers(l);
+            out.add(s);
+        }
+        out.add(Material.SNOW_BLOCK.createBlockData());
+        for (Material m : new Material[]{Material.GRASS_BLOCK, Material.PODZOL, Material.MYCELIUM}) {
+            BlockData bd = m.createBlockData();
+            if (bd instanceof Snowable sn) {
+                sn.setSnowy(true);
+                out.add(bd);
+            }
+        }
+        if (includeIce) {
+            out.add(Material.ICE.createBlockData());
+            BlockData frosted = Material.FROSTED_ICE.createBlockData();
+            if (frosted instanceof org.bukkit.block.data.Ageable age) {
+                for (int a = 0; a <= age.getMaximumAge(); a++) {
+                    org.bukkit.block.data.Ageable copy = (org.bukkit.block.data.Ageable) age.clone();
+                    copy.setAge(a);
+                    out.add(copy);
+                }
+            } else {
+                out.add(frosted);
+            }
+        }
+
+        arr = out.toArray(new BlockData[0]);
+        if (includeIce) candidatesWithIce = arr; else candidatesNoIce = arr;
+        return arr;
+    }
+
+    /* ===================== stats ===================== */
+
+    public long getColumns() {
+        return columns.sum();
+    }
+
+    public long getReads() {
+        return reads.sum();
+    }
+
+    public long getSavedReads() {
+        return savedReads.sum();
+    }
+
+    public long getChunksSkipped() {
+        return chunksSkipped.sum();
+    }
+
+    public String describe() {
+        long r = getReads();
+        long s = getSavedReads();
+        long total = r + s;
+        double pct = total == 0 ? 0.0 : (s * 100.0) / total;
+        return "columns=" + getColumns()
+                + " reads=" + r
+                + " saved=" + s
+                + " (" + String.format(java.util.Locale.ROOT, "%.1f", pct) + "%)"
+                + " chunksSkipped=" + getChunksSkipped();
+    }
+}
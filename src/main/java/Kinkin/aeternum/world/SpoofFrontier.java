@@ -0,0 +1,137 @@
+package Kinkin.aeternum.world;
+
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Frente de chunks pendientes de spoof alrededor de UN jugador.
+ *
+ * En vez de recorrer y ordenar el cuadrado (2r+1)² cada pasada:
+ *  - al entrar (o teletransportarse, cambiar de radio o de "época" de objetivos)
+ *    se encola el cuadrado entero con un orden precalculado (cerca primero,
+ *    delante de la mirada primero; 8 sectores de mirada por radio),
+ *  - al moverse se encolan SOLO los chunks que entran en rango,
+ *  - quieto y con la cola vacía no hay nada que hacer.
+ *
+ * La cola guarda claves de PaintedBlockRegistry.chunkKey; el mundo es el del frente.
+ */
+final class SpoofFrontier {
+
+    private static final int LOOK_BUCKETS = 8;
+
+    // radio → [sector de mirada] → offsets (dx, dz) intercalados, ya ordenados
+    private static final Map<Integer, int[][]> ORDERS = new ConcurrentHashMap<>();
+
+    final ConcurrentLinkedDeque<Long> pending = new ConcurrentLinkedDeque<>();
+
+    private volatile UUID world;
+    private volatile int cx, cz;
+    private volatile int radius = -1;
+    private int epoch = -1;
+
+    /**
+     * Pone el frente al día con la posición del jugador. Hilo del jugador.
+     * {@code lookX/lookZ} = dirección de mirada en XZ, normalizada.
+     */
+    void update(World w, int pcx, int pcz, int r, int targetEpoch, double lookX, double lookZ) {
+        UUID wid = w.getUID();
+        boolean reset = !wid.equals(world) || r != radius || targetEpoch != epoch
+                || Math.abs(pcx - cx) > r || Math.abs(pcz - cz) > r;
+
+        if (reset) {
+            pending.clear();
+            int[] order = order(r, bucket(lookX, lookZ));
+            for (int i = 0; i < order.length; i += 2) {
+                pending.add(PaintedBlockRegistry.chunkKey(pcx + order[i], pcz + order[i + 1]));
+            }
+        } else if (pcx != cx || pcz != cz) {
+            enqueueEntering(pcx, pcz, r, lookX, lookZ);
+        }
+
+        world = wid;
+        cx = pcx;
+        cz = pcz;
+        radius = r;
+        epoch = targetEpoch;
+    }
+
+    /** Chunks del cuadrado nuevo que no estaban en el viejo (una tira por eje). */
+    private void enqueueEntering(int pcx, int pcz, int r, double lookX, double lookZ) {
+        int oldMinX = cx - r, oldMaxX = cx + r;
+        int oldMinZ = cz - r, oldMaxZ = cz + r;
+
+        List<int[]> entering = new ArrayList<>();
+        for (int x = pcx - r; x <= pcx + r; x++) {
+            boolean colOutside = x < oldMinX || x > oldMaxX;
+            if (colOutside) {
+                for (int z = pcz - r; z <= pcz + r; z++) entering.add(new int[]{x - pcx, z - pcz});
+                continue;
+            }
+            for (int z = pcz - r; z < oldMinZ; z++) entering.add(new int[]{x - pcx, z - pcz});
+            for (int z = Math.max(oldMaxZ + 1, pcz - r); z <= pcz + r; z++) entering.add(new int[]{x - pcx, z - pcz});
+        }
+
+        entering.sort(comparator(lookX, lookZ));
+        for (int[] o : entering) pending.add(PaintedBlockRegistry.chunkKey(pcx + o[0], pcz + o[1]));
+    }
+
+    /** ¿El chunk sigue dentro del cuadrado del jugador? (vale desde cualquier hilo) */
+    boolean inRange(World w, int x, int z) {
+        int r = radius;
+        return r >= 0 && w.getUID().equals(world)
+                && Math.abs(x - cx) <= r && Math.abs(z - cz) <= r;
+    }
+
+    /* ===================== órdenes precalculados ===================== */
+
+    private static int bucket(double lookX, double lookZ) {
+        double a = Math.atan2(lookZ, lookX); // -π..π
+        int b = (int) Math.round(a / (2 * Math.PI) * LOOK_BUCKETS);
+        return Math.floorMod(b, LOOK_BUCKETS);
+    }
+
+    private static int[] order(int r, int bucket) {
+        return ORDERS.computeIfAbsent(r, SpoofFrontier::buildOrders)[bucket];
+    }
+
+    private static int[][] buildOrders(int r) {
+        int[][] out = new int[LOOK_BUCKETS][];
+        int side = 2 * r + 1;
+        for (int b = 0; b < LOOK_BUCKETS; b++) {
+            double a = b * (2 * Math.PI / LOOK_BUCKETS);
+            List<int[]> offs = new ArrayList<>(side * side);
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) offs.add(new int[]{dx, dz});
+            }
+            offs.sort(comparator(Math.cos(a), Math.sin(a)));
+
+            int[] flat = new int[offs.size() * 2];
+            for (int i = 0; i < offs.size(); i++) {
+                flat[i * 2] = offs.get(i)[0];
+                flat[i * 2 + 1] = offs.get(i)[1];
+            }
+            out[b] = flat;
+        }
+        return out;
+    }
+
+    /** Distancia Chebyshev y, a igual distancia, lo que está delante de la mirada primero. */
+    private static Comparator<int[]> comparator(double lookX, double lookZ) {
+        return Comparator
+                .comparingInt((int[] o) -> Math.max(Math.abs(o[0]), Math.abs(o[1])))
+                .thenComparingDouble(o -> -forward(o[0], o[1], lookX, lookZ));
+    }
+
+    private static double forward(int dx, int dz, double lookX, double lookZ) {
+        double len = Math.sqrt((double) dx * dx + (double) dz * dz);
+        if (len < 1e-4) return 0.0;
+        return (dx * lookX + dz * lookZ) / len;
+    }
+}
@@ -0,0 +1,401 @@
+package Kinkin.aeternum.world;
+
+import Kinkin.aeternum.AeternumSeasonsPlugin;
+import Kinkin.aeternum.calendar.CalendarState;
+import Kinkin.aeternum.calendar.Season;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Campo virtual de nieve: en vez de pintar columnas al azar alrededor de cada
+ * jugador, el invierno "nieva en todas partes" de forma analítica.
+ *
+ *   profundidad(mundo) = día_de_invierno * layers_per_day + días_de_tormenta * storm_layers_per_day
+ *   objetivo(x, z)     = clamp(profundidad + ruido(x, z), 0, max_layers)
+ *
+ * Cada chunk guarda 256 bytes (capas ya materializadas por columna) y el nivel
+ * del mundo con el que se materializó. Cuando el chunk carga o entra en el radio
+ * de un jugador y su nivel quedó atrás, se materializa en UNA pasada por lotes:
+ * solo las columnas cuyo objetivo subió. El coste por tick está acotado por
+ * chunks_per_tick, no por el número de jugadores.
+ *
+ * Al descargar, los 256 bytes van al PDC del chunk (etiquetados con el año del invierno).
+ * Las profundidades por chunk viven en {@link ChunkSeasonState} (slot "snow_depth").
+ */
+final class VirtualSnowField {
+
+    /** Pinta la columna hasta {@code layers} capas (el painter decide suelo, WG, marcas...). */
+    @FunctionalInterface
+    interface ColumnPainter {
+        void paintTo(World w, int x, int z, int layers);
+    }
+
+    private static final class ChunkDepth {
+        final byte[] applied = new byte[256];
+        int level = -1;
+    }
+
+    private static final class WorldModel {
+        double stormDays;
+        int year;
+        long lastFullTime = Long.MIN_VALUE;
+    }
+
+    private static final class PlayerMark {
+        long chunk;
+        int level = -1;
+    }
+
+    private final AeternumSeasonsPlugin plugin;
+    private final ColumnPainter painter;
+
+    private final NamespacedKey depthKey;
+    private final NamespacedKey metaKey;
+    private final NamespacedKey stormDaysKey;
+    private final NamespacedKey stormYearKey;
+
+    private final ChunkSeasonState state;
+    private final ChunkSeasonState.Slot<ChunkDepth> slot;
+    private final Map<UUID, WorldModel> models = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerMark> marks = new ConcurrentHashMap<>();
+
+    /**
+     * Dos colas: la del radio de los jugadores se vacía primero; la de chunks que
+     * cargan (vuelo, pregen...) solo con lo que sobre. Lo que ya se descargó se
+     * tira sin gastar presupuesto.
+     */
+    private final Queue<SnowMeltPipeline.ChunkPos> nearby = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, Set<Long>> queuedNearby = new ConcurrentHashMap<>();
+    private final Queue<SnowMeltPipeline.ChunkPos> pending = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, Set<Long>> queued = new ConcurrentHashMap<>();
+
+    /** Entradas descargadas que se tiran por tick como mucho (para no barrer la cola entera). */
+    private static final int MAX_SKIPS_PER_TICK = 256;
+
+    // ===== config =====
+    private boolean enabled;
+    private double layersPerDay;
+    private double stormLayersPerDay;
+    private int maxLayers;
+    private double variation;
+    private int chunksPerTick;
+    private int radiusChunks;
+    // false en modo cliente: lo "aplicado" solo existe en los clientes, no se guarda en el PDC
+    private boolean persistent = true;
+
+    // invierno en curso (año); -1 = no es invierno
+    private volatile int winterYear = -1;
+
+    VirtualSnowField(AeternumSeasonsPlugin plugin, ColumnPainter painter) {
+        this.plugin = plugin;
+        this.painter = painter;
+        this.depthKey = new NamespacedKey(plugin, "winter_snow_depth");
+        this.metaKey = new NamespacedKey(plugin, "winter_snow_meta");
+        this.stormDaysKey = new NamespacedKey(plugin, "winter_storm_days");
+        this.stormYearKey = new NamespacedKey(plugin, "winter_storm_year");
+        this.state = plugin.getChunkState();
+        this.slot = state.slot("snow_depth", new ChunkSeasonState.Lifecycle<>() {
+            @Override
+            public ChunkDepth load(Chunk ch) {
+                return onChunkLoad(ch);
+            }
+
+            @Override
+            public void unload(Chunk ch, ChunkDepth d) {
+                onChunkUnload(ch, d);
+            }
+        });
+    }
+
+    void reloadFromConfig(int paintRadiusBlocks) {
+        ConfigurationSection y = plugin.cfg.climate.getConfigurationSection("real_snow.virtual_depth");
+        enabled           = y != null && y.getBoolean("enabled", false);
+        layersPerDay      = Math.max(0.0, y == null ? 0.2 : y.getDouble("layers_per_day", 0.2));
+        stormLayersPerDay = Math.max(0.0, y == null ? 2.0 : y.getDouble("storm_layers_per_day", 2.0));
+        maxLayers         = Math.max(1, Math.min(8, y == null ? 4 : y.getInt("max_layers", 4)));
+        variation         = Math.max(0.0, y == null ? 1.5 : y.getDouble("variation_layers", 1.5));
+        chunksPerTick     = Math.max(1, y == null ? 2 : y.getInt("chunks_per_tick", 2));
+        radiusChunks      = Math.max(1, (paintRadiusBlocks + 15) >> 4);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /* ===================== modelo ===================== */
+
+    private WorldModel model(World w, int year) {
+        WorldModel m = models.computeIfAbsent(w.getUID(), id -> {
+            WorldModel nm = new WorldModel();
+            PersistentDataContainer pdc = w.getPersistentDataContainer();
+            Integer savedYear = pdc.get(stormYearKey, PersistentDataType.INTEGER);
+            Double saved = pdc.get(stormDaysKey, PersistentDataType.DOUBLE);
+            nm.year = year;
+            nm.stormDays = (savedYear != null && savedYear == year && saved != null) ? saved : 0.0;
+            return nm;
+        });
+        if (m.year != year) {
+            m.year = year;
+            m.stormDays = 0.0;
+        }
+        return m;
+    }
+
+    /** Profundidad media del mundo en capas. */
+    private double depth(World w, CalendarState st) {
+        WorldModel m = model(w, st.year);
+        return st.day * layersPerDay + m.stormDays * stormLayersPerDay;
+    }
+
+    /** Nivel cuantizado (cuartos de capa): si no cambia, no hay nada nuevo que pintar. */
+    private static int level(double depth) {
+        return (int) Math.floor(depth * 4.0);
+    }
+
+    private int target(long seed, double depth, int x, int z) {
+        if (depth <= 0.0) return 0;
+        double t = depth + (noise(seed, x, z) - 0.5) * variation;
+        return (int) Math.max(0, Math.min(maxLayers, Math.floor(t)));
+    }
+
+    /** Ruido determinista en [0, 1) por columna. */
+    private static double noise(long seed, int x, int z) {
+        long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /** Avanza las tormentas con el tiempo del mundo (saltos tipo /time set no cuentan). */
+    private void advanceStorms(World w, WorldModel m, long maxStep) {
+        long now = w.getFullTime();
+        long last = m.lastFullTime;
+        m.lastFullTime = now;
+        if (last == Long.MIN_VALUE) return;
+        long dt = now - last;
+        if (dt <= 0 || dt > maxStep) return;
+        if (!w.hasStorm()) return;
+
+        m.stormDays += dt / 24000.0;
+        PersistentDataContainer pdc = w.getPersistentDataContainer();
+        pdc.set(stormYearKey, PersistentDataType.INTEGER, m.year);
+        pdc.set(stormDaysKey, PersistentDataType.DOUBLE, m.stormDays);
+    }
+
+    /* ===================== tick ===================== */
+
+    /** Fija el invierno en curso (antes de restaurar chunks ya cargados). */
+    void syncSeason(CalendarState st) {
+        if (st.season == Season.WINTER) {
+            winterYear = st.year;
+        } else {
+            endWinter();
+        }
+    }
+
+    /** Un tick de invierno: avanza el modelo, encola chunks atrasados y materializa unos pocos. */
+    void tick(CalendarState st, long periodTicks) {
+        if (winterYear != st.year) {
+            clear();
+            winterYear = st.year;
+        }
+        long maxStep = Math.max(40L, periodTicks * 4L);
+
+        for (World w : Bukkit.getWorlds()) {
+            if (w.getEnvironment() != World.Environment.NORMAL) continue;
+            advanceStorms(w, model(w, st.year), maxStep);
+        }
+
+        boolean folia = plugin.getFoliaLib().isFolia();
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            if (folia) {
+                plugin.getScheduler().runAtEntity(p, task -> enqueueAround(p, st));
+            } else {
+                enqueueAround(p, st);
+            }
+        }
+
+        int done = 0;
+        int skips = 0;
+        while (done < chunksPerTick && skips < MAX_SKIPS_PER_TICK) {
+            SnowMeltPipeline.ChunkPos pos = poll(nearby, queuedNearby);
+            if (pos == null) pos = poll(pending, queued);
+            if (pos == null) break;
+            if (!pos.world.isChunkLoaded(pos.cx, pos.cz)) {
+                skips++; // ya se fue: al volver a cargar se encola otra vez
+                continue;
+            }
+            done++;
+
+            if (folia) {
+                Location loc = new Location(pos.world, (pos.cx << 4) + 8, pos.world.getMinHeight(), (pos.cz << 4) + 8);
+                plugin.getScheduler().runAtLocation(loc, task -> materialize(pos.world, pos.cx, pos.cz, st));
+            } else {
+                materialize(pos.world, pos.cx, pos.cz, st);
+            }
+        }
+    }
+
+    /** Solo re-escanea el radio del jugador si cambió de chunk o si subió el nivel del mundo. */
+    private void enqueueAround(Player p, CalendarState st) {
+        if (!p.isOnline()) return;
+        World w = p.getWorld();
+        if (w.getEnvironment() != World.Environment.NORMAL) return;
+
+        int pcx = p.getLocation().getBlockX() >> 4;
+        int pcz = p.getLocation().getBlockZ() >> 4;
+        long key = PaintedBlockRegistry.chunkKey(pcx, pcz);
+        int lvl = level(depth(w, st));
+
+        PlayerMark mark = marks.computeIfAbsent(p.getUniqueId(), id -> new PlayerMark());
+        if (mark.chunk == key && mark.level == lvl) return;
+        mark.chunk = key;
+        mark.level = lvl;
+
+        for (int dx = -radiusChunks; dx <= radiusChunks; dx++) {
+            for (int dz = -radiusChunks; dz <= radiusChunks; dz++) {
+                int cx = pcx + dx;
+                int cz = pcz + dz;
+                ChunkDepth d = state.get(w, cx, cz, slot);
+                if (d != null && d.level >= lvl) continue;
+                enqueue(nearby, queuedNearby, w, cx, cz);
+            }
+        }
+    }
+
+    private static void enqueue(Queue<SnowMeltPipeline.ChunkPos> queue, Map<UUID, Set<Long>> keys, World w, int cx, int cz) {
+        Set<Long> q = keys.computeIfAbsent(w.getUID(), id -> ConcurrentHashMap.newKeySet());
+        if (q.add(PaintedBlockRegistry.chunkKey(cx, cz))) {
+            queue.add(new SnowMeltPipeline.ChunkPos(w, cx, cz));
+        }
+    }
+
+    private static SnowMeltPipeline.ChunkPos poll(Queue<SnowMeltPipeline.ChunkPos> queue, Map<UUID, Set<Long>> keys) {
+        SnowMeltPipeline.ChunkPos pos = queue.poll();
+        if (pos == null) return null;
+        Set<Long> q = keys.get(pos.world.getUID());
+        if (q != null) q.remove(PaintedBlockRegistry.chunkKey(pos.cx, pos.cz));
+        return pos;
+    }
+
+    /** Una pasada por chunk: sube cada columna hasta su objetivo actual. */
+    private void materialize(World w, int cx, int cz, CalendarState st) {
+        if (winterYear != st.year) return;
+        if (!w.isChunkLoaded(cx, cz)) return;
+
+        double depth = depth(w, st);
+        int lvl = level(depth);
+
+        ChunkDepth d = state.getOrCreate(w, cx, cz, slot, ChunkDepth::new);
+        synchronized (d) {
+            if (d.level >= lvl) return;
+
+            long seed = w.getSeed();
+            int bx = cx << 4;
+            int bz = cz << 4;
+            for (int i = 0; i < 256; i++) {
+                int x = bx + (i & 15);
+                int z = bz + (i >> 4);
+                int t = target(seed, depth, x, z);
+                if (t <= d.applied[i]) continue;
+                painter.paintTo(w, x, z, t);
+                d.applied[i] = (byte) t;
+            }
+            d.level = lvl;
+        }
+    }
+
+    /* ===================== chunks ===================== */
+
+    /** Chunks ya cargados al registrar el pintor (reload). */
+    void loadLoadedChunks() {
+        state.loadLoadedChunks(slot);
+    }
+
+    private ChunkDepth onChunkLoad(Chunk ch) {
+        ChunkDepth loaded = null;
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        byte[] arr = persistent ? pdc.get(depthKey, PersistentDataType.BYTE_ARRAY) : null;
+        int[] meta = persistent ? pdc.get(metaKey, PersistentDataType.INTEGER_ARRAY) : null;
+
+        int year = winterYear;
+        if (arr != null || meta != null) {
+            if (year >= 0 && arr != null && arr.length == 256 && meta != null && meta.length >= 2 && meta[0] == year) {
+                ChunkDepth d = new ChunkDepth();
+                System.arraycopy(arr, 0, d.applied, 0, 256);
+                d.level = meta[1];
+                loaded = d;
+            } else {
+                // de otro invierno (o ya no es invierno): se descarta
+                pdc.remove(depthKey);
+                pdc.remove(metaKey);
+            }
+        }
+
+        // invierno: el chunk se pone al día en cuanto haya presupuesto
+        // (el modo cliente usa el campo aunque virtual_depth.enabled sea false)
+        if ((enabled || !persistent) && year >= 0 && ch.getWorld().getEnvironment() == World.Environment.NORMAL) {
+            enqueue(pending, queued, ch.getWorld(), ch.getX(), ch.getZ());
+        }
+        return loaded;
+    }
+
+    private void onChunkUnload(Chunk ch, ChunkDepth d) {
+        if (winterYear < 0 || !persistent) return;
+
+        PersistentDataContainer pdc = ch.getPersistentDataContainer();
+        synchronized (d) {
+            pdc.set(depthKey, PersistentDataType.BYTE_ARRAY, d.applied.clone());
+            pdc.set(metaKey, PersistentDataType.INTEGER_ARRAY, new int[]{winterYear, d.level});
+        }
+    }
+
+    /** Fin del invierno: el deshielo se encarga de los bloques; aquí solo se olvida el campo. */
+    void endWinter() {
+        if (winterYear < 0) return;
+        winterYear = -1;
+        clear();
+    }
+
+    /**
+     * Olvida todo lo que hay en memoria. Pintar es idempotente (nunca baja capas),
+     * así que perder el campo solo cuesta volver a recorrer columnas.
+     */
+    void clear() {
+        state.clear(slot);
+        nearby.clear();
+        queuedNearby.clear();
+        pending.clear();
+        queued.clear();
+        marks.clear();
+    }
+
+    /** El pintor se desregistra: suelta el slot. */
+    void detach() {
+        clear();
+        state.detach(slot);
+    }
+
+    void forget(UUID player) {
+        marks.remove(player);
+    }
+}
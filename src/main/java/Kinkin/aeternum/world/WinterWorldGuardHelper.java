@@ -2,9 +2,11 @@ package Kinkin.aeternum.world;
 
 import Kinkin.aeternum.AeternumSeasonsPlugin;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
 // WorldGuard 7+
@@ -15,11 +17,58 @@ import com.sk89q.worldguard.protection.ApplicableRegionSet;
 
 import com.sk89q.worldguard.protection.managers.RegionManager;
 
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 public final class WinterWorldGuardHelper {
 
     private static boolean hooked = false;
     private static boolean respectRegions = false;
 
+    /*
+     * Caché por chunk de "¿toca alguna región?".
+     * - Chunk sin regiones  → se decide sin llamar a WorldGuard.
+     * - Chunk de borde      → máscara de 256 columnas (bit = alguna región pisa esa columna)
+     *                         + la lista de regiones del chunk; solo esas se consultan con contains().
+     * Se invalida sola cuando cambia el conjunto de regiones del mundo (huella de identidades:
+     * define/redefine/remove crean o quitan objetos ProtectedRegion).
+     */
+    private static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final Map<UUID, WorldCache> CACHE = new ConcurrentHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder invalidations = new LongAdder();
+
+    private static final class ChunkRegions {
+        static final ChunkRegions FREE = new ChunkRegions(null, null);
+
+        final long[] columnMask;          // null = chunk libre
+        final ProtectedRegion[] regions;
+
+        ChunkRegions(long[] columnMask, ProtectedRegion[] regions) {
+            this.columnMask = columnMask;
+            this.regions = regions;
+        }
+    }
+
+    private static final class WorldCache {
+        final Map<Long, ChunkRegions> chunks = new ConcurrentHashMap<>();
+        final AtomicLong nextCheck = new AtomicLong(System.nanoTime());
+        volatile long fingerprint;
+        // RegionManager del mundo; se vuelve a pedir al comprobar la huella (/rg reload lo cambia)
+        volatile RegionManager manager;
+
+        WorldCache(RegionManager manager) {
+            this.manager = manager;
+        }
+    }
+
     private WinterWorldGuardHelper() {}
 
     public static void init(AeternumSeasonsPlugin plugin) {
@@ -35,6 +84,7 @@ public final class WinterWorldGuardHelper {
         } else {
             hooked = false;
         }
+        invalidateAll();
     }
 
     /**
@@ -46,17 +96,154 @@ public final class WinterWorldGuardHelper {
         if (!hooked || !respectRegions || block == null) {
             return true;
         }
-        Location loc = block.getLocation();
-        if (loc.getWorld() == null) return true;
+        return canModify(block.getWorld(), block.getX(), block.getY(), block.getZ());
+    }
+
+    public static boolean canModify(World world, int x, int y, int z) {
+        if (!hooked || !respectRegions || world == null) {
+            return true;
+        }
 
+        WorldCache wc = CACHE.get(world.getUID());
+        if (wc == null) wc = CACHE.computeIfAbsent(world.getUID(), id -> new WorldCache(manager(world)));
+        checkFingerprint(wc, world);
+
+        // primero la caché del chunk: WorldGuard solo se consulta al fallar
+        long key = PaintedBlockRegistry.chunkKey(x >> 4, z >> 4);
+        ChunkRegions cr = wc.chunks.get(key);
+        if (cr == null) {
+            RegionManager manager = wc.manager;
+            if (manager == null) return true;
+            misses.increment();
+            cr = computeChunk(world, manager, x >> 4, z >> 4);
+            wc.chunks.put(key, cr);
+        } else {
+            hits.increment();
+        }
+
+        if (cr.columnMask == null) return true;
+        int bit = ((z & 15) << 4) | (x & 15);
+        if ((cr.columnMask[bit >> 6] & (1L << (bit & 63))) == 0) return true;
+
+        // columna de borde: solo las regiones de este chunk
+        BlockVector3 vec = BlockVector3.at(x, y, z);
+        for (ProtectedRegion r : cr.regions) {
+            if (r.contains(vec)) return false;
+        }
+        return true;
+    }
+
+    private static RegionManager manager(World world) {
         RegionContainer container = WorldGuard.getInstance().getPlatform().getRegionContainer();
-        RegionManager manager = container.get(BukkitAdapter.adapt(loc.getWorld()));
-        if (manager == null) return true;
+        return container.get(BukkitAdapter.adapt(world));
+    }
 
-        BlockVector3 vec = BlockVector3.at(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
-        ApplicableRegionSet set = manager.getApplicableRegions(vec);
+    private static ChunkRegions computeChunk(World world, RegionManager manager, int cx, int cz) {
+        int bx = cx << 4;
+        int bz = cz << 4;
+        ProtectedCuboidRegion probe = new ProtectedCuboidRegion("aeternum_chunk_probe",
+                BlockVector3.at(bx, world.getMinHeight(), bz),
+                BlockVector3.at(bx + 15, world.getMaxHeight() - 1, bz + 15));
 
-        // Si hay alguna región, no tocamos este bloque
-        return set == null || set.size() == 0;
+        ApplicableRegionSet set = manager.getApplicableRegions(probe);
+        if (set == null || set.size() == 0) return ChunkRegions.FREE;
+
+        ProtectedRegion[] regions = set.getRegions().toArray(new ProtectedRegion[0]);
+        long[] mask = new long[4];
+        boolean any = false;
+        for (int lz = 0; lz < 16; lz++) {
+            for (int lx = 0; lx < 16; lx++) {
+                for (ProtectedRegion r : regions) {
+                    int probeY = Math.max(world.getMinHeight(), r.getMinimumPoint().getBlockY());
+                    if (r.contains(BlockVector3.at(bx + lx, probeY, bz + lz))) {
+                        int bit = (lz << 4) | lx;
+                        mask[bit >> 6] |= 1L << (bit & 63);
+                        any = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return any ? new ChunkRegions(mask, regions) : ChunkRegions.FREE;
+    }
+
+    /**
+     * Cada pocos segundos vuelve a pedir el RegionManager del mundo, compara la huella
+     * de regiones y vacía la caché si cambió.
+     */
+    private static void checkFingerprint(WorldCache wc, World world) {
+        long now = System.nanoTime();
+        long next = wc.nextCheck.get();
+        if (now - next < 0 || !wc.nextCheck.compareAndSet(next, now + RECHECK_NANOS)) return;
+
+        RegionManager manager = manager(world);
+        wc.manager = manager;
+        long fp = manager == null ? 0L : fingerprint(manager);
+        if (fp != wc.fingerprint) {
+            if (wc.fingerprint != 0L || !wc.chunks.isEmpty()) invalidations.increment();
+            wc.fingerprint = fp;
+            wc.chunks.clear();
+        }
+    }
+
+    private static long fingerprint(RegionManager manager) {
+        Map<String, ProtectedRegion> regions = manager.getRegions();
+        long sum = 0L;
+        long xor = 0L;
+        for (ProtectedRegion r : regions.values()) {
+            long h = System.identityHashCode(r) * 0x9E3779B97F4A7C15L;
+            sum += h;
+            xor ^= Long.rotateLeft(h, 17);
+        }
+        return (sum ^ xor) * 31 + regions.size() + 1;
+    }
+
+    /* ===================== invalidación ===================== */
+
+    /** Olvida todo lo calculado (recarga de config, cambios masivos de regiones). */
+    public static void invalidateAll() {
+        if (!CACHE.isEmpty()) invalidations.increment();
+        CACHE.clear();
+    }
+
+    public static void invalidate(World world) {
+        if (world == null) return;
+        if (CACHE.remove(world.getUID()) != null) invalidations.increment();
+    }
+
+    /** El chunk salió de memoria: su entrada se recalcula si vuelve a hacer falta. */
+    public static void forgetChunk(World world, int cx, int cz) {
+        WorldCache wc = CACHE.get(world.getUID());
+        if (wc != null) wc.chunks.remove(PaintedBlockRegistry.chunkKey(cx, cz));
+    }
+
+    /* ===================== stats ===================== */
+
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    public static String describeCache() {
+        int chunks = 0;
+        int boundary = 0;
+        for (WorldCache wc : CACHE.values()) {
+            for (ChunkRegions cr : wc.chunks.values()) {
+                chunks++;
+                if (cr.columnMask != null) boundary++;
+            }
+        }
+        long h = getHits();
+        long m = getMisses();
+        double pct = (h + m) == 0 ? 0.0 : (h * 100.0) / (h + m);
+        return "hits=" + h
+                + " misses=" + m
+                + " (" + String.format(java.util.Locale.ROOT, "%.1f", pct) + "%)"
+                + " chunks=" + chunks
+                + " boundary=" + boundary
+                + " invalidations=" + invalidations.sum();
     }
 }
@@ -23,6 +23,10 @@ import org.bukkit.block.data.Snowable;
 import org.bukkit.Chunk;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import io.papermc.paper.event.packet.PlayerChunkLoadEvent;
+import Kinkin.aeternum.util.IntOpenSet;
 
 
 import java.util.*;
@@ -45,27 +49,38 @@ public final class WinterWorldPainter implements Listener, Runnable {
     private final SeasonService seasons;
     private WrappedTask task;
 
-    // tracking para revertir al apagar
-    private final Set<String> paintedSnow = Collections.synchronizedSet(new HashSet<>());
-    private final Set<String> paintedIce  = Collections.synchronizedSet(new HashSet<>());
+    // tracking para revertir al apagar (nieve/hielo pintado, lo del jugador y hojas):
+    // indexado por chunk, sin Strings, con volcado al PDC del chunk al descargarlo
+    private final PaintedBlockRegistry painted;
+    private final BlockMutationService mutations;
+    private final BlockMutationService.AppliedListener appliedListener = this::onMutationApplied;
 
-    private final Set<String> protectedSnow = Collections.synchronizedSet(new HashSet<>());
-    private final Set<String> protectedIce  = Collections.synchronizedSet(new HashSet<>());
+    // deshielo por ventana de superficie (heightmaps) + paleta del chunk
+    private final SnowMeltScanner meltScanner = new SnowMeltScanner();
+
+    // barridos deterministas de columnas (pintar en invierno / derretir fuera de invierno)
+    private final CoverageSweep paintSweep;
+    private final CoverageSweep meltSweep;
+    private Season lastSweepSeason;
+
+    // nieve "analítica" por columna (256 bytes por chunk), materializada por lotes
+    private final VirtualSnowField snowField;
+
+    // modo cliente: la nieve solo existe en los paquetes que mandamos a cada jugador
+    private final ClientSnowRenderer clientSnow;
+    private boolean clientSide;
 
     // ===== startup catch-up melt =====
     private boolean startupMeltEnabled;
     private int startupMeltChunksPerTick;
-    private final Deque<Chunk> startupQueue = new ArrayDeque<>();
-    private boolean startupRunning = false;
-
-    // tracking de hojas pintadas (key -> material original)
-    private final Map<String, Material> paintedLeaves =
-            Collections.synchronizedMap(new HashMap<>());
+    private int startupMeltApplyBlocksPerTick;
+    // captura (región) → plan (async) → aplicar (región)
+    private final SnowMeltPipeline startupMelt;
 
     // ===== config cache =====
     private boolean enabled;
     private long   period;
-    private int    budget;            // columnas por tick (nieve/hielo en invierno)
+    private AdaptiveBudgetController.Knob budget; // columnas por tick (nieve/hielo en invierno)
     private int    radius;            // radio en bloques
     private double placeChance;
     private double addLayerChance;
@@ -81,7 +96,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
     // melt fuera de invierno
     private boolean meltWhenNotWinter;
     private long    meltPeriod;       // si 0, usa period
-    private int     meltBudgetPerTick;
+    private AdaptiveBudgetController.Knob meltBudgetPerTick;
     private boolean meltAlsoIce;
 
     // Autumn foliage
@@ -94,8 +109,16 @@ public final class WinterWorldPainter implements Listener, Runnable {
     public WinterWorldPainter(AeternumSeasonsPlugin plugin, SeasonService seasons) {
         this.plugin = plugin;
         this.seasons = seasons;
+        this.painted = new PaintedBlockRegistry(plugin);
+        this.mutations = plugin.getMutations();
+        this.paintSweep = new CoverageSweep(plugin.getChunkState(), "winter_paint_sweep");
+        this.meltSweep = new CoverageSweep(plugin.getChunkState(), "winter_melt_sweep");
         this.startupMeltEnabled       = plugin.cfg.climate.getBoolean("real_snow.startup_melt.enabled", true);
         this.startupMeltChunksPerTick = Math.max(1, plugin.cfg.climate.getInt("real_snow.startup_melt.chunks_per_tick", 2));
+        this.startupMeltApplyBlocksPerTick = Math.max(16, plugin.cfg.climate.getInt("real_snow.startup_melt.apply_blocks_per_tick", 512));
+        this.startupMelt = new SnowMeltPipeline(plugin, painted, meltScanner);
+        this.snowField = new VirtualSnowField(plugin, this::paintColumnToDepth);
+        this.clientSnow = new ClientSnowRenderer(plugin);
 
         reloadFromConfig();
     }
@@ -103,14 +126,28 @@ public final class WinterWorldPainter implements Listener, Runnable {
     public void register() {
         WinterWorldGuardHelper.init(plugin);
         Bukkit.getPluginManager().registerEvents(this, plugin);
+        mutations.addListener(appliedListener);
+        snowField.syncSeason(seasons.getStateCopy());
+        restoreLoadedChunks();
         schedule();
         prepareStartupMelt();
     }
 
+    /** Chunks ya cargados (reload) no disparan ChunkLoadEvent: recuperamos su PDC a mano. */
+    private void restoreLoadedChunks() {
+        painted.loadLoadedChunks();
+        snowField.loadLoadedChunks();
+    }
+
     public void unregister() {
         if (task != null) task.cancel();
+        startupMelt.stop();
         HandlerList.unregisterAll(this);
+        mutations.removeListener(appliedListener);
         clearAllPainted();
+        spillLoadedChunks();
+        snowField.detach();
+        clientSnow.revertAll();
     }
 
     private void schedule() {
@@ -124,7 +161,6 @@ public final class WinterWorldPainter implements Listener, Runnable {
     public void reloadFromConfig() {
         this.enabled          = plugin.cfg.climate.getBoolean("real_snow.enabled", true);
         this.period           = plugin.cfg.climate.getLong("real_snow.tick_period_ticks", 10L);
-        this.budget           = plugin.cfg.climate.getInt("real_snow.max_columns_per_tick", 24);
         this.radius           = plugin.cfg.climate.getInt("real_snow.radius_blocks", 40);
         this.placeChance      = plugin.cfg.climate.getDouble("real_snow.place_chance", 0.20);
         this.addLayerChance   = plugin.cfg.climate.getDouble("real_snow.add_layer_chance", 0.30);
@@ -138,7 +174,6 @@ public final class WinterWorldPainter implements Listener, Runnable {
 
         this.meltWhenNotWinter = plugin.cfg.climate.getBoolean("real_snow.melt.enabled", true);
         this.meltPeriod        = plugin.cfg.climate.getLong("real_snow.melt.tick_period_ticks", 0L); // 0 = usar period
-        this.meltBudgetPerTick = plugin.cfg.climate.getInt("real_snow.melt.budget_blocks_per_tick", 300);
         this.meltAlsoIce       = plugin.cfg.climate.getBoolean("real_snow.melt.also_ice", true);
 
         this.autumnFoliageEnabled      = plugin.cfg.climate.getBoolean("autumn_foliage.enabled", true);
@@ -147,9 +182,25 @@ public final class WinterWorldPainter implements Listener, Runnable {
         this.autumnRevertBudgetPerTick = plugin.cfg.climate.getInt("autumn_foliage.revert_budget_per_tick", 400);
         this.revertLeavesOnNonAutumn   = plugin.cfg.climate.getBoolean("autumn_foliage.revert_on_non_autumn", true);
 
+        snowField.reloadFromConfig(radius);
+        clientSnow.reloadFromConfig(radius);
+
+        boolean wasClientSide = this.clientSide;
+        this.clientSide = plugin.cfg.climate.getBoolean("real_snow.client_side.enabled", false);
+        if (wasClientSide != clientSide) {
+            // cambio de modo: lo aplicado en un modo no vale para el otro
+            clientSnow.revertAll();
+            snowField.clear();
+        }
+        snowField.setPersistent(!clientSide);
+
+        // presupuestos adaptativos (los antiguos límites duros pasan a ser el máximo por defecto)
+        this.budget = plugin.getBudgets().knob("snow_columns",
+                plugin.cfg.climate.getInt("real_snow.max_columns_per_tick", 24), 4, 40);
+        this.meltBudgetPerTick = plugin.getBudgets().knob("melt_blocks",
+                plugin.cfg.climate.getInt("real_snow.melt.budget_blocks_per_tick", 300), 32, 400);
+
         // límites duros
-        this.budget = Math.min(this.budget, 40);
-        this.meltBudgetPerTick = Math.min(this.meltBudgetPerTick, 400);
         this.autumnPaintBudgetPerTick = Math.min(this.autumnPaintBudgetPerTick, 40);
         this.autumnRevertBudgetPerTick = Math.min(this.autumnRevertBudgetPerTick, 80);
 
@@ -264,6 +315,13 @@ public final class WinterWorldPainter implements Listener, Runnable {
         boolean isWinter = (season == Season.WINTER);
         boolean isAutumn = (season == Season.AUTUMN);
 
+        // estación nueva → todas las columnas vuelven a estar pendientes
+        if (season != lastSweepSeason) {
+            lastSweepSeason = season;
+            paintSweep.reset();
+            meltSweep.reset();
+        }
+
         if (plugin.getFoliaLib().isFolia()) {
             runFoliaTick(isWinter, isAutumn);
             return;
@@ -279,13 +337,15 @@ public final class WinterWorldPainter implements Listener, Runnable {
         }
 
         // ✅ NUEVO: catch-up melt global al arrancar (solo fuera de invierno)
-        if (!isWinter && startupRunning) {
-            startupMeltStep();
+        if (!isWinter && startupMelt.isRunning()) {
+            startupMelt.tick(startupMeltChunksPerTick, startupMeltApplyBlocksPerTick);
             // no regreses; deja que también haga meltAllStep
         }
 
         // ===== NIEVE/HIELO =====
         if (!isWinter) {
+            snowField.endWinter();
+            clientSnow.revertAll();
             if (meltWhenNotWinter) {
                 meltAllStep();
             }
@@ -293,7 +353,14 @@ public final class WinterWorldPainter implements Listener, Runnable {
         }
 
         // En invierno: pintamos nieve/hielo
-        spawnWinterSnowAndIce();
+        if (clientSide) {
+            snowField.tick(st, period);
+            clientSnow.flush();
+        } else if (snowField.isEnabled()) {
+            snowField.tick(st, period);
+        } else {
+            spawnWinterSnowAndIce();
+        }
     }
 
     private void runFoliaTick(boolean isWinter, boolean isAutumn) {
@@ -305,82 +372,29 @@ public final class WinterWorldPainter implements Listener, Runnable {
             }
         }
 
-        startupRunning = false;
+        if (!isWinter && startupMelt.isRunning()) {
+            startupMelt.tick(startupMeltChunksPerTick, startupMeltApplyBlocksPerTick);
+        }
 
         if (!isWinter) {
+            snowField.endWinter();
+            clientSnow.revertAll();
             if (meltWhenNotWinter) {
                 foliaMeltAllStep();
             }
             return;
         }
 
-        foliaSpawnWinterSnowAndIce();
-    }
-
-    private void startupMeltStep() {
-        int chunks = startupMeltChunksPerTick;
-
-        while (chunks-- > 0 && !startupQueue.isEmpty()) {
-            Chunk ch = startupQueue.poll();
-            if (ch == null || !ch.isLoaded()) continue;
-
-            World w = ch.getWorld();
-            if (w.getEnvironment() != World.Environment.NORMAL) continue;
-
-            boolean naturallySnowy = BiomeSpoofAdapter.isChunkNaturallySnowy(w, ch.getX(), ch.getZ());
-
-            if (naturallySnowy) continue; // nunca tocar nieve natural
-
-            int minY = w.getMinHeight();
-            int maxY = w.getMaxHeight();
-
-            int baseX = ch.getX() << 4;
-            int baseZ = ch.getZ() << 4;
-
-            for (int x = 0; x < 16; x++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int y = maxY - 1; y >= minY; y--) {
-                        Block b = w.getBlockAt(baseX + x, y, baseZ + z);
-                        Material t = b.getType();
-
-                        if (t == Material.SNOW || t == Material.SNOW_BLOCK) {
-                            if (!WinterWorldGuardHelper.canModify(b)) {
-                                continue;
-                            }
-                            b.setType(Material.AIR, false);
-                            clearSnowyBelow(b);
-                        } else if (meltAlsoIce && (t == Material.ICE || t == Material.FROSTED_ICE)) {
-                            if (!WinterWorldGuardHelper.canModify(b)) {
-                                continue;
-                            }
-                            b.setType(Material.WATER, false);
-                        } else {
-                            // quita snowy de bloques sin nieve arriba
-                            BlockData data = b.getBlockData();
-                            if (data instanceof Snowable snowData && snowData.isSnowy()) {
-                                Block above = b.getRelative(BlockFace.UP);
-                                Material aboveType = above.getType();
-                                if (aboveType != Material.SNOW && aboveType != Material.SNOW_BLOCK) {
-                                    if (!WinterWorldGuardHelper.canModify(b)) {
-                                        continue;
-                                    }
-                                    snowData.setSnowy(false);
-                                    b.setBlockData(snowData, false);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        if (startupQueue.isEmpty()) {
-            startupRunning = false;
-            plugin.getLogger().info("[AeternumSeasons] StartupMelt finished.");
+        if (clientSide) {
+            snowField.tick(seasons.getStateCopy(), period);
+            clientSnow.flush();
+        } else if (snowField.isEnabled()) {
+            snowField.tick(seasons.getStateCopy(), period);
+        } else {
+            foliaSpawnWinterSnowAndIce();
         }
     }
 
-
     /* ===================== Invierno: nieve/hielo ===================== */
 
     // *** NUEVA LÓGICA DE BLOQUEO DE NIEVE ***
@@ -432,17 +446,16 @@ public final class WinterWorldPainter implements Listener, Runnable {
     // *** FIN DE LA NUEVA LÓGICA ***
 
     private void spawnWinterSnowAndIce() {
-        final ThreadLocalRandom r = ThreadLocalRandom.current();
-
-        int remainingGlobal = budget;
+        int remainingGlobal = budget.get();
         if (remainingGlobal <= 0) return;
 
         List<Player> players = new ArrayList<>(Bukkit.getOnlinePlayers());
         if (players.isEmpty()) return;
         Collections.shuffle(players, ThreadLocalRandom.current());
 
+        int[] remaining = {remainingGlobal};
         for (Player p : players) {
-            if (remainingGlobal <= 0) break;
+            if (remaining[0] <= 0) break;
 
             World w = p.getWorld();
             if (w.getEnvironment() != World.Environment.NORMAL) continue;
@@ -450,7 +463,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
             boolean anyCold = isColdAround(w, p.getLocation(), Math.min(24, radius));
             boolean storming = w.hasStorm() && anyCold;
 
-            int    thisBudget    = remainingGlobal;
+            int    thisBudget    = remaining[0];
             int    thisRadius    = radius;
             double thisPlace     = placeChance;
             double thisAddLayer  = addLayerChance;
@@ -462,87 +475,156 @@ public final class WinterWorldPainter implements Listener, Runnable {
                 thisAddLayer  = clamp(thisAddLayer * stormLayerMultiplier, 0.0, 1.0);
             }
 
-            thisBudget = Math.min(thisBudget, remainingGlobal);
-
-            for (int i = 0; i < thisBudget && remainingGlobal > 0; i++) {
-                int dx = r.nextInt(-thisRadius, thisRadius + 1);
-                int dz = r.nextInt(-thisRadius, thisRadius + 1);
-                int x = p.getLocation().getBlockX() + dx;
-                int z = p.getLocation().getBlockZ() + dz;
-
-                int y = w.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
-                Block highest = w.getBlockAt(x, y, z);
-
-                // ====== ✅ NUEVO: congelar agua ANTES de checar "air" ======
-                if (freezeWater && highest.getType() == Material.WATER) {
-                    if (highest.getBlockData() instanceof Levelled lvl && lvl.getLevel() == 0) {
-                        if (!WinterWorldGuardHelper.canModify(highest)) continue;
-                        remainingGlobal--;
-                        highest.setType(Material.ICE, false);
-                        markIce(highest);
-
-                        // opcional: nieve arriba del hielo recién creado
-                        Block aboveIce = highest.getRelative(BlockFace.UP);
-                        if (aboveIce.getType().isAir()) {
-                            boolean willVanillaSnow = storming && isColdAt(w, x, z);
-                            double pc = willVanillaSnow ? Math.max(0.75, thisPlace) : thisPlace;
-
-                            if (r.nextDouble() < pc && WinterWorldGuardHelper.canModify(aboveIce)) {
-                                aboveIce.setType(Material.SNOW, false);
-                                markSnow(aboveIce);
-                            }
+            thisBudget = Math.min(thisBudget, remaining[0]);
+
+            final double place = thisPlace;
+            final double addLayer = thisAddLayer;
+
+            // barrido determinista: cada columna del radio se visita una vez por vuelta
+            paintSweep.sweep(p.getUniqueId(), w,
+                    p.getLocation().getBlockX(), p.getLocation().getBlockZ(),
+                    thisRadius, thisBudget, (x, z) -> {
+                        if (remaining[0] <= 0) return false;
+                        if (!w.isChunkLoaded(x >> 4, z >> 4)) return true;
+                        if (paintSnowColumn(w, x, z, storming, place, addLayer)) {
+                            remaining[0]--;
                         }
+                        return true;
+                    });
+        }
+    }
+
+    /**
+     * Pinta nieve (o congela agua) en una columna. Devuelve true si consumió
+     * presupuesto. Las columnas que ya no pueden recibir más nieve en esta
+     * estación se marcan como terminadas en el barrido.
+     */
+    private boolean paintSnowColumn(World w, int x, int z, boolean storming, double place, double addLayer) {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+
+        int y = w.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+        Block highest = w.getBlockAt(x, y, z);
+
+        // ====== ✅ NUEVO: congelar agua ANTES de checar "air" ======
+        if (freezeWater && highest.getType() == Material.WATER) {
+            if (highest.getBlockData() instanceof Levelled lvl && lvl.getLevel() == 0) {
+                if (!WinterWorldGuardHelper.canModify(highest)) {
+                    paintSweep.markFinished(w, x, z);
+                    return false;
+                }
+                mutations.set(BlockMutationService.Source.WINTER_SNOW, highest, Material.ICE, Material.WATER);
+                markIce(highest);
+
+                // opcional: nieve arriba del hielo recién creado
+                Block aboveIce = highest.getRelative(BlockFace.UP);
+                if (aboveIce.getType().isAir()) {
+                    boolean willVanillaSnow = storming && isColdAt(w, x, z);
+                    double pc = willVanillaSnow ? Math.max(0.75, place) : place;
+
+                    if (r.nextDouble() < pc && WinterWorldGuardHelper.canModify(aboveIce)) {
+                        mutations.set(BlockMutationService.Source.WINTER_SNOW, aboveIce, Material.SNOW, aboveIce.getType());
+                        markSnow(aboveIce);
                     }
-                    continue; // ya manejamos esta columna
                 }
-                // =========================================================
+                return true;
+            }
+            paintSweep.markFinished(w, x, z); // agua corriente: nada que hacer
+            return false;
+        }
+        // =========================================================
 
-                Block ground = highest;
-                Block air = ground.getRelative(BlockFace.UP);
+        Block ground = highest;
+        Block air = ground.getRelative(BlockFace.UP);
 
-                if (!air.getType().isAir()) continue;
+        // *** CORRECCIÓN: Usar la nueva función para bloquear bloques problemáticos ***
+        if (!air.getType().isAir() || shouldBlockSnow(ground)) {
+            paintSweep.markFinished(w, x, z);
+            return false;
+        }
 
-                // permitir SNOW (capas) aunque no sea sólido
-                // Material gType = ground.getType();
-                // if (!gType.isSolid() && gType != Material.SNOW) continue;
+        // WorldGuard: no pintar / no derretir en regiones protegidas
+        if (!WinterWorldGuardHelper.canModify(ground) || !WinterWorldGuardHelper.canModify(air)) {
+            paintSweep.markFinished(w, x, z);
+            return false;
+        }
 
-                // *** CORRECCIÓN: Usar la nueva función para bloquear bloques problemáticos ***
-                if (shouldBlockSnow(ground)) {
-                    continue;
-                }
-                // *************************************************************************
+        boolean willVanillaSnow = storming && isColdAt(w, x, z);
+
+        double pc = willVanillaSnow ? Math.max(0.75, place) : place;
+        double lc = willVanillaSnow ? Math.max(0.75, addLayer) : addLayer;
 
-                // WorldGuard: no pintar / no derretir en regiones protegidas
-                if (!WinterWorldGuardHelper.canModify(ground) || !WinterWorldGuardHelper.canModify(air)) {
-                    continue;
+        if (r.nextDouble() < pc) {
+            if (ground.getType() == Material.SNOW) {
+                Snow data = (Snow) ground.getBlockData();
+                if (data.getLayers() >= data.getMaximumLayers()) {
+                    paintSweep.markFinished(w, x, z);
+                } else if (r.nextDouble() < lc) {
+                    data.setLayers(data.getLayers() + 1);
+                    mutations.set(BlockMutationService.Source.WINTER_SNOW, ground, data, Material.SNOW);
+                    markSnow(ground);
                 }
+            } else {
+                mutations.set(BlockMutationService.Source.WINTER_SNOW, air, Material.SNOW, air.getType());
+                markSnow(air);
+            }
+        }
+        return true;
+    }
 
-                remainingGlobal--;
+    /**
+     * Materializa el campo virtual: deja la columna con al menos {@code layers} capas.
+     * Nunca quita nieve, así que se puede repetir sin efectos.
+     */
+    private void paintColumnToDepth(World w, int x, int z, int layers) {
+        if (layers <= 0) return;
+        // chunks nevados de origen: ahí ya nieva vanilla y el deshielo no entra
+        if (BiomeSpoofAdapter.isChunkNaturallySnowy(w, x >> 4, z >> 4)) return;
+
+        int y = w.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
+        Block ground = w.getBlockAt(x, y, z);
+
+        if (ground.getType() == Material.WATER) {
+            if (!freezeWater) return;
+            if (!(ground.getBlockData() instanceof Levelled lvl) || lvl.getLevel() != 0) return;
+            if (!WinterWorldGuardHelper.canModify(ground)) return;
+            if (clientSide) {
+                clientSnow.putIce(w, x, y, z);
+                return;
+            }
+            mutations.set(BlockMutationService.Source.WINTER_SNOW, ground, Material.ICE, Material.WATER);
+            markIce(ground);
+        }
 
-                boolean willVanillaSnow = storming && isColdAt(w, x, z);
+        if (ground.getType() == Material.SNOW) {
+            Snow data = (Snow) ground.getBlockData();
+            int want = Math.min(layers, data.getMaximumLayers());
+            if (data.getLayers() >= want || !WinterWorldGuardHelper.canModify(ground)) return;
+            if (clientSide) {
+                clientSnow.putSnow(w, x, y, z, want);
+                return;
+            }
+            data.setLayers(want);
+            mutations.set(BlockMutationService.Source.WINTER_SNOW, ground, data, Material.SNOW);
+            markSnow(ground);
+            return;
+        }
 
-                double pc = willVanillaSnow ? Math.max(0.75, thisPlace) : thisPlace;
-                double lc = willVanillaSnow ? Math.max(0.75, thisAddLayer) : thisAddLayer;
+        Block air = ground.getRelative(BlockFace.UP);
+        if (!air.getType().isAir() || shouldBlockSnow(ground)) return;
+        if (!WinterWorldGuardHelper.canModify(ground) || !WinterWorldGuardHelper.canModify(air)) return;
 
-                if (r.nextDouble() < pc) {
-                    if (ground.getType() == Material.SNOW) {
-                        Snow data = (Snow) ground.getBlockData();
-                        if (r.nextDouble() < lc && data.getLayers() < data.getMaximumLayers()) {
-                            data.setLayers(data.getLayers() + 1);
-                            ground.setBlockData(data, false);
-                            markSnow(ground);
-                        }
-                    } else {
-                        air.setType(Material.SNOW, false);
-                        markSnow(air);
-                    }
-                }
-            }
+        if (clientSide) {
+            clientSnow.putSnow(w, x, air.getY(), z, layers);
+            return;
         }
+        Snow data = (Snow) Material.SNOW.createBlockData();
+        data.setLayers(Math.max(data.getMinimumLayers(), Math.min(layers, data.getMaximumLayers())));
+        mutations.set(BlockMutationService.Source.WINTER_SNOW, air, data, air.getType());
+        markSnow(air);
     }
 
     private void foliaSpawnWinterSnowAndIce() {
-        int totalBudget = budget;
+        int totalBudget = budget.get();
         if (totalBudget <= 0) return;
 
         List<Player> players = new ArrayList<>(Bukkit.getOnlinePlayers());
@@ -554,7 +636,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
         java.util.concurrent.atomic.AtomicInteger remaining = new java.util.concurrent.atomic.AtomicInteger(totalBudget);
 
         for (Player p : players) {
-            int perPlayer = baseBudget + (extra-- > 0 ? 1 : 0);
+            int perPlayer = budget.forRegion(p, baseBudget + (extra-- > 0 ? 1 : 0));
             plugin.getScheduler().runAtEntity(p, task -> spawnWinterSnowForPlayer(p, perPlayer, remaining));
         }
     }
@@ -579,80 +661,24 @@ public final class WinterWorldPainter implements Listener, Runnable {
             thisAddLayer = clamp(thisAddLayer * stormLayerMultiplier, 0.0, 1.0);
         }
 
-        final int radiusLocal = thisRadius;
         final double placeChanceLocal = thisPlace;
         final double addLayerChanceLocal = thisAddLayer;
-        final boolean stormingLocal = storming;
-
-        ThreadLocalRandom r = ThreadLocalRandom.current();
-        int px = p.getLocation().getBlockX();
-        int pz = p.getLocation().getBlockZ();
 
         int localBudget = Math.min(budgetForPlayer, remaining.get());
-        for (int i = 0; i < localBudget && remaining.get() > 0; i++) {
-            int dx = r.nextInt(-radiusLocal, radiusLocal + 1);
-            int dz = r.nextInt(-radiusLocal, radiusLocal + 1);
-            int x = px + dx;
-            int z = pz + dz;
-
-            Location columnLoc = new Location(w, x, w.getMinHeight(), z);
-            plugin.getScheduler().runAtLocation(columnLoc, task -> {
-                if (remaining.get() <= 0) return;
-                if (!w.isChunkLoaded(x >> 4, z >> 4)) return;
-
-                int y = w.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES);
-                Block highest = w.getBlockAt(x, y, z);
-
-                if (freezeWater && highest.getType() == Material.WATER) {
-                    if (highest.getBlockData() instanceof Levelled lvl && lvl.getLevel() == 0) {
-                        if (!WinterWorldGuardHelper.canModify(highest)) return;
-                        highest.setType(Material.ICE, false);
-                        markIce(highest);
-                        remaining.decrementAndGet();
-
-                        Block aboveIce = highest.getRelative(BlockFace.UP);
-                        if (aboveIce.getType().isAir()) {
-                            boolean willVanillaSnow = stormingLocal && isColdAt(w, x, z);
-                            double pc = willVanillaSnow ? Math.max(0.75, placeChanceLocal) : placeChanceLocal;
-                            if (ThreadLocalRandom.current().nextDouble() < pc && WinterWorldGuardHelper.canModify(aboveIce)) {
-                                aboveIce.setType(Material.SNOW, false);
-                                markSnow(aboveIce);
-                            }
+        paintSweep.sweep(p.getUniqueId(), w,
+                p.getLocation().getBlockX(), p.getLocation().getBlockZ(),
+                thisRadius, localBudget, (x, z) -> {
+                    if (remaining.get() <= 0) return false;
+                    Location columnLoc = new Location(w, x, w.getMinHeight(), z);
+                    plugin.getScheduler().runAtLocation(columnLoc, task -> {
+                        if (remaining.get() <= 0) return;
+                        if (!w.isChunkLoaded(x >> 4, z >> 4)) return;
+                        if (paintSnowColumn(w, x, z, storming, placeChanceLocal, addLayerChanceLocal)) {
+                            remaining.decrementAndGet();
                         }
-                    }
-                    return;
-                }
-
-                Block ground = highest;
-                Block air = ground.getRelative(BlockFace.UP);
-                if (!air.getType().isAir()) return;
-                if (shouldBlockSnow(ground)) return;
-
-                if (!WinterWorldGuardHelper.canModify(ground) || !WinterWorldGuardHelper.canModify(air)) {
-                    return;
-                }
-
-                remaining.decrementAndGet();
-
-                boolean willVanillaSnow = stormingLocal && isColdAt(w, x, z);
-                double pc = willVanillaSnow ? Math.max(0.75, placeChanceLocal) : placeChanceLocal;
-                double lc = willVanillaSnow ? Math.max(0.75, addLayerChanceLocal) : addLayerChanceLocal;
-
-                if (ThreadLocalRandom.current().nextDouble() < pc) {
-                    if (ground.getType() == Material.SNOW) {
-                        Snow data = (Snow) ground.getBlockData();
-                        if (ThreadLocalRandom.current().nextDouble() < lc && data.getLayers() < data.getMaximumLayers()) {
-                            data.setLayers(data.getLayers() + 1);
-                            ground.setBlockData(data, false);
-                            markSnow(ground);
-                        }
-                    } else {
-                        air.setType(Material.SNOW, false);
-                        markSnow(air);
-                    }
-                }
-            });
-        }
+                    });
+                    return true;
+                });
     }
 
 
@@ -662,18 +688,41 @@ public final class WinterWorldPainter implements Listener, Runnable {
         CalendarState st = seasons.getStateCopy();
         if (st.season == Season.WINTER) return; // en invierno no hacemos catch-up
 
-        startupQueue.clear();
+        startupMelt.start(meltAlsoIce);
+
+        if (plugin.getFoliaLib().isFolia()) {
+            // en Folia no hay lista global de chunks cargados segura: usamos el área
+            // visible de cada jugador, leída desde su propia región
+            int view = Bukkit.getViewDistance();
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                plugin.getScheduler().runAtEntity(p, task -> {
+                    World w = p.getWorld();
+                    if (w.getEnvironment() != World.Environment.NORMAL) return;
+                    int pcx = p.getLocation().getBlockX() >> 4;
+                    int pcz = p.getLocation().getBlockZ() >> 4;
+                    for (int dx = -view; dx <= view; dx++) {
+                        for (int dz = -view; dz <= view; dz++) {
+                            startupMelt.enqueue(w, pcx + dx, pcz + dz);
+                        }
+                    }
+                });
+            }
+            plugin.getLogger().info("[AeternumSeasons] StartupMelt queued chunks around "
+                    + Bukkit.getOnlinePlayers().size() + " players.");
+            return;
+        }
 
         for (World w : Bukkit.getWorlds()) {
             if (w.getEnvironment() != World.Environment.NORMAL) continue;
             // solo chunks cargados para no forzar carga
-            startupQueue.addAll(Arrays.asList(w.getLoadedChunks()));
+            for (Chunk ch : w.getLoadedChunks()) {
+                startupMelt.enqueue(w, ch.getX(), ch.getZ());
+            }
         }
 
-        startupRunning = !startupQueue.isEmpty();
-        if (startupRunning) {
+        if (startupMelt.isRunning()) {
             plugin.getLogger().info("[AeternumSeasons] StartupMelt queued "
-                    + startupQueue.size() + " loaded chunks.");
+                    + startupMelt.pendingSize() + " loaded chunks.");
         }
     }
 
@@ -788,10 +837,10 @@ public final class WinterWorldPainter implements Listener, Runnable {
         int baseChunkX = start.getX() >> 4;
         int baseChunkZ = start.getZ() >> 4;
         Queue<Block> queue = new ArrayDeque<>();
-        Set<String> visited = new HashSet<>();
+        IntOpenSet visited = new IntOpenSet(64);
 
         queue.add(start);
-        visited.add(key(start));
+        visited.add(PaintedBlockRegistry.pack(start.getX(), start.getY(), start.getZ()));
 
         int maxNodes = 64;
 
@@ -801,12 +850,11 @@ public final class WinterWorldPainter implements Listener, Runnable {
 
             if (!isTargetLeaf(type) && type != Material.ACACIA_LEAVES) continue;
 
-            String k = key(b);
-            if (!paintedLeaves.containsKey(k)) {
+            if (!painted.hasLeaf(b)) {
                 if (type != Material.ACACIA_LEAVES) {
-                    paintedLeaves.put(k, type);
+                    painted.putLeaf(b, type);
                 }
-                b.setType(Material.ACACIA_LEAVES, false);
+                mutations.set(BlockMutationService.Source.AUTUMN_LEAVES, b, Material.ACACIA_LEAVES, type);
             }
 
             for (int dx = -1; dx <= 1; dx++) {
@@ -822,7 +870,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
                         if ((nb.getX() >> 4) != baseChunkX || (nb.getZ() >> 4) != baseChunkZ) {
                             continue;
                         }
-                        String nk = key(nb);
+                        int nk = PaintedBlockRegistry.pack(nb.getX(), nb.getY(), nb.getZ());
                         if (visited.add(nk) && isTargetLeaf(nb.getType())) {
                             queue.add(nb);
                         }
@@ -843,71 +891,57 @@ public final class WinterWorldPainter implements Listener, Runnable {
 
     private void revertLeavesStep() {
         int budget = autumnRevertBudgetPerTick;
-        if (budget <= 0 || paintedLeaves.isEmpty()) return;
-
-        Iterator<Map.Entry<String, Material>> it = paintedLeaves.entrySet().iterator();
-        while (it.hasNext() && budget-- > 0) {
-            Map.Entry<String, Material> e = it.next();
-            String k = e.getKey();
-            Material original = e.getValue();
-
-            String[] s = k.split(";");
-            World w = Bukkit.getWorld(s[0]);
-            if (w == null) {
-                it.remove();
-                continue;
-            }
-            int x = Integer.parseInt(s[1]);
-            int y = Integer.parseInt(s[2]);
-            int z = Integer.parseInt(s[3]);
-            Block b = w.getBlockAt(x, y, z);
-
-            if (b.getType() == Material.ACACIA_LEAVES) {
-                if (WinterWorldGuardHelper.canModify(b)) {
-                    b.setType(original, false);
-                }
+        if (budget <= 0 || painted.leafSize() == 0) return;
+
+        for (World w : Bukkit.getWorlds()) {
+            if (budget <= 0) break;
+            for (long ck : painted.chunksOf(w)) {
+                if (budget <= 0) break;
+                int cx = PaintedBlockRegistry.chunkX(ck);
+                int cz = PaintedBlockRegistry.chunkZ(ck);
+                if (!w.isChunkLoaded(cx, cz)) continue;
+
+                budget -= painted.drainLeaves(w, cx, cz, budget, this::revertLeaf);
+                painted.compact(w, cx, cz);
             }
-            it.remove();
         }
     }
 
     private void foliaRevertLeavesStep() {
         int budget = autumnRevertBudgetPerTick;
-        if (budget <= 0 || paintedLeaves.isEmpty()) return;
-
-        Iterator<Map.Entry<String, Material>> it = paintedLeaves.entrySet().iterator();
-        while (it.hasNext() && budget-- > 0) {
-            Map.Entry<String, Material> e = it.next();
-            String k = e.getKey();
-            Material original = e.getValue();
-
-            String[] s = k.split(";");
-            World w = Bukkit.getWorld(s[0]);
-            if (w == null) {
-                it.remove();
-                continue;
-            }
-            int x = Integer.parseInt(s[1]);
-            int y = Integer.parseInt(s[2]);
-            int z = Integer.parseInt(s[3]);
+        if (budget <= 0 || painted.leafSize() == 0) return;
 
-            Location loc = new Location(w, x, y, z);
-            plugin.getScheduler().runAtLocation(loc, task -> {
-                if (!w.isChunkLoaded(x >> 4, z >> 4)) return;
-                Block b = w.getBlockAt(x, y, z);
-                if (b.getType() == Material.ACACIA_LEAVES && WinterWorldGuardHelper.canModify(b)) {
-                    b.setType(original, false);
-                }
-            });
+        for (World w : Bukkit.getWorlds()) {
+            if (budget <= 0) break;
+            for (long ck : painted.chunksOf(w)) {
+                if (budget <= 0) break;
+                int cx = PaintedBlockRegistry.chunkX(ck);
+                int cz = PaintedBlockRegistry.chunkZ(ck);
+                int perChunk = Math.min(budget, 64);
+
+                // una sola tarea por chunk; el drenado ocurre ya en el hilo dueño de la región
+                Location chunkLoc = new Location(w, (cx << 4) + 8, w.getMinHeight(), (cz << 4) + 8);
+                plugin.getScheduler().runAtLocation(chunkLoc, task -> {
+                    if (!w.isChunkLoaded(cx, cz)) return;
+                    painted.drainLeaves(w, cx, cz, perChunk, this::revertLeaf);
+                    painted.compact(w, cx, cz);
+                });
+                budget -= perChunk;
+            }
+        }
+    }
 
-            it.remove();
+    private void revertLeaf(World w, int x, int y, int z, Material original) {
+        Block b = w.getBlockAt(x, y, z);
+        if (b.getType() == Material.ACACIA_LEAVES && WinterWorldGuardHelper.canModify(b)) {
+            mutations.revert(BlockMutationService.Source.AUTUMN_LEAVES, b, original.createBlockData(), Material.ACACIA_LEAVES);
         }
     }
 
     /* ===================== Melt fuera de invierno ===================== */
 
     private void meltAllStep() {
-        int remaining = meltBudgetPerTick;
+        int remaining = meltBudgetPerTick.get();
         if (remaining <= 0) return;
 
         ThreadLocalRandom rnd = ThreadLocalRandom.current();
@@ -927,77 +961,21 @@ public final class WinterWorldPainter implements Listener, Runnable {
             int rad = radius * 2;
             int colsPerPlayer = Math.min(remaining, 32);
 
-            for (int i = 0; i < colsPerPlayer && remaining > 0; i++) {
-                int x = px + rnd.nextInt(-rad, rad + 1);
-                int z = pz + rnd.nextInt(-rad, rad + 1);
-
-                int topY = w.getMaxHeight() - 1;
-                int minY = w.getMinHeight();
-
-                for (int y = topY; y >= minY && remaining > 0; y--) {
-                    Block b = w.getBlockAt(x, y, z);
-                    Material type = b.getType();
-
-                    // ✅ CORREGIDO: Verificar si el bloque está en un bioma ORIGINALMENTE nevado
-                    if (type == Material.SNOW || type == Material.SNOW_BLOCK ||
-                            type == Material.ICE || type == Material.FROSTED_ICE) {
-
-                        // ya tienes esto:
-                        int chunkX = x >> 4;
-                        int chunkZ = z >> 4;
-                        if (BiomeSpoofAdapter.isChunkNaturallySnowy(w, chunkX, chunkZ)) {
-                            continue;
-                        }
-
-                        // ✅ NUEVO: si fue puesta por jugador, no tocarla
-                        String k = key(b);
-
-                        // ✅ NUEVO: respetar lo del jugador
-                        if ((type == Material.SNOW || type == Material.SNOW_BLOCK) && protectedSnow.contains(k)) {
-                            continue;
-                        }
-                        if ((type == Material.ICE || type == Material.FROSTED_ICE) && protectedIce.contains(k)) {
-                            continue;
-                        }
-                    }
-
-                    if (type == Material.SNOW || type == Material.SNOW_BLOCK) {
-                        if (!WinterWorldGuardHelper.canModify(b)) {
-                            continue;
-                        }
-                        b.setType(Material.AIR, false);
-                        clearSnowyBelow(b);
-                        remaining--;
-                        break;
-                    } else if (meltAlsoIce &&
-                            (type == Material.ICE || type == Material.FROSTED_ICE)) {
-                        if (!WinterWorldGuardHelper.canModify(b)) {
-                            continue;
-                        }
-                        b.setType(Material.WATER, false);
-                        remaining--;
-                        break;
-                    } else {
-                        BlockData data = b.getBlockData();
-                        if (data instanceof Snowable snowData && snowData.isSnowy()) {
-                            Block above = b.getRelative(0, 1, 0);
-                            Material aboveType = above.getType();
-                            if (aboveType != Material.SNOW && aboveType != Material.SNOW_BLOCK) {
-                                if (!WinterWorldGuardHelper.canModify(b)) {
-                                    continue;
-                                }
-                                snowData.setSnowy(false);
-                                b.setBlockData(snowData, false);
-                            }
-                        }
-                    }
+            int[] left = {remaining};
+            meltSweep.sweep(p.getUniqueId(), w, px, pz, rad, colsPerPlayer, (x, z) -> {
+                if (left[0] <= 0) return false;
+                if (!w.isChunkLoaded(x >> 4, z >> 4)) return true;
+                if (meltColumn(w, x, z)) {
+                    left[0]--;
                 }
-            }
+                return true;
+            });
+            remaining = left[0];
         }
     }
 
     private void foliaMeltAllStep() {
-        int remaining = meltBudgetPerTick;
+        int remaining = meltBudgetPerTick.get();
         if (remaining <= 0) return;
 
         List<Player> players = new ArrayList<>(Bukkit.getOnlinePlayers());
@@ -1009,7 +987,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
         java.util.concurrent.atomic.AtomicInteger globalRemaining = new java.util.concurrent.atomic.AtomicInteger(remaining);
 
         for (Player p : players) {
-            int perPlayer = baseBudget + (extra-- > 0 ? 1 : 0);
+            int perPlayer = meltBudgetPerTick.forRegion(p, baseBudget + (extra-- > 0 ? 1 : 0));
             plugin.getScheduler().runAtEntity(p, task -> meltForPlayer(p, perPlayer, globalRemaining));
         }
     }
@@ -1021,77 +999,96 @@ public final class WinterWorldPainter implements Listener, Runnable {
         World w = p.getWorld();
         if (w.getEnvironment() != World.Environment.NORMAL) return;
 
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
         int px = p.getLocation().getBlockX();
         int pz = p.getLocation().getBlockZ();
 
         int rad = radius * 2;
 
-        for (int i = 0; i < perPlayer && globalRemaining.get() > 0; i++) {
-            int x = px + rnd.nextInt(-rad, rad + 1);
-            int z = pz + rnd.nextInt(-rad, rad + 1);
-
+        meltSweep.sweep(p.getUniqueId(), w, px, pz, rad, perPlayer, (x, z) -> {
+            if (globalRemaining.get() <= 0) return false;
             Location columnLoc = new Location(w, x, w.getMinHeight(), z);
             plugin.getScheduler().runAtLocation(columnLoc, task -> {
                 if (globalRemaining.get() <= 0) return;
                 if (!w.isChunkLoaded(x >> 4, z >> 4)) return;
 
-                int topY = w.getMaxHeight() - 1;
-                int minY = w.getMinHeight();
+                if (meltColumn(w, x, z)) {
+                    globalRemaining.decrementAndGet();
+                }
+            });
+            return true;
+        });
+    }
 
-                for (int y = topY; y >= minY && globalRemaining.get() > 0; y--) {
-                    Block b = w.getBlockAt(x, y, z);
-                    Material type = b.getType();
+    /**
+     * Deshielo ya escrito en el mundo (meltColumn, SnowMeltPipeline): la entrada pintada
+     * sale del registro entonces, no al encolarlo (el cambio puede no llegar a aplicarse).
+     */
+    private void onMutationApplied(Block b, Material before, Material after) {
+        if (after == Material.AIR && (before == Material.SNOW || before == Material.SNOW_BLOCK)) {
+            painted.remove(PaintedBlockRegistry.Kind.SNOW, b);
+        } else if (after == Material.WATER && (before == Material.ICE || before == Material.FROSTED_ICE)) {
+            painted.remove(PaintedBlockRegistry.Kind.ICE, b);
+        }
+    }
 
-                    if (type == Material.SNOW || type == Material.SNOW_BLOCK ||
-                            type == Material.ICE || type == Material.FROSTED_ICE) {
-                        int chunkX = x >> 4;
-                        int chunkZ = z >> 4;
-                        if (BiomeSpoofAdapter.isChunkNaturallySnowy(w, chunkX, chunkZ)) {
-                            continue;
-                        }
+    /**
+     * Derrite la nieve/hielo de una columna. Solo lee la ventana de superficie
+     * (heightmaps), no la columna completa. Devuelve true si derritió un bloque
+     * de nieve/hielo (consume presupuesto); quitar el flag snowy no consume.
+     */
+    private boolean meltColumn(World w, int x, int z) {
+        int topY = meltScanner.windowTop(w, x, z);
+        int minY = meltScanner.windowBottom(w, x, z, topY);
 
-                        String k = key(b);
-                        if ((type == Material.SNOW || type == Material.SNOW_BLOCK) && protectedSnow.contains(k)) {
-                            continue;
-                        }
-                        if ((type == Material.ICE || type == Material.FROSTED_ICE) && protectedIce.contains(k)) {
-                            continue;
-                        }
-                    }
+        // nieve natural: la dejamos tal cual (chequeo por chunk, una sola vez)
+        boolean naturallySnowy = BiomeSpoofAdapter.isChunkNaturallySnowy(w, x >> 4, z >> 4);
 
-                    if (type == Material.SNOW || type == Material.SNOW_BLOCK) {
-                        if (!WinterWorldGuardHelper.canModify(b)) {
-                            continue;
-                        }
-                        b.setType(Material.AIR, false);
-                        clearSnowyBelow(b);
-                        globalRemaining.decrementAndGet();
-                        break;
-                    } else if (meltAlsoIce &&
-                            (type == Material.ICE || type == Material.FROSTED_ICE)) {
-                        if (!WinterWorldGuardHelper.canModify(b)) {
-                            continue;
-                        }
-                        b.setType(Material.WATER, false);
-                        globalRemaining.decrementAndGet();
-                        break;
-                    } else {
-                        BlockData data = b.getBlockData();
-                        if (data instanceof Snowable snowData && snowData.isSnowy()) {
-                            Block above = b.getRelative(0, 1, 0);
-                            Material aboveType = above.getType();
-                            if (aboveType != Material.SNOW && aboveType != Material.SNOW_BLOCK) {
-                                if (!WinterWorldGuardHelper.canModify(b)) {
-                                    continue;
-                                }
-                                snowData.setSnowy(false);
-                                b.setBlockData(snowData, false);
+        int scanned = 0;
+        try {
+            for (int y = topY; y >= minY; y--) {
+                scanned++;
+                Block b = w.getBlockAt(x, y, z);
+                Material type = b.getType();
+
+                if (type == Material.SNOW || type == Material.SNOW_BLOCK) {
+                    // ✅ CORREGIDO: no tocar biomas ORIGINALMENTE nevados ni lo del jugador
+                    if (naturallySnowy || painted.contains(PaintedBlockRegistry.Kind.PROTECTED_SNOW, b)) {
+                        continue;
+                    }
+                    if (!WinterWorldGuardHelper.canModify(b)) {
+                        continue;
+                    }
+                    mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.AIR.createBlockData(), type);
+                    clearSnowyBelow(b);
+                    return true;
+                } else if (type == Material.ICE || type == Material.FROSTED_ICE) {
+                    if (naturallySnowy || painted.contains(PaintedBlockRegistry.Kind.PROTECTED_ICE, b)) {
+                        continue;
+                    }
+                    if (!meltAlsoIce || !WinterWorldGuardHelper.canModify(b)) {
+                        continue;
+                    }
+                    mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.WATER.createBlockData(), type);
+                    return true;
+                } else {
+                    BlockData data = b.getBlockData();
+                    if (data instanceof Snowable snowData && snowData.isSnowy()) {
+                        Block above = b.getRelative(0, 1, 0);
+                        Material aboveType = above.getType();
+                        if (aboveType != Material.SNOW && aboveType != Material.SNOW_BLOCK) {
+                            if (!WinterWorldGuardHelper.canModify(b)) {
+                                continue;
                             }
+                            mutations.setSnowy(BlockMutationService.Source.WINTER_SNOW, b, false);
                         }
                     }
                 }
-            });
+            }
+            // nada más que derretir en esta columna durante esta estación
+            meltSweep.markFinished(w, x, z);
+            return false;
+        } finally {
+            meltScanner.recordColumn(w, scanned);
         }
     }
 
@@ -1129,11 +1126,12 @@ public final class WinterWorldPainter implements Listener, Runnable {
     public void onPlayerPlace(BlockPlaceEvent e) {
         Block b = e.getBlockPlaced();
         Material t = b.getType();
+        clientSnow.forgetColumn(b.getWorld(), b.getX(), b.getZ());
 
         if (t == Material.SNOW || t == Material.SNOW_BLOCK) {
-            protectedSnow.add(key(b));
+            painted.add(PaintedBlockRegistry.Kind.PROTECTED_SNOW, b);
         } else if (t == Material.ICE) {
-            protectedIce.add(key(b));
+            painted.add(PaintedBlockRegistry.Kind.PROTECTED_ICE, b);
         }
     }
 
@@ -1142,14 +1140,42 @@ public final class WinterWorldPainter implements Listener, Runnable {
         Block b = e.getBlock();
         Material t = b.getType();
 
-        String k = key(b);
+        // el jugador cambió la columna: que el barrido la vuelva a mirar
+        paintSweep.clearFinished(b.getWorld(), b.getX(), b.getZ());
+        meltSweep.clearFinished(b.getWorld(), b.getX(), b.getZ());
+        clientSnow.forgetColumn(b.getWorld(), b.getX(), b.getZ());
+
         if (t == Material.SNOW || t == Material.SNOW_BLOCK) {
-            protectedSnow.remove(k);
+            painted.remove(PaintedBlockRegistry.Kind.PROTECTED_SNOW, b);
+            painted.remove(PaintedBlockRegistry.Kind.SNOW, b);
         } else if (t == Material.ICE) {
-            protectedIce.remove(k);
+            painted.remove(PaintedBlockRegistry.Kind.PROTECTED_ICE, b);
+            painted.remove(PaintedBlockRegistry.Kind.ICE, b);
         }
     }
 
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        paintSweep.forget(e.getPlayer().getUniqueId());
+        meltSweep.forget(e.getPlayer().getUniqueId());
+        snowField.forget(e.getPlayer().getUniqueId());
+        clientSnow.forgetViewer(e.getPlayer().getUniqueId());
+    }
+
+    /** El cliente recibió (otra vez) el chunk: hay que volver a mandarle la nieve falsa. */
+    @EventHandler
+    public void onChunkSent(PlayerChunkLoadEvent e) {
+        if (clientSide) clientSnow.onChunkSent(e.getPlayer(), e.getChunk().getX(), e.getChunk().getZ());
+    }
+
+    // pintados y profundidad de nieve entran/salen con el chunk vía ChunkSeasonState (PDC);
+    // las cachés por chunk de nieve de cliente y WorldGuard tienen mapa propio y salen aquí
+    @EventHandler
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        clientSnow.forgetChunk(e.getWorld(), e.getChunk().getX(), e.getChunk().getZ());
+        WinterWorldGuardHelper.forgetChunk(e.getWorld(), e.getChunk().getX(), e.getChunk().getZ());
+    }
+
 
     private boolean isColdAround(World w, Location center, int rad) {
         ThreadLocalRandom r = ThreadLocalRandom.current();
@@ -1174,13 +1200,14 @@ public final class WinterWorldPainter implements Listener, Runnable {
         }
     }
 
-    private void markSnow(Block b) { paintedSnow.add(key(b)); }
-    private void markIce(Block b)  { paintedIce.add(key(b)); }
-
-    private String key(Block b) {
-        return b.getWorld().getName() + ';' + b.getX() + ';' + b.getY() + ';' + b.getZ();
+    /** Estadísticas del escáner de deshielo (lecturas hechas vs ahorradas). */
+    public SnowMeltScanner getMeltScanner() {
+        return meltScanner;
     }
 
+    private void markSnow(Block b) { painted.add(PaintedBlockRegistry.Kind.SNOW, b); }
+    private void markIce(Block b)  { painted.add(PaintedBlockRegistry.Kind.ICE, b); }
+
     private void clearSnowyBelow(Block snowBlock) {
         Block below = snowBlock.getRelative(BlockFace.DOWN);
         if (below.getType().isSolid()) {
@@ -1189,8 +1216,7 @@ public final class WinterWorldPainter implements Listener, Runnable {
                 if (!WinterWorldGuardHelper.canModify(below)) {
                     return;
                 }
-                snowData.setSnowy(false);
-                below.setBlockData(snowData, false);
+                mutations.setSnowy(BlockMutationService.Source.WINTER_SNOW, below, false);
             }
         }
     }
@@ -1199,62 +1225,56 @@ public final class WinterWorldPainter implements Listener, Runnable {
         if (plugin.getFoliaLib().isFolia()) {
             return;
         }
-        // nieve
-        for (String k : new HashSet<>(paintedSnow)) {
-            if (protectedSnow.contains(k)) continue; // ✅ NO borres lo del jugador
-
-            String[] s = k.split(";");
-            World w = Bukkit.getWorld(s[0]);
-            if (w == null) continue;
-            int x = Integer.parseInt(s[1]);
-            int y = Integer.parseInt(s[2]);
-            int z = Integer.parseInt(s[3]);
-            Block b = w.getBlockAt(x, y, z);
-            if (b.getType() == Material.SNOW || b.getType() == Material.SNOW_BLOCK) {
-                if (WinterWorldGuardHelper.canModify(b)) {
-                    b.setType(Material.AIR, false);
-                }
-            }
-        }
-        paintedSnow.clear();
-
-        // hielo
-        for (String k : new HashSet<>(paintedIce)) {
-            if (protectedIce.contains(k)) continue; // ✅ NO borres lo del jugador
-
-            String[] s = k.split(";");
-            World w = Bukkit.getWorld(s[0]);
-            if (w == null) continue;
-            int x = Integer.parseInt(s[1]);
-            int y = Integer.parseInt(s[2]);
-            int z = Integer.parseInt(s[3]);
-            Block b = w.getBlockAt(x, y, z);
-            if (b.getType() == Material.ICE || b.getType() == Material.FROSTED_ICE) {
-                if (WinterWorldGuardHelper.canModify(b)) {
-                    b.setType(Material.WATER, false);
-                }
+        // solo chunks cargados: lo de chunks descargados está en su PDC y se revierte al volver
+        for (World w : Bukkit.getWorlds()) {
+            for (long ck : painted.chunksOf(w)) {
+                int cx = PaintedBlockRegistry.chunkX(ck);
+                int cz = PaintedBlockRegistry.chunkZ(ck);
+                if (!w.isChunkLoaded(cx, cz)) continue;
+
+                // nieve
+                painted.drain(PaintedBlockRegistry.Kind.SNOW, w, cx, cz, (world, x, y, z) -> {
+                    Block b = world.getBlockAt(x, y, z);
+                    if (painted.contains(PaintedBlockRegistry.Kind.PROTECTED_SNOW, b)) return; // ✅ NO borres lo del jugador
+                    Material t = b.getType();
+                    if ((t == Material.SNOW || t == Material.SNOW_BLOCK) && WinterWorldGuardHelper.canModify(b)) {
+                        mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.AIR.createBlockData(), t);
+                    }
+                });
+
+                // hielo
+                painted.drain(PaintedBlockRegistry.Kind.ICE, w, cx, cz, (world, x, y, z) -> {
+                    Block b = world.getBlockAt(x, y, z);
+                    if (painted.contains(PaintedBlockRegistry.Kind.PROTECTED_ICE, b)) return; // ✅ NO borres lo del jugador
+                    Material t = b.getType();
+                    if ((t == Material.ICE || t == Material.FROSTED_ICE) && WinterWorldGuardHelper.canModify(b)) {
+                        mutations.revert(BlockMutationService.Source.WINTER_SNOW, b, Material.WATER.createBlockData(), t);
+                    }
+                });
+
+                // hojas igual...
+                painted.drainLeaves(w, cx, cz, Integer.MAX_VALUE, this::revertLeaf);
+                painted.compact(w, cx, cz);
             }
         }
-        paintedIce.clear();
-
-        // hojas igual...
-        for (Map.Entry<String, Material> e : new HashMap<>(paintedLeaves).entrySet()) {
-            String k = e.getKey();
-            Material original = e.getValue();
-            String[] s = k.split(";");
-            World w = Bukkit.getWorld(s[0]);
-            if (w == null) continue;
-            int x = Integer.parseInt(s[1]);
-            int y = Integer.parseInt(s[2]);
-            int z = Integer.parseInt(s[3]);
-            Block b = w.getBlockAt(x, y, z);
-            if (b.getType() == Material.ACACIA_LEAVES) {
-                if (WinterWorldGuardHelper.canModify(b)) {
-                    b.setType(original, false);
-                }
+    }
+
+    /**
+     * Al desregistrar, lo que queda en memoria (p.ej. nieve protegida del jugador)
+     * se vuelca al PDC de cada chunk cargado para no perderlo.
+     */
+    private void spillLoadedChunks() {
+        boolean folia = plugin.getFoliaLib().isFolia();
+        for (World w : Bukkit.getWorlds()) {
+            for (long ck : painted.chunksOf(w)) {
+                int cx = PaintedBlockRegistry.chunkX(ck);
+                int cz = PaintedBlockRegistry.chunkZ(ck);
+                if (!w.isChunkLoaded(cx, cz)) continue;
+                // en Folia el PDC del chunk solo se toca desde su región
+                if (folia) painted.spillOnRegion(w, cx, cz);
+                else painted.onChunkUnload(w.getChunkAt(cx, cz));
             }
-            // Agregado: para que la lógica de revertir no se rompa al final
-            paintedLeaves.remove(k);
         }
+        painted.detach();
     }
 }